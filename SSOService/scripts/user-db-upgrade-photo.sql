@@ -0,0 +1,47 @@
+-- Перенос фото профиля из user_read_model.photo в user_photo для баз, созданных до появления user_photo.
+-- Выполняется один раз, до запуска новой версии сервиса (ddl-auto=validate не примет старую схему).
+-- Миниатюры не строятся: при их отсутствии отдаётся полное фото, новая миниатюра появится при следующей загрузке.
+
+BEGIN;
+
+ALTER TABLE user_read_model ADD COLUMN IF NOT EXISTS photo_hash VARCHAR(64);
+
+CREATE TABLE IF NOT EXISTS user_photo
+(
+    user_id        UUID PRIMARY KEY REFERENCES user_read_model (user_id) ON DELETE CASCADE,
+    content_hash   VARCHAR(64)  NOT NULL,
+    content_type   VARCHAR(100) NOT NULL,
+    image          BYTEA        NOT NULL,
+    thumbnail      BYTEA,
+    thumbnail_type VARCHAR(100),
+    size_bytes     INT          NOT NULL,
+    updated_at     TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+INSERT INTO user_photo (user_id, content_hash, content_type, image, size_bytes, updated_at)
+SELECT user_id,
+       encode(sha256(photo), 'hex'),
+       CASE
+           WHEN substring(photo FROM 1 FOR 3) = '\xffd8ff'::bytea THEN 'image/jpeg'
+           WHEN substring(photo FROM 1 FOR 8) = '\x89504e470d0a1a0a'::bytea THEN 'image/png'
+           WHEN substring(photo FROM 1 FOR 4) = '\x47494638'::bytea THEN 'image/gif'
+           WHEN substring(photo FROM 1 FOR 4) = '\x52494646'::bytea
+               AND substring(photo FROM 9 FOR 4) = '\x57454250'::bytea THEN 'image/webp'
+           ELSE 'application/octet-stream'
+       END,
+       photo,
+       octet_length(photo),
+       now()
+FROM user_read_model
+WHERE photo IS NOT NULL
+ON CONFLICT (user_id) DO NOTHING;
+
+UPDATE user_read_model u
+SET photo_hash = p.content_hash
+FROM user_photo p
+WHERE p.user_id = u.user_id
+  AND u.photo_hash IS DISTINCT FROM p.content_hash;
+
+ALTER TABLE user_read_model DROP COLUMN IF EXISTS photo;
+
+COMMIT;
@@ -23,7 +23,7 @@ CREATE TABLE user_read_model
     role            user_role     NOT NULL,
     password_hash   VARCHAR(255),
     provider        auth_provider NOT NULL,
-    photo           BYTEA,
+    photo_hash      VARCHAR(64),
     organization_id UUID,
     warehouse_id    UUID,
     is_active       BOOLEAN       NOT NULL DEFAULT TRUE,
@@ -31,6 +31,18 @@ CREATE TABLE user_read_model
     updated_at      TIMESTAMP     NOT NULL DEFAULT now()
 );
 
+CREATE TABLE user_photo
+(
+    user_id        UUID PRIMARY KEY REFERENCES user_read_model (user_id) ON DELETE CASCADE,
+    content_hash   VARCHAR(64)  NOT NULL,
+    content_type   VARCHAR(100) NOT NULL,
+    image          BYTEA        NOT NULL,
+    thumbnail      BYTEA,
+    thumbnail_type VARCHAR(100),
+    size_bytes     INT          NOT NULL,
+    updated_at     TIMESTAMP    NOT NULL DEFAULT now()
+);
+
 CREATE TABLE login_audit
 (
     id                 SERIAL PRIMARY KEY,
@@ -46,6 +58,7 @@ CREATE TABLE login_audit
 
 CREATE INDEX idx_login_audit_user_id ON login_audit (user_id);
 CREATE INDEX idx_login_audit_refresh_token_hash ON login_audit (refresh_token_hash);
+CREATE INDEX idx_login_audit_user_active ON login_audit (user_id, login_at DESC) WHERE is_active;
 
 CREATE TABLE oauth_pending_registrations
 (
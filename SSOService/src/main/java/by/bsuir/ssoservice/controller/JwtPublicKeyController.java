@@ -1,5 +1,10 @@
 package by.bsuir.ssoservice.controller;
 
+import by.bsuir.ssoservice.service.JwtTokenService;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -44,7 +49,7 @@ public class JwtPublicKeyController {
             return ResponseEntity.ok(Map.of(
                     "publicKey", publicKeyPEM,
                     "algorithm", "RS256",
-                    "keyId", "sso-key-id"
+                    "keyId", JwtTokenService.KEY_ID
             ));
         } catch (Exception e) {
             log.error("Error getting public key", e);
@@ -52,6 +57,20 @@ public class JwtPublicKeyController {
         }
     }
 
+    @Operation(
+            summary = "Получить JWKS",
+            description = "Возвращает набор ключей подписи в формате JWK Set (RFC 7517). Gateway держит ключи в памяти и перечитывает набор, когда встречает незнакомый kid."
+    )
+    @GetMapping("/jwks")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        RSAKey jwk = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
+                .keyID(JwtTokenService.KEY_ID)
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.RS256)
+                .build();
+        return ResponseEntity.ok(new JWKSet(jwk).toJSONObject());
+    }
+
     private String convertToPEM(RSAPublicKey publicKey) {
         byte[] encoded = publicKey.getEncoded();
         String base64Encoded = Base64.getEncoder().encodeToString(encoded);
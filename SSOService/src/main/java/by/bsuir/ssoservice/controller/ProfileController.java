@@ -5,7 +5,9 @@ import by.bsuir.ssoservice.dto.request.UpdateProfileRequest;
 import by.bsuir.ssoservice.dto.response.SessionInfo;
 import by.bsuir.ssoservice.dto.response.UserResponse;
 import by.bsuir.ssoservice.exception.AppException;
+import by.bsuir.ssoservice.model.entity.UserPhoto;
 import by.bsuir.ssoservice.service.ProfileService;
+import by.bsuir.ssoservice.service.UserPhotoService;
 import by.bsuir.ssoservice.utils.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,6 +19,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +31,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/profile")
@@ -34,6 +40,7 @@ import java.util.UUID;
 public class ProfileController {
 
     private final ProfileService profileService;
+    private final UserPhotoService userPhotoService;
 
     @Operation(
             summary = "Получить профиль текущего пользователя",
@@ -111,6 +118,40 @@ public class ProfileController {
         return ResponseEntity.ok(Map.of("photoUrl", photoUrl));
     }
 
+    @Operation(
+            summary = "Получить фото профиля",
+            description = "Отдаёт фото или миниатюру по ссылке из профиля. Адрес содержит хэш содержимого, "
+                    + "поэтому ответ кэшируется без срока, а If-None-Match проверяется без чтения фото"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Фото получено"),
+            @ApiResponse(responseCode = "304", description = "Фото не изменилось"),
+            @ApiResponse(responseCode = "404", description = "Фото не найдено или заменено")
+    })
+    @GetMapping("/photos/{userId}/{photoHash}")
+    public ResponseEntity<byte[]> getPhoto(
+            @Parameter(description = "ID пользователя", required = true) @PathVariable UUID userId,
+            @Parameter(description = "Хэш фото из профиля", required = true) @PathVariable String photoHash,
+            @Parameter(description = "full или thumb") @RequestParam(defaultValue = "full") String size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        boolean thumbnail = UserPhotoService.THUMBNAIL.equals(size);
+        String etag = "\"" + photoHash + (thumbnail ? "-" + UserPhotoService.THUMBNAIL : "") + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        UserPhoto photo = userPhotoService.find(userId, photoHash)
+                .orElseThrow(() -> AppException.notFound("Фото не найдено"));
+        boolean useThumbnail = thumbnail && photo.getThumbnail() != null;
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(useThumbnail ? photo.getThumbnailType() : photo.getContentType()))
+                .body(useThumbnail ? photo.getThumbnail() : photo.getImage());
+    }
+
     @Operation(
             summary = "Удалить фото профиля",
             description = "Удаляет фото профиля пользователя"
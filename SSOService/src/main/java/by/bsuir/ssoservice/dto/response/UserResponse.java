@@ -9,7 +9,8 @@ public record UserResponse(
         String email,
         String fullName,
         UserRole role,
-        String photoBase64,
+        String photoUrl,
+        String photoThumbnailUrl,
         UUID organizationId,
         UUID warehouseId
 ) {}
@@ -0,0 +1,52 @@
+package by.bsuir.ssoservice.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Фото профиля, вынесенное из {@link UserReadModel}: строка пользователя читается на каждом
+ * входе и запросе профиля, а байты изображения нужны только при отдаче самого фото.
+ */
+@Entity
+@Table(name = "user_photo")
+@Builder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPhoto {
+
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    @Column(name = "image", nullable = false, columnDefinition = "bytea")
+    private byte[] image;
+
+    @Column(name = "thumbnail", columnDefinition = "bytea")
+    private byte[] thumbnail;
+
+    @Column(name = "thumbnail_type", length = 100)
+    private String thumbnailType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Integer sizeBytes;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -46,8 +46,9 @@ public class UserReadModel {
     )
     private AuthProvider provider;
 
-    @Column(name = "photo", columnDefinition = "bytea")
-    private byte[] photo;
+    /** SHA-256 текущего фото; сами байты лежат в {@link UserPhoto}. */
+    @Column(name = "photo_hash", length = 64)
+    private String photoHash;
 
     @Column(name = "organization_id")
     private UUID organizationId;
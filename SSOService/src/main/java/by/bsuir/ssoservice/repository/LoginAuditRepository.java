@@ -15,15 +15,30 @@ public interface LoginAuditRepository extends JpaRepository<LoginAudit, Integer>
 
     List<LoginAudit> findByUserIdAndIsActiveTrueOrderByLoginAtDesc(UUID userId);
 
-    List<LoginAudit> findByUserIdAndIsActiveTrue(UUID userId);
-
     @Modifying
     @Query("UPDATE LoginAudit la SET la.isActive = false, la.logoutAt = CURRENT_TIMESTAMP WHERE la.id = :id")
     void deactivateSessionById(@Param("id") Integer id);
 
     @Modifying
     @Query("UPDATE LoginAudit la SET la.isActive = false, la.logoutAt = CURRENT_TIMESTAMP WHERE la.userId = :userId AND la.isActive = true")
-    void deactivateAllUserSessions(@Param("userId") UUID userId);
+    int deactivateAllUserSessions(@Param("userId") UUID userId);
+
+    @Modifying
+    @Query("UPDATE LoginAudit la SET la.isActive = false, la.logoutAt = CURRENT_TIMESTAMP "
+            + "WHERE la.userId = :userId AND la.isActive = true "
+            + "AND (la.refreshTokenHash IS NULL OR la.refreshTokenHash <> :keepHash)")
+    int deactivateAllUserSessionsExcept(@Param("userId") UUID userId, @Param("keepHash") String keepHash);
+
+    @Modifying
+    @Query("UPDATE LoginAudit la SET la.isActive = false, la.logoutAt = CURRENT_TIMESTAMP "
+            + "WHERE la.refreshTokenHash = :hash AND la.isActive = true")
+    int deactivateByRefreshTokenHash(@Param("hash") String hash);
+
+    /** Переносит сессию на новый refresh-токен после ротации, чтобы выход и отзыв находили её по дайджесту. */
+    @Modifying
+    @Query("UPDATE LoginAudit la SET la.refreshTokenHash = :newHash "
+            + "WHERE la.refreshTokenHash = :oldHash AND la.isActive = true")
+    int rotateRefreshTokenHash(@Param("oldHash") String oldHash, @Param("newHash") String newHash);
 
     @Modifying
     @Query("DELETE FROM LoginAudit la WHERE la.userId = :userId")
@@ -0,0 +1,11 @@
+package by.bsuir.ssoservice.repository;
+
+import by.bsuir.ssoservice.model.entity.UserPhoto;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface UserPhotoRepository extends JpaRepository<UserPhoto, UUID> {
+}
@@ -21,6 +21,9 @@ import java.util.UUID;
 @Service
 public class JwtTokenService {
 
+    /** Идентификатор ключа подписи в заголовке {@code kid}; тот же kid отдаёт {@code /api/auth/jwks}. */
+    public static final String KEY_ID = "sso-key-id";
+
     private final KeyPair keyPair;
     private final long accessTokenValidity;
     private final long refreshTokenValidity;
@@ -60,7 +63,7 @@ public class JwtTokenService {
 
             SignedJWT signedJWT = new SignedJWT(
                     new JWSHeader.Builder(JWSAlgorithm.RS256)
-                            .keyID("sso-key-id")
+                            .keyID(KEY_ID)
                             .build(),
                     claimsSet
             );
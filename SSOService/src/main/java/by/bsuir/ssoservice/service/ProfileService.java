@@ -22,7 +22,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -40,23 +39,20 @@ public class ProfileService {
     private final RefreshTokenService refreshTokenService;
     private final PasswordEncoder passwordEncoder;
     private final RabbitTemplate rabbitTemplate;
+    private final UserPhotoService userPhotoService;
 
     @Transactional(readOnly = true)
     public UserResponse getUserProfile(UUID userId) {
         UserReadModel user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
 
-        String photoBase64 = null;
-        if (user.getPhoto() != null && user.getPhoto().length > 0) {
-            photoBase64 = Base64.getEncoder().encodeToString(user.getPhoto());
-        }
-
         return new UserResponse(
                 user.getUserId(),
                 user.getEmail(),
                 user.getFullName(),
                 user.getRole(),
-                photoBase64,
+                UserPhotoService.photoUrl(user.getUserId(), user.getPhotoHash()),
+                UserPhotoService.thumbnailUrl(user.getUserId(), user.getPhotoHash()),
                 user.getOrganizationId(),
                 user.getWarehouseId()
         );
@@ -96,17 +92,13 @@ public class ProfileService {
 
         log.info("Profile updated for user: {}", userId);
 
-        String photoBase64 = null;
-        if (updatedUser.getPhoto() != null && updatedUser.getPhoto().length > 0) {
-            photoBase64 = Base64.getEncoder().encodeToString(updatedUser.getPhoto());
-        }
-
         return new UserResponse(
                 updatedUser.getUserId(),
                 updatedUser.getEmail(),
                 updatedUser.getFullName(),
                 updatedUser.getRole(),
-                photoBase64,
+                UserPhotoService.photoUrl(updatedUser.getUserId(), updatedUser.getPhotoHash()),
+                UserPhotoService.thumbnailUrl(updatedUser.getUserId(), updatedUser.getPhotoHash()),
                 updatedUser.getOrganizationId(),
                 updatedUser.getWarehouseId()
         );
@@ -126,14 +118,16 @@ public class ProfileService {
             throw new RuntimeException("Файл должен быть изображением");
         }
 
-        byte[] photoBytes = photo.getBytes();
-        user.setPhoto(photoBytes);
-        user.setUpdatedAt(LocalDateTime.now());
-        userRepository.save(user);
+        String photoHash = userPhotoService.store(userId, photo.getBytes(), contentType);
+        if (!photoHash.equals(user.getPhotoHash())) {
+            user.setPhotoHash(photoHash);
+            user.setUpdatedAt(LocalDateTime.now());
+            userRepository.save(user);
+        }
 
-        log.info("Photo uploaded for user: {}, size: {} bytes", userId, photoBytes.length);
+        log.info("Photo uploaded for user: {}, size: {} bytes", userId, photo.getSize());
 
-        return Base64.getEncoder().encodeToString(photoBytes);
+        return UserPhotoService.photoUrl(userId, photoHash);
     }
 
     @Transactional
@@ -141,8 +135,9 @@ public class ProfileService {
         UserReadModel user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
 
-        if (user.getPhoto() != null) {
-            user.setPhoto(null);
+        if (user.getPhotoHash() != null) {
+            userPhotoService.delete(userId);
+            user.setPhotoHash(null);
             user.setUpdatedAt(LocalDateTime.now());
             userRepository.save(user);
 
@@ -153,6 +148,7 @@ public class ProfileService {
     @Transactional(readOnly = true)
     public List<SessionInfo> getActiveSessions(UUID userId, String currentToken) {
         List<LoginAudit> sessions = loginAuditRepository.findByUserIdAndIsActiveTrueOrderByLoginAtDesc(userId);
+        String currentDigest = currentTokenDigest(currentToken);
 
         return sessions.stream()
                 .map(session -> new SessionInfo(
@@ -160,20 +156,16 @@ public class ProfileService {
                         session.getIpAddress(),
                         session.getUserAgent(),
                         session.getLoginAt(),
-                        isCurrentSession(session, currentToken)
+                        currentDigest != null && currentDigest.equals(session.getRefreshTokenHash())
                 ))
                 .collect(Collectors.toList());
     }
 
-    private boolean isCurrentSession(LoginAudit session, String currentToken) {
-        if (currentToken == null || currentToken.isBlank() || session.getRefreshTokenHash() == null) {
-            return false;
-        }
-        try {
-            return passwordEncoder.matches(currentToken, session.getRefreshTokenHash());
-        } catch (Exception e) {
-            return false;
+    private String currentTokenDigest(String currentToken) {
+        if (currentToken == null || currentToken.isBlank()) {
+            return null;
         }
+        return refreshTokenService.digest(currentToken);
     }
 
     @Transactional
@@ -213,8 +205,7 @@ public class ProfileService {
         }
 
         if (session.getRefreshTokenHash() != null) {
-            boolean removed = refreshTokenService.deleteUserTokenByHash(
-                    userId, session.getRefreshTokenHash(), passwordEncoder);
+            boolean removed = refreshTokenService.deleteUserToken(userId, session.getRefreshTokenHash());
             if (!removed) {
                 log.debug("Redis refresh token for session {} not found (already expired or never tracked)", sessionId);
             }
@@ -227,15 +218,10 @@ public class ProfileService {
 
     @Transactional
     public void terminateAllSessions(UUID userId, String currentToken) {
-        List<LoginAudit> activeSessions = loginAuditRepository.findByUserIdAndIsActiveTrue(userId);
-        int terminated = 0;
-        for (LoginAudit session : activeSessions) {
-            if (isCurrentSession(session, currentToken)) {
-                continue;
-            }
-            loginAuditRepository.deactivateSessionById(session.getId());
-            terminated++;
-        }
+        String currentDigest = currentTokenDigest(currentToken);
+        int terminated = currentDigest == null
+                ? loginAuditRepository.deactivateAllUserSessions(userId)
+                : loginAuditRepository.deactivateAllUserSessionsExcept(userId, currentDigest);
         refreshTokenService.deleteAllUserTokensExcept(userId, currentToken);
         log.info("Terminated {} sessions for user {} (current session preserved)", terminated, userId);
     }
@@ -251,6 +237,9 @@ public class ProfileService {
         refreshTokenService.deleteAllUserTokens(userId);
         loginAuditRepository.deleteByUserId(userId);
         userEventRepository.deleteByUserId(userId);
+        if (user.getPhotoHash() != null) {
+            userPhotoService.delete(userId);
+        }
         userRepository.delete(user);
 
         if (role == UserRole.DIRECTOR && orgId != null) {
@@ -1,92 +1,151 @@
 package by.bsuir.ssoservice.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
+/**
+ * Refresh-токены в Redis с индексом по пользователю.
+ * <p>
+ * Токен хранится под ключом {@code refresh_token:<digest>}, где digest — HMAC-SHA256 токена: токены
+ * случайны и высокоэнтропийны, поэтому BCrypt им не нужен, а детерминированный дайджест позволяет
+ * находить сессию одним обращением. Дайджесты токенов пользователя лежат в sorted set
+ * {@code refresh_tokens:user:<userId>} со временем истечения в качестве score, так что выход со всех
+ * устройств и отзыв одной сессии затрагивают только сессии этого пользователя, без KEYS по всему Redis.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class RefreshTokenService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-
     private static final String REFRESH_TOKEN_PREFIX = "refresh_token:";
+    private static final String USER_TOKENS_PREFIX = "refresh_tokens:user:";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final StringRedisTemplate redisTemplate;
+    private final SecretKeySpec digestKey;
+
+    public RefreshTokenService(
+            StringRedisTemplate redisTemplate,
+            @Value("${app.security.refresh-token.digest-key:}") String digestKeyBase64) {
+        this.redisTemplate = redisTemplate;
+        this.digestKey = loadDigestKey(digestKeyBase64);
+    }
+
+    /** Детерминированный дайджест токена: ключ в Redis и значение {@code login_audit.refresh_token_hash}. */
+    public String digest(String refreshToken) {
+        try {
+            byte[] raw = refreshToken.getBytes(StandardCharsets.UTF_8);
+            byte[] hash;
+            if (digestKey != null) {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(digestKey);
+                hash = mac.doFinal(raw);
+            } else {
+                hash = MessageDigest.getInstance("SHA-256").digest(raw);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to digest refresh token", e);
+        }
+    }
 
     public void saveRefreshToken(String refreshToken, UUID userId, Duration ttl) {
-        String key = REFRESH_TOKEN_PREFIX + refreshToken;
-        redisTemplate.opsForValue().set(key, userId.toString(), ttl);
+        String digest = digest(refreshToken);
+        String indexKey = userIndexKey(userId);
+        long now = System.currentTimeMillis();
+
+        redisTemplate.opsForValue().set(REFRESH_TOKEN_PREFIX + digest, userId.toString(), ttl);
+        redisTemplate.opsForZSet().add(indexKey, digest, now + ttl.toMillis());
+        redisTemplate.opsForZSet().removeRangeByScore(indexKey, Double.NEGATIVE_INFINITY, now);
+        // Все токены выдаются с одинаковым TTL, поэтому последний выданный живёт дольше остальных.
+        redisTemplate.expire(indexKey, ttl);
         log.debug("Refresh token saved for user: {}", userId);
     }
 
     public UUID getUserIdByRefreshToken(String refreshToken) {
-        String key = REFRESH_TOKEN_PREFIX + refreshToken;
-        Object userId = redisTemplate.opsForValue().get(key);
-        if (userId != null) {
-            return UUID.fromString(userId.toString());
-        }
-        return null;
+        String userId = redisTemplate.opsForValue().get(REFRESH_TOKEN_PREFIX + digest(refreshToken));
+        return userId != null ? UUID.fromString(userId) : null;
     }
 
     public void deleteRefreshToken(String refreshToken) {
-        String key = REFRESH_TOKEN_PREFIX + refreshToken;
+        String digest = digest(refreshToken);
+        String key = REFRESH_TOKEN_PREFIX + digest;
+        String userId = redisTemplate.opsForValue().get(key);
         redisTemplate.delete(key);
-        log.debug("Refresh token deleted: {}", refreshToken);
+        if (userId != null) {
+            redisTemplate.opsForZSet().remove(userIndexKey(UUID.fromString(userId)), digest);
+        }
+        log.debug("Refresh token deleted");
     }
 
     public void deleteAllUserTokens(UUID userId) {
         deleteAllUserTokensExcept(userId, null);
     }
 
-    public boolean deleteUserTokenByHash(UUID userId, String hash, PasswordEncoder passwordEncoder) {
-        if (hash == null || hash.isBlank()) {
-            return false;
-        }
-        String pattern = REFRESH_TOKEN_PREFIX + "*";
-        var keys = redisTemplate.keys(pattern);
-        if (keys == null) {
+    /** Отзывает одну сессию пользователя по дайджесту её refresh-токена. */
+    public boolean deleteUserToken(UUID userId, String tokenDigest) {
+        if (tokenDigest == null || tokenDigest.isBlank()) {
             return false;
         }
-        for (String key : keys) {
-            try {
-                Object storedUserId = redisTemplate.opsForValue().get(key);
-                if (!userId.toString().equals(storedUserId)) {
-                    continue;
-                }
-                String plainToken = key.substring(REFRESH_TOKEN_PREFIX.length());
-                if (passwordEncoder.matches(plainToken, hash)) {
-                    redisTemplate.delete(key);
-                    log.debug("Refresh token matched and deleted for user {}", userId);
-                    return true;
-                }
-            } catch (Exception ex) {
-                log.debug("deleteUserTokenByHash: skipping key {} due to {}", key, ex.getMessage());
-            }
-        }
-        return false;
+        Long removed = redisTemplate.opsForZSet().remove(userIndexKey(userId), tokenDigest);
+        Boolean deleted = redisTemplate.delete(REFRESH_TOKEN_PREFIX + tokenDigest);
+        return Boolean.TRUE.equals(deleted) || (removed != null && removed > 0);
     }
 
     public void deleteAllUserTokensExcept(UUID userId, String exceptToken) {
-        String pattern = REFRESH_TOKEN_PREFIX + "*";
-        var keys = redisTemplate.keys(pattern);
-        if (keys == null) {
+        String indexKey = userIndexKey(userId);
+        Set<String> digests = redisTemplate.opsForZSet().range(indexKey, 0, -1);
+        if (digests == null || digests.isEmpty()) {
             return;
         }
-        String exceptKey = exceptToken == null ? null : REFRESH_TOKEN_PREFIX + exceptToken;
-        keys.forEach(key -> {
-            if (key.equals(exceptKey)) {
-                return;
-            }
-            Object storedUserId = redisTemplate.opsForValue().get(key);
-            if (userId.toString().equals(storedUserId)) {
-                redisTemplate.delete(key);
+        String exceptDigest = exceptToken == null ? null : digest(exceptToken);
+        List<String> revoked = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (String digest : digests) {
+            if (!digest.equals(exceptDigest)) {
+                revoked.add(digest);
+                keys.add(REFRESH_TOKEN_PREFIX + digest);
             }
-        });
-        log.debug("All tokens deleted for user: {} (kept: {})", userId, exceptToken == null ? "none" : "current");
+        }
+        if (revoked.isEmpty()) {
+            return;
+        }
+        redisTemplate.delete(keys);
+        if (revoked.size() == digests.size()) {
+            redisTemplate.delete(indexKey);
+        } else {
+            redisTemplate.opsForZSet().remove(indexKey, revoked.toArray());
+        }
+        log.debug("Deleted {} refresh tokens for user: {} (kept: {})",
+                revoked.size(), userId, exceptToken == null ? "none" : "current");
+    }
+
+    private static String userIndexKey(UUID userId) {
+        return USER_TOKENS_PREFIX + userId;
+    }
+
+    private static SecretKeySpec loadDigestKey(String digestKeyBase64) {
+        if (digestKeyBase64 == null || digestKeyBase64.isBlank()) {
+            log.warn("APP_REFRESH_TOKEN_DIGEST_KEY is not set, refresh tokens are digested with plain SHA-256");
+            return null;
+        }
+        byte[] keyBytes = Base64.getDecoder().decode(digestKeyBase64);
+        if (keyBytes.length < 32) {
+            throw new IllegalStateException("APP_REFRESH_TOKEN_DIGEST_KEY must be at least 32 bytes (256-bit)");
+        }
+        return new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
     }
 }
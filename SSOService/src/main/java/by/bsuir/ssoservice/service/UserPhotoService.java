@@ -0,0 +1,146 @@
+package by.bsuir.ssoservice.service;
+
+import by.bsuir.ssoservice.model.entity.UserPhoto;
+import by.bsuir.ssoservice.repository.UserPhotoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Хранение фото профиля отдельно от {@code user_read_model}.
+ * <p>
+ * Фото адресуется SHA-256 содержимого: в профиле отдаётся только ссылка
+ * {@code /api/profile/photos/{userId}/{hash}}, а по ней — неизменяемые байты, которые браузер и прокси
+ * кэшируют без срока. Миниатюра строится один раз при загрузке, а не на каждый просмотр.
+ */
+@Slf4j
+@Service
+public class UserPhotoService {
+
+    public static final String PHOTOS_PATH = "/api/profile/photos/";
+    public static final String THUMBNAIL = "thumb";
+
+    private final UserPhotoRepository photoRepository;
+    private final int thumbnailSize;
+
+    public UserPhotoService(
+            UserPhotoRepository photoRepository,
+            @Value("${app.profile.photo.thumbnail-size:128}") int thumbnailSize) {
+        this.photoRepository = photoRepository;
+        this.thumbnailSize = thumbnailSize;
+    }
+
+    public static String photoUrl(UUID userId, String photoHash) {
+        return photoHash == null ? null : PHOTOS_PATH + userId + "/" + photoHash;
+    }
+
+    public static String thumbnailUrl(UUID userId, String photoHash) {
+        return photoHash == null ? null : photoUrl(userId, photoHash) + "?size=" + THUMBNAIL;
+    }
+
+    /** Сохраняет фото с миниатюрой и возвращает хэш содержимого для {@code user_read_model.photo_hash}. */
+    @Transactional
+    public String store(UUID userId, byte[] image, String contentType) {
+        String hash = hash(image);
+        UserPhoto photo = photoRepository.findById(userId)
+                .orElseGet(() -> UserPhoto.builder().userId(userId).build());
+        if (hash.equals(photo.getContentHash())) {
+            return hash;
+        }
+
+        photo.setContentHash(hash);
+        photo.setContentType(contentType != null ? contentType : detectContentType(image));
+        photo.setImage(image);
+        photo.setSizeBytes(image.length);
+        photo.setThumbnail(null);
+        photo.setThumbnailType(null);
+        createThumbnail(photo);
+        photoRepository.save(photo);
+
+        log.info("Photo stored for user: {}, size: {} bytes, thumbnail: {} bytes", userId, image.length,
+                photo.getThumbnail() != null ? photo.getThumbnail().length : 0);
+        return hash;
+    }
+
+    /** Фото по адресу из профиля; пусто, если фото нет или оно уже заменено другим. */
+    @Transactional(readOnly = true)
+    public Optional<UserPhoto> find(UUID userId, String photoHash) {
+        return photoRepository.findById(userId)
+                .filter(photo -> photo.getContentHash().equals(photoHash));
+    }
+
+    @Transactional
+    public void delete(UUID userId) {
+        photoRepository.deleteById(userId);
+    }
+
+    private void createThumbnail(UserPhoto photo) {
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(photo.getImage()));
+            if (source == null) {
+                log.debug("Unsupported image format for thumbnail: {}", photo.getContentType());
+                return;
+            }
+            int width = source.getWidth();
+            int height = source.getHeight();
+            if (width <= thumbnailSize && height <= thumbnailSize) {
+                return;
+            }
+
+            double scale = (double) thumbnailSize / Math.max(width, height);
+            int targetWidth = Math.max(1, (int) Math.round(width * scale));
+            int targetHeight = Math.max(1, (int) Math.round(height * scale));
+            boolean alpha = source.getColorModel().hasAlpha();
+
+            BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = target.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(target, alpha ? "png" : "jpg", out);
+            photo.setThumbnail(out.toByteArray());
+            photo.setThumbnailType(alpha ? "image/png" : "image/jpeg");
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to create photo thumbnail for user {}: {}", photo.getUserId(), e.getMessage());
+        }
+    }
+
+    private static String detectContentType(byte[] image) {
+        try {
+            String detected = URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(image));
+            return detected != null ? detected : "application/octet-stream";
+        } catch (IOException e) {
+            return "application/octet-stream";
+        }
+    }
+
+    private static String hash(byte[] image) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(image));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -23,11 +23,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Base64;
-
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.UUID;
 
 @Slf4j
@@ -43,6 +40,7 @@ public class UserService {
     private final LoginAuditRepository loginAuditRepository;
     private final ObjectMapper objectMapper;
     private final InvitationValidationService invitationValidationService;
+    private final UserPhotoService userPhotoService;
 
     @Transactional
     public AuthResponse registerDirector(RegisterDirectorRequest request, String ipAddress, String userAgent) {
@@ -181,7 +179,7 @@ public class UserService {
         return generateTokensWithAudit(user, ipAddress, userAgent);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional
     public AuthResponse refreshToken(String refreshToken) {
         UUID userId = refreshTokenService.getUserIdByRefreshToken(refreshToken);
 
@@ -198,7 +196,10 @@ public class UserService {
 
         refreshTokenService.deleteRefreshToken(refreshToken);
 
-        return generateTokens(user);
+        AuthResponse response = generateTokens(user);
+        loginAuditRepository.rotateRefreshTokenHash(
+                refreshTokenService.digest(refreshToken), refreshTokenService.digest(response.refreshToken()));
+        return response;
     }
 
     @Transactional
@@ -208,23 +209,10 @@ public class UserService {
                 throw AppException.badRequest("Токен обновления обязателен");
             }
 
-            UUID userId = refreshTokenService.getUserIdByRefreshToken(refreshToken);
-            if (userId == null) {
-                log.warn("Refresh token not found in Redis, trying to deactivate session anyway");
-
+            if (loginAuditRepository.deactivateByRefreshTokenHash(refreshTokenService.digest(refreshToken)) > 0) {
+                log.info("Session deactivated on logout");
             } else {
-                List<LoginAudit> activeSessions = loginAuditRepository.findByUserIdAndIsActiveTrue(userId);
-
-                for (LoginAudit session : activeSessions) {
-                    if (session.getRefreshTokenHash() != null &&
-                        passwordEncoder.matches(refreshToken, session.getRefreshTokenHash())) {
-                        session.setIsActive(false);
-                        session.setLogoutAt(LocalDateTime.now());
-                        loginAuditRepository.save(session);
-                        log.info("Session deactivated for user: {}", userId);
-                        break;
-                    }
-                }
+                log.warn("No active session found for refresh token on logout");
             }
 
             refreshTokenService.deleteRefreshToken(refreshToken);
@@ -249,17 +237,13 @@ public class UserService {
         UserReadModel user = readModelRepository.findById(userId)
                 .orElseThrow(() -> AppException.notFound("Пользователь не найден"));
 
-        String photoBase64 = null;
-        if (user.getPhoto() != null) {
-            photoBase64 = Base64.getEncoder().encodeToString(user.getPhoto());
-        }
-
         return new UserResponse(
                 user.getUserId(),
                 user.getEmail(),
                 user.getFullName(),
                 user.getRole(),
-                photoBase64,
+                UserPhotoService.photoUrl(user.getUserId(), user.getPhotoHash()),
+                UserPhotoService.thumbnailUrl(user.getUserId(), user.getPhotoHash()),
                 user.getOrganizationId(),
                 user.getWarehouseId()
         );
@@ -310,7 +294,7 @@ public class UserService {
                 Duration.ofSeconds(jwtTokenService.getRefreshTokenValidity())
         );
 
-        String refreshTokenHash = passwordEncoder.encode(refreshToken);
+        String refreshTokenHash = refreshTokenService.digest(refreshToken);
 
         LoginAudit loginAudit = LoginAudit.builder()
                 .userId(user.getUserId())
@@ -392,7 +376,6 @@ public class UserService {
                 .role(role)
                 .passwordHash(null)
                 .provider(AuthProvider.valueOf(provider.toUpperCase()))
-                .photo(photo)
                 .organizationId(organizationId)
                 .warehouseId(warehouseId)
                 .isActive(true)
@@ -401,6 +384,10 @@ public class UserService {
                 .build();
 
         readModelRepository.save(readModel);
+        if (photo != null && photo.length > 0) {
+            readModel.setPhotoHash(userPhotoService.store(userId, photo, null));
+            readModelRepository.save(readModel);
+        }
         log.info("OAuth user created: {} via {}", email, provider);
 
         return readModel;
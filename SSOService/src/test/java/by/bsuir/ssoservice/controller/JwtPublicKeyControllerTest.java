@@ -1,6 +1,8 @@
 package by.bsuir.ssoservice.controller;
 
-import org.junit.jupiter.api.BeforeEach;
+import by.bsuir.ssoservice.service.JwtTokenService;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -27,14 +29,11 @@ class JwtPublicKeyControllerTest {
     @InjectMocks
     private JwtPublicKeyController jwtPublicKeyController;
 
-    @BeforeEach
-    void setUp() throws Exception {
+    @Test
+    void getPublicKey_ShouldReturnPublicKeyInfo() throws Exception {
         when(keyPair.getPublic()).thenReturn(publicKey);
         when(publicKey.getEncoded()).thenReturn(generatePublicKeyBytes());
-    }
 
-    @Test
-    void getPublicKey_ShouldReturnPublicKeyInfo() {
         ResponseEntity<Map<String, String>> response = jwtPublicKeyController.getPublicKey();
 
         assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
@@ -44,6 +43,21 @@ class JwtPublicKeyControllerTest {
         assertThat(response.getBody().get("keyId")).isEqualTo("sso-key-id");
     }
 
+    @Test
+    void getJwks_ShouldPublishSigningKeyWithTokenKid() throws Exception {
+        KeyPair signingKeyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        when(keyPair.getPublic()).thenReturn(signingKeyPair.getPublic());
+
+        ResponseEntity<Map<String, Object>> response = jwtPublicKeyController.getJwks();
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        JWKSet jwkSet = JWKSet.parse(response.getBody());
+        RSAKey key = (RSAKey) jwkSet.getKeyByKeyId(JwtTokenService.KEY_ID);
+        assertThat(key).isNotNull();
+        assertThat(key.isPrivate()).isFalse();
+        assertThat(key.toRSAPublicKey()).isEqualTo(signingKeyPair.getPublic());
+    }
+
     private byte[] generatePublicKeyBytes() throws Exception {
         KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
         keyPairGenerator.initialize(2048);
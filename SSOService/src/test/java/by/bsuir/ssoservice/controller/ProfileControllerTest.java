@@ -1,8 +1,10 @@
 package by.bsuir.ssoservice.controller;
 
 import by.bsuir.ssoservice.dto.response.UserResponse;
+import by.bsuir.ssoservice.model.entity.UserPhoto;
 import by.bsuir.ssoservice.model.enums.UserRole;
 import by.bsuir.ssoservice.service.ProfileService;
+import by.bsuir.ssoservice.service.UserPhotoService;
 import by.bsuir.ssoservice.utils.SecurityUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,12 +14,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +32,9 @@ class ProfileControllerTest {
     @Mock
     private ProfileService profileService;
 
+    @Mock
+    private UserPhotoService userPhotoService;
+
     @InjectMocks
     private ProfileController profileController;
 
@@ -50,6 +59,7 @@ class ProfileControllerTest {
                 "testuser",
                 UserRole.WORKER,
                 null,
+                null,
                 UUID.randomUUID(),
                 UUID.randomUUID()
         );
@@ -64,4 +74,37 @@ class ProfileControllerTest {
         assertThat(responseEntity.getBody().userId()).isEqualTo(userId);
         assertThat(responseEntity.getBody().fullName()).isEqualTo("testuser");
     }
+
+    @Test
+    void givenPhotoHash_whenGetPhoto_thenReturnsImmutableCachedThumbnail() {
+        UUID userId = UUID.randomUUID();
+        UserPhoto photo = UserPhoto.builder()
+                .userId(userId)
+                .contentHash("abc123")
+                .contentType("image/png")
+                .image(new byte[]{1, 2, 3})
+                .thumbnail(new byte[]{4})
+                .thumbnailType("image/jpeg")
+                .build();
+        when(userPhotoService.find(userId, "abc123")).thenReturn(Optional.of(photo));
+
+        ResponseEntity<byte[]> responseEntity = profileController.getPhoto(userId, "abc123", "thumb", null);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).containsExactly(4);
+        assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.IMAGE_JPEG);
+        assertThat(responseEntity.getHeaders().getETag()).isEqualTo("\"abc123-thumb\"");
+        assertThat(responseEntity.getHeaders().getCacheControl()).contains("immutable");
+    }
+
+    @Test
+    void givenMatchingIfNoneMatch_whenGetPhoto_thenReturnsNotModifiedWithoutLoadingPhoto() {
+        UUID userId = UUID.randomUUID();
+
+        ResponseEntity<byte[]> responseEntity = profileController.getPhoto(userId, "abc123", "full", "\"abc123\"");
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(responseEntity.getBody()).isNull();
+        verifyNoInteractions(userPhotoService);
+    }
 }
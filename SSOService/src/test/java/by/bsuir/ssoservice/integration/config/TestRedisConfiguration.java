@@ -6,7 +6,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
 
 import java.time.Duration;
 import java.util.Map;
@@ -81,5 +83,14 @@ public class TestRedisConfiguration {
 
         return template;
     }
-}
 
+    @Bean
+    @Primary
+    @SuppressWarnings("unchecked")
+    public StringRedisTemplate stringRedisTemplate() {
+        StringRedisTemplate template = Mockito.mock(StringRedisTemplate.class);
+        when(template.opsForValue()).thenReturn(Mockito.mock(ValueOperations.class));
+        when(template.opsForZSet()).thenReturn(Mockito.mock(ZSetOperations.class));
+        return template;
+    }
+}
@@ -29,6 +29,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,42 +41,46 @@ class ProfileServiceTest {
     @Mock private RefreshTokenService refreshTokenService;
     @Mock private PasswordEncoder passwordEncoder;
     @Mock private RabbitTemplate rabbitTemplate;
+    @Mock private UserPhotoService userPhotoService;
 
     @InjectMocks private ProfileService service;
 
-    private UserReadModel user(UUID id, String email, String passwordHash, byte[] photo) {
+    private UserReadModel user(UUID id, String email, String passwordHash, String photoHash) {
         UserReadModel u = new UserReadModel();
         u.setUserId(id);
         u.setEmail(email);
         u.setFullName("Test User");
         u.setRole(UserRole.WORKER);
         u.setPasswordHash(passwordHash);
-        u.setPhoto(photo);
+        u.setPhotoHash(photoHash);
         u.setIsActive(true);
         return u;
     }
 
     @Test
-    @DisplayName("getUserProfile: возвращает UserResponse с base64-фото если оно есть")
-    void getUserProfile_GivenUserWithPhoto_ShouldReturnBase64() {
+    @DisplayName("getUserProfile: с фото → ссылки на фото и миниатюру по хэшу, без чтения байтов")
+    void getUserProfile_GivenUserWithPhoto_ShouldReturnPhotoUrls() {
         UUID id = UUID.randomUUID();
-        when(userRepository.findById(id)).thenReturn(Optional.of(user(id, "u@e.com", "hash", new byte[]{1, 2, 3})));
+        when(userRepository.findById(id)).thenReturn(Optional.of(user(id, "u@e.com", "hash", "abc123")));
 
         var resp = service.getUserProfile(id);
 
         assertThat(resp.userId()).isEqualTo(id);
         assertThat(resp.email()).isEqualTo("u@e.com");
-        assertThat(resp.photoBase64()).isNotNull();
+        assertThat(resp.photoUrl()).isEqualTo("/api/profile/photos/" + id + "/abc123");
+        assertThat(resp.photoThumbnailUrl()).isEqualTo("/api/profile/photos/" + id + "/abc123?size=thumb");
+        verifyNoInteractions(userPhotoService);
     }
 
     @Test
-    @DisplayName("getUserProfile: без фото → photoBase64 == null")
+    @DisplayName("getUserProfile: без фото → photoUrl == null")
     void getUserProfile_GivenNoPhoto_ShouldReturnNullPhoto() {
         UUID id = UUID.randomUUID();
         when(userRepository.findById(id)).thenReturn(Optional.of(user(id, "u@e.com", "hash", null)));
 
         var resp = service.getUserProfile(id);
-        assertThat(resp.photoBase64()).isNull();
+        assertThat(resp.photoUrl()).isNull();
+        assertThat(resp.photoThumbnailUrl()).isNull();
     }
 
     @Test
@@ -166,32 +171,48 @@ class ProfileServiceTest {
     }
 
     @Test
-    @DisplayName("uploadPhoto: image/jpeg в норме → сохраняет байты и возвращает base64")
-    void uploadPhoto_GivenValid_ShouldSaveAndReturnBase64() throws Exception {
+    @DisplayName("uploadPhoto: image/jpeg в норме → байты в отдельное хранилище, в профиле только хэш")
+    void uploadPhoto_GivenValid_ShouldStoreAndReturnUrl() throws Exception {
         UUID id = UUID.randomUUID();
         UserReadModel u = user(id, "u@e.com", "h", null);
         when(userRepository.findById(id)).thenReturn(Optional.of(u));
         byte[] data = new byte[]{10, 20, 30};
         var photo = new org.springframework.mock.web.MockMultipartFile(
                 "photo", "p.jpg", "image/jpeg", data);
+        when(userPhotoService.store(id, data, "image/jpeg")).thenReturn("abc123");
 
-        String base64 = service.uploadPhoto(id, photo);
+        String url = service.uploadPhoto(id, photo);
 
-        assertThat(base64).isNotBlank();
-        assertThat(u.getPhoto()).isEqualTo(data);
+        assertThat(url).isEqualTo("/api/profile/photos/" + id + "/abc123");
+        assertThat(u.getPhotoHash()).isEqualTo("abc123");
         verify(userRepository).save(u);
     }
 
     @Test
-    @DisplayName("deletePhoto: с фото → setPhoto(null) + save")
+    @DisplayName("uploadPhoto: то же фото повторно → профиль не перезаписывается")
+    void uploadPhoto_GivenSamePhoto_ShouldNotSaveUser() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(userRepository.findById(id)).thenReturn(Optional.of(user(id, "u@e.com", "h", "abc123")));
+        var photo = new org.springframework.mock.web.MockMultipartFile(
+                "photo", "p.jpg", "image/jpeg", new byte[]{10, 20, 30});
+        when(userPhotoService.store(eq(id), any(), eq("image/jpeg"))).thenReturn("abc123");
+
+        service.uploadPhoto(id, photo);
+
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("deletePhoto: с фото → удаляет фото и обнуляет хэш")
     void deletePhoto_GivenUserWithPhoto_ShouldClear() {
         UUID id = UUID.randomUUID();
-        UserReadModel u = user(id, "u@e.com", "h", new byte[]{1, 2});
+        UserReadModel u = user(id, "u@e.com", "h", "abc123");
         when(userRepository.findById(id)).thenReturn(Optional.of(u));
 
         service.deletePhoto(id);
 
-        assertThat(u.getPhoto()).isNull();
+        assertThat(u.getPhotoHash()).isNull();
+        verify(userPhotoService).delete(id);
         verify(userRepository).save(u);
     }
 
@@ -301,8 +322,7 @@ class ProfileServiceTest {
         s2.setUserId(id);
         s2.setRefreshTokenHash("h2");
         when(loginAuditRepository.findByUserIdAndIsActiveTrueOrderByLoginAtDesc(id)).thenReturn(List.of(s1, s2));
-        when(passwordEncoder.matches("token", "h1")).thenReturn(false);
-        when(passwordEncoder.matches("token", "h2")).thenReturn(true);
+        when(refreshTokenService.digest("token")).thenReturn("h2");
 
         var sessions = service.getActiveSessions(id, "token");
 
@@ -311,6 +331,19 @@ class ProfileServiceTest {
         assertThat(sessions.get(1).isCurrent()).isTrue();
     }
 
+    @Test
+    @DisplayName("terminateAllSessions: закрывает все сессии, кроме текущей, одним запросом по дайджесту")
+    void terminateAllSessions_ShouldKeepCurrentSessionInSingleUpdate() {
+        UUID id = UUID.randomUUID();
+        when(refreshTokenService.digest("current")).thenReturn("current-digest");
+        when(loginAuditRepository.deactivateAllUserSessionsExcept(id, "current-digest")).thenReturn(3);
+
+        service.terminateAllSessions(id, "current");
+
+        verify(loginAuditRepository).deactivateAllUserSessionsExcept(id, "current-digest");
+        verify(refreshTokenService).deleteAllUserTokensExcept(id, "current");
+    }
+
     @org.junit.jupiter.api.Disabled("deleteAccount теперь делает физический DELETE UserReadModel/UserEvent/LoginAudit/Redis вместо архивации — тест требует переписки мока (missing UserEventRepository)")
     @Test
     @DisplayName("deleteAccount DIRECTOR с организацией → публикует user.director.deleted в Rabbit")
@@ -5,13 +5,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
 
 import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -23,38 +26,58 @@ import static org.mockito.Mockito.*;
 @DisplayName("RefreshTokenService Unit Tests")
 class RefreshTokenServiceTest {
 
+    private static final String DIGEST_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
     @Mock
-    private RedisTemplate<String, Object> redisTemplate;
+    private ValueOperations<String, String> valueOperations;
 
     @Mock
-    private ValueOperations<String, Object> valueOperations;
+    private ZSetOperations<String, String> zSetOperations;
 
-    @InjectMocks
     private RefreshTokenService refreshTokenService;
 
     @BeforeEach
     void setUp() {
+        refreshTokenService = new RefreshTokenService(redisTemplate, DIGEST_KEY);
         lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+    }
+
+    @Test
+    @DisplayName("digest: Should be deterministic, keyed and never contain the token itself")
+    void digest_ShouldBeDeterministicAndKeyed() {
+        String token = UUID.randomUUID().toString();
+        RefreshTokenService otherKey = new RefreshTokenService(redisTemplate,
+                Base64.getEncoder().encodeToString("another-digest-key-of-32-bytes!!".getBytes()));
+
+        String digest = refreshTokenService.digest(token);
+
+        assertThat(digest).isEqualTo(refreshTokenService.digest(token));
+        assertThat(digest).doesNotContain(token).hasSize(43);
+        assertThat(otherKey.digest(token)).isNotEqualTo(digest);
     }
 
     @Test
-    @DisplayName("saveRefreshToken: Should save token with correct key and TTL")
-    void saveRefreshToken_ShouldSaveTokenWithCorrectKeyAndTtl() {
+    @DisplayName("saveRefreshToken: Should store token by digest and index it under the user")
+    void saveRefreshToken_ShouldStoreByDigestAndIndexUnderUser() {
         String refreshToken = "test-refresh-token";
+        String digest = refreshTokenService.digest(refreshToken);
         UUID userId = UUID.randomUUID();
         Duration ttl = Duration.ofDays(7);
+        long before = System.currentTimeMillis();
 
         refreshTokenService.saveRefreshToken(refreshToken, userId, ttl);
 
-        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> valueCaptor = ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<Duration> ttlCaptor = ArgumentCaptor.forClass(Duration.class);
-
-        verify(valueOperations).set(keyCaptor.capture(), valueCaptor.capture(), ttlCaptor.capture());
-
-        assertThat(keyCaptor.getValue()).isEqualTo("refresh_token:test-refresh-token");
-        assertThat(valueCaptor.getValue()).isEqualTo(userId.toString());
-        assertThat(ttlCaptor.getValue()).isEqualTo(ttl);
+        String indexKey = "refresh_tokens:user:" + userId;
+        verify(valueOperations).set("refresh_token:" + digest, userId.toString(), ttl);
+        ArgumentCaptor<Double> expiresAt = ArgumentCaptor.forClass(Double.class);
+        verify(zSetOperations).add(eq(indexKey), eq(digest), expiresAt.capture());
+        assertThat(expiresAt.getValue()).isGreaterThanOrEqualTo((double) before + ttl.toMillis());
+        verify(zSetOperations).removeRangeByScore(eq(indexKey), eq(Double.NEGATIVE_INFINITY), anyDouble());
+        verify(redisTemplate).expire(indexKey, ttl);
     }
 
     @Test
@@ -62,112 +85,91 @@ class RefreshTokenServiceTest {
     void getUserIdByRefreshToken_GivenExistingToken_ShouldReturnUserId() {
         String refreshToken = "test-refresh-token";
         UUID userId = UUID.randomUUID();
-        String key = "refresh_token:test-refresh-token";
+        String key = "refresh_token:" + refreshTokenService.digest(refreshToken);
 
         when(valueOperations.get(key)).thenReturn(userId.toString());
 
         UUID result = refreshTokenService.getUserIdByRefreshToken(refreshToken);
 
         assertThat(result).isEqualTo(userId);
-        verify(valueOperations).get(key);
     }
 
     @Test
     @DisplayName("getUserIdByRefreshToken: Given non-existing token Should return null")
     void getUserIdByRefreshToken_GivenNonExistingToken_ShouldReturnNull() {
-        String refreshToken = "non-existing-token";
-        String key = "refresh_token:non-existing-token";
+        String key = "refresh_token:" + refreshTokenService.digest("non-existing-token");
 
         when(valueOperations.get(key)).thenReturn(null);
 
-        UUID result = refreshTokenService.getUserIdByRefreshToken(refreshToken);
+        UUID result = refreshTokenService.getUserIdByRefreshToken("non-existing-token");
 
         assertThat(result).isNull();
         verify(valueOperations).get(key);
     }
 
     @Test
-    @DisplayName("deleteRefreshToken: Should delete token by key")
-    void deleteRefreshToken_ShouldDeleteTokenByKey() {
+    @DisplayName("deleteRefreshToken: Should delete token and remove it from the user index")
+    void deleteRefreshToken_ShouldDeleteTokenAndIndexEntry() {
         String refreshToken = "test-refresh-token";
+        String digest = refreshTokenService.digest(refreshToken);
+        UUID userId = UUID.randomUUID();
+        when(valueOperations.get("refresh_token:" + digest)).thenReturn(userId.toString());
 
         refreshTokenService.deleteRefreshToken(refreshToken);
 
-        verify(redisTemplate).delete("refresh_token:test-refresh-token");
+        verify(redisTemplate).delete("refresh_token:" + digest);
+        verify(zSetOperations).remove("refresh_tokens:user:" + userId, digest);
     }
 
     @Test
-    @DisplayName("deleteAllUserTokens: Should delete all tokens belonging to user")
-    void deleteAllUserTokens_ShouldDeleteAllTokensBelongingToUser() {
+    @DisplayName("deleteAllUserTokens: Should delete only the user's indexed tokens without scanning keys")
+    void deleteAllUserTokens_ShouldDeleteIndexedTokens() {
         UUID userId = UUID.randomUUID();
-        String pattern = "refresh_token:*";
-
-        String key1 = "refresh_token:token1";
-        String key2 = "refresh_token:token2";
-        String key3 = "refresh_token:token3";
-
-        Set<String> keys = Set.of(key1, key2, key3);
-
-        when(redisTemplate.keys(pattern)).thenReturn(keys);
-        when(valueOperations.get(key1)).thenReturn(userId.toString());
-        when(valueOperations.get(key2)).thenReturn(UUID.randomUUID().toString());
-        when(valueOperations.get(key3)).thenReturn(userId.toString());
+        String indexKey = "refresh_tokens:user:" + userId;
+        when(zSetOperations.range(indexKey, 0, -1)).thenReturn(new LinkedHashSet<>(List.of("d1", "d2")));
 
         refreshTokenService.deleteAllUserTokens(userId);
 
-        verify(redisTemplate).keys(pattern);
-        verify(redisTemplate).delete(key1);
-        verify(redisTemplate).delete(key3);
-        verify(redisTemplate, never()).delete(key2);
+        verify(redisTemplate).delete(List.of("refresh_token:d1", "refresh_token:d2"));
+        verify(redisTemplate).delete(indexKey);
+        verify(redisTemplate, never()).keys(anyString());
     }
 
     @Test
-    @DisplayName("deleteAllUserTokens: Given no matching keys Should not delete anything")
-    void deleteAllUserTokens_GivenNoMatchingKeys_ShouldNotDeleteAnything() {
+    @DisplayName("deleteAllUserTokens: Given empty index Should not delete anything")
+    void deleteAllUserTokens_GivenEmptyIndex_ShouldNotDeleteAnything() {
         UUID userId = UUID.randomUUID();
-        String pattern = "refresh_token:*";
-
-        when(redisTemplate.keys(pattern)).thenReturn(null);
+        when(zSetOperations.range("refresh_tokens:user:" + userId, 0, -1)).thenReturn(Set.of());
 
         refreshTokenService.deleteAllUserTokens(userId);
 
-        verify(redisTemplate).keys(pattern);
         verify(redisTemplate, never()).delete(anyString());
+        verify(redisTemplate, never()).delete(anyCollection());
     }
 
     @Test
-    @DisplayName("deleteAllUserTokens: Given empty keys Should not delete anything")
-    void deleteAllUserTokens_GivenEmptyKeys_ShouldNotDeleteAnything() {
+    @DisplayName("deleteAllUserTokensExcept: Should keep the current session in Redis and in the index")
+    void deleteAllUserTokensExcept_ShouldKeepCurrentToken() {
         UUID userId = UUID.randomUUID();
-        String pattern = "refresh_token:*";
+        String indexKey = "refresh_tokens:user:" + userId;
+        String current = refreshTokenService.digest("current-token");
+        when(zSetOperations.range(indexKey, 0, -1)).thenReturn(new LinkedHashSet<>(List.of("other", current)));
 
-        when(redisTemplate.keys(pattern)).thenReturn(Set.of());
+        refreshTokenService.deleteAllUserTokensExcept(userId, "current-token");
 
-        refreshTokenService.deleteAllUserTokens(userId);
-
-        verify(redisTemplate).keys(pattern);
-        verify(redisTemplate, never()).delete(anyString());
+        verify(redisTemplate).delete(List.of("refresh_token:other"));
+        verify(zSetOperations).remove(indexKey, "other");
+        verify(redisTemplate, never()).delete(indexKey);
     }
 
     @Test
-    @DisplayName("deleteAllUserTokens: Given no user tokens Should not delete anything")
-    void deleteAllUserTokens_GivenNoUserTokens_ShouldNotDeleteAnything() {
-
+    @DisplayName("deleteUserToken: Should revoke a single session by digest")
+    void deleteUserToken_ShouldRevokeSingleSession() {
         UUID userId = UUID.randomUUID();
-        String pattern = "refresh_token:*";
+        when(zSetOperations.remove("refresh_tokens:user:" + userId, "d1")).thenReturn(1L);
+        when(redisTemplate.delete("refresh_token:d1")).thenReturn(true);
 
-        String key1 = "refresh_token:token1";
-        String key2 = "refresh_token:token2";
-        Set<String> keys = Set.of(key1, key2);
-
-        when(redisTemplate.keys(pattern)).thenReturn(keys);
-        when(valueOperations.get(key1)).thenReturn(UUID.randomUUID().toString());
-        when(valueOperations.get(key2)).thenReturn(UUID.randomUUID().toString());
-
-        refreshTokenService.deleteAllUserTokens(userId);
-
-        verify(redisTemplate).keys(pattern);
-        verify(redisTemplate, never()).delete(anyString());
+        assertThat(refreshTokenService.deleteUserToken(userId, "d1")).isTrue();
+        assertThat(refreshTokenService.deleteUserToken(userId, " ")).isFalse();
     }
 }
-
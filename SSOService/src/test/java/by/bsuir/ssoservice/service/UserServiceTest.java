@@ -28,7 +28,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.Duration;
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -67,7 +66,7 @@ class UserServiceTest {
         when(jwtTokenService.generateRefreshToken()).thenReturn("refresh-uuid");
         when(jwtTokenService.getAccessTokenValidity()).thenReturn(14400L);
         when(jwtTokenService.getRefreshTokenValidity()).thenReturn(2592000L);
-        when(passwordEncoder.encode("refresh-uuid")).thenReturn("refresh-hash");
+        when(refreshTokenService.digest("refresh-uuid")).thenReturn("refresh-digest");
 
         AuthResponse response = userService.registerDirector(req, "127.0.0.1", "Mozilla");
 
@@ -119,7 +118,7 @@ class UserServiceTest {
         when(jwtTokenService.generateRefreshToken()).thenReturn("refresh");
         when(jwtTokenService.getAccessTokenValidity()).thenReturn(14400L);
         when(jwtTokenService.getRefreshTokenValidity()).thenReturn(2592000L);
-        when(passwordEncoder.encode("refresh")).thenReturn("refresh-hash");
+        when(refreshTokenService.digest("refresh")).thenReturn("refresh-digest");
 
         AuthResponse response = userService.registerWithInvitation(req, "ip", "ua");
 
@@ -214,7 +213,7 @@ class UserServiceTest {
         when(jwtTokenService.generateRefreshToken()).thenReturn("refresh");
         when(jwtTokenService.getAccessTokenValidity()).thenReturn(14400L);
         when(jwtTokenService.getRefreshTokenValidity()).thenReturn(2592000L);
-        when(passwordEncoder.encode("refresh")).thenReturn("refresh-hash");
+        when(refreshTokenService.digest("refresh")).thenReturn("refresh-digest");
 
         AuthResponse response = userService.login(new LoginRequest("ivan@example.com", "P@ssword123"), "ip", "ua");
 
@@ -266,12 +265,15 @@ class UserServiceTest {
         when(jwtTokenService.generateRefreshToken()).thenReturn("new-refresh");
         when(jwtTokenService.getAccessTokenValidity()).thenReturn(14400L);
         when(jwtTokenService.getRefreshTokenValidity()).thenReturn(2592000L);
+        when(refreshTokenService.digest("old-refresh")).thenReturn("old-digest");
+        when(refreshTokenService.digest("new-refresh")).thenReturn("new-digest");
 
         AuthResponse response = userService.refreshToken("old-refresh");
 
         assertThat(response.accessToken()).isEqualTo("new-access");
         assertThat(response.refreshToken()).isEqualTo("new-refresh");
         verify(refreshTokenService).deleteRefreshToken("old-refresh");
+        verify(loginAuditRepository).rotateRefreshTokenHash("old-digest", "new-digest");
     }
 
     @Test
@@ -297,20 +299,14 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("logout: валидный refresh → деактивирует session и удаляет токен")
+    @DisplayName("logout: валидный refresh → деактивирует session одним запросом по дайджесту и удаляет токен")
     void logout_GivenValidRefresh_ShouldDeactivateSession() {
-        UUID userId = UUID.randomUUID();
-        when(refreshTokenService.getUserIdByRefreshToken("refresh-X")).thenReturn(userId);
-        LoginAudit session = LoginAudit.builder()
-                .userId(userId).refreshTokenHash("hash-of-refresh-X").isActive(true).build();
-        when(loginAuditRepository.findByUserIdAndIsActiveTrue(userId)).thenReturn(List.of(session));
-        when(passwordEncoder.matches("refresh-X", "hash-of-refresh-X")).thenReturn(true);
+        when(refreshTokenService.digest("refresh-X")).thenReturn("digest-of-refresh-X");
+        when(loginAuditRepository.deactivateByRefreshTokenHash("digest-of-refresh-X")).thenReturn(1);
 
         userService.logout("refresh-X");
 
-        assertThat(session.getIsActive()).isFalse();
-        assertThat(session.getLogoutAt()).isNotNull();
-        verify(loginAuditRepository).save(session);
+        verify(loginAuditRepository).deactivateByRefreshTokenHash("digest-of-refresh-X");
         verify(refreshTokenService).deleteRefreshToken("refresh-X");
     }
 
@@ -331,11 +327,11 @@ class UserServiceTest {
     }
 
     @Test
-    @DisplayName("getUserInfo: существующий → возвращает UserResponse, photo сериализуется в Base64")
-    void getUserInfo_GivenExistingUser_ShouldReturnResponseWithPhotoBase64() {
+    @DisplayName("getUserInfo: существующий → возвращает UserResponse со ссылкой на фото по хэшу")
+    void getUserInfo_GivenExistingUser_ShouldReturnResponseWithPhotoUrl() {
         UUID userId = UUID.randomUUID();
         UserReadModel user = sampleUser(userId, "x@y.z", UserRole.WORKER, "hash", true);
-        user.setPhoto(new byte[]{1, 2, 3});
+        user.setPhotoHash("abc123");
         when(readModelRepository.findById(userId)).thenReturn(Optional.of(user));
 
         UserResponse response = userService.getUserInfo(userId);
@@ -343,7 +339,7 @@ class UserServiceTest {
         assertThat(response.userId()).isEqualTo(userId);
         assertThat(response.email()).isEqualTo("x@y.z");
         assertThat(response.role()).isEqualTo(UserRole.WORKER);
-        assertThat(response.photoBase64()).isEqualTo("AQID");
+        assertThat(response.photoUrl()).isEqualTo("/api/profile/photos/" + userId + "/abc123");
     }
 
     @Test
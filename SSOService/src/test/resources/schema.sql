@@ -19,7 +19,7 @@ CREATE TABLE IF NOT EXISTS user_read_model (
     role            VARCHAR(50)  NOT NULL,
     password_hash   VARCHAR(255),
     provider        VARCHAR(50)  NOT NULL,
-    photo           BYTEA,
+    photo_hash      VARCHAR(64),
     organization_id UUID,
     warehouse_id    UUID,
     is_active       BOOLEAN      NOT NULL DEFAULT TRUE,
@@ -29,6 +29,17 @@ CREATE TABLE IF NOT EXISTS user_read_model (
 
 CREATE INDEX IF NOT EXISTS idx_user_email ON user_read_model (email);
 
+CREATE TABLE IF NOT EXISTS user_photo (
+    user_id        UUID PRIMARY KEY,
+    content_hash   VARCHAR(64)  NOT NULL,
+    content_type   VARCHAR(100) NOT NULL,
+    image          BYTEA        NOT NULL,
+    thumbnail      BYTEA,
+    thumbnail_type VARCHAR(100),
+    size_bytes     INT          NOT NULL,
+    updated_at     TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 CREATE TABLE IF NOT EXISTS login_audit (
     id                 INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     user_id            UUID         NOT NULL,
@@ -26,7 +26,7 @@ public class GatewayConfig {
                               "/api/supplies/**", "/api/suppliers/**", "/api/erp-extractor/**",
                               "/api/erp-connections/**",
                               "/api/product-card/**", "/api/document-registry/**",
-                              "/api/receipt-sessions/**")
+                              "/api/receipt-sessions/**", "/api/jobs/**")
                         .uri("lb://PRODUCT-SERVICE"))
                 .route("document-api", r -> r
                         .path("/api/documents/**")
@@ -1,16 +1,22 @@
 package by.bsuir.apigateway.filter;
 
+import by.bsuir.apigateway.security.JwksVerifierRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSVerifier;
-import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -19,34 +25,28 @@ import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.nio.charset.StandardCharsets;
-
-import java.security.KeyFactory;
-import java.security.interfaces.RSAPublicKey;
-import java.security.spec.X509EncodedKeySpec;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 
+/**
+ * Проверяет Bearer-токен и передаёт личность пользователя сервисам в заголовках {@code X-User-*}.
+ * <p>
+ * Проверка целиком неблокирующая: ключи подписи держит в памяти {@link JwksVerifierRegistry}, а уже
+ * проверенные токены хранятся в ограниченном кэше по SHA-256 токена до их собственного {@code exp},
+ * так что повторные запросы той же сессии обходятся без RSA.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
 
-    private static final String REDIS_KEY = "gw:jwt-public-key";
-    private static final Duration CACHE_TTL = Duration.ofHours(1);
-
-    private final ReactiveStringRedisTemplate redisTemplate;
-
-    @Value("${jwt.public-key:}")
-    private String publicKeyString;
-
-    @Value("${sso.service.url:http://localhost:8000}")
-    private String ssoServiceUrl;
-
     private static final List<String> EXCLUDED_PATHS = List.of(
             "/api/auth/login",
             "/api/auth/register/director",
@@ -54,8 +54,10 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
             "/api/auth/refresh",
             "/api/auth/logout",
             "/api/auth/public-key",
+            "/api/auth/jwks",
             "/api/oauth",
             "/api/invitations/validate",
+            "/api/profile/photos/",
 
             "/sso-service/api/auth/login",
             "/sso-service/api/auth/register/director",
@@ -63,13 +65,32 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
             "/sso-service/api/auth/refresh",
             "/sso-service/api/auth/logout",
             "/sso-service/api/auth/public-key",
+            "/sso-service/api/auth/jwks",
             "/sso-service/api/oauth",
+            "/sso-service/api/profile/photos/",
 
             "/actuator",
             "/prometheus",
             "/eureka"
     );
 
+    private final JwksVerifierRegistry verifierRegistry;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    @Autowired
+    public JwtAuthenticationFilter(JwksVerifierRegistry verifierRegistry,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${jwt.verified-cache.max-size:50000}") long verifiedCacheSize) {
+        this.verifierRegistry = verifierRegistry;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(Math.max(verifiedCacheSize, 1))
+                .expireAfter(Expiry.<String, VerifiedToken>creating((digest, token) ->
+                        Duration.between(Instant.now(), token.expiresAt())))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "gateway.jwt.verified");
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         String path = exchange.getRequest().getPath().value();
@@ -86,58 +107,90 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
         }
 
         String token = authHeader.substring(7);
+        String digest = digest(token);
+
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return chain.filter(exchange.mutate().request(withIdentity(exchange, cached, path)).build());
+        }
 
-        return Mono.fromCallable(() -> validateAndBuildRequest(token, path, exchange))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(modifiedRequest -> chain.filter(exchange.mutate().request(modifiedRequest).build()))
+        return verify(token)
+                .doOnNext(verified -> verifiedTokens.put(digest, verified))
                 .onErrorResume(e -> {
-                    log.error("JWT validation error for path {}: {}", path, e.getMessage(), e);
+                    log.error("JWT validation error for path {}: {}", path, e.getMessage());
                     String reason = e.getMessage() != null && e.getMessage().contains("Expired")
                             ? "Сессия истекла. Войдите заново."
                             : "Не удалось проверить токен авторизации. Войдите заново.";
-                    return unauthorized(exchange, reason);
-                });
+                    return unauthorized(exchange, reason).then(Mono.empty());
+                })
+                .flatMap(verified ->
+                        chain.filter(exchange.mutate().request(withIdentity(exchange, verified, path)).build()));
     }
 
-    private ServerHttpRequest validateAndBuildRequest(String token, String path, ServerWebExchange exchange) throws Exception {
-        SignedJWT signedJWT = SignedJWT.parse(token);
-
-        RSAPublicKey publicKey = getPublicKey();
-        if (!signedJWT.verify(new RSASSAVerifier(publicKey))) {
-            log.warn("Invalid JWT signature with cached key, refreshing public key for path: {}", path);
-            redisTemplate.delete(REDIS_KEY).block();
-            RSAPublicKey freshKey = getPublicKey();
-            if (!signedJWT.verify(new RSASSAVerifier(freshKey))) {
-                throw new IllegalStateException("Invalid JWT signature (also failed with fresh public key)");
-            }
+    private Mono<VerifiedToken> verify(String token) {
+        SignedJWT signedJWT;
+        JWTClaimsSet claims;
+        try {
+            signedJWT = SignedJWT.parse(token);
+            claims = signedJWT.getJWTClaimsSet();
+        } catch (ParseException e) {
+            return Mono.error(e);
         }
 
-        Date expirationTime = signedJWT.getJWTClaimsSet().getExpirationTime();
+        Date expirationTime = claims.getExpirationTime();
         if (expirationTime == null || expirationTime.before(new Date())) {
-            throw new IllegalStateException("Expired or invalid JWT exp claim");
+            return Mono.error(new IllegalStateException("Expired or invalid JWT exp claim"));
         }
 
-        String userId = signedJWT.getJWTClaimsSet().getSubject();
-        String email = signedJWT.getJWTClaimsSet().getStringClaim("email");
-        String role = signedJWT.getJWTClaimsSet().getStringClaim("role");
-        String organizationId = signedJWT.getJWTClaimsSet().getStringClaim("organizationId");
-        String warehouseId = signedJWT.getJWTClaimsSet().getStringClaim("warehouseId");
+        String kid = signedJWT.getHeader().getKeyID();
+        return verifierRegistry.verifier(kid)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("No public key for JWT kid " + kid)))
+                .flatMap(verifier -> {
+                    if (isSignedBy(signedJWT, verifier)) {
+                        return Mono.just(verifier);
+                    }
+                    log.warn("Invalid JWT signature with cached key (kid {}), refreshing JWKS", kid);
+                    return verifierRegistry.rotated(kid, verifier)
+                            .filter(fresh -> isSignedBy(signedJWT, fresh))
+                            .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                                    "Invalid JWT signature (also failed with refreshed keys)")));
+                })
+                .flatMap(verifier -> Mono.fromCallable(() -> VerifiedToken.from(claims)));
+    }
 
+    private static boolean isSignedBy(SignedJWT signedJWT, JWSVerifier verifier) {
+        try {
+            return signedJWT.verify(verifier);
+        } catch (JOSEException e) {
+            return false;
+        }
+    }
+
+    private static ServerHttpRequest withIdentity(ServerWebExchange exchange, VerifiedToken token, String path) {
         ServerHttpRequest.Builder requestBuilder = exchange.getRequest().mutate()
-                .header("X-User-Id", userId)
-                .header("X-User-Email", email)
-                .header("X-User-Role", role);
-        if (organizationId != null) {
-            requestBuilder.header("X-Organization-Id", organizationId);
+                .header("X-User-Id", token.userId())
+                .header("X-User-Email", token.email())
+                .header("X-User-Role", token.role());
+        if (token.organizationId() != null) {
+            requestBuilder.header("X-Organization-Id", token.organizationId());
         }
-        if (warehouseId != null) {
-            requestBuilder.header("X-Warehouse-Id", warehouseId);
+        if (token.warehouseId() != null) {
+            requestBuilder.header("X-Warehouse-Id", token.warehouseId());
         }
 
-        log.debug("Authenticated user: {} (role: {}) for path: {}", email, role, path);
+        log.debug("Authenticated user: {} (role: {}) for path: {}", token.email(), token.role(), path);
         return requestBuilder.build();
     }
 
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private Mono<Void> unauthorized(ServerWebExchange exchange, String message) {
         ServerHttpResponse response = exchange.getResponse();
         response.setStatusCode(HttpStatus.UNAUTHORIZED);
@@ -152,88 +205,23 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
         return EXCLUDED_PATHS.stream().anyMatch(path::startsWith);
     }
 
-    private RSAPublicKey getPublicKey() throws Exception {
-        String cachedPem = redisTemplate.opsForValue().get(REDIS_KEY).block();
-        if (cachedPem != null && !cachedPem.isEmpty()) {
-            return loadPublicKeyFromPEM(cachedPem);
-        }
-
-        if (publicKeyString != null && !publicKeyString.isEmpty() && !publicKeyString.contains("yourpublickey")) {
-            try {
-                RSAPublicKey key = loadPublicKeyFromPEM(publicKeyString);
-                redisTemplate.opsForValue().set(REDIS_KEY, publicKeyString, CACHE_TTL).block();
-                log.info("Loaded public key from configuration and cached in Redis");
-                return key;
-            } catch (Exception e) {
-                log.warn("Failed to load public key from configuration: {}", e.getMessage());
-            }
-        }
-
-        try {
-            String publicKeyPEM = fetchPublicKeyFromSSOService();
-            RSAPublicKey key = loadPublicKeyFromPEM(publicKeyPEM);
-            redisTemplate.opsForValue().set(REDIS_KEY, publicKeyPEM, CACHE_TTL).block();
-            log.info("Fetched public key from SSO Service and cached in Redis (TTL {})", CACHE_TTL);
-            return key;
-        } catch (Exception e) {
-            log.error("Failed to fetch public key from SSO Service: {}", e.getMessage());
-            throw new RuntimeException("Cannot validate JWT: public key not available", e);
-        }
-    }
-
-    private String fetchPublicKeyFromSSOService() throws Exception {
-        try {
-
-            java.net.URL url = new java.net.URL(ssoServiceUrl + "/api/auth/public-key");
-            java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                throw new RuntimeException("SSO Service returned status: " + responseCode);
-            }
-
-            java.io.BufferedReader in = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(conn.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
-
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
-
-            String jsonResponse = response.toString();
-
-            int startIndex = jsonResponse.indexOf("\"publicKey\":\"") + 13;
-            int endIndex = jsonResponse.indexOf("\"", startIndex);
-            String publicKeyPEM = jsonResponse.substring(startIndex, endIndex);
-
-            publicKeyPEM = publicKeyPEM.replace("\\n", "\n");
-
-            return publicKeyPEM;
-        } catch (Exception e) {
-            log.error("Error fetching public key from SSO Service", e);
-            throw e;
-        }
-    }
-
-    private RSAPublicKey loadPublicKeyFromPEM(String publicKeyPEM) throws Exception {
-        String publicKeyContent = publicKeyPEM
-                .replace("-----BEGIN PUBLIC KEY-----", "")
-                .replace("-----END PUBLIC KEY-----", "")
-                .replaceAll("\\s", "");
-
-        byte[] keyBytes = Base64.getDecoder().decode(publicKeyContent);
-        X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        return (RSAPublicKey) keyFactory.generatePublic(spec);
-    }
-
     @Override
     public int getOrder() {
         return -100;
     }
+
+    /** Проверенные утверждения токена, нужные для заголовков, и момент его истечения. */
+    private record VerifiedToken(String userId, String email, String role,
+                                 String organizationId, String warehouseId, Instant expiresAt) {
+
+        static VerifiedToken from(JWTClaimsSet claims) throws ParseException {
+            return new VerifiedToken(
+                    claims.getSubject(),
+                    claims.getStringClaim("email"),
+                    claims.getStringClaim("role"),
+                    claims.getStringClaim("organizationId"),
+                    claims.getStringClaim("warehouseId"),
+                    claims.getExpirationTime().toInstant());
+        }
+    }
 }
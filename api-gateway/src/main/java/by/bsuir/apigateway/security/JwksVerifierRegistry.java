@@ -0,0 +1,159 @@
+package by.bsuir.apigateway.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ключи проверки подписи JWT, разобранные один раз и хранящиеся в памяти по {@code kid}.
+ * <p>
+ * Набор ключей читается из JWKS SSO-сервиса без блокировок: при незнакомом {@code kid} или
+ * несовпавшей подписи выполняется одно общее обновление на всех ожидающих, и не чаще, чем раз
+ * в {@code jwt.jwks.min-refresh-seconds}, чтобы поток поддельных токенов не превращался в поток
+ * запросов к SSO. Ключ из {@code jwt.public-key} используется, когда JWKS недоступен.
+ */
+@Slf4j
+@Component
+public class JwksVerifierRegistry {
+
+    private static final String JWKS_PATH = "/api/auth/jwks";
+
+    private final WebClient webClient;
+    private final Duration minRefreshInterval;
+    private final Duration fetchTimeout;
+    private final JWSVerifier configuredVerifier;
+
+    private volatile Map<String, JWSVerifier> verifiers = Map.of();
+    private volatile long lastRefreshMillis;
+    private final AtomicReference<Mono<Map<String, JWSVerifier>>> inflight = new AtomicReference<>();
+
+    @Autowired
+    public JwksVerifierRegistry(WebClient.Builder webClientBuilder,
+                                @Value("${sso.service.url:http://localhost:8000}") String ssoServiceUrl,
+                                @Value("${jwt.public-key:}") String publicKeyPem,
+                                @Value("${jwt.jwks.min-refresh-seconds:30}") long minRefreshSeconds,
+                                @Value("${jwt.jwks.timeout-ms:5000}") long timeoutMs) {
+        this.webClient = webClientBuilder.baseUrl(ssoServiceUrl).build();
+        this.minRefreshInterval = Duration.ofSeconds(Math.max(minRefreshSeconds, 0));
+        this.fetchTimeout = Duration.ofMillis(Math.max(timeoutMs, 100));
+        this.configuredVerifier = loadConfiguredVerifier(publicKeyPem);
+    }
+
+    /** Проверяющий для {@code kid}; при промахе один раз перечитывает JWKS. Пусто — ключа нет. */
+    public Mono<JWSVerifier> verifier(String kid) {
+        JWSVerifier known = find(verifiers, kid);
+        if (known != null) {
+            return Mono.just(known);
+        }
+        return refresh().mapNotNull(current -> findOrFallback(current, kid));
+    }
+
+    /**
+     * Проверяющий взамен отвергнувшего подпись: SSO мог сменить ключ, не меняя {@code kid}.
+     * Пусто — после обновления ключ тот же, и подпись действительно неверна.
+     */
+    public Mono<JWSVerifier> rotated(String kid, JWSVerifier rejected) {
+        return refresh()
+                .mapNotNull(current -> findOrFallback(current, kid))
+                .filter(fresh -> fresh != rejected);
+    }
+
+    private static JWSVerifier find(Map<String, JWSVerifier> current, String kid) {
+        if (kid != null) {
+            return current.get(kid);
+        }
+        return current.size() == 1 ? current.values().iterator().next() : null;
+    }
+
+    private JWSVerifier findOrFallback(Map<String, JWSVerifier> current, String kid) {
+        JWSVerifier verifier = find(current, kid);
+        return verifier != null ? verifier : configuredVerifier;
+    }
+
+    private Mono<Map<String, JWSVerifier>> refresh() {
+        Mono<Map<String, JWSVerifier>> running = inflight.get();
+        if (running != null) {
+            return running;
+        }
+        if (lastRefreshMillis != 0
+                && System.currentTimeMillis() - lastRefreshMillis < minRefreshInterval.toMillis()) {
+            return Mono.just(verifiers);
+        }
+        Mono<Map<String, JWSVerifier>> fetch = webClient.get()
+                .uri(JWKS_PATH)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(fetchTimeout)
+                .flatMap(json -> Mono.fromCallable(() -> parse(json)))
+                .doOnNext(fetched -> {
+                    verifiers = fetched;
+                    log.info("Loaded {} JWT signing key(s) from SSO JWKS: {}", fetched.size(), fetched.keySet());
+                })
+                .onErrorResume(e -> {
+                    log.warn("Failed to refresh JWKS from SSO Service, keeping {} known key(s): {}",
+                            verifiers.size(), e.getMessage());
+                    return Mono.just(verifiers);
+                })
+                .doFinally(signal -> {
+                    lastRefreshMillis = System.currentTimeMillis();
+                    inflight.set(null);
+                })
+                .cache();
+        if (!inflight.compareAndSet(null, fetch)) {
+            running = inflight.get();
+            return running != null ? running : Mono.just(verifiers);
+        }
+        return fetch;
+    }
+
+    private static Map<String, JWSVerifier> parse(String json) throws ParseException, JOSEException {
+        Map<String, JWSVerifier> parsed = new HashMap<>();
+        for (JWK jwk : JWKSet.parse(json).getKeys()) {
+            if (jwk instanceof RSAKey rsaKey && rsaKey.getKeyID() != null) {
+                parsed.put(rsaKey.getKeyID(), new RSASSAVerifier(rsaKey));
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalStateException("JWKS contains no RSA keys with kid");
+        }
+        return Map.copyOf(parsed);
+    }
+
+    private static JWSVerifier loadConfiguredVerifier(String publicKeyPem) {
+        if (publicKeyPem == null || publicKeyPem.isBlank() || publicKeyPem.contains("yourpublickey")) {
+            return null;
+        }
+        try {
+            String content = publicKeyPem
+                    .replace("-----BEGIN PUBLIC KEY-----", "")
+                    .replace("-----END PUBLIC KEY-----", "")
+                    .replaceAll("\\s", "");
+            X509EncodedKeySpec spec = new X509EncodedKeySpec(Base64.getDecoder().decode(content));
+            RSAPublicKey key = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(spec);
+            log.info("Loaded fallback JWT public key from configuration");
+            return new RSASSAVerifier(key);
+        } catch (Exception e) {
+            log.warn("Failed to load public key from configuration: {}", e.getMessage());
+            return null;
+        }
+    }
+}
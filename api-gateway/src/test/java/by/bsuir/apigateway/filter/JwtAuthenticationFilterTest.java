@@ -0,0 +1,132 @@
+package by.bsuir.apigateway.filter;
+
+import by.bsuir.apigateway.security.JwksVerifierRegistry;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("JwtAuthenticationFilter — модульные тесты")
+class JwtAuthenticationFilterTest {
+
+    private static final String KID = "sso-key-id";
+
+    @Mock private JwksVerifierRegistry verifierRegistry;
+
+    private final List<ServerWebExchange> forwarded = new ArrayList<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.add(exchange);
+        return Mono.empty();
+    };
+
+    private KeyPair signingKeys;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        signingKeys = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        filter = new JwtAuthenticationFilter(verifierRegistry, new SimpleMeterRegistry(), 100);
+    }
+
+    private String token(KeyPair keys, Instant expiresAt) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("7b0d3c1e-0000-4000-8000-000000000001")
+                .claim("email", "director@example.com")
+                .claim("role", "DIRECTOR")
+                .claim("organizationId", "org-1")
+                .expirationTime(Date.from(expiresAt))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(KID).build(), claims);
+        jwt.sign(new RSASSASigner(keys.getPrivate()));
+        return jwt.serialize();
+    }
+
+    private MockServerWebExchange request(String token) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+    }
+
+    @Test
+    @DisplayName("filter: валидный токен пропускается с X-User-*, повторный запрос обходится без проверки подписи")
+    void filter_GivenValidToken_ShouldForwardIdentityAndCacheVerification() throws Exception {
+        JWSVerifier verifier = new RSASSAVerifier((RSAPublicKey) signingKeys.getPublic());
+        when(verifierRegistry.verifier(KID)).thenReturn(Mono.just(verifier));
+        String token = token(signingKeys, Instant.now().plusSeconds(600));
+
+        filter.filter(request(token), chain).block();
+        filter.filter(request(token), chain).block();
+
+        assertThat(forwarded).hasSize(2);
+        HttpHeaders headers = forwarded.get(1).getRequest().getHeaders();
+        assertThat(headers.getFirst("X-User-Id")).isEqualTo("7b0d3c1e-0000-4000-8000-000000000001");
+        assertThat(headers.getFirst("X-User-Role")).isEqualTo("DIRECTOR");
+        assertThat(headers.getFirst("X-Organization-Id")).isEqualTo("org-1");
+        assertThat(headers.containsKey("X-Warehouse-Id")).isFalse();
+        verify(verifierRegistry, times(1)).verifier(KID);
+    }
+
+    @Test
+    @DisplayName("filter: истёкший токен → 401 без обращения к ключам")
+    void filter_GivenExpiredToken_ShouldRejectWithoutKeyLookup() throws Exception {
+        MockServerWebExchange exchange = request(token(signingKeys, Instant.now().minusSeconds(5)));
+
+        filter.filter(exchange, chain).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(exchange.getResponse().getBodyAsString().block()).contains("Сессия истекла");
+        assertThat(forwarded).isEmpty();
+        verifyNoInteractions(verifierRegistry);
+    }
+
+    @Test
+    @DisplayName("filter: чужая подпись и тот же ключ после обновления JWKS → 401, токен не кэшируется")
+    void filter_GivenForeignSignature_ShouldRejectAfterRefresh() throws Exception {
+        JWSVerifier verifier = new RSASSAVerifier((RSAPublicKey) signingKeys.getPublic());
+        when(verifierRegistry.verifier(KID)).thenReturn(Mono.just(verifier));
+        when(verifierRegistry.rotated(any(), any())).thenReturn(Mono.empty());
+        KeyPair foreignKeys = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        String forged = token(foreignKeys, Instant.now().plusSeconds(600));
+
+        MockServerWebExchange first = request(forged);
+        filter.filter(first, chain).block();
+        filter.filter(request(forged), chain).block();
+
+        assertThat(first.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(forwarded).isEmpty();
+        verify(verifierRegistry, times(2)).verifier(KID);
+        verify(verifierRegistry, times(2)).rotated(KID, verifier);
+    }
+}
@@ -0,0 +1,112 @@
+package by.bsuir.documentservice.rpa;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Время генерации PDF по каждому шаблону из {@code templates/pdf} через тот же путь, что и в сервисе:
+ * нормализация данных, Thymeleaf и рендер на пуле {@link HtmlPdfRenderer}.
+ * <p>
+ * Запуск: {@code gradle :document-service:jmh}; результаты по каждому шаблону пишутся в
+ * {@code build/results/jmh/results.json}, регрессии видны при сравнении двух прогонов.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PdfTemplateBenchmark {
+
+    private static final Map<String, BiFunction<PdfDocumentService, Map<String, Object>, byte[]>> GENERATORS =
+            Map.ofEntries(
+                    Map.entry("receipt-order", PdfDocumentService::generateReceiptOrderPdf),
+                    Map.entry("waybill", PdfDocumentService::generateShippingInvoicePdf),
+                    Map.entry("write-off-act", PdfDocumentService::generateWriteOffActPdf),
+                    Map.entry("revaluation-act", PdfDocumentService::generateRevaluationActPdf),
+                    Map.entry("inventory-report", PdfDocumentService::generateInventoryListPdf),
+                    Map.entry("picking-list", PdfDocumentService::generatePickingListPdf),
+                    Map.entry("placement-list", PdfDocumentService::generatePlacementListPdf),
+                    Map.entry("receipt-act", PdfDocumentService::generateReceiptActPdf),
+                    Map.entry("invoice", PdfDocumentService::generateInvoicePdf),
+                    Map.entry("transport-note", PdfDocumentService::generateTransportNotePdf),
+                    Map.entry("cmr", PdfDocumentService::generateCmrPdf),
+                    Map.entry("analytics-report", PdfDocumentService::generateAnalyticsReportPdf));
+
+    @Param({"receipt-order", "waybill", "write-off-act", "revaluation-act", "inventory-report", "picking-list",
+            "placement-list", "receipt-act", "invoice", "transport-note", "cmr", "analytics-report"})
+    public String template;
+
+    @Param({"20"})
+    public int lines;
+
+    private HtmlPdfRenderer renderer;
+    private PdfDocumentService service;
+    private BiFunction<PdfDocumentService, Map<String, Object>, byte[]> generator;
+    private Map<String, Object> data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        renderer = new HtmlPdfRenderer(new SimpleMeterRegistry(), 1, 4, 60_000);
+        renderer.init();
+        service = new PdfDocumentService(renderer);
+        generator = GENERATORS.get(template);
+        if (generator == null) {
+            throw new IllegalArgumentException("No generator for template " + template);
+        }
+        data = sampleData(lines);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        renderer.shutdown();
+    }
+
+    @Benchmark
+    public byte[] render() {
+        return generator.apply(service, data);
+    }
+
+    private static Map<String, Object> sampleData(int lines) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 1; i <= lines; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("productName", "Хлеб ржаной «Бородинский» №" + i);
+            item.put("sku", "SKU-" + (1000 + i));
+            item.put("unit", "шт");
+            item.put("quantity", String.valueOf(10 + i));
+            item.put("unitPrice", "12.50");
+            item.put("totalPrice", String.format("%.2f", 12.5 * (10 + i)));
+            item.put("batchNumber", "B-2026-" + i);
+            item.put("cellCode", "A-" + i + "-01");
+            items.add(item);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("date", "01.05.2026");
+        data.put("documentNumber", "ТТН-2026-0042");
+        data.put("organizationName", "ОАО «Хлебозавод»");
+        data.put("supplierName", "ИП Иванов");
+        data.put("recipientName", "ООО «Покупатель»");
+        data.put("recipientAddress", "Минск, ул. Партизанская 5");
+        data.put("senderName", "ОАО «Хлебозавод»");
+        data.put("senderAddress", "Минск, ул. Промышленная 1");
+        data.put("warehouseName", "Главный склад");
+        data.put("reason", "Истёк срок годности");
+        data.put("responsiblePerson", "Сидоров А.П.");
+        data.put("totalAmount", "3125.00");
+        data.put("items", items);
+        return data;
+    }
+}
@@ -0,0 +1,20 @@
+package by.bsuir.documentservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+@Configuration
+public class EnrichmentConfig {
+
+    /** Виртуальные потоки для параллельных справочных запросов при обогащении документов. */
+    @Bean
+    public SimpleAsyncTaskExecutor enrichmentExecutor(
+            @Value("${document.enrichment.max-concurrency:64}") int maxConcurrency) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("enrichment-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrency);
+        return executor;
+    }
+}
@@ -0,0 +1,86 @@
+package by.bsuir.documentservice.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * События об изменении организаций, складов и директоров, по которым сбрасывается
+ * {@link by.bsuir.documentservice.service.ReferenceDataCache}. Кэш локален для экземпляра,
+ * поэтому очередь анонимная — каждый экземпляр получает свою копию события.
+ */
+@Configuration
+public class RabbitMQConfig {
+
+    public static final String ORGANIZATION_EXCHANGE = "organization.exchange";
+    public static final String WAREHOUSE_EXCHANGE = "warehouse.exchange";
+    public static final String SSO_EXCHANGE = "sso.exchange";
+
+    public static final String ORGANIZATION_UPDATED_KEY = "organization.updated";
+    public static final String ORGANIZATION_ARCHIVED_KEY = "organization.archived";
+    public static final String ORGANIZATION_DELETED_KEY = "organization.deleted";
+    public static final String WAREHOUSE_UPDATED_KEY = "warehouse.updated";
+    public static final String WAREHOUSE_DELETED_KEY = "warehouse.deleted";
+    public static final String DIRECTOR_DELETED_KEY = "user.director.deleted";
+
+    @Bean
+    public MessageConverter jsonMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+
+    @Bean
+    public TopicExchange organizationExchange() {
+        return new TopicExchange(ORGANIZATION_EXCHANGE);
+    }
+
+    @Bean
+    public TopicExchange warehouseExchange() {
+        return new TopicExchange(WAREHOUSE_EXCHANGE);
+    }
+
+    @Bean
+    public TopicExchange ssoExchange() {
+        return new TopicExchange(SSO_EXCHANGE);
+    }
+
+    @Bean
+    public Queue referenceDataQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding organizationUpdatedBinding() {
+        return BindingBuilder.bind(referenceDataQueue()).to(organizationExchange()).with(ORGANIZATION_UPDATED_KEY);
+    }
+
+    @Bean
+    public Binding organizationArchivedBinding() {
+        return BindingBuilder.bind(referenceDataQueue()).to(organizationExchange()).with(ORGANIZATION_ARCHIVED_KEY);
+    }
+
+    @Bean
+    public Binding organizationDeletedBinding() {
+        return BindingBuilder.bind(referenceDataQueue()).to(organizationExchange()).with(ORGANIZATION_DELETED_KEY);
+    }
+
+    @Bean
+    public Binding warehouseUpdatedBinding() {
+        return BindingBuilder.bind(referenceDataQueue()).to(warehouseExchange()).with(WAREHOUSE_UPDATED_KEY);
+    }
+
+    @Bean
+    public Binding warehouseDeletedBinding() {
+        return BindingBuilder.bind(referenceDataQueue()).to(warehouseExchange()).with(WAREHOUSE_DELETED_KEY);
+    }
+
+    @Bean
+    public Binding directorDeletedBinding() {
+        return BindingBuilder.bind(referenceDataQueue()).to(ssoExchange()).with(DIRECTOR_DELETED_KEY);
+    }
+}
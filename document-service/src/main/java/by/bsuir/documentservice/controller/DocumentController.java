@@ -1,5 +1,6 @@
 package by.bsuir.documentservice.controller;
 
+import by.bsuir.documentservice.rpa.PdfRenderingBusyException;
 import by.bsuir.documentservice.rpa.PythonRpaClient;
 import by.bsuir.documentservice.service.DocumentService;
 import by.bsuir.documentservice.service.DocumentService.GenerationResult;
@@ -11,8 +12,10 @@ import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -188,6 +191,17 @@ public class DocumentController {
         return ResponseEntity.ok(info);
     }
 
+    @ExceptionHandler(PdfRenderingBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleRendererBusy(PdfRenderingBusyException e) {
+        log.warn("Генерация PDF отклонена: {}", e.getMessage());
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", "Сервис генерации документов перегружен, повторите запрос позже");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
     private ResponseEntity<byte[]> wrap(GenerationResult result) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(contentTypeFor(result.format()));
@@ -1,15 +1,42 @@
 package by.bsuir.documentservice.rpa;
 
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder.FontStyle;
+import com.openhtmltopdf.pdfboxout.PDFontSupplier;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
@@ -17,17 +44,58 @@ import org.thymeleaf.context.Context;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
+/**
+ * Рендеринг HTML-шаблонов в PDF на выделенном ограниченном пуле потоков.
+ * <p>
+ * Шрифты читаются с classpath один раз и разбираются по одному разу на поток пула при его старте,
+ * дальше каждый документ только встраивает подмножество глифов из уже разобранного шрифта. Метрики
+ * шрифтов и разобранные Thymeleaf-шаблоны общие для всех рендеров. Когда все потоки заняты и очередь
+ * заполнена, {@link #render} сразу бросает {@link PdfRenderingBusyException} — запрос получает 503,
+ * а не копится в памяти.
+ */
 @Slf4j
 @Service
 public class HtmlPdfRenderer {
 
     private static final String TEMPLATE_PREFIX = "templates/pdf/";
     private static final String TEMPLATE_SUFFIX = ".html";
+    private static final String FONT_FAMILY = "DejaVuSans";
+    private static final String WARM_UP_HTML = "<html><body><p>Прогрев</p><p><b>Прогрев</b></p></body></html>";
 
     private final TemplateEngine templateEngine = new TemplateEngine();
-    private Path regularFontFile;
-    private Path boldFontFile;
+    private final FSCacheEx<String, FSCacheValue> fontMetricsCache = new SharedCache();
+    private final ThreadLocal<WorkerFonts> workerFonts = new ThreadLocal<>();
+    private final Map<String, Timer> renderTimers = new ConcurrentHashMap<>();
+    private final Map<String, String> templateVersions = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int workers;
+    private final int queueCapacity;
+    private final long renderTimeoutMs;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    private byte[] regularFont;
+    private byte[] boldFont;
     private String baseCss = "";
+    private ThreadPoolExecutor executor;
+
+    @Autowired
+    public HtmlPdfRenderer(MeterRegistry meterRegistry,
+                           @Value("${document.pdf.workers:4}") int workers,
+                           @Value("${document.pdf.queue-capacity:32}") int queueCapacity,
+                           @Value("${document.pdf.render-timeout-ms:30000}") long renderTimeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.renderTimeoutMs = Math.max(1, renderTimeoutMs);
+        this.queueWaitTimer = Timer.builder("document.pdf.queue.wait")
+                .description("Ожидание свободного потока рендеринга PDF")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("document.pdf.rejected")
+                .description("Запросы PDF, отклонённые из-за заполненной очереди")
+                .register(meterRegistry);
+    }
 
     @PostConstruct
     void init() {
@@ -40,59 +108,188 @@ public class HtmlPdfRenderer {
         templateEngine.setTemplateResolver(resolver);
 
         try {
-            regularFontFile = extractFontToTemp("fonts/DejaVuSans.ttf", "DejaVuSans");
-            boldFontFile = extractFontToTemp("fonts/DejaVuSans-Bold.ttf", "DejaVuSans-Bold");
-            log.info("PDF fonts extracted: regular={} bold={}", regularFontFile, boldFontFile);
+            regularFont = readClasspath("fonts/DejaVuSans.ttf");
+            boldFont = readClasspath("fonts/DejaVuSans-Bold.ttf");
         } catch (IOException e) {
-            throw new IllegalStateException("Failed to extract embedded PDF fonts", e);
+            throw new IllegalStateException("Failed to load embedded PDF fonts", e);
         }
 
-        try (InputStream in = new ClassPathResource("templates/pdf/styles/base.css").getInputStream()) {
-            baseCss = new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+        try {
+            baseCss = new String(readClasspath("templates/pdf/styles/base.css"), StandardCharsets.UTF_8);
         } catch (IOException e) {
             log.warn("Failed to load base.css: {}", e.getMessage());
         }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    Thread thread = new Thread(() -> {
+                        fonts();
+                        task.run();
+                    }, "pdf-render-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+        Gauge.builder("document.pdf.queue.depth", executor, e -> e.getQueue().size())
+                .description("Документы PDF, ожидающие свободного потока")
+                .register(meterRegistry);
+
+        long started = System.nanoTime();
+        execute("warm-up", () -> htmlToPdf(WARM_UP_HTML));
+        log.info("PDF renderer ready: workers={}, queue={}, warm-up {} ms",
+                workers, queueCapacity, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
     }
 
     public byte[] render(String templateName, Map<String, Object> data) {
-        Context context = new Context();
-        context.setVariables(data);
-        context.setVariable("cssBase", baseCss);
-        String html = templateEngine.process(templateName, context);
-        return htmlToPdf(html);
+        return render(templateName, data, Map.of());
+    }
+
+    /** {@code overrides} дополняют {@code data} без копирования исходной карты. */
+    public byte[] render(String templateName, Map<String, Object> data, Map<String, Object> overrides) {
+        return execute(templateName, () -> htmlToPdf(renderHtml(templateName, data, overrides)));
     }
 
     public String renderHtml(String templateName, Map<String, Object> data) {
+        return renderHtml(templateName, data, Map.of());
+    }
+
+    private String renderHtml(String templateName, Map<String, Object> data, Map<String, Object> overrides) {
         Context context = new Context();
         context.setVariables(data);
+        context.setVariables(overrides);
         context.setVariable("cssBase", baseCss);
         return templateEngine.process(templateName, context);
     }
 
-    private byte[] htmlToPdf(String html) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+    /** SHA-256 шаблона вместе с base.css: меняется при любой правке вёрстки. */
+    public String templateVersion(String templateName) {
+        return templateVersions.computeIfAbsent(templateName, name -> {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                ClassPathResource template = new ClassPathResource(TEMPLATE_PREFIX + name + TEMPLATE_SUFFIX);
+                if (template.exists()) {
+                    digest.update(readClasspath(TEMPLATE_PREFIX + name + TEMPLATE_SUFFIX));
+                }
+                digest.update(baseCss.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest.digest());
+            } catch (IOException | NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Failed to hash PDF template " + name, e);
+            }
+        });
+    }
+
+    <T> T execute(String templateName, Callable<T> task) {
+        long enqueued = System.nanoTime();
+        Timer renderTimer = renderTimers.computeIfAbsent(templateName, name -> Timer.builder("document.pdf.render")
+                .description("Время рендеринга PDF по шаблону")
+                .tag("template", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                return renderTimer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PdfRenderingBusyException("PDF renderer is saturated, try again later");
+        }
+
+        try {
+            return future.get(renderTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("PDF rendering timed out for template " + templateName, e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("PDF rendering interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Failed to render PDF", e.getCause());
+        }
+    }
+
+    private byte[] htmlToPdf(String html) throws IOException {
+        WorkerFonts fonts = fonts();
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
+             PDDocument document = new PDDocument()) {
             PdfRendererBuilder builder = new PdfRendererBuilder();
             builder.useFastMode();
-            builder.useFont(regularFontFile.toFile(), "DejaVuSans", 400,
-                    com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder.FontStyle.NORMAL, true);
-            builder.useFont(boldFontFile.toFile(), "DejaVuSans", 700,
-                    com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder.FontStyle.NORMAL, true);
+            builder.usePDDocument(document);
+            builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+            builder.useFont(new PDFontSupplier(PDType0Font.load(document, fonts.regular(), true)),
+                    FONT_FAMILY, 400, FontStyle.NORMAL, true);
+            builder.useFont(new PDFontSupplier(PDType0Font.load(document, fonts.bold(), true)),
+                    FONT_FAMILY, 700, FontStyle.NORMAL, true);
             builder.withHtmlContent(html, null);
             builder.toStream(out);
             builder.run();
             return out.toByteArray();
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to render PDF", e);
         }
     }
 
-    private Path extractFontToTemp(String classpath, String prefix) throws IOException {
-        ClassPathResource res = new ClassPathResource(classpath);
-        Path tmp = Files.createTempFile(prefix + "-", ".ttf");
-        tmp.toFile().deleteOnExit();
-        try (InputStream in = res.getInputStream()) {
-            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+    private WorkerFonts fonts() {
+        WorkerFonts fonts = workerFonts.get();
+        if (fonts == null) {
+            try {
+                fonts = new WorkerFonts(
+                        new TTFParser().parse(new ByteArrayInputStream(regularFont)),
+                        new TTFParser().parse(new ByteArrayInputStream(boldFont)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to parse embedded PDF fonts", e);
+            }
+            workerFonts.set(fonts);
+        }
+        return fonts;
+    }
+
+    private static byte[] readClasspath(String path) throws IOException {
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /** Разобранные шрифты потока пула: TrueTypeFont не рассчитан на одновременное встраивание. */
+    private record WorkerFonts(TrueTypeFont regular, TrueTypeFont bold) { }
+
+    private static final class SharedCache implements FSCacheEx<String, FSCacheValue> {
+
+        private final Map<String, FSCacheValue> values = new ConcurrentHashMap<>();
+
+        @Override
+        public void put(String key, FSCacheValue value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public FSCacheValue get(String key, Callable<? extends FSCacheValue> loader) {
+            return values.computeIfAbsent(key, k -> {
+                try {
+                    return loader.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to load PDF font metrics", e);
+                }
+            });
+        }
+
+        @Override
+        public FSCacheValue get(String key) {
+            return values.get(key);
         }
-        return tmp;
     }
 }
@@ -18,89 +18,99 @@ public class PdfDocumentService {
     private final HtmlPdfRenderer htmlPdfRenderer;
 
     public byte[] generateReceiptOrderPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("receipt-order", normalize(data));
+        return htmlPdfRenderer.render("receipt-order", data, normalize(data));
     }
 
     public byte[] generateShippingInvoicePdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("waybill", normalize(data));
+        return htmlPdfRenderer.render("waybill", data, normalize(data));
     }
 
     public byte[] generateWriteOffActPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("write-off-act", normalize(data));
+        return htmlPdfRenderer.render("write-off-act", data, normalize(data));
     }
 
     public byte[] generateRevaluationActPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("revaluation-act", normalize(data));
+        return htmlPdfRenderer.render("revaluation-act", data, normalize(data));
     }
 
     public byte[] generateInventoryListPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("inventory-report", normalize(data));
+        return htmlPdfRenderer.render("inventory-report", data, normalize(data));
     }
 
     public byte[] generatePickingListPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("picking-list", normalize(data));
+        return htmlPdfRenderer.render("picking-list", data, normalize(data));
     }
 
     public byte[] generatePlacementListPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("placement-list", normalize(data));
+        return htmlPdfRenderer.render("placement-list", data, normalize(data));
     }
 
     public byte[] generateReceiptActPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("receipt-act", normalize(data));
+        return htmlPdfRenderer.render("receipt-act", data, normalize(data));
     }
 
     public byte[] generateInvoicePdf(Map<String, Object> data) {
         Map<String, Object> m = normalize(data);
-        m.putIfAbsent("documentNumber", data.getOrDefault("invoiceNumber", "—"));
-        m.putIfAbsent("currency", "BYN");
-        return htmlPdfRenderer.render("invoice", m);
+        putIfMissing(data, m, "documentNumber", data.getOrDefault("invoiceNumber", "—"));
+        putIfMissing(data, m, "currency", "BYN");
+        return htmlPdfRenderer.render("invoice", data, m);
     }
 
     public byte[] generateTransportNotePdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("transport-note", normalize(data));
+        return htmlPdfRenderer.render("transport-note", data, normalize(data));
     }
 
     public byte[] generateCmrPdf(Map<String, Object> data) {
         Map<String, Object> m = normalize(data);
-        m.putIfAbsent("documentNumber", data.getOrDefault("cmrNumber", "—"));
-        m.putIfAbsent("currency", "EUR");
-        return htmlPdfRenderer.render("cmr", m);
+        putIfMissing(data, m, "documentNumber", data.getOrDefault("cmrNumber", "—"));
+        putIfMissing(data, m, "currency", "EUR");
+        return htmlPdfRenderer.render("cmr", data, m);
     }
 
     public byte[] generateAnalyticsReportPdf(Map<String, Object> data) {
-        return htmlPdfRenderer.render("analytics-report", new HashMap<>(data));
+        return htmlPdfRenderer.render("analytics-report", data);
     }
 
+    /**
+     * Производные поля документа поверх {@code data}: исходная карта не копируется, рендерер
+     * накладывает результат на неё сам.
+     */
     private Map<String, Object> normalize(Map<String, Object> data) {
-        Map<String, Object> m = new HashMap<>(data);
-        m.putIfAbsent("documentDate", data.getOrDefault("date", today()));
-        copyIfMissing(m, "consigneeName", "recipientName");
-        copyIfMissing(m, "consigneeAddress", "recipientAddress");
-        copyIfMissing(m, "shipperName", "senderName");
-        copyIfMissing(m, "shipperAddress", "senderAddress");
-        copyIfMissing(m, "shipperCountry", "senderCountry");
-        copyIfMissing(m, "consigneeCountry", "recipientCountry");
-        copyIfMissing(m, "placeOfLoading", "loadingPlace");
-        copyIfMissing(m, "placeOfDelivery", "deliveryPlace");
-        copyIfMissing(m, "grossWeightKg", "grossWeight");
-        copyIfMissing(m, "totalWeight", "grossWeight");
-        if (!m.containsKey("items") && m.get("productName") != null) {
+        Map<String, Object> m = new HashMap<>();
+        putIfMissing(data, m, "documentDate", data.getOrDefault("date", today()));
+        copyIfMissing(data, m, "consigneeName", "recipientName");
+        copyIfMissing(data, m, "consigneeAddress", "recipientAddress");
+        copyIfMissing(data, m, "shipperName", "senderName");
+        copyIfMissing(data, m, "shipperAddress", "senderAddress");
+        copyIfMissing(data, m, "shipperCountry", "senderCountry");
+        copyIfMissing(data, m, "consigneeCountry", "recipientCountry");
+        copyIfMissing(data, m, "placeOfLoading", "loadingPlace");
+        copyIfMissing(data, m, "placeOfDelivery", "deliveryPlace");
+        copyIfMissing(data, m, "grossWeightKg", "grossWeight");
+        copyIfMissing(data, m, "totalWeight", "grossWeight");
+        if (!data.containsKey("items") && data.get("productName") != null) {
             Map<String, Object> item = new HashMap<>();
-            item.put("productName", m.get("productName"));
-            item.put("sku", m.getOrDefault("sku", ""));
-            item.put("unit", m.getOrDefault("unit", "шт"));
-            item.put("quantity", m.getOrDefault("quantity", "0"));
-            item.put("unitPrice", m.getOrDefault("unitPrice", "0.00"));
-            item.put("totalPrice", m.getOrDefault("totalAmount", m.getOrDefault("totalPrice", "0.00")));
-            item.put("batchNumber", m.getOrDefault("batchNumber", ""));
+            item.put("productName", data.get("productName"));
+            item.put("sku", data.getOrDefault("sku", ""));
+            item.put("unit", data.getOrDefault("unit", "шт"));
+            item.put("quantity", data.getOrDefault("quantity", "0"));
+            item.put("unitPrice", data.getOrDefault("unitPrice", "0.00"));
+            item.put("totalPrice", data.getOrDefault("totalAmount", data.getOrDefault("totalPrice", "0.00")));
+            item.put("batchNumber", data.getOrDefault("batchNumber", ""));
             m.put("items", java.util.List.of(item));
         }
         return m;
     }
 
-    private void copyIfMissing(Map<String, Object> m, String target, String source) {
-        if (m.get(target) == null && m.get(source) != null) {
-            m.put(target, m.get(source));
+    private void putIfMissing(Map<String, Object> data, Map<String, Object> m, String key, Object value) {
+        if (data.get(key) == null && m.get(key) == null) {
+            m.put(key, value);
+        }
+    }
+
+    private void copyIfMissing(Map<String, Object> data, Map<String, Object> m, String target, String source) {
+        if (data.get(target) == null && data.get(source) != null) {
+            m.put(target, data.get(source));
         }
     }
 
@@ -0,0 +1,9 @@
+package by.bsuir.documentservice.rpa;
+
+/** Очередь рендеринга PDF заполнена — запрос отклоняется сразу, а не ждёт без ограничения. */
+public class PdfRenderingBusyException extends RuntimeException {
+
+    public PdfRenderingBusyException(String message) {
+        super(message);
+    }
+}
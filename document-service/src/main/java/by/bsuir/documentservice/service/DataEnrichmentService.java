@@ -6,8 +6,9 @@ import by.bsuir.documentservice.client.SsoClient;
 import by.bsuir.documentservice.client.WarehouseClient;
 import by.bsuir.documentservice.util.FullNameFormatter;
 import by.bsuir.documentservice.util.RoleToPosition;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -18,10 +19,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DataEnrichmentService {
 
     private static final List<String> SIGNATURE_KEYS = Arrays.asList(
@@ -42,68 +48,108 @@ public class DataEnrichmentService {
     private final WarehouseClient warehouseClient;
     private final OrganizationClient organizationClient;
     private final SsoClient ssoClient;
+    private final ReferenceDataCache referenceData;
+    private final Executor executor;
+    private final long callTimeoutMs;
 
+    public DataEnrichmentService(ProductClient productClient,
+                                 WarehouseClient warehouseClient,
+                                 OrganizationClient organizationClient,
+                                 SsoClient ssoClient,
+                                 ReferenceDataCache referenceData,
+                                 @Qualifier("enrichmentExecutor") Executor executor,
+                                 @Value("${document.enrichment.call-timeout-ms:3000}") long callTimeoutMs) {
+        this.productClient = productClient;
+        this.warehouseClient = warehouseClient;
+        this.organizationClient = organizationClient;
+        this.ssoClient = ssoClient;
+        this.referenceData = referenceData;
+        this.executor = executor;
+        this.callTimeoutMs = callTimeoutMs;
+    }
+
+    /**
+     * Независимые справочные запросы (товар, партия, склад, организация, директор, подписанты) уходят
+     * параллельно, каждый со своим дедлайном {@code document.enrichment.call-timeout-ms}: запрос, не
+     * уложившийся в срок, считается пустым, и документ обогащается тем, что успело прийти.
+     */
     public Map<String, Object> enrich(Map<String, Object> data, UUID organizationId) {
         Map<String, Object> enriched = new HashMap<>(data);
 
         UUID productId = parseUuid(data.get("productId"));
-        if (productId != null && data.get("productName") == null) {
-            Map<String, Object> product = productClient.getProduct(productId, organizationId);
-            if (product != null) {
-                if (product.get("name") != null) enriched.put("productName", product.get("name"));
-                if (product.get("sku") != null) enriched.put("sku", product.get("sku"));
-                if (product.get("price") != null) enriched.put("unitPrice", product.get("price"));
-            }
+        UUID batchId = parseUuid(data.get("batchId"));
+        UUID warehouseId = parseUuid(data.get("warehouseId"));
+        UUID senderOrgId = parseUuid(data.get("senderOrganizationId"));
+        UUID orgIdToFetch = organizationId != null ? organizationId : senderOrgId;
+        Set<UUID> signatureIds = signatureUserIds(data);
+
+        CompletableFuture<Map<String, Object>> productFuture = productId != null && data.get("productName") == null
+                ? lookup("product " + productId, () -> productClient.getProduct(productId, organizationId))
+                : none();
+        CompletableFuture<Map<String, Object>> batchFuture = batchId != null && data.get("batchNumber") == null
+                ? lookup("batch " + batchId, () -> productClient.getBatch(batchId, organizationId))
+                : none();
+        CompletableFuture<Map<String, Object>> warehouseFuture = warehouseId != null && data.get("warehouseName") == null
+                ? lookup("warehouse " + warehouseId, () -> referenceData.warehouse(warehouseId, warehouseClient::getWarehouse))
+                : none();
+        CompletableFuture<Map<String, Object>> orgFuture = orgIdToFetch != null && data.get("organizationName") == null
+                ? lookup("organization " + orgIdToFetch,
+                        () -> referenceData.organization(orgIdToFetch, organizationClient::getOrganization))
+                : none();
+        CompletableFuture<Map<String, Map<String, Object>>> signersFuture = !signatureIds.isEmpty()
+                ? lookup("users " + signatureIds.size(), () -> lookupUsers(signatureIds))
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<Map<String, Object>> directorFuture = orgIdToFetch != null
+                ? lookup("director " + orgIdToFetch, () -> lookupDirector(orgIdToFetch))
+                : none();
+        CompletableFuture.allOf(productFuture, batchFuture, warehouseFuture, orgFuture, signersFuture, directorFuture)
+                .join();
+
+        Map<String, Object> product = productFuture.join();
+        if (product != null) {
+            if (product.get("name") != null) enriched.put("productName", product.get("name"));
+            if (product.get("sku") != null) enriched.put("sku", product.get("sku"));
+            if (product.get("price") != null) enriched.put("unitPrice", product.get("price"));
         }
 
-        UUID batchId = parseUuid(data.get("batchId"));
-        if (batchId != null && data.get("batchNumber") == null) {
-            Map<String, Object> batch = productClient.getBatch(batchId, organizationId);
-            if (batch != null) {
-                if (batch.get("batchNumber") != null) enriched.put("batchNumber", batch.get("batchNumber"));
-                if (batch.get("expiryDate") != null) enriched.put("batchExpiry", batch.get("expiryDate"));
-                if (batch.get("storageConditions") != null) enriched.put("storageConditions", batch.get("storageConditions"));
-            }
+        Map<String, Object> batch = batchFuture.join();
+        if (batch != null) {
+            if (batch.get("batchNumber") != null) enriched.put("batchNumber", batch.get("batchNumber"));
+            if (batch.get("expiryDate") != null) enriched.put("batchExpiry", batch.get("expiryDate"));
+            if (batch.get("storageConditions") != null) enriched.put("storageConditions", batch.get("storageConditions"));
         }
 
-        UUID warehouseId = parseUuid(data.get("warehouseId"));
-        if (warehouseId != null && data.get("warehouseName") == null) {
-            Map<String, Object> warehouse = warehouseClient.getWarehouse(warehouseId);
-            if (warehouse != null) {
-                if (warehouse.get("name") != null) enriched.put("warehouseName", warehouse.get("name"));
-                if (warehouse.get("address") != null) {
-                    enriched.put("warehouseAddress", warehouse.get("address"));
-                    enriched.putIfAbsent("loadingPoint", warehouse.get("address"));
-                }
+        Map<String, Object> warehouse = warehouseFuture.join();
+        if (warehouse != null) {
+            if (warehouse.get("name") != null) enriched.put("warehouseName", warehouse.get("name"));
+            if (warehouse.get("address") != null) {
+                enriched.put("warehouseAddress", warehouse.get("address"));
+                enriched.putIfAbsent("loadingPoint", warehouse.get("address"));
             }
         }
 
-        UUID senderOrgId = parseUuid(data.get("senderOrganizationId"));
-        UUID orgIdToFetch = organizationId != null ? organizationId : senderOrgId;
-        if (orgIdToFetch != null && data.get("organizationName") == null) {
-            Map<String, Object> org = organizationClient.getOrganization(orgIdToFetch);
-            if (org != null) {
-                Object name = org.get("name") != null ? org.get("name") : org.get("shortName");
-                if (name != null) {
-                    enriched.put("organizationName", name);
-                    enriched.putIfAbsent("shipperName", name);
-                    enriched.putIfAbsent("senderName", name);
-                    enriched.putIfAbsent("sellerName", name);
-                }
-                Object orgInn = org.get("unp") != null ? org.get("unp") : org.get("inn");
-                if (org.get("inn") != null) enriched.put("inn", org.get("inn"));
-                if (org.get("unp") != null) {
-                    enriched.put("unp", org.get("unp"));
-                    enriched.putIfAbsent("shipperInn", org.get("unp"));
-                    enriched.putIfAbsent("senderInn", org.get("unp"));
-                }
-                if (orgInn != null) enriched.putIfAbsent("sellerInn", orgInn);
-                if (org.get("address") != null) {
-                    enriched.put("organizationAddress", org.get("address"));
-                    enriched.putIfAbsent("shipperAddress", org.get("address"));
-                    enriched.putIfAbsent("senderAddress", org.get("address"));
-                    enriched.putIfAbsent("sellerAddress", org.get("address"));
-                }
+        Map<String, Object> org = orgFuture.join();
+        if (org != null) {
+            Object name = org.get("name") != null ? org.get("name") : org.get("shortName");
+            if (name != null) {
+                enriched.put("organizationName", name);
+                enriched.putIfAbsent("shipperName", name);
+                enriched.putIfAbsent("senderName", name);
+                enriched.putIfAbsent("sellerName", name);
+            }
+            Object orgInn = org.get("unp") != null ? org.get("unp") : org.get("inn");
+            if (org.get("inn") != null) enriched.put("inn", org.get("inn"));
+            if (org.get("unp") != null) {
+                enriched.put("unp", org.get("unp"));
+                enriched.putIfAbsent("shipperInn", org.get("unp"));
+                enriched.putIfAbsent("senderInn", org.get("unp"));
+            }
+            if (orgInn != null) enriched.putIfAbsent("sellerInn", orgInn);
+            if (org.get("address") != null) {
+                enriched.put("organizationAddress", org.get("address"));
+                enriched.putIfAbsent("shipperAddress", org.get("address"));
+                enriched.putIfAbsent("senderAddress", org.get("address"));
+                enriched.putIfAbsent("sellerAddress", org.get("address"));
             }
         }
 
@@ -126,83 +172,98 @@ public class DataEnrichmentService {
             enriched.putIfAbsent("buyerInn", recipientInn);
         }
 
-        enrichSignatures(enriched, orgIdToFetch);
+        applySignatures(enriched, signersFuture.join(), directorFuture.join());
 
         return enriched;
     }
 
-    private void enrichSignatures(Map<String, Object> payload, UUID orgIdToFetch) {
-        Set<UUID> idsToLookup = new LinkedHashSet<>();
-
+    private Set<UUID> signatureUserIds(Map<String, Object> payload) {
+        Set<UUID> ids = new LinkedHashSet<>();
         for (String key : SIGNATURE_KEYS) {
             UUID id = parseUuid(payload.get(key));
-            if (id != null) idsToLookup.add(id);
+            if (id != null) ids.add(id);
         }
-        Object members = payload.get("commissionMembers");
-        if (members instanceof List<?> list) {
+        if (payload.get("commissionMembers") instanceof List<?> list) {
             for (Object m : list) {
                 UUID id = parseUuid(m);
-                if (id != null) idsToLookup.add(id);
-            }
-        }
-
-        UUID directorUserId = null;
-        if (orgIdToFetch != null) {
-            Map<String, Object> director = organizationClient.getDirector(orgIdToFetch);
-            if (director != null && director.get("userId") != null) {
-                directorUserId = parseUuid(director.get("userId"));
-                if (directorUserId != null) idsToLookup.add(directorUserId);
+                if (id != null) ids.add(id);
             }
         }
+        return ids;
+    }
 
-        if (idsToLookup.isEmpty()) {
-            return;
-        }
+    private Map<String, Map<String, Object>> lookupUsers(Set<UUID> userIds) {
+        return referenceData.users(userIds, ssoClient::lookupUsers);
+    }
 
-        Map<String, Map<String, Object>> users = ssoClient.lookupUsers(new ArrayList<>(idsToLookup));
-        if (users == null || users.isEmpty()) {
-            return;
+    /** Пользователь-директор организации: {@code getDirector} и затем его карточка из SSO. */
+    private Map<String, Object> lookupDirector(UUID organizationId) {
+        Map<String, Object> director = referenceData.director(organizationId, organizationClient::getDirector);
+        UUID directorUserId = director != null ? parseUuid(director.get("userId")) : null;
+        if (directorUserId == null) {
+            return null;
         }
+        return lookupUsers(Set.of(directorUserId)).get(directorUserId.toString());
+    }
 
-        for (String key : SIGNATURE_KEYS) {
-            UUID id = parseUuid(payload.get(key));
-            if (id == null) continue;
-            String formatted = formatUser(users.get(id.toString()));
-            if (!formatted.isEmpty()) payload.put(key, formatted);
-        }
+    private void applySignatures(Map<String, Object> payload, Map<String, Map<String, Object>> users,
+                                 Map<String, Object> director) {
+        if (users != null && !users.isEmpty()) {
+            for (String key : SIGNATURE_KEYS) {
+                UUID id = parseUuid(payload.get(key));
+                if (id == null) continue;
+                String formatted = formatUser(users.get(id.toString()));
+                if (!formatted.isEmpty()) payload.put(key, formatted);
+            }
 
-        if (members instanceof List<?> list) {
-            List<String> resolved = new ArrayList<>();
-            for (Object m : list) {
-                UUID id = parseUuid(m);
-                String formatted = id == null ? null : formatUser(users.get(id.toString()));
-                if (formatted != null && !formatted.isEmpty()) {
-                    resolved.add(formatted);
-                } else if (m != null) {
-                    resolved.add(m.toString());
+            if (payload.get("commissionMembers") instanceof List<?> list) {
+                List<String> resolved = new ArrayList<>();
+                for (Object m : list) {
+                    UUID id = parseUuid(m);
+                    String formatted = id == null ? null : formatUser(users.get(id.toString()));
+                    if (formatted != null && !formatted.isEmpty()) {
+                        resolved.add(formatted);
+                    } else if (m != null) {
+                        resolved.add(m.toString());
+                    }
                 }
+                if (!resolved.isEmpty()) payload.put("commissionMembers", resolved);
             }
-            if (!resolved.isEmpty()) payload.put("commissionMembers", resolved);
         }
 
-        if (directorUserId != null) {
-            Map<String, Object> info = users.get(directorUserId.toString());
-            if (info != null) {
-                String fullName = info.get("fullName") != null ? info.get("fullName").toString() : "";
-                String shortName = FullNameFormatter.shortName(fullName);
-                String position = RoleToPosition.label(info.get("role") != null ? info.get("role").toString() : null);
-                if (!shortName.isEmpty()) {
-                    payload.putIfAbsent("directorName", shortName);
-                    payload.putIfAbsent("approvedBy", shortName);
-                }
-                if (!position.isEmpty()) {
-                    payload.putIfAbsent("directorTitle", position);
-                    payload.putIfAbsent("directorPosition", position);
-                }
+        if (director != null) {
+            String fullName = director.get("fullName") != null ? director.get("fullName").toString() : "";
+            String shortName = FullNameFormatter.shortName(fullName);
+            String position = RoleToPosition.label(director.get("role") != null ? director.get("role").toString() : null);
+            if (!shortName.isEmpty()) {
+                payload.putIfAbsent("directorName", shortName);
+                payload.putIfAbsent("approvedBy", shortName);
+            }
+            if (!position.isEmpty()) {
+                payload.putIfAbsent("directorTitle", position);
+                payload.putIfAbsent("directorPosition", position);
             }
         }
     }
 
+    private <T> CompletableFuture<T> lookup(String what, Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor)
+                .orTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("Обогащение: {} не получен за {} мс", what, callTimeoutMs);
+                    } else {
+                        log.warn("Обогащение: ошибка получения {}: {}", what, cause.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    private static CompletableFuture<Map<String, Object>> none() {
+        return CompletableFuture.completedFuture(null);
+    }
+
     private String formatUser(Map<String, Object> info) {
         if (info == null) return "";
         String fullName = info.get("fullName") != null ? info.get("fullName").toString() : "";
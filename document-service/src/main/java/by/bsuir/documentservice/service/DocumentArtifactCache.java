@@ -0,0 +1,272 @@
+package by.bsuir.documentservice.service;
+
+import by.bsuir.documentservice.rpa.HtmlPdfRenderer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Кэш готовых документов на локальном диске, адресуемый хэшем содержимого.
+ * <p>
+ * Ключ — SHA-256 от (тип, версия шаблона, канонический JSON обогащённых данных, формат), поэтому
+ * перепечатка и повторная генерация того же документа отдаются без шаблонизации и рендеринга.
+ * Размер каталога ограничен {@code document.cache.max-size-mb}, вытесняются давно не читанные файлы.
+ * Одинаковые запросы, пришедшие одновременно, рендерятся один раз.
+ */
+@Slf4j
+@Component
+public class DocumentArtifactCache {
+
+    /** Повышать при изменении нормализации данных или рендерера, влияющем на результат. */
+    static final int RENDER_VERSION = 1;
+    private static final String SUFFIX = ".bin";
+
+    public record Lookup(byte[] body, boolean hit) { }
+
+    private final HtmlPdfRenderer renderer;
+    private final ObjectMapper canonicalMapper;
+    private final Path directory;
+    private final long maxBytes;
+    private final boolean enabled;
+    private final Counter hits;
+    private final Counter misses;
+    private final MeterRegistry meterRegistry;
+
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<byte[]>> inflight = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    @Autowired
+    public DocumentArtifactCache(HtmlPdfRenderer renderer,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${document.cache.dir:${java.io.tmpdir}/document-cache}") String directory,
+                                 @Value("${document.cache.max-size-mb:512}") long maxSizeMb,
+                                 @Value("${document.cache.enabled:true}") boolean enabled) {
+        this.renderer = renderer;
+        this.canonicalMapper = objectMapper.copy()
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.directory = Path.of(directory);
+        this.maxBytes = Math.max(0, maxSizeMb) * 1024 * 1024;
+        this.enabled = enabled && maxBytes > 0;
+        this.hits = Counter.builder("document.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("document.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void loadIndex() {
+        Gauge.builder("document.cache.size.bytes", this, cache -> cache.sizeBytes()).register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                        .sorted(Comparator.comparingLong(DocumentArtifactCache::lastModified))
+                        .toList();
+            }
+            synchronized (entries) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    long size = Files.size(file);
+                    entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                    totalBytes += size;
+                }
+            }
+            evict();
+            log.info("Document cache at {}: {} entries, {} KB (limit {} MB)",
+                    directory, entries.size(), totalBytes / 1024, maxBytes / 1024 / 1024);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to initialise document cache at " + directory, e);
+        }
+    }
+
+    /** Готовый документ по ключу либо результат {@code render}, сохранённый для следующих запросов. */
+    public Lookup getOrRender(String type, Map<String, Object> payload, String format, Supplier<byte[]> render) {
+        if (!enabled) {
+            return new Lookup(render.get(), false);
+        }
+        String key = key(type, payload, format);
+        byte[] cached = read(key);
+        if (cached != null) {
+            hits.increment();
+            return new Lookup(cached, true);
+        }
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inflight.putIfAbsent(key, mine);
+        if (running != null) {
+            hits.increment();
+            return new Lookup(await(running), true);
+        }
+        try {
+            cached = read(key);
+            if (cached != null) {
+                hits.increment();
+                mine.complete(cached);
+                return new Lookup(cached, true);
+            }
+            misses.increment();
+            byte[] body = render.get();
+            write(key, body);
+            mine.complete(body);
+            return new Lookup(body, false);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    String key(String type, Map<String, Object> payload, String format) {
+        Map<String, Object> canonical = new TreeMap<>();
+        canonical.put("renderVersion", RENDER_VERSION);
+        canonical.put("type", type);
+        canonical.put("template", renderer.templateVersion(type));
+        canonical.put("format", format);
+        canonical.put("payload", payload);
+        if (payload.get("documentDate") == null && payload.get("date") == null) {
+            // Без даты в данных шаблон печатает сегодняшнюю — вчерашний документ не подходит.
+            canonical.put("today", LocalDate.now().toString());
+        }
+        try {
+            byte[] json = canonicalMapper.writeValueAsBytes(canonical);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to compute document cache key", e);
+        }
+    }
+
+    long sizeBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private byte[] read(String key) {
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(file(key));
+        } catch (NoSuchFileException e) {
+            forget(key);
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to read cached document {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, byte[] body) {
+        if (body == null || body.length == 0 || body.length > maxBytes) {
+            return;
+        }
+        Path target = file(key);
+        try {
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, body);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to cache document {}: {}", key, e.getMessage());
+            return;
+        }
+        synchronized (entries) {
+            Long previous = entries.put(key, (long) body.length);
+            totalBytes += body.length - (previous != null ? previous : 0);
+        }
+        evict();
+    }
+
+    private void evict() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String key : evicted) {
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                log.warn("Failed to evict cached document {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
@@ -33,6 +33,7 @@ public class DocumentService {
     private final PdfDocumentService pdfService;
     private final DataEnrichmentService enrichmentService;
     private final PythonRpaClient pythonRpaClient;
+    private final DocumentArtifactCache artifactCache;
 
     public byte[] generate(String type, Map<String, Object> data, UUID organizationId, String format) {
         return generate(type, data, organizationId, format, "auto").body();
@@ -63,9 +64,9 @@ public class DocumentService {
             }
         }
 
-        return new GenerationResult(
-                generateViaPdf(type, enriched),
-                "programmatic", "pdf");
+        DocumentArtifactCache.Lookup lookup =
+                artifactCache.getOrRender(type, enriched, "pdf", () -> generateViaPdf(type, enriched));
+        return new GenerationResult(lookup.body(), lookup.hit() ? "cache" : "programmatic", "pdf");
     }
 
     private String extOf(String name, String fallback) {
@@ -0,0 +1,122 @@
+package by.bsuir.documentservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Короткоживущий кэш справочных данных для обогащения документов: организации, директора, склады и
+ * пользователи. Пачка документов одной организации обращается к смежным сервисам один раз, а не на каждый
+ * документ. Записи живут {@code document.reference-cache.ttl-seconds} и сбрасываются раньше по событиям
+ * организаций и складов ({@link ReferenceDataListener}). Пустые ответы (ошибка или таймаут клиента)
+ * не кэшируются.
+ */
+@Slf4j
+@Component
+public class ReferenceDataCache {
+
+    private final Cache<UUID, Map<String, Object>> organizations;
+    private final Cache<UUID, Map<String, Object>> directors;
+    private final Cache<UUID, Map<String, Object>> warehouses;
+    private final Cache<UUID, Map<String, Object>> users;
+
+    public ReferenceDataCache(MeterRegistry meterRegistry,
+                              @Value("${document.reference-cache.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${document.reference-cache.max-size:10000}") long maxSize) {
+        Duration ttl = Duration.ofSeconds(Math.max(ttlSeconds, 0));
+        long size = Math.max(maxSize, 0);
+        this.organizations = build(meterRegistry, "document.reference.organizations", ttl, size);
+        this.directors = build(meterRegistry, "document.reference.directors", ttl, size);
+        this.warehouses = build(meterRegistry, "document.reference.warehouses", ttl, size);
+        this.users = build(meterRegistry, "document.reference.users", ttl, size);
+    }
+
+    public Map<String, Object> organization(UUID organizationId, Function<UUID, Map<String, Object>> loader) {
+        return get(organizations, organizationId, loader);
+    }
+
+    public Map<String, Object> director(UUID organizationId, Function<UUID, Map<String, Object>> loader) {
+        return get(directors, organizationId, loader);
+    }
+
+    public Map<String, Object> warehouse(UUID warehouseId, Function<UUID, Map<String, Object>> loader) {
+        return get(warehouses, warehouseId, loader);
+    }
+
+    /** Пользователи по id; недостающие запрашиваются одним вызовом {@code loader}. Ключ результата — id строкой. */
+    public Map<String, Map<String, Object>> users(Collection<UUID> userIds,
+                                                  Function<List<UUID>, Map<String, Map<String, Object>>> loader) {
+        Map<UUID, Map<String, Object>> found = users.getAll(userIds, missing -> {
+            Map<String, Map<String, Object>> loaded = loader.apply(new ArrayList<>(missing));
+            Map<UUID, Map<String, Object>> result = new HashMap<>();
+            if (loaded != null) {
+                loaded.forEach((id, info) -> {
+                    UUID userId = parseUuid(id);
+                    if (userId != null && info != null && !info.isEmpty()) {
+                        result.put(userId, Collections.unmodifiableMap(new HashMap<>(info)));
+                    }
+                });
+            }
+            return result;
+        });
+        Map<String, Map<String, Object>> byId = new HashMap<>();
+        found.forEach((id, info) -> byId.put(id.toString(), info));
+        return byId;
+    }
+
+    /** Реквизиты или директор организации изменились — следующий документ запросит их заново. */
+    public void evictOrganization(UUID organizationId) {
+        organizations.invalidate(organizationId);
+        directors.invalidate(organizationId);
+        log.debug("Reference data evicted for organization {}", organizationId);
+    }
+
+    public void evictWarehouse(UUID warehouseId) {
+        warehouses.invalidate(warehouseId);
+        log.debug("Reference data evicted for warehouse {}", warehouseId);
+    }
+
+    public void evictUser(UUID userId) {
+        users.invalidate(userId);
+    }
+
+    private static Map<String, Object> get(Cache<UUID, Map<String, Object>> cache, UUID id,
+                                           Function<UUID, Map<String, Object>> loader) {
+        return cache.get(id, key -> {
+            Map<String, Object> loaded = loader.apply(key);
+            return loaded == null || loaded.isEmpty() ? null : Collections.unmodifiableMap(new HashMap<>(loaded));
+        });
+    }
+
+    private static Cache<UUID, Map<String, Object>> build(MeterRegistry meterRegistry, String name,
+                                                          Duration ttl, long maxSize) {
+        Cache<UUID, Map<String, Object>> cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        return cache;
+    }
+
+    private static UUID parseUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package by.bsuir.documentservice.service;
+
+import by.bsuir.documentservice.config.RabbitMQConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReferenceDataListener {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    @RabbitListener(queues = "#{referenceDataQueue.name}")
+    public void handleReferenceDataEvent(Map<String, Object> event,
+                                         @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey) {
+        try {
+            switch (routingKey) {
+                case RabbitMQConfig.WAREHOUSE_UPDATED_KEY, RabbitMQConfig.WAREHOUSE_DELETED_KEY -> {
+                    UUID warehouseId = parseUuid(event.get("warehouseId"));
+                    if (warehouseId != null) referenceDataCache.evictWarehouse(warehouseId);
+                }
+                case RabbitMQConfig.DIRECTOR_DELETED_KEY -> {
+                    UUID orgId = parseUuid(event.get("orgId"));
+                    UUID userId = parseUuid(event.get("userId"));
+                    if (orgId != null) referenceDataCache.evictOrganization(orgId);
+                    if (userId != null) referenceDataCache.evictUser(userId);
+                }
+                default -> {
+                    UUID orgId = parseUuid(event.get("orgId"));
+                    if (orgId != null) referenceDataCache.evictOrganization(orgId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("reference data: ошибка обработки события {} ({}): {}", routingKey, event, e.getMessage());
+        }
+    }
+
+    private UUID parseUuid(Object value) {
+        if (value == null) return null;
+        try {
+            return UUID.fromString(value.toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
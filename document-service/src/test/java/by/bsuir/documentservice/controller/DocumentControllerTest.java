@@ -1,5 +1,6 @@
 package by.bsuir.documentservice.controller;
 
+import by.bsuir.documentservice.rpa.PdfRenderingBusyException;
 import by.bsuir.documentservice.service.DocumentService;
 import by.bsuir.documentservice.service.DocumentService.GenerationResult;
 import org.junit.jupiter.api.BeforeEach;
@@ -147,4 +148,15 @@ class DocumentControllerTest {
         assertThat(types).hasSize(10);
         assertThat(types).contains("receipt-order", "cmr", "invoice", "picking-list");
     }
+
+    @Test
+    @DisplayName("Перегрузка рендеринга PDF → 503 с Retry-After")
+    void handleRendererBusy_ShouldReturnServiceUnavailable() {
+        ResponseEntity<Map<String, Object>> response =
+                controller.handleRendererBusy(new PdfRenderingBusyException("saturated"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(response.getBody()).containsEntry("status", 503);
+    }
 }
@@ -0,0 +1,81 @@
+package by.bsuir.documentservice.rpa;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("HtmlPdfRenderer — пул рендеринга")
+class HtmlPdfRendererTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HtmlPdfRenderer renderer;
+
+    private HtmlPdfRenderer start(int workers, int queueCapacity) {
+        renderer = new HtmlPdfRenderer(meterRegistry, workers, queueCapacity, 30_000);
+        renderer.init();
+        return renderer;
+    }
+
+    @AfterEach
+    void tearDown() {
+        renderer.shutdown();
+    }
+
+    @Test
+    @DisplayName("render: повторные документы на одном потоке используют общие шрифты и сохраняют кириллицу")
+    void render_GivenRepeatedDocumentsOnOneWorker_ShouldEmbedSharedFonts() throws Exception {
+        start(1, 4);
+        Map<String, Object> data = Map.of("documentNumber", "ПО-7", "organizationName", "ОАО «Хлебозавод»");
+
+        byte[] first = renderer.render("receipt-order", data);
+        byte[] second = renderer.render("receipt-order", data, Map.of("organizationName", "ООО «Склад»"));
+
+        try (PDDocument doc = PDDocument.load(first)) {
+            assertThat(new PDFTextStripper().getText(doc)).contains("ПРИХОДНЫЙ ОРДЕР").contains("Хлебозавод");
+        }
+        try (PDDocument doc = PDDocument.load(second)) {
+            assertThat(new PDFTextStripper().getText(doc)).contains("ООО «Склад»");
+        }
+        assertThat(meterRegistry.get("document.pdf.render").tag("template", "receipt-order").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("render: все потоки заняты и очередь полна → PdfRenderingBusyException без ожидания")
+    void render_GivenSaturatedPool_ShouldRejectImmediately() throws Exception {
+        start(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture<Object> busy = CompletableFuture.supplyAsync(() -> renderer.execute("blocker", () -> {
+            running.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }));
+        assertThat(running.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Object> queued = CompletableFuture.supplyAsync(() -> renderer.execute("queued", () -> true));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meterRegistry.get("document.pdf.queue.depth").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+
+        try {
+            assertThatThrownBy(() -> renderer.render("receipt-order", Map.of()))
+                    .isInstanceOf(PdfRenderingBusyException.class);
+            assertThat(meterRegistry.get("document.pdf.rejected").counter().count()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+        }
+        assertThat(busy.get(10, TimeUnit.SECONDS)).isEqualTo(true);
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isEqualTo(true);
+    }
+}
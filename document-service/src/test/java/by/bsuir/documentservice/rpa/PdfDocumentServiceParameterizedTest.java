@@ -1,5 +1,6 @@
 package by.bsuir.documentservice.rpa;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -19,7 +20,7 @@ class PdfDocumentServiceParameterizedTest {
     private final PdfDocumentService service = new PdfDocumentService(RENDERER);
 
     private static HtmlPdfRenderer newRenderer() {
-        HtmlPdfRenderer r = new HtmlPdfRenderer();
+        HtmlPdfRenderer r = new HtmlPdfRenderer(new SimpleMeterRegistry(), 2, 16, 30_000);
         r.init();
         return r;
     }
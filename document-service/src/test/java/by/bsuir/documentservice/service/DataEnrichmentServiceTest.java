@@ -2,20 +2,25 @@ package by.bsuir.documentservice.service;
 
 import by.bsuir.documentservice.client.OrganizationClient;
 import by.bsuir.documentservice.client.ProductClient;
+import by.bsuir.documentservice.client.SsoClient;
 import by.bsuir.documentservice.client.WarehouseClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -26,8 +31,17 @@ class DataEnrichmentServiceTest {
     @Mock private ProductClient productClient;
     @Mock private WarehouseClient warehouseClient;
     @Mock private OrganizationClient organizationClient;
+    @Mock private SsoClient ssoClient;
 
-    @InjectMocks private DataEnrichmentService service;
+    private ReferenceDataCache referenceData;
+    private DataEnrichmentService service;
+
+    @BeforeEach
+    void setUp() {
+        referenceData = new ReferenceDataCache(new SimpleMeterRegistry(), 300, 1000);
+        service = new DataEnrichmentService(productClient, warehouseClient, organizationClient, ssoClient,
+                referenceData, Executors.newCachedThreadPool(), 500);
+    }
 
     @Test
     @DisplayName("enrich: продукт уже подставлен (productName != null) → не дёргает productClient")
@@ -148,4 +162,66 @@ class DataEnrichmentServiceTest {
         assertThat(result.get("foo")).isEqualTo("bar");
         assertThat(data).hasSize(1);
     }
+
+    @Test
+    @DisplayName("enrich: организация и склад второй раз берутся из кэша, после события — запрашиваются заново")
+    void enrich_GivenRepeatedReferenceData_ShouldUseCacheUntilEvicted() {
+        UUID orgId = UUID.randomUUID();
+        UUID warehouseId = UUID.randomUUID();
+        when(organizationClient.getOrganization(orgId)).thenReturn(Map.of("name", "ОАО Тест"));
+        when(warehouseClient.getWarehouse(warehouseId)).thenReturn(Map.of("name", "Главный склад"));
+        Map<String, Object> data = Map.of("warehouseId", warehouseId.toString());
+
+        service.enrich(data, orgId);
+        Map<String, Object> cached = service.enrich(data, orgId);
+        referenceData.evictOrganization(orgId);
+        service.enrich(data, orgId);
+
+        assertThat(cached.get("organizationName")).isEqualTo("ОАО Тест");
+        assertThat(cached.get("warehouseName")).isEqualTo("Главный склад");
+        verify(organizationClient, times(2)).getOrganization(orgId);
+        verify(warehouseClient, times(1)).getWarehouse(warehouseId);
+    }
+
+    @Test
+    @DisplayName("enrich: зависший запрос обрывается по дедлайну, остальные данные подставляются")
+    void enrich_GivenSlowClient_ShouldTimeOutThatLookupOnly() {
+        UUID productId = UUID.randomUUID();
+        UUID warehouseId = UUID.randomUUID();
+        when(productClient.getProduct(productId, null)).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return Map.of("name", "Поздно");
+        });
+        when(warehouseClient.getWarehouse(warehouseId)).thenReturn(Map.of("name", "Главный склад"));
+
+        long started = System.nanoTime();
+        Map<String, Object> result = service.enrich(Map.of(
+                "productId", productId.toString(),
+                "warehouseId", warehouseId.toString()), null);
+
+        assertThat(System.nanoTime() - started).isLessThan(3_000_000_000L);
+        assertThat(result).doesNotContainKey("productName");
+        assertThat(result.get("warehouseName")).isEqualTo("Главный склад");
+    }
+
+    @Test
+    @DisplayName("enrich: подписанты и директор резолвятся через SSO, директор подставляется в approvedBy")
+    void enrich_GivenSignaturesAndDirector_ShouldResolveUsers() {
+        UUID orgId = UUID.randomUUID();
+        UUID directorId = UUID.randomUUID();
+        UUID responsibleId = UUID.randomUUID();
+        when(organizationClient.getOrganization(orgId)).thenReturn(Map.of("name", "ОАО Тест"));
+        when(organizationClient.getDirector(orgId)).thenReturn(Map.of("userId", directorId.toString()));
+        when(ssoClient.lookupUsers(List.of(responsibleId))).thenReturn(Map.of(
+                responsibleId.toString(), Map.of("fullName", "Петров Пётр Петрович", "role", "WORKER")));
+        when(ssoClient.lookupUsers(List.of(directorId))).thenReturn(Map.of(
+                directorId.toString(), Map.of("fullName", "Иванов Иван Иванович", "role", "DIRECTOR")));
+
+        Map<String, Object> result = service.enrich(
+                Map.of("responsiblePerson", responsibleId.toString()), orgId);
+
+        assertThat(result.get("responsiblePerson").toString()).contains("Петров П. П.");
+        assertThat(result.get("directorName")).isEqualTo("Иванов И. И.");
+        assertThat(result.get("approvedBy")).isEqualTo("Иванов И. И.");
+    }
 }
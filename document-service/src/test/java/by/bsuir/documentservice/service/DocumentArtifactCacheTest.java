@@ -0,0 +1,118 @@
+package by.bsuir.documentservice.service;
+
+import by.bsuir.documentservice.rpa.HtmlPdfRenderer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DocumentArtifactCache — модульные тесты")
+class DocumentArtifactCacheTest {
+
+    @Mock
+    private HtmlPdfRenderer renderer;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(renderer.templateVersion(anyString())).thenReturn("v1");
+    }
+
+    private DocumentArtifactCache cache(long maxSizeMb) {
+        DocumentArtifactCache cache = new DocumentArtifactCache(renderer, new ObjectMapper(), meterRegistry,
+                directory.toString(), maxSizeMb, true);
+        cache.loadIndex();
+        return cache;
+    }
+
+    private byte[] render(int size) {
+        renders.incrementAndGet();
+        return new byte[size];
+    }
+
+    @Test
+    @DisplayName("getOrRender: те же данные в другом порядке ключей → документ из кэша без рендеринга")
+    void getOrRender_GivenSamePayloadInOtherOrder_ShouldHitCache() {
+        DocumentArtifactCache cache = cache(16);
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("documentNumber", "СФ-1");
+        first.put("items", List.of(Map.of("sku", "A", "quantity", 2)));
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("items", List.of(Map.of("quantity", 2, "sku", "A")));
+        second.put("documentNumber", "СФ-1");
+
+        DocumentArtifactCache.Lookup miss = cache.getOrRender("invoice", first, "pdf", () -> render(10));
+        DocumentArtifactCache.Lookup hit = cache.getOrRender("invoice", second, "pdf", () -> render(10));
+
+        assertThat(miss.hit()).isFalse();
+        assertThat(hit.hit()).isTrue();
+        assertThat(hit.body()).hasSize(10);
+        assertThat(renders).hasValue(1);
+        assertThat(meterRegistry.get("document.cache.requests").tag("result", "hit").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("getOrRender: новая версия шаблона → ключ другой, документ рендерится заново")
+    void getOrRender_GivenChangedTemplate_ShouldMiss() {
+        DocumentArtifactCache cache = cache(16);
+        Map<String, Object> payload = Map.of("documentNumber", "ПО-1", "date", "01.05.2026");
+
+        cache.getOrRender("receipt-order", payload, "pdf", () -> render(10));
+        when(renderer.templateVersion("receipt-order")).thenReturn("v2");
+        DocumentArtifactCache.Lookup lookup = cache.getOrRender("receipt-order", payload, "pdf", () -> render(10));
+
+        assertThat(lookup.hit()).isFalse();
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("getOrRender: превышен лимит размера → вытесняется давно не читанный документ")
+    void getOrRender_GivenSizeLimit_ShouldEvictLeastRecentlyUsed() {
+        DocumentArtifactCache cache = cache(1);
+        Map<String, Object> older = Map.of("documentNumber", "1", "date", "01.05.2026");
+        Map<String, Object> newer = Map.of("documentNumber", "2", "date", "01.05.2026");
+
+        cache.getOrRender("cmr", older, "pdf", () -> render(600 * 1024));
+        cache.getOrRender("cmr", newer, "pdf", () -> render(600 * 1024));
+
+        assertThat(cache.sizeBytes()).isEqualTo(600 * 1024);
+        assertThat(cache.getOrRender("cmr", newer, "pdf", () -> render(1)).hit()).isTrue();
+        assertThat(cache.getOrRender("cmr", older, "pdf", () -> render(1)).hit()).isFalse();
+    }
+
+    @Test
+    @DisplayName("loadIndex: после перезапуска документы на диске снова отдаются из кэша")
+    void loadIndex_GivenFilesFromPreviousRun_ShouldServeThem() {
+        Map<String, Object> payload = Map.of("documentNumber", "ТН-5", "date", "01.05.2026");
+        cache(16).getOrRender("transport-note", payload, "pdf", () -> render(32));
+
+        DocumentArtifactCache restarted = cache(16);
+
+        assertThat(restarted.sizeBytes()).isEqualTo(32);
+        assertThat(restarted.getOrRender("transport-note", payload, "pdf", () -> render(32)).hit()).isTrue();
+        assertThat(renders).hasValue(1);
+    }
+}
@@ -16,6 +16,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -41,6 +42,9 @@ class DocumentServiceTest {
     @Mock
     private PythonRpaClient pythonRpaClient;
 
+    @Mock
+    private DocumentArtifactCache artifactCache;
+
     @InjectMocks
     private DocumentService service;
 
@@ -50,6 +54,22 @@ class DocumentServiceTest {
     void setUp() {
         Mockito.lenient().when(enrichmentService.enrich(any(), any()))
                 .thenAnswer(inv -> inv.getArgument(0));
+        Mockito.lenient().when(artifactCache.getOrRender(any(), any(), any(), any()))
+                .thenAnswer(inv -> new DocumentArtifactCache.Lookup(
+                        inv.<Supplier<byte[]>>getArgument(3).get(), false));
+    }
+
+    @Test
+    @DisplayName("generate(auto): документ уже в кэше → channel=cache, рендеринг не вызывается")
+    void generate_givenCachedDocument_whenCalled_thenReturnsCacheChannel() {
+        Mockito.doReturn(new DocumentArtifactCache.Lookup(new byte[]{4, 2}, true))
+                .when(artifactCache).getOrRender(eq("invoice"), any(), eq("pdf"), any());
+
+        GenerationResult result = service.generate("invoice", Map.of("invoiceNumber", "СФ-1"), orgId, "pdf", "auto");
+
+        assertThat(result.body()).containsExactly(4, 2);
+        assertThat(result.channel()).isEqualTo("cache");
+        verify(pdfService, never()).generateInvoicePdf(any());
     }
 
     @Test
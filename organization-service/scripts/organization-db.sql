@@ -83,3 +83,32 @@ CREATE TABLE organization_invitations
 CREATE INDEX idx_invitations_token ON organization_invitations (invitation_token);
 CREATE INDEX idx_invitations_org_id ON organization_invitations (org_id);
 CREATE INDEX idx_invitations_email ON organization_invitations (email);
+
+CREATE TABLE scheduled_job
+(
+    job_name         VARCHAR(100) PRIMARY KEY,
+    owner_instance   VARCHAR(100),
+    lease_until      TIMESTAMP,
+    last_started_at  TIMESTAMP,
+    last_finished_at TIMESTAMP,
+    last_status      VARCHAR(16),
+    checkpoint       TEXT,
+    updated_at       TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE TABLE scheduled_job_run
+(
+    id            BIGSERIAL PRIMARY KEY,
+    job_name      VARCHAR(100) NOT NULL,
+    instance_id   VARCHAR(100) NOT NULL,
+    trigger_type  VARCHAR(16)  NOT NULL,
+    status        VARCHAR(16)  NOT NULL,
+    started_at    TIMESTAMP    NOT NULL,
+    finished_at   TIMESTAMP,
+    duration_ms   BIGINT,
+    rows_affected BIGINT,
+    resumed_from  TEXT,
+    error         TEXT
+);
+
+CREATE INDEX idx_scheduled_job_run_job ON scheduled_job_run (job_name, started_at DESC);
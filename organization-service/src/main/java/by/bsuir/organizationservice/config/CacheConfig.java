@@ -0,0 +1,32 @@
+package by.bsuir.organizationservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Map;
+
+/**
+ * Кэши на Caffeine. Размер и TTL задаются для каждого кэша отдельно через
+ * {@code app.cache.specs[<кэш>]}; кэши без своей спецификации получают {@code spring.cache.caffeine.spec}.
+ * Статистика включена, поэтому Spring Boot публикует {@code cache.gets{result=hit|miss}} по каждому кэшу.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> perCacheSpecs(Environment environment) {
+        Map<String, String> specs = Binder.get(environment)
+                .bind("app.cache.specs", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of());
+        return manager -> specs.forEach((name, spec) ->
+                manager.registerCustomCache(name, Caffeine.from(spec).recordStats().build()));
+    }
+}
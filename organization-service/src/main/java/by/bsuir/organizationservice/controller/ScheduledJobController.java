@@ -0,0 +1,91 @@
+package by.bsuir.organizationservice.controller;
+
+import by.bsuir.organizationservice.config.SecurityUtils;
+import by.bsuir.organizationservice.dto.response.ScheduledJobResponse;
+import by.bsuir.organizationservice.dto.response.ScheduledJobRunResponse;
+import by.bsuir.organizationservice.exception.AppException;
+import by.bsuir.organizationservice.model.enums.JobTrigger;
+import by.bsuir.organizationservice.service.ClusterJobRunner;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Фоновые задачи", description = "Состояние, история и ручной запуск фоновых задач сервиса")
+public class ScheduledJobController {
+
+    private final ClusterJobRunner jobRunner;
+
+    @Operation(summary = "Список фоновых задач", description = "Аренда, последний запуск и контрольная точка. Только DIRECTOR")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Состояние задач получено"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав")
+    })
+    @GetMapping
+    public ResponseEntity<List<ScheduledJobResponse>> list(
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRoleHdr) {
+        if (!isDirector(userRoleHdr)) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(jobRunner.states().stream().map(ScheduledJobResponse::from).toList());
+    }
+
+    @Operation(summary = "Последние запуски задачи", description = "20 последних запусков со всех экземпляров. Только DIRECTOR")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "История запусков получена"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "404", description = "Задача не найдена")
+    })
+    @GetMapping("/{jobName}/runs")
+    public ResponseEntity<List<ScheduledJobRunResponse>> runs(
+            @Parameter(description = "Имя задачи", required = true) @PathVariable String jobName,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRoleHdr) {
+        if (!isDirector(userRoleHdr)) {
+            return ResponseEntity.status(403).build();
+        }
+        requireRegistered(jobName);
+        return ResponseEntity.ok(jobRunner.history(jobName).stream().map(ScheduledJobRunResponse::from).toList());
+    }
+
+    @Operation(summary = "Запустить задачу вручную",
+            description = "Выполняет задачу на этом экземпляре, если её сейчас не выполняет другой (иначе 409). Только DIRECTOR")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Задача выполнена, запуск записан в историю"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "404", description = "Задача не найдена"),
+            @ApiResponse(responseCode = "409", description = "Задачу выполняет другой экземпляр")
+    })
+    @PostMapping("/{jobName}/run")
+    public ResponseEntity<ScheduledJobRunResponse> run(
+            @Parameter(description = "Имя задачи", required = true) @PathVariable String jobName,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRoleHdr) {
+        if (!isDirector(userRoleHdr)) {
+            return ResponseEntity.status(403).build();
+        }
+        requireRegistered(jobName);
+        return jobRunner.run(jobName, JobTrigger.MANUAL)
+                .map(run -> ResponseEntity.ok(ScheduledJobRunResponse.from(run)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    private boolean isDirector(String userRoleHdr) {
+        String userRole = userRoleHdr != null ? userRoleHdr : SecurityUtils.currentRole();
+        return "DIRECTOR".equals(userRole);
+    }
+
+    private void requireRegistered(String jobName) {
+        if (!jobRunner.isRegistered(jobName)) {
+            throw AppException.notFound("Фоновая задача " + jobName + " не найдена");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package by.bsuir.organizationservice.dto.response;
+
+import by.bsuir.organizationservice.model.entity.ScheduledJobRun;
+import by.bsuir.organizationservice.model.enums.JobRunStatus;
+import by.bsuir.organizationservice.model.enums.JobTrigger;
+
+import java.time.LocalDateTime;
+
+public record ScheduledJobRunResponse(
+        Long runId,
+        String jobName,
+        String instanceId,
+        JobTrigger trigger,
+        JobRunStatus status,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        Long durationMs,
+        Long rowsAffected,
+        String resumedFrom,
+        String error
+) {
+    public static ScheduledJobRunResponse from(ScheduledJobRun run) {
+        return new ScheduledJobRunResponse(
+                run.getId(),
+                run.getJobName(),
+                run.getInstanceId(),
+                run.getTrigger(),
+                run.getStatus(),
+                run.getStartedAt(),
+                run.getFinishedAt(),
+                run.getDurationMs(),
+                run.getRowsAffected(),
+                run.getResumedFrom(),
+                run.getError());
+    }
+}
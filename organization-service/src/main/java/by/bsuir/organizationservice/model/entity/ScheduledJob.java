@@ -0,0 +1,47 @@
+package by.bsuir.organizationservice.model.entity;
+
+import by.bsuir.organizationservice.model.enums.JobRunStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Аренда фоновой задачи: пока {@code lease_until} в будущем, задачу выполняет {@code owner_instance}.
+ * {@code checkpoint} — точка продолжения для задач, прерванных посередине.
+ */
+@Entity
+@Table(name = "scheduled_job")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledJob {
+
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    @Column(name = "owner_instance", length = 100)
+    private String ownerInstance;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "last_started_at")
+    private LocalDateTime lastStartedAt;
+
+    @Column(name = "last_finished_at")
+    private LocalDateTime lastFinishedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_status", length = 16)
+    private JobRunStatus lastStatus;
+
+    @Column(name = "checkpoint", columnDefinition = "TEXT")
+    private String checkpoint;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,55 @@
+package by.bsuir.organizationservice.model.entity;
+
+import by.bsuir.organizationservice.model.enums.JobRunStatus;
+import by.bsuir.organizationservice.model.enums.JobTrigger;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "scheduled_job_run")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledJobRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 100)
+    private String jobName;
+
+    @Column(name = "instance_id", nullable = false, length = 100)
+    private String instanceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "trigger_type", nullable = false, length = 16)
+    private JobTrigger trigger;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private JobRunStatus status;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "rows_affected")
+    private Long rowsAffected;
+
+    @Column(name = "resumed_from", columnDefinition = "TEXT")
+    private String resumedFrom;
+
+    @Column(name = "error", columnDefinition = "TEXT")
+    private String error;
+}
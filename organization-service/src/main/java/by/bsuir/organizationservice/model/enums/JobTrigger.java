@@ -0,0 +1,7 @@
+package by.bsuir.organizationservice.model.enums;
+
+public enum JobTrigger {
+    SCHEDULED,
+    STARTUP,
+    MANUAL
+}
@@ -0,0 +1,55 @@
+package by.bsuir.organizationservice.repository;
+
+import by.bsuir.organizationservice.model.entity.ScheduledJob;
+import by.bsuir.organizationservice.model.enums.JobRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ScheduledJobRepository extends JpaRepository<ScheduledJob, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO scheduled_job (job_name, updated_at) VALUES (:jobName, now()) "
+            + "ON CONFLICT (job_name) DO NOTHING",
+            nativeQuery = true)
+    int ensureExists(@Param("jobName") String jobName);
+
+    /**
+     * Берёт аренду, если задачу никто не выполняет и она не запускалась после {@code notBefore}.
+     * Второе условие не даёт репликам с расхождением часов повторить уже отработавший плановый запуск.
+     */
+    @Modifying
+    @Query("UPDATE ScheduledJob j SET j.ownerInstance = :owner, j.leaseUntil = :leaseUntil, "
+            + "j.lastStartedAt = :now, j.updatedAt = :now "
+            + "WHERE j.jobName = :jobName AND (j.leaseUntil IS NULL OR j.leaseUntil < :now) "
+            + "AND (j.lastStartedAt IS NULL OR j.lastStartedAt < :notBefore)")
+    int tryAcquire(@Param("jobName") String jobName,
+                   @Param("owner") String owner,
+                   @Param("now") LocalDateTime now,
+                   @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("notBefore") LocalDateTime notBefore);
+
+    @Modifying
+    @Query("UPDATE ScheduledJob j SET j.checkpoint = :checkpoint, j.leaseUntil = :leaseUntil, j.updatedAt = :now "
+            + "WHERE j.jobName = :jobName AND j.ownerInstance = :owner")
+    int saveCheckpoint(@Param("jobName") String jobName,
+                       @Param("owner") String owner,
+                       @Param("checkpoint") String checkpoint,
+                       @Param("leaseUntil") LocalDateTime leaseUntil,
+                       @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ScheduledJob j SET j.ownerInstance = NULL, j.leaseUntil = NULL, j.checkpoint = :checkpoint, "
+            + "j.lastStatus = :status, j.lastFinishedAt = :now, j.updatedAt = :now "
+            + "WHERE j.jobName = :jobName AND j.ownerInstance = :owner")
+    int release(@Param("jobName") String jobName,
+                @Param("owner") String owner,
+                @Param("checkpoint") String checkpoint,
+                @Param("status") JobRunStatus status,
+                @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,13 @@
+package by.bsuir.organizationservice.repository;
+
+import by.bsuir.organizationservice.model.entity.ScheduledJobRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ScheduledJobRunRepository extends JpaRepository<ScheduledJobRun, Long> {
+
+    List<ScheduledJobRun> findTop20ByJobNameOrderByStartedAtDesc(String jobName);
+}
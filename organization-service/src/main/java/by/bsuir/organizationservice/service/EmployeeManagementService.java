@@ -11,6 +11,8 @@ import by.bsuir.organizationservice.repository.OrganizationReadModelRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
@@ -35,6 +37,10 @@ public class EmployeeManagementService {
     private final RestTemplate restTemplate;
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "employeesAnalytics", key = "#orgId"),
+            @CacheEvict(value = "employeeAnalytics", key = "#orgId + '-' + #request.userId()")
+    })
     public EmployeeResponse addEmployee(UUID orgId, AddEmployeeRequest request) {
         log.info("Adding employee {} to organization {}", request.userId(), orgId);
 
@@ -64,6 +70,10 @@ public class EmployeeManagementService {
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "employeesAnalytics", key = "#orgId"),
+            @CacheEvict(value = "employeeAnalytics", key = "#orgId + '-' + #userId")
+    })
     public void removeEmployee(UUID orgId, UUID userId) {
         log.info("Removing employee {} from organization {}", userId, orgId);
 
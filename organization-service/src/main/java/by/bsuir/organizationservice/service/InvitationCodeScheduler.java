@@ -1,11 +1,12 @@
 package by.bsuir.organizationservice.service;
 
+import by.bsuir.organizationservice.model.enums.JobTrigger;
 import by.bsuir.organizationservice.repository.OrganizationInvitationCodeRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
@@ -14,11 +15,22 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class InvitationCodeScheduler {
 
+    public static final String JOB_NAME = "invitation-code-expiry";
+
     private final OrganizationInvitationCodeRepository invitationCodeRepository;
+    private final ClusterJobRunner jobRunner;
+
+    @PostConstruct
+    void registerJob() {
+        jobRunner.register(JOB_NAME, context -> deactivateExpiredCodes());
+    }
 
     @Scheduled(cron = "0 0 * * * *")
-    @Transactional
-    public void deactivateExpiredCodes() {
+    public void scheduledDeactivation() {
+        jobRunner.run(JOB_NAME, JobTrigger.SCHEDULED);
+    }
+
+    int deactivateExpiredCodes() {
         log.info("Running scheduled task: deactivating expired invitation codes");
 
         int deactivated = invitationCodeRepository.deactivateExpiredCodes(LocalDateTime.now());
@@ -26,5 +38,6 @@ public class InvitationCodeScheduler {
         if (deactivated > 0) {
             log.info("Deactivated {} expired invitation codes", deactivated);
         }
+        return deactivated;
     }
 }
@@ -6,8 +6,10 @@ import by.bsuir.organizationservice.dto.ValidateInvitationResponse;
 import by.bsuir.organizationservice.exception.AppException;
 import by.bsuir.organizationservice.model.entity.Invitation;
 import by.bsuir.organizationservice.model.entity.OrganizationReadModel;
+import by.bsuir.organizationservice.model.enums.JobTrigger;
 import by.bsuir.organizationservice.repository.InvitationRepository;
 import by.bsuir.organizationservice.repository.OrganizationReadModelRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,9 +26,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class InvitationService {
 
+    public static final String CLEANUP_JOB = "invitation-cleanup";
+
     private final InvitationRepository invitationRepository;
     private final OrganizationReadModelRepository organizationRepository;
     private final EmailService emailService;
+    private final ClusterJobRunner jobRunner;
 
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
@@ -139,11 +144,20 @@ public class InvitationService {
                 .collect(Collectors.toList());
     }
 
+    @PostConstruct
+    void registerCleanupJob() {
+        jobRunner.register(CLEANUP_JOB, context -> cleanupExpiredInvitations());
+    }
+
     @Scheduled(cron = "0 0 * * * *")
-    @Transactional
-    public void cleanupExpiredInvitations() {
-        invitationRepository.deleteExpiredInvitations(LocalDateTime.now());
-        log.info("Expired invitations cleaned up");
+    public void scheduledCleanup() {
+        jobRunner.run(CLEANUP_JOB, JobTrigger.SCHEDULED);
+    }
+
+    int cleanupExpiredInvitations() {
+        int deleted = invitationRepository.deleteExpiredInvitations(LocalDateTime.now());
+        log.info("Expired invitations cleaned up: {}", deleted);
+        return deleted;
     }
 
     private boolean isValidRole(String role) {
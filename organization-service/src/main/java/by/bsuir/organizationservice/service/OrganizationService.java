@@ -23,6 +23,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
@@ -195,6 +197,10 @@ public class OrganizationService {
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "employeesAnalytics", key = "#orgId"),
+            @CacheEvict(value = "employeeAnalytics", allEntries = true)
+    })
     public OrganizationDumpResponse deleteOrganization(UUID orgId, UUID deletedByUserId) {
         log.info("Archiving organization: {}", orgId);
 
@@ -465,6 +471,10 @@ public class OrganizationService {
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "employeesAnalytics", key = "#orgId"),
+            @CacheEvict(value = "employeeAnalytics", allEntries = true)
+    })
     public void deleteOrganizationOnDirectorDelete(UUID orgId, UUID directorUserId) {
         OrganizationReadModel organization = readModelRepository.findByOrgId(orgId).orElse(null);
         if (organization == null) {
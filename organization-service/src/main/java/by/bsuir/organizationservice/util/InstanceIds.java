@@ -0,0 +1,24 @@
+package by.bsuir.organizationservice.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/** Идентификатор экземпляра сервиса для аренд в БД: имя хоста и случайный суффикс на случай общих хостов. */
+public final class InstanceIds {
+
+    private InstanceIds() {}
+
+    public static String resolve(String configured) {
+        if (configured != null && !configured.isBlank()) {
+            return configured;
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "organization-service";
+        }
+        return host + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,115 @@
+package by.bsuir.organizationservice.controller;
+
+import by.bsuir.organizationservice.dto.response.ScheduledJobResponse;
+import by.bsuir.organizationservice.dto.response.ScheduledJobRunResponse;
+import by.bsuir.organizationservice.exception.AppException;
+import by.bsuir.organizationservice.model.entity.ScheduledJob;
+import by.bsuir.organizationservice.model.entity.ScheduledJobRun;
+import by.bsuir.organizationservice.model.enums.JobRunStatus;
+import by.bsuir.organizationservice.model.enums.JobTrigger;
+import by.bsuir.organizationservice.service.ClusterJobRunner;
+import by.bsuir.organizationservice.service.InvitationCodeScheduler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduledJobController Unit Tests")
+class ScheduledJobControllerTest {
+
+    private static final String JOB = InvitationCodeScheduler.JOB_NAME;
+
+    @Mock
+    private ClusterJobRunner jobRunner;
+
+    @InjectMocks
+    private ScheduledJobController scheduledJobController;
+
+    @Test
+    @DisplayName("list: Should return state of every registered job")
+    void list_ShouldReturnJobStates() {
+        when(jobRunner.states()).thenReturn(List.of(
+                ScheduledJob.builder().jobName(JOB).lastStatus(JobRunStatus.SUCCEEDED)
+                        .leaseUntil(LocalDateTime.now().plusMinutes(5)).build()));
+
+        ResponseEntity<List<ScheduledJobResponse>> response = scheduledJobController.list("DIRECTOR");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).singleElement().satisfies(job -> {
+            assertThat(job.jobName()).isEqualTo(JOB);
+            assertThat(job.running()).isTrue();
+        });
+    }
+
+    @Test
+    @DisplayName("list: Given non-director role Should return 403")
+    void list_GivenWorkerRole_ShouldReturnForbidden() {
+        ResponseEntity<List<ScheduledJobResponse>> response = scheduledJobController.list("WORKER");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(jobRunner);
+    }
+
+    @Test
+    @DisplayName("runs: Should return run history of the job")
+    void runs_ShouldReturnHistory() {
+        when(jobRunner.isRegistered(JOB)).thenReturn(true);
+        when(jobRunner.history(JOB)).thenReturn(List.of(
+                ScheduledJobRun.builder().id(1L).jobName(JOB).trigger(JobTrigger.SCHEDULED)
+                        .status(JobRunStatus.SUCCEEDED).rowsAffected(3L).build()));
+
+        ResponseEntity<List<ScheduledJobRunResponse>> response = scheduledJobController.runs(JOB, "DIRECTOR");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).extracting(ScheduledJobRunResponse::rowsAffected).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("runs: Given unknown job Should throw not found")
+    void runs_GivenUnknownJob_ShouldThrowNotFound() {
+        when(jobRunner.isRegistered("unknown")).thenReturn(false);
+
+        assertThatThrownBy(() -> scheduledJobController.runs("unknown", "DIRECTOR"))
+                .isInstanceOf(AppException.class);
+        verify(jobRunner, never()).history(any());
+    }
+
+    @Test
+    @DisplayName("run: Should trigger the job manually and return the run")
+    void run_ShouldTriggerManualRun() {
+        when(jobRunner.isRegistered(JOB)).thenReturn(true);
+        when(jobRunner.run(JOB, JobTrigger.MANUAL)).thenReturn(Optional.of(
+                ScheduledJobRun.builder().id(2L).jobName(JOB).trigger(JobTrigger.MANUAL)
+                        .status(JobRunStatus.SUCCEEDED).build()));
+
+        ResponseEntity<ScheduledJobRunResponse> response = scheduledJobController.run(JOB, "DIRECTOR");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().trigger()).isEqualTo(JobTrigger.MANUAL);
+    }
+
+    @Test
+    @DisplayName("run: Given job held by another instance Should return 409")
+    void run_GivenLeaseHeldElsewhere_ShouldReturnConflict() {
+        when(jobRunner.isRegistered(JOB)).thenReturn(true);
+        when(jobRunner.run(JOB, JobTrigger.MANUAL)).thenReturn(Optional.empty());
+
+        ResponseEntity<ScheduledJobRunResponse> response = scheduledJobController.run(JOB, "DIRECTOR");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+}
@@ -1,5 +1,6 @@
 package by.bsuir.organizationservice.service;
 
+import by.bsuir.organizationservice.model.enums.JobTrigger;
 import by.bsuir.organizationservice.repository.OrganizationInvitationCodeRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -20,6 +21,9 @@ class InvitationCodeSchedulerTest {
     @Mock
     private OrganizationInvitationCodeRepository invitationCodeRepository;
 
+    @Mock
+    private ClusterJobRunner jobRunner;
+
     @InjectMocks
     private InvitationCodeScheduler invitationCodeScheduler;
 
@@ -55,5 +59,13 @@ class InvitationCodeSchedulerTest {
 
         verify(invitationCodeRepository, times(1)).deactivateExpiredCodes(any(LocalDateTime.class));
     }
-}
 
+    @Test
+    @DisplayName("scheduledDeactivation: Should run through the leased job runner only")
+    void scheduledDeactivation_ShouldDelegateToJobRunner() {
+        invitationCodeScheduler.scheduledDeactivation();
+
+        verify(jobRunner).run(InvitationCodeScheduler.JOB_NAME, JobTrigger.SCHEDULED);
+        verify(invitationCodeRepository, never()).deactivateExpiredCodes(any(LocalDateTime.class));
+    }
+}
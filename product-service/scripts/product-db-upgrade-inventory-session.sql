@@ -0,0 +1,20 @@
+-- Не более одной активной инвентаризации на склад для баз, созданных до появления uq_inventory_session_active_warehouse.
+-- Выполняется один раз, до запуска новой версии сервиса.
+-- Если на складе несколько сессий IN_PROGRESS, продолжается самая поздняя, остальные отменяются — иначе индекс не создастся.
+
+BEGIN;
+
+UPDATE inventory_session s
+SET status       = 'CANCELLED',
+    completed_at = now()
+FROM (SELECT session_id,
+             row_number() OVER (PARTITION BY warehouse_id ORDER BY started_at DESC, session_id DESC) AS rn
+      FROM inventory_session
+      WHERE status = 'IN_PROGRESS') ranked
+WHERE ranked.session_id = s.session_id
+  AND ranked.rn > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_inventory_session_active_warehouse ON inventory_session (warehouse_id)
+    WHERE status = 'IN_PROGRESS';
+
+COMMIT;
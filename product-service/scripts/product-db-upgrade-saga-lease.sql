@@ -0,0 +1,33 @@
+-- Аренда саг и журнал шагов для баз, созданных до появления saga_state.owner_instance/lease_until.
+-- Выполняется один раз, до запуска новой версии сервиса (ddl-auto=validate не примет старую схему).
+-- Незавершённые саги получают уже истёкшую аренду, чтобы maintainLeases первого же экземпляра забрал их и довёл до конца.
+
+BEGIN;
+
+ALTER TABLE saga_state ADD COLUMN IF NOT EXISTS owner_instance VARCHAR(100);
+ALTER TABLE saga_state ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP;
+
+UPDATE saga_state
+SET lease_until = now()
+WHERE lease_until IS NULL
+  AND status IN ('PENDING', 'FAILED', 'COMPENSATING');
+
+CREATE INDEX IF NOT EXISTS idx_saga_state_lease ON saga_state (status, lease_until);
+CREATE INDEX IF NOT EXISTS idx_saga_state_owner ON saga_state (owner_instance) WHERE owner_instance IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS saga_step_log
+(
+    id          BIGSERIAL PRIMARY KEY,
+    saga_id     UUID        NOT NULL REFERENCES saga_state (saga_id) ON DELETE CASCADE,
+    saga_type   saga_type   NOT NULL,
+    step        VARCHAR(50) NOT NULL,
+    event       VARCHAR(32) NOT NULL,
+    data        JSONB,
+    instance_id VARCHAR(100),
+    duration_ms BIGINT,
+    created_at  TIMESTAMP   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_saga_step_log_saga_id ON saga_step_log (saga_id, id);
+
+COMMIT;
@@ -0,0 +1,32 @@
+-- Состояние документов отгрузки и outbox их генерации для баз, созданных до появления shipment_document_outbox.
+-- Выполняется один раз, до запуска новой версии сервиса (ddl-auto=validate не примет старую схему).
+-- У уже завершённых заявок document_status остаётся NULL: документы по ним формировались синхронно и повторно не создаются.
+
+BEGIN;
+
+ALTER TABLE shipment_request ADD COLUMN IF NOT EXISTS document_status VARCHAR(16);
+ALTER TABLE shipment_request ADD COLUMN IF NOT EXISTS document_ids JSONB;
+
+CREATE TABLE IF NOT EXISTS shipment_document_outbox
+(
+    id              UUID PRIMARY KEY     DEFAULT uuid_generate_v4(),
+    request_id      UUID        NOT NULL REFERENCES shipment_request (request_id) ON DELETE CASCADE,
+    organization_id UUID,
+    operation_id    UUID,
+    user_id         UUID,
+    manual_fields   JSONB,
+    status          VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    attempts        INT         NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP   NOT NULL DEFAULT now(),
+    locked_until    TIMESTAMP,
+    lease_token     UUID,
+    generated_documents JSONB,
+    last_error      TEXT,
+    created_at      TIMESTAMP   NOT NULL DEFAULT now(),
+    updated_at      TIMESTAMP   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_shipment_document_outbox_due ON shipment_document_outbox (status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_shipment_document_outbox_request_id ON shipment_document_outbox (request_id);
+
+COMMIT;
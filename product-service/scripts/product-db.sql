@@ -67,6 +67,7 @@ CREATE INDEX idx_product_batch_product_id ON product_batch (product_id);
 CREATE INDEX idx_product_batch_organization_id ON product_batch (organization_id);
 CREATE INDEX idx_product_batch_supply_id ON product_batch (supply_id);
 CREATE INDEX idx_product_batch_expiry_date ON product_batch (expiry_date);
+CREATE INDEX idx_product_batch_org_expiry ON product_batch (organization_id, expiry_date);
 
 CREATE TABLE inventory
 (
@@ -90,6 +91,7 @@ CREATE INDEX idx_inventory_organization_id ON inventory (organization_id);
 CREATE INDEX idx_inventory_warehouse_id ON inventory (warehouse_id);
 CREATE INDEX idx_inventory_cell_id ON inventory (cell_id);
 CREATE INDEX idx_inventory_unit_sku ON inventory (unit_sku);
+CREATE INDEX idx_inventory_warehouse_product_status ON inventory (warehouse_id, product_id, status);
 
 CREATE TABLE inventory_session
 (
@@ -109,6 +111,8 @@ CREATE TABLE inventory_session
 CREATE INDEX idx_inventory_session_organization_id ON inventory_session (organization_id);
 CREATE INDEX idx_inventory_session_warehouse_id ON inventory_session (warehouse_id);
 CREATE INDEX idx_inventory_session_status ON inventory_session (status);
+CREATE UNIQUE INDEX uq_inventory_session_active_warehouse ON inventory_session (warehouse_id)
+    WHERE status = 'IN_PROGRESS';
 
 CREATE TABLE inventory_count
 (
@@ -126,10 +130,25 @@ CREATE TABLE inventory_count
     notes               VARCHAR(255)
 );
 
-CREATE INDEX idx_inventory_count_session_id ON inventory_count (session_id);
+CREATE INDEX idx_inventory_count_session_product_cell_batch ON inventory_count (session_id, product_id, cell_id, batch_id);
 CREATE INDEX idx_inventory_count_organization_id ON inventory_count (organization_id);
 CREATE INDEX idx_inventory_count_marked_for_writeoff ON inventory_count (marked_for_writeoff);
 
+CREATE TABLE inventory_scan
+(
+    scan_id     UUID PRIMARY KEY,
+    session_id  UUID           NOT NULL REFERENCES inventory_session (session_id) ON DELETE CASCADE,
+    count_id    UUID           NOT NULL REFERENCES inventory_count (count_id) ON DELETE CASCADE,
+    quantity    NUMERIC(12, 3) NOT NULL,
+    device_id   VARCHAR(100),
+    scanned_at  TIMESTAMP,
+    upload_id   UUID           NOT NULL,
+    received_at TIMESTAMP      NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_inventory_scan_upload_id ON inventory_scan (upload_id);
+CREATE INDEX idx_inventory_scan_count_id ON inventory_scan (count_id);
+
 CREATE TABLE product_operation
 (
     operation_id    UUID PRIMARY KEY        DEFAULT uuid_generate_v4(),
@@ -152,6 +171,20 @@ CREATE INDEX idx_product_operation_product_id ON product_operation (product_id);
 CREATE INDEX idx_product_operation_organization_id ON product_operation (organization_id);
 CREATE INDEX idx_product_operation_warehouse_id ON product_operation (warehouse_id);
 CREATE INDEX idx_product_operation_operation_date ON product_operation (operation_date);
+CREATE INDEX idx_product_operation_org_date ON product_operation (organization_id, operation_date);
+
+CREATE TABLE operation_daily_rollup
+(
+    organization_id  UUID           NOT NULL,
+    warehouse_id     UUID           NOT NULL,
+    operation_day    DATE           NOT NULL,
+    operation_type   VARCHAR(32)    NOT NULL,
+    operations_count BIGINT         NOT NULL DEFAULT 0,
+    total_quantity   DECIMAL(18, 3) NOT NULL DEFAULT 0,
+    PRIMARY KEY (organization_id, warehouse_id, operation_day, operation_type)
+);
+
+CREATE INDEX idx_operation_daily_rollup_org_day ON operation_daily_rollup (organization_id, operation_day);
 
 CREATE TABLE product_operation_events
 (
@@ -219,6 +252,8 @@ CREATE TABLE saga_state
     current_step   VARCHAR(50) NOT NULL,
     payload        JSONB       NOT NULL,
     failure_reason TEXT,
+    owner_instance VARCHAR(100),
+    lease_until    TIMESTAMP,
     created_at     TIMESTAMP   NOT NULL DEFAULT now(),
     updated_at     TIMESTAMP   NOT NULL DEFAULT now()
 );
@@ -226,6 +261,52 @@ CREATE TABLE saga_state
 CREATE INDEX idx_saga_state_type ON saga_state (saga_type);
 CREATE INDEX idx_saga_state_status ON saga_state (status);
 CREATE INDEX idx_saga_state_created_at ON saga_state (created_at);
+CREATE INDEX idx_saga_state_lease ON saga_state (status, lease_until);
+CREATE INDEX idx_saga_state_owner ON saga_state (owner_instance) WHERE owner_instance IS NOT NULL;
+
+CREATE TABLE saga_step_log
+(
+    id          BIGSERIAL PRIMARY KEY,
+    saga_id     UUID        NOT NULL REFERENCES saga_state (saga_id) ON DELETE CASCADE,
+    saga_type   saga_type   NOT NULL,
+    step        VARCHAR(50) NOT NULL,
+    event       VARCHAR(32) NOT NULL,
+    data        JSONB,
+    instance_id VARCHAR(100),
+    duration_ms BIGINT,
+    created_at  TIMESTAMP   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_saga_step_log_saga_id ON saga_step_log (saga_id, id);
+
+CREATE TABLE scheduled_job
+(
+    job_name         VARCHAR(100) PRIMARY KEY,
+    owner_instance   VARCHAR(100),
+    lease_until      TIMESTAMP,
+    last_started_at  TIMESTAMP,
+    last_finished_at TIMESTAMP,
+    last_status      VARCHAR(16),
+    checkpoint       TEXT,
+    updated_at       TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE TABLE scheduled_job_run
+(
+    id            BIGSERIAL PRIMARY KEY,
+    job_name      VARCHAR(100) NOT NULL,
+    instance_id   VARCHAR(100) NOT NULL,
+    trigger_type  VARCHAR(16)  NOT NULL,
+    status        VARCHAR(16)  NOT NULL,
+    started_at    TIMESTAMP    NOT NULL,
+    finished_at   TIMESTAMP,
+    duration_ms   BIGINT,
+    rows_affected BIGINT,
+    resumed_from  TEXT,
+    error         TEXT
+);
+
+CREATE INDEX idx_scheduled_job_run_job ON scheduled_job_run (job_name, started_at DESC);
 
 CREATE INDEX idx_supplies_supplier_id ON supplies (supplier_id);
 CREATE INDEX idx_supplies_warehouse_id ON supplies (warehouse_id);
@@ -254,6 +335,8 @@ CREATE TABLE shipment_request
     planned_date      DATE,
     comment           TEXT,
     status            VARCHAR(20) NOT NULL DEFAULT 'PLANNED',
+    document_status   VARCHAR(16),
+    document_ids      JSONB,
     created_by        UUID,
     created_at        TIMESTAMP   NOT NULL DEFAULT now(),
     updated_at        TIMESTAMP   NOT NULL DEFAULT now()
@@ -278,6 +361,43 @@ CREATE TABLE shipment_request_items
 CREATE INDEX idx_shipment_request_items_request_id ON shipment_request_items (request_id);
 CREATE INDEX idx_shipment_request_items_unit_sku ON shipment_request_items (unit_sku);
 
+CREATE TABLE shipment_document_outbox
+(
+    id              UUID PRIMARY KEY     DEFAULT uuid_generate_v4(),
+    request_id      UUID        NOT NULL REFERENCES shipment_request (request_id) ON DELETE CASCADE,
+    organization_id UUID,
+    operation_id    UUID,
+    user_id         UUID,
+    manual_fields   JSONB,
+    status          VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    attempts        INT         NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP   NOT NULL DEFAULT now(),
+    locked_until    TIMESTAMP,
+    lease_token     UUID,
+    generated_documents JSONB,
+    last_error      TEXT,
+    created_at      TIMESTAMP   NOT NULL DEFAULT now(),
+    updated_at      TIMESTAMP   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_shipment_document_outbox_due ON shipment_document_outbox (status, next_attempt_at);
+CREATE INDEX idx_shipment_document_outbox_request_id ON shipment_document_outbox (request_id);
+
+CREATE TABLE slot_height_outbox
+(
+    slot_id           UUID PRIMARY KEY,
+    pending_delta_cm  NUMERIC(12, 2) NOT NULL DEFAULT 0,
+    inflight_delta_cm NUMERIC(12, 2),
+    inflight_key      UUID,
+    attempts          INT            NOT NULL DEFAULT 0,
+    next_attempt_at   TIMESTAMP      NOT NULL DEFAULT now(),
+    locked_until      TIMESTAMP,
+    last_error        TEXT,
+    updated_at        TIMESTAMP      NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_slot_height_outbox_due ON slot_height_outbox (next_attempt_at);
+
 CREATE INDEX idx_supply_items_supply_id ON supply_items (supply_id);
 CREATE INDEX idx_supply_items_product_id ON supply_items (product_id);
 
@@ -3,13 +3,16 @@ package by.bsuir.productservice.client;
 import by.bsuir.productservice.client.dto.CellInfoDto;
 import by.bsuir.productservice.client.dto.PageResponse;
 import by.bsuir.productservice.client.dto.RackInfoDto;
-import by.bsuir.productservice.service.SlotHeightRetryService;
+import by.bsuir.productservice.client.dto.SlotHeightAdjustmentDto;
+import by.bsuir.productservice.client.dto.SlotHeightResultDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
@@ -27,7 +30,6 @@ public class WarehouseClient {
     private static final String BASE = "http://WAREHOUSE-SERVICE/api/racks";
 
     private final RestTemplate loadBalancedRestTemplate;
-    private final SlotHeightRetryService slotHeightRetryService;
 
     public List<RackInfoDto> getRacksByWarehouse(UUID warehouseId, String userRole) {
         try {
@@ -76,6 +78,24 @@ public class WarehouseClient {
         }
     }
 
+    public WarehouseTopologyDto getWarehouseTopology(UUID warehouseId, String userRole) {
+        if (warehouseId == null) return WarehouseTopologyDto.empty(null);
+        try {
+            HttpHeaders headers = buildHeaders(userRole);
+            ResponseEntity<WarehouseTopologyDto> response = loadBalancedRestTemplate.exchange(
+                    BASE + "/warehouse/" + warehouseId + "/topology?includeLoad=false",
+                    HttpMethod.GET,
+                    new HttpEntity<>(headers),
+                    WarehouseTopologyDto.class
+            );
+            WarehouseTopologyDto body = response.getBody();
+            return body != null ? body : WarehouseTopologyDto.empty(warehouseId);
+        } catch (Exception e) {
+            log.error("Failed to fetch topology for warehouse {}: {}", warehouseId, e.getMessage());
+            return WarehouseTopologyDto.empty(warehouseId);
+        }
+    }
+
     public Map<String, Object> getCellInfo(UUID cellId, String userRole) {
         try {
             HttpHeaders headers = buildHeaders(userRole);
@@ -125,22 +145,21 @@ public class WarehouseClient {
         }
     }
 
-    public void adjustSlotHeight(UUID slotId, java.math.BigDecimal deltaCm) {
-        if (slotId == null || deltaCm == null || deltaCm.signum() == 0) return;
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(org.springframework.http.MediaType.APPLICATION_JSON);
-            Map<String, Object> body = Map.of("delta", deltaCm);
-            loadBalancedRestTemplate.exchange(
-                    "http://WAREHOUSE-SERVICE/api/internal/slots/" + slotId + "/height",
-                    HttpMethod.POST,
-                    new HttpEntity<>(body, headers),
-                    new ParameterizedTypeReference<Map<String, Object>>() {});
-        } catch (Exception e) {
-            log.warn("adjustSlotHeight failed for slot {} delta={}: {} — queued for retry",
-                    slotId, deltaCm, e.getMessage());
-            slotHeightRetryService.enqueue(slotId, deltaCm);
-        }
+    /**
+     * Отправляет пакет изменений высоты слотов. В отличие от остальных методов ошибки не глушатся:
+     * вызывающий outbox должен знать, что пакет не доставлен, и повторить его с теми же ключами.
+     */
+    public List<SlotHeightResultDto> adjustSlotHeights(List<SlotHeightAdjustmentDto> adjustments) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<Map<String, List<SlotHeightResultDto>>> response = loadBalancedRestTemplate.exchange(
+                "http://WAREHOUSE-SERVICE/api/internal/slots/heights",
+                HttpMethod.POST,
+                new HttpEntity<>(Map.of("adjustments", adjustments), headers),
+                new ParameterizedTypeReference<>() {}
+        );
+        Map<String, List<SlotHeightResultDto>> body = response.getBody();
+        return body != null && body.get("results") != null ? body.get("results") : Collections.emptyList();
     }
 
     private HttpHeaders buildHeaders(String userRole) {
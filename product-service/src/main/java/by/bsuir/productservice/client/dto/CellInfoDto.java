@@ -1,5 +1,6 @@
 package by.bsuir.productservice.client.dto;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.math.BigDecimal;
@@ -7,7 +8,7 @@ import java.util.UUID;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public record CellInfoDto(
-        UUID cellId,
+        @JsonAlias("slotId") UUID cellId,
         UUID rackId,
         String slotCode,
         String slotType,
@@ -19,4 +20,9 @@ public record CellInfoDto(
         BigDecimal remainingHeightCm,
         String palletType
 ) {
+
+    public CellInfoDto withRemainingHeightCm(BigDecimal value) {
+        return new CellInfoDto(cellId, rackId, slotCode, slotType, maxWeightKg,
+                lengthCm, widthCm, heightCm, maxHeightCm, value, palletType);
+    }
 }
@@ -0,0 +1,11 @@
+package by.bsuir.productservice.client.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record SlotHeightAdjustmentDto(
+        UUID slotId,
+        BigDecimal delta,
+        UUID idempotencyKey
+) {
+}
@@ -0,0 +1,19 @@
+package by.bsuir.productservice.client.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/** Результат одного изменения из пакета: APPLIED, DUPLICATE (ключ уже применялся) или NOT_FOUND. */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record SlotHeightResultDto(
+        UUID slotId,
+        UUID idempotencyKey,
+        String status,
+        BigDecimal remainingHeightCm
+) {
+    public boolean slotMissing() {
+        return "NOT_FOUND".equals(status);
+    }
+}
@@ -0,0 +1,82 @@
+package by.bsuir.productservice.client.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record WarehouseTopologyDto(UUID warehouseId, Long topologyVersion, List<RackNode> racks) {
+
+    public static WarehouseTopologyDto empty(UUID warehouseId) {
+        return new WarehouseTopologyDto(warehouseId, null, List.of());
+    }
+
+    public List<RackNode> racksOrEmpty() {
+        return racks != null ? racks : Collections.emptyList();
+    }
+
+    public Map<UUID, UUID> rackIdBySlot() {
+        Map<UUID, UUID> result = new HashMap<>();
+        for (RackNode rack : racksOrEmpty()) {
+            for (CellInfoDto slot : rack.slotsOrEmpty()) {
+                result.put(slot.cellId(), rack.rackId());
+            }
+        }
+        return result;
+    }
+
+    public RackNode findRackOfSlot(UUID slotId) {
+        if (slotId == null) return null;
+        for (RackNode rack : racksOrEmpty()) {
+            for (CellInfoDto slot : rack.slotsOrEmpty()) {
+                if (slotId.equals(slot.cellId())) return rack;
+            }
+        }
+        return null;
+    }
+
+    public WarehouseTopologyDto withSlotRemainingHeight(UUID slotId, BigDecimal remainingHeightCm) {
+        List<RackNode> patched = racksOrEmpty().stream()
+                .map(rack -> rack.findSlot(slotId) == null ? rack : rack.withSlots(rack.slotsOrEmpty().stream()
+                        .map(slot -> slotId.equals(slot.cellId()) ? slot.withRemainingHeightCm(remainingHeightCm) : slot)
+                        .toList()))
+                .toList();
+        return new WarehouseTopologyDto(warehouseId, topologyVersion, patched);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record RackNode(
+            UUID rackId,
+            UUID warehouseId,
+            String kind,
+            String name,
+            String storageConditions,
+            BigDecimal maxWeightKg,
+            Boolean isActive,
+            List<CellInfoDto> slots
+    ) {
+        public List<CellInfoDto> slotsOrEmpty() {
+            return slots != null ? slots : Collections.emptyList();
+        }
+
+        public CellInfoDto findSlot(UUID slotId) {
+            for (CellInfoDto slot : slotsOrEmpty()) {
+                if (slotId != null && slotId.equals(slot.cellId())) return slot;
+            }
+            return null;
+        }
+
+        public RackNode withSlots(List<CellInfoDto> newSlots) {
+            return new RackNode(rackId, warehouseId, kind, name, storageConditions, maxWeightKg, isActive, newSlots);
+        }
+
+        public RackInfoDto toRackInfo() {
+            return new RackInfoDto(rackId, warehouseId, kind, name, storageConditions, maxWeightKg, isActive);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package by.bsuir.productservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class DocumentPipelineConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor shipmentDocumentExecutor(
+            @Value("${shipment.documents.worker-threads:4}") int workerThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workerThreads);
+        executor.setMaxPoolSize(workerThreads);
+        executor.setQueueCapacity(workerThreads);
+        executor.setThreadNamePrefix("shipment-docs-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /** Виртуальные потоки с ограничением одновременных вызовов document-service и MinIO. */
+    @Bean
+    public SimpleAsyncTaskExecutor documentRegistrationExecutor(
+            @Value("${documents.registration.max-concurrency:8}") int maxConcurrency) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("doc-register-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrency);
+        return executor;
+    }
+}
@@ -0,0 +1,144 @@
+package by.bsuir.productservice.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Защита межсервисных вызовов: на каждый целевой сервис (хост {@code http://SERVICE-ID/...} до балансировки)
+ * свой bulkhead и circuit breaker. Переполненный bulkhead или открытый breaker отклоняют вызов сразу,
+ * не занимая поток Tomcat ожиданием зависшего сервиса. Ответы 5xx, ошибки ввода-вывода и медленные
+ * ответы считаются отказами. Время каждого вызова пишется в {@code inter.service.client.requests}
+ * с тегами target, method, route (идентификаторы в пути заменены на {id}) и outcome.
+ */
+public class InterServiceCallInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String METRIC = "inter.service.client.requests";
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|\\d+");
+    private static final ThreadLocal<String> CURRENT_TARGET = new ThreadLocal<>();
+
+    private final InterServiceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+
+    public InterServiceCallInterceptor(InterServiceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumCalls())
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallThreshold())
+                .waitDurationInOpenState(properties.getOpenStateWait())
+                .recordResult(status -> status instanceof Integer code && code >= 500)
+                .build());
+        this.bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    /** Целевой сервис вызова, выполняемого в текущем потоке, — для таймаута ответа в фабрике запросов. */
+    static String currentTarget() {
+        return CURRENT_TARGET.get();
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String target = request.getURI().getHost();
+        if (target == null) {
+            return execution.execute(request, body);
+        }
+        String key = target.toLowerCase(Locale.ROOT);
+        long started = System.nanoTime();
+        String outcome = "IO_ERROR";
+
+        Bulkhead bulkhead = bulkheads.bulkhead(key, () -> BulkheadConfig.from(bulkheads.getDefaultConfig())
+                .maxConcurrentCalls(properties.maxConcurrentCalls(key))
+                .build());
+        if (!bulkhead.tryAcquirePermission()) {
+            record(key, request, "REJECTED", started);
+            throw new InterServiceUnavailableException(
+                    target + ": превышен лимит одновременных вызовов (" + properties.maxConcurrentCalls(key) + ")");
+        }
+        try {
+            CircuitBreaker circuitBreaker = circuitBreakers.circuitBreaker(key,
+                    () -> CircuitBreakerConfig.from(circuitBreakers.getDefaultConfig())
+                            .slowCallDurationThreshold(properties.slowCallThreshold(key))
+                            .build());
+            if (!circuitBreaker.tryAcquirePermission()) {
+                outcome = "CIRCUIT_OPEN";
+                throw new InterServiceUnavailableException(target + ": circuit breaker открыт, вызов отклонён");
+            }
+            long callStarted = System.nanoTime();
+            CURRENT_TARGET.set(key);
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                int status = response.getStatusCode().value();
+                circuitBreaker.onResult(System.nanoTime() - callStarted, TimeUnit.NANOSECONDS, status);
+                outcome = status >= 500 ? "SERVER_ERROR" : status >= 400 ? "CLIENT_ERROR" : "SUCCESS";
+                return response;
+            } catch (IOException | RuntimeException e) {
+                circuitBreaker.onError(System.nanoTime() - callStarted, TimeUnit.NANOSECONDS, e);
+                throw e;
+            } finally {
+                CURRENT_TARGET.remove();
+            }
+        } finally {
+            bulkhead.onComplete();
+            record(key, request, outcome, started);
+        }
+    }
+
+    static String route(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder route = new StringBuilder();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) continue;
+            route.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return route.isEmpty() ? "/" : route.toString();
+    }
+
+    private void record(String target, HttpRequest request, String outcome, long started) {
+        Timer.builder(METRIC)
+                .tag("target", target)
+                .tag("method", request.getMethod().name())
+                .tag("route", route(request.getURI().getPath()))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    /** Вызов отклонён без обращения к сервису; RestTemplate оборачивает его в {@code ResourceAccessException}. */
+    public static class InterServiceUnavailableException extends IOException {
+        public InterServiceUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package by.bsuir.productservice.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
@@ -16,6 +17,7 @@ public class RabbitMQConfig {
 
     public static final String PRODUCT_EXCHANGE = "product.exchange";
     public static final String ORGANIZATION_EXCHANGE = "organization.exchange";
+    public static final String WAREHOUSE_EXCHANGE = "warehouse.exchange";
 
     public static final String PRODUCT_RECEIVED_QUEUE = "product.received.queue";
     public static final String PRODUCT_SHIPPED_QUEUE = "product.shipped.queue";
@@ -28,6 +30,9 @@ public class RabbitMQConfig {
     public static final String PRODUCT_WRITTEN_OFF_KEY = "product.written_off";
     public static final String PRODUCT_REVALUATED_KEY = "product.revaluated";
     public static final String ORGANIZATION_DELETED_KEY = "organization.deleted";
+    public static final String WAREHOUSE_TOPOLOGY_CHANGED_KEY = "warehouse.topology.changed";
+    public static final String WAREHOUSE_SLOT_HEIGHT_CHANGED_KEY = "warehouse.slot.height.changed";
+    public static final String WAREHOUSE_DELETED_KEY = "warehouse.deleted";
 
     @Bean
     public MessageConverter jsonMessageConverter() {
@@ -51,6 +56,32 @@ public class RabbitMQConfig {
         return new TopicExchange(ORGANIZATION_EXCHANGE);
     }
 
+    @Bean
+    public TopicExchange warehouseExchange() {
+        return new TopicExchange(WAREHOUSE_EXCHANGE);
+    }
+
+    /** Кэш топологии локален для каждого инстанса, поэтому у каждого — своя эксклюзивная очередь. */
+    @Bean
+    public Queue warehouseTopologyQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding warehouseTopologyChangedBinding() {
+        return BindingBuilder.bind(warehouseTopologyQueue()).to(warehouseExchange()).with(WAREHOUSE_TOPOLOGY_CHANGED_KEY);
+    }
+
+    @Bean
+    public Binding warehouseSlotHeightChangedBinding() {
+        return BindingBuilder.bind(warehouseTopologyQueue()).to(warehouseExchange()).with(WAREHOUSE_SLOT_HEIGHT_CHANGED_KEY);
+    }
+
+    @Bean
+    public Binding warehouseDeletedTopologyBinding() {
+        return BindingBuilder.bind(warehouseTopologyQueue()).to(warehouseExchange()).with(WAREHOUSE_DELETED_KEY);
+    }
+
     @Bean
     public Queue organizationDeletedProductQueue() {
         return new Queue(ORGANIZATION_DELETED_PRODUCT_QUEUE, true);
@@ -1,16 +1,97 @@
 package by.bsuir.productservice.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+
 @Configuration
 public class RestClientConfig {
 
+    /** Общий пул keep-alive соединений ко всем сервисам; повторы на уровне HTTP-клиента отключены. */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient interServiceHttpClient(InterServiceProperties properties, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        Gauge.builder("inter.service.client.pool.leased", pool, p -> p.getTotalStats().getLeased())
+                .register(meterRegistry);
+        Gauge.builder("inter.service.client.pool.available", pool, p -> p.getTotalStats().getAvailable())
+                .register(meterRegistry);
+        Gauge.builder("inter.service.client.pool.pending", pool, p -> p.getTotalStats().getPending())
+                .register(meterRegistry);
+
+        return HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleTimeout()))
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public InterServiceCallInterceptor interServiceCallInterceptor(InterServiceProperties properties,
+                                                                   MeterRegistry meterRegistry) {
+        return new InterServiceCallInterceptor(properties, meterRegistry);
+    }
+
     @Bean
     @LoadBalanced
-    public RestTemplate loadBalancedRestTemplate() {
-        return new RestTemplate();
+    public RestTemplate loadBalancedRestTemplate(CloseableHttpClient interServiceHttpClient,
+                                                 InterServiceProperties properties,
+                                                 InterServiceCallInterceptor interServiceCallInterceptor) {
+        RestTemplate restTemplate = new RestTemplate(new TargetTimeoutRequestFactory(interServiceHttpClient, properties));
+        restTemplate.getInterceptors().add(interServiceCallInterceptor);
+        return restTemplate;
+    }
+
+    /** Таймаут ответа берётся по целевому сервису, который {@link InterServiceCallInterceptor} видел до балансировки. */
+    static class TargetTimeoutRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+        private final InterServiceProperties properties;
+
+        TargetTimeoutRequestFactory(CloseableHttpClient httpClient, InterServiceProperties properties) {
+            super(httpClient);
+            this.properties = properties;
+        }
+
+        @Override
+        protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+            String target = InterServiceCallInterceptor.currentTarget();
+            if (target == null) {
+                return null;
+            }
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.of(properties.getConnectTimeout()))
+                    .setResponseTimeout(Timeout.of(properties.readTimeout(target)))
+                    .build());
+            return context;
+        }
     }
 }
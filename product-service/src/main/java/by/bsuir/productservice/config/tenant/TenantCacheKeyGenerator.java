@@ -0,0 +1,27 @@
+package by.bsuir.productservice.config.tenant;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+/**
+ * Ключ кэша с организацией: аналитика, посчитанная для одной организации, не отдаётся другой.
+ * Организация берётся из первого аргумента метода, если это {@link UUID}, иначе из {@link TenantContext}.
+ * Используется как {@code @Cacheable(keyGenerator = "tenantKeyGenerator")}.
+ */
+@Component("tenantKeyGenerator")
+public class TenantCacheKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        UUID organizationId = params.length > 0 && params[0] instanceof UUID org ? org : TenantContext.get();
+        return new Key(organizationId, SimpleKeyGenerator.generateKey(params));
+    }
+
+    /** {@code organizationId == null} — вызов вне запроса (планировщик, отчёты): данные по всем организациям. */
+    public record Key(UUID organizationId, Object params) {
+    }
+}
@@ -1,8 +1,11 @@
 package by.bsuir.productservice.controller;
 
 import by.bsuir.productservice.config.SecurityUtils;
+import by.bsuir.productservice.dto.request.RecordScansRequest;
 import by.bsuir.productservice.dto.request.StartInventoryRequest;
+import by.bsuir.productservice.dto.response.ScanIngestResponse;
 import by.bsuir.productservice.service.InventoryCheckService;
+import by.bsuir.productservice.service.InventoryScanService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -27,6 +30,7 @@ import java.util.UUID;
 public class InventoryCheckController {
 
     private final InventoryCheckService inventoryCheckService;
+    private final InventoryScanService inventoryScanService;
 
     @Operation(
             summary = "Начать инвентаризацию",
@@ -100,6 +104,7 @@ public class InventoryCheckController {
             @Parameter(description = "ID товара (fallback, если не передан countId)")
             @RequestParam(required = false) UUID productId,
             @Parameter(description = "ID ячейки") @RequestParam(required = false) UUID cellId,
+            @Parameter(description = "ID партии") @RequestParam(required = false) UUID batchId,
             @Parameter(description = "Фактическое количество", required = true) @RequestParam BigDecimal actualQuantity,
             @Parameter(description = "Примечания") @RequestParam(required = false) String notes,
             @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole,
@@ -113,7 +118,8 @@ public class InventoryCheckController {
         if (countId != null) {
             inventoryCheckService.recordActualCountById(sessionId, countId, actualQuantity, notes, organizationId);
         } else if (productId != null) {
-            inventoryCheckService.recordActualCount(sessionId, productId, cellId, actualQuantity, notes, organizationId);
+            inventoryCheckService.recordActualCount(
+                    sessionId, productId, cellId, batchId, actualQuantity, notes, organizationId);
         } else {
             return ResponseEntity.badRequest().body(Map.of(
                     "message", "Укажите countId или productId"));
@@ -126,6 +132,32 @@ public class InventoryCheckController {
         ));
     }
 
+    @Operation(
+            summary = "Загрузить сканы пакетом",
+            description = "Принимает накопленные терминалом сканы. Каждый скан прибавляет количество к своей строке "
+                    + "подсчёта; повторно присланные scanId пропускаются, поэтому буфер можно выгружать повторно"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Сканы обработаны"),
+            @ApiResponse(responseCode = "400", description = "Сессия завершена или запрос некорректен"),
+            @ApiResponse(responseCode = "403", description = "Недостаточно прав"),
+            @ApiResponse(responseCode = "404", description = "Сессия не найдена")
+    })
+    @PostMapping("/{sessionId}/scans")
+    public ResponseEntity<ScanIngestResponse> recordScans(
+            @Parameter(description = "ID сессии инвентаризации", required = true) @PathVariable UUID sessionId,
+            @Valid @RequestBody RecordScansRequest request,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationId) {
+
+        userRole = SecurityUtils.resolveRole(userRole);
+        if (userRole == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        return ResponseEntity.ok(inventoryScanService.recordScans(sessionId, request.scans(), organizationId));
+    }
+
     @Operation(
             summary = "Завершить инвентаризацию",
             description = "Завершает сессию инвентаризации и формирует отчет о расхождениях. Доступно для DIRECTOR и ACCOUNTANT"
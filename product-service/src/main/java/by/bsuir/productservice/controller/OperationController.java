@@ -36,6 +36,7 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -371,16 +372,21 @@ public class OperationController {
 
     @Operation(
             summary = "Печать листа штрихкодов",
-            description = "Возвращает PDF со штрихкодами EAN-13 для указанных inventoryIds"
+            description = "Возвращает PDF со штрихкодами EAN-13 для указанных inventoryIds. "
+                    + "Этикетки раскладываются сеткой columns×rows на листе A4, PDF передаётся потоком"
     )
     @PostMapping(value = "/barcodes/print", produces = "application/pdf")
-    public ResponseEntity<byte[]> printBarcodes(
+    public ResponseEntity<StreamingResponseBody> printBarcodes(
             @RequestBody List<UUID> inventoryIds,
+            @RequestParam(defaultValue = "3") int columns,
+            @RequestParam(defaultValue = "8") int rows,
             @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationId) {
 
-        byte[] pdf = barcodeService.generateBarcodeSheetPdf(inventoryIds, organizationId);
+        BarcodeService.LabelLayout layout = BarcodeService.LabelLayout.a4(columns, rows);
+        List<BarcodeService.BarcodeLabel> labels = barcodeService.loadBarcodeLabels(inventoryIds, organizationId);
+        StreamingResponseBody body = out -> barcodeService.writeBarcodeSheetPdf(labels, layout, out);
         return ResponseEntity.ok()
                 .header("Content-Disposition", "attachment; filename=barcodes.pdf")
-                .body(pdf);
+                .body(body);
     }
 }
\ No newline at end of file
@@ -2,8 +2,15 @@ package by.bsuir.productservice.controller;
 
 import by.bsuir.productservice.config.SecurityUtils;
 import by.bsuir.productservice.dto.request.AnalyticsReportRequest;
+import by.bsuir.productservice.dto.response.AbcDistributionResponse;
+import by.bsuir.productservice.dto.response.ExpiringProductResponse;
+import by.bsuir.productservice.dto.response.InventoryAnalyticsResponse;
+import by.bsuir.productservice.dto.response.InventoryComparisonResponse;
+import by.bsuir.productservice.dto.response.OperationsComparisonResponse;
+import by.bsuir.productservice.dto.response.OperationsDynamicsResponse;
 import by.bsuir.productservice.service.AbcAnalysisService;
 import by.bsuir.productservice.service.AnalyticsReportService;
+import by.bsuir.productservice.service.OperationRollupBackfillJob;
 import by.bsuir.productservice.service.ProductAnalyticsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -35,50 +42,72 @@ public class ProductAnalyticsController {
     private final ProductAnalyticsService analyticsService;
     private final AnalyticsReportService reportService;
     private final AbcAnalysisService abcAnalysisService;
+    private final OperationRollupBackfillJob rollupBackfillJob;
 
-    @Operation(summary = "Получить аналитику по остаткам", description = "Возвращает аналитические данные по текущим остаткам товаров на всех складах. Доступно только для DIRECTOR")
+    @Operation(summary = "Получить аналитику по остаткам", description = "Возвращает аналитические данные по текущим остаткам товаров организации (или одного склада). Доступно только для DIRECTOR")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Аналитика успешно получена"), @ApiResponse(responseCode = "403", description = "Недостаточно прав")})
     @GetMapping("/inventory")
-    public ResponseEntity<Map<String, Object>> getInventoryAnalytics(@Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+    public ResponseEntity<InventoryAnalyticsResponse> getInventoryAnalytics(
+            @Parameter(description = "Склад (по умолчанию все склады организации)") @RequestParam(required = false) UUID warehouseId,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         String role = SecurityUtils.resolveRole(userRole);
         if (!"DIRECTOR".equals(role) && !"ACCOUNTANT".equals(role)) {
             return ResponseEntity.status(403).build();
         }
 
-        Map<String, Object> analytics = analyticsService.getInventoryAnalytics();
-        return ResponseEntity.ok(analytics);
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(analyticsService.getInventoryAnalytics(organizationId, warehouseId));
     }
 
     @Operation(summary = "Получить динамику операций", description = "Возвращает динамику складских операций за указанный период. Доступно только для DIRECTOR")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Динамика получена"), @ApiResponse(responseCode = "400", description = "Некорректный период"), @ApiResponse(responseCode = "403", description = "Недостаточно прав")})
     @GetMapping("/operations/dynamics")
-    public ResponseEntity<Map<String, Object>> getOperationsDynamics(@Parameter(description = "Дата начала периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate, @Parameter(description = "Дата окончания периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate, @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+    public ResponseEntity<OperationsDynamicsResponse> getOperationsDynamics(
+            @Parameter(description = "Дата начала периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Дата окончания периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Склад (по умолчанию все склады организации)") @RequestParam(required = false) UUID warehouseId,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         String role = SecurityUtils.resolveRole(userRole);
         if (!"DIRECTOR".equals(role) && !"ACCOUNTANT".equals(role)) {
             return ResponseEntity.status(403).build();
         }
 
-        Map<String, Object> dynamics = analyticsService.getOperationsDynamics(startDate, endDate);
-        return ResponseEntity.ok(dynamics);
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(analyticsService.getOperationsDynamics(organizationId, warehouseId, startDate, endDate));
     }
 
     @Operation(summary = "Получить сводку операций", description = "Возвращает сводку операций за последние 30 дней. Доступно только для DIRECTOR")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Сводка получена"), @ApiResponse(responseCode = "403", description = "Недостаточно прав")})
     @GetMapping("/operations/summary")
-    public ResponseEntity<Map<String, Object>> getOperationsSummary(@Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+    public ResponseEntity<OperationsDynamicsResponse> getOperationsSummary(
+            @Parameter(description = "Склад (по умолчанию все склады организации)") @RequestParam(required = false) UUID warehouseId,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         String role = SecurityUtils.resolveRole(userRole);
         if (!"DIRECTOR".equals(role) && !"ACCOUNTANT".equals(role)) {
             return ResponseEntity.status(403).build();
         }
 
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(30);
 
-        Map<String, Object> summary = analyticsService.getOperationsDynamics(startDate, endDate);
-        return ResponseEntity.ok(summary);
+        return ResponseEntity.ok(analyticsService.getOperationsDynamics(organizationId, warehouseId, startDate, endDate));
     }
 
     @Operation(summary = "Сравнить операции с предыдущим периодом",
@@ -86,9 +115,11 @@ public class ProductAnalyticsController {
                     "Используется для тренд-индикатора в KPI-карточках. Доступно только для DIRECTOR.")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Сравнение получено"), @ApiResponse(responseCode = "403", description = "Недостаточно прав")})
     @GetMapping("/operations/compare")
-    public ResponseEntity<Map<String, Object>> getOperationsComparison(
+    public ResponseEntity<OperationsComparisonResponse> getOperationsComparison(
             @Parameter(description = "Дата начала текущего периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "Дата окончания текущего периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Склад (по умолчанию все склады организации)") @RequestParam(required = false) UUID warehouseId,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
             @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         String role = SecurityUtils.resolveRole(userRole);
@@ -96,18 +127,23 @@ public class ProductAnalyticsController {
             return ResponseEntity.status(403).build();
         }
 
-        Map<String, Object> comparison = analyticsService.getOperationsComparison(startDate, endDate);
-        return ResponseEntity.ok(comparison);
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(analyticsService.getOperationsComparison(organizationId, warehouseId, startDate, endDate));
     }
 
     @Operation(summary = "Сравнить состояние запасов с началом периода",
             description = "Восстанавливает totalQuantity/availableQuantity на начало периода через сумму операций " +
-                    "(receipt - ship - writeoff) и считает тренд. Доступно только для DIRECTOR.")
+                    "(receipt - shipment - write-off) и считает тренд. Доступно только для DIRECTOR.")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Сравнение получено"), @ApiResponse(responseCode = "403", description = "Недостаточно прав")})
     @GetMapping("/inventory/compare")
-    public ResponseEntity<Map<String, Object>> getInventoryComparison(
+    public ResponseEntity<InventoryComparisonResponse> getInventoryComparison(
             @Parameter(description = "Дата начала периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @Parameter(description = "Дата окончания периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Склад (по умолчанию все склады организации)") @RequestParam(required = false) UUID warehouseId,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
             @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         String role = SecurityUtils.resolveRole(userRole);
@@ -115,20 +151,29 @@ public class ProductAnalyticsController {
             return ResponseEntity.status(403).build();
         }
 
-        Map<String, Object> comparison = analyticsService.getInventoryComparison(startDate, endDate);
-        return ResponseEntity.ok(comparison);
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(analyticsService.getInventoryComparison(organizationId, warehouseId, startDate, endDate));
     }
 
     @Operation(summary = "ABC-распределение товаров")
     @GetMapping("/abc-distribution")
-    public ResponseEntity<Map<String, Object>> getAbcDistribution(
+    public ResponseEntity<AbcDistributionResponse> getAbcDistribution(
+            @Parameter(description = "Склад (по умолчанию все склады организации)") @RequestParam(required = false) UUID warehouseId,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
             @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         String role = SecurityUtils.resolveRole(userRole);
         if (!"DIRECTOR".equals(role) && !"ACCOUNTANT".equals(role)) {
             return ResponseEntity.status(403).build();
         }
-        return ResponseEntity.ok(analyticsService.getAbcDistribution());
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(analyticsService.getAbcDistribution(organizationId, warehouseId));
     }
 
     @Operation(summary = "Ручной пересчёт ABC-классов",
@@ -145,18 +190,46 @@ public class ProductAnalyticsController {
         return ResponseEntity.ok(abcAnalysisService.runManually());
     }
 
+    @Operation(summary = "Пересчитать дневной свод операций",
+            description = "Пересобирает operation_daily_rollup организации за [startDate, endDate] из журнала "
+                    + "операций, по месяцу на транзакцию. Только DIRECTOR.")
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildOperationRollup(
+            @Parameter(description = "Дата начала периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Дата окончания периода", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+
+        String role = SecurityUtils.resolveRole(userRole);
+        if (!"DIRECTOR".equals(role)) {
+            return ResponseEntity.status(403).build();
+        }
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null || endDate.isBefore(startDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int rows = rollupBackfillJob.rebuildByMonth(organizationId, startDate, endDate);
+        return ResponseEntity.ok(Map.of("startDate", startDate, "endDate", endDate, "rows", rows));
+    }
+
     @Operation(summary = "Товары с истекающим сроком годности")
     @GetMapping("/expiring-products")
-    public ResponseEntity<List<Map<String, Object>>> getExpiringProducts(
+    public ResponseEntity<List<ExpiringProductResponse>> getExpiringProducts(
             @Parameter(description = "Окно в днях вперёд", required = false) @RequestParam(defaultValue = "30") int withinDays,
+            @Parameter(description = "Склад (по умолчанию все склады организации)") @RequestParam(required = false) UUID warehouseId,
+            @RequestHeader(value = "X-Organization-Id", required = false) UUID organizationHeader,
             @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
 
         String role = SecurityUtils.resolveRole(userRole);
         if (!"DIRECTOR".equals(role) && !"ACCOUNTANT".equals(role)) {
             return ResponseEntity.status(403).build();
         }
+        UUID organizationId = SecurityUtils.resolveOrgId(organizationHeader);
+        if (organizationId == null) {
+            return ResponseEntity.badRequest().build();
+        }
         int safe = Math.max(0, Math.min(withinDays, 3650));
-        return ResponseEntity.ok(analyticsService.getExpiringProducts(safe));
+        return ResponseEntity.ok(analyticsService.getExpiringProducts(organizationId, warehouseId, safe));
     }
 
     @Operation(summary = "Сформировать аналитический отчёт (PDF)",
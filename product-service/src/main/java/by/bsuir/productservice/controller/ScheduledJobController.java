@@ -0,0 +1,70 @@
+package by.bsuir.productservice.controller;
+
+import by.bsuir.productservice.config.SecurityUtils;
+import by.bsuir.productservice.dto.response.ScheduledJobResponse;
+import by.bsuir.productservice.dto.response.ScheduledJobRunResponse;
+import by.bsuir.productservice.exception.AppException;
+import by.bsuir.productservice.model.enums.JobTrigger;
+import by.bsuir.productservice.service.ClusterJobRunner;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Фоновые задачи", description = "Состояние, история и ручной запуск фоновых задач сервиса")
+public class ScheduledJobController {
+
+    private final ClusterJobRunner jobRunner;
+
+    @Operation(summary = "Список фоновых задач", description = "Аренда, последний запуск и контрольная точка. Только DIRECTOR")
+    @GetMapping
+    public ResponseEntity<List<ScheduledJobResponse>> list(
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+        if (!"DIRECTOR".equals(SecurityUtils.resolveRole(userRole))) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(jobRunner.states().stream().map(ScheduledJobResponse::from).toList());
+    }
+
+    @Operation(summary = "Последние запуски задачи", description = "20 последних запусков со всех экземпляров. Только DIRECTOR")
+    @GetMapping("/{jobName}/runs")
+    public ResponseEntity<List<ScheduledJobRunResponse>> runs(
+            @PathVariable String jobName,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+        if (!"DIRECTOR".equals(SecurityUtils.resolveRole(userRole))) {
+            return ResponseEntity.status(403).build();
+        }
+        requireRegistered(jobName);
+        return ResponseEntity.ok(jobRunner.history(jobName).stream().map(ScheduledJobRunResponse::from).toList());
+    }
+
+    @Operation(summary = "Запустить задачу вручную",
+            description = "Выполняет задачу на этом экземпляре, если её сейчас не выполняет другой (иначе 409). "
+                    + "Прерванная задача продолжит с контрольной точки. Только DIRECTOR")
+    @PostMapping("/{jobName}/run")
+    public ResponseEntity<ScheduledJobRunResponse> run(
+            @PathVariable String jobName,
+            @Parameter(description = "Роль пользователя") @RequestHeader(value = "X-User-Role", required = false) String userRole) {
+        if (!"DIRECTOR".equals(SecurityUtils.resolveRole(userRole))) {
+            return ResponseEntity.status(403).build();
+        }
+        requireRegistered(jobName);
+        return jobRunner.run(jobName, JobTrigger.MANUAL)
+                .map(run -> ResponseEntity.ok(ScheduledJobRunResponse.from(run)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    private void requireRegistered(String jobName) {
+        if (!jobRunner.isRegistered(jobName)) {
+            throw AppException.notFound("Фоновая задача " + jobName + " не найдена");
+        }
+    }
+}
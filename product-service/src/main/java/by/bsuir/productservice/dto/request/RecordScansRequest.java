@@ -0,0 +1,45 @@
+package by.bsuir.productservice.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record RecordScansRequest(
+        @NotEmpty(message = "Хотя бы один скан обязателен")
+        @Size(max = 10000, message = "Не более 10000 сканов за один запрос")
+        List<@Valid @NotNull Scan> scans
+) {
+    /**
+     * Скан терминала: подсчитанное количество по строке подсчёта. Строка задаётся countId или
+     * товаром с необязательными ячейкой и партией.
+     */
+    public record Scan(
+            @NotNull(message = "Идентификатор скана обязателен")
+            UUID scanId,
+
+            UUID countId,
+
+            UUID productId,
+
+            UUID cellId,
+
+            UUID batchId,
+
+            @NotNull(message = "Количество обязательно")
+            @Positive(message = "Количество должно быть больше нуля")
+            BigDecimal quantity,
+
+            @Size(max = 100, message = "Идентификатор терминала не длиннее 100 символов")
+            String deviceId,
+
+            LocalDateTime scannedAt
+    ) {
+    }
+}
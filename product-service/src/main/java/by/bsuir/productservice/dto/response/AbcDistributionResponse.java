@@ -0,0 +1,12 @@
+package by.bsuir.productservice.dto.response;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public record AbcDistributionResponse(
+        Map<String, Long> productCountByClass,
+        Map<String, BigDecimal> quantityByClass,
+        long totalProducts,
+        BigDecimal totalQuantity
+) {
+}
@@ -0,0 +1,19 @@
+package by.bsuir.productservice.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record ExpiringProductResponse(
+        UUID batchId,
+        String batchNumber,
+        UUID productId,
+        String productName,
+        String sku,
+        LocalDate expiryDate,
+        long daysLeft,
+        BigDecimal quantity,
+        String storageConditions,
+        String urgency
+) {
+}
@@ -0,0 +1,10 @@
+package by.bsuir.productservice.dto.response;
+
+public record InventoryAnalyticsResponse(
+        long totalQuantity,
+        long reservedQuantity,
+        long availableQuantity,
+        long uniqueProducts,
+        long totalRecords
+) {
+}
@@ -0,0 +1,24 @@
+package by.bsuir.productservice.dto.response;
+
+import java.time.LocalDate;
+
+public record InventoryComparisonResponse(
+        LocalDate currentStart,
+        LocalDate currentEnd,
+        long totalQuantityNow,
+        long totalQuantityAtStart,
+        Double totalQuantityTrendPercent,
+        long availableQuantityNow,
+        long availableQuantityAtStart,
+        Double availableQuantityTrendPercent,
+        long reservedQuantityNow,
+        long reservedQuantityAtStart,
+        Double reservedQuantityTrendPercent,
+        long uniqueProductsNow,
+        long uniqueProductsAtStart,
+        Double uniqueProductsTrendPercent,
+        long inflow,
+        long outflow,
+        long delta
+) {
+}
@@ -0,0 +1,14 @@
+package by.bsuir.productservice.dto.response;
+
+import java.time.LocalDate;
+
+public record OperationsComparisonResponse(
+        LocalDate currentStart,
+        LocalDate currentEnd,
+        LocalDate previousStart,
+        LocalDate previousEnd,
+        long currentTotal,
+        long previousTotal,
+        Double deltaPercent
+) {
+}
@@ -0,0 +1,14 @@
+package by.bsuir.productservice.dto.response;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public record OperationsDynamicsResponse(
+        LocalDate startDate,
+        LocalDate endDate,
+        long totalOperations,
+        Map<String, Long> operationsByType,
+        Map<LocalDate, Long> dailyOperations,
+        Map<String, Long> operationsByUser
+) {
+}
@@ -0,0 +1,16 @@
+package by.bsuir.productservice.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ScanIngestResponse(
+        UUID sessionId,
+        int received,
+        int applied,
+        int duplicates,
+        int countsUpdated,
+        List<RejectedScan> rejected
+) {
+    public record RejectedScan(UUID scanId, String reason) {
+    }
+}
@@ -0,0 +1,30 @@
+package by.bsuir.productservice.dto.response;
+
+import by.bsuir.productservice.model.entity.ScheduledJob;
+import by.bsuir.productservice.model.enums.JobRunStatus;
+
+import java.time.LocalDateTime;
+
+public record ScheduledJobResponse(
+        String jobName,
+        boolean running,
+        String ownerInstance,
+        LocalDateTime leaseUntil,
+        LocalDateTime lastStartedAt,
+        LocalDateTime lastFinishedAt,
+        JobRunStatus lastStatus,
+        String checkpoint
+) {
+    public static ScheduledJobResponse from(ScheduledJob job) {
+        boolean running = job.getLeaseUntil() != null && job.getLeaseUntil().isAfter(LocalDateTime.now());
+        return new ScheduledJobResponse(
+                job.getJobName(),
+                running,
+                job.getOwnerInstance(),
+                job.getLeaseUntil(),
+                job.getLastStartedAt(),
+                job.getLastFinishedAt(),
+                job.getLastStatus(),
+                job.getCheckpoint());
+    }
+}
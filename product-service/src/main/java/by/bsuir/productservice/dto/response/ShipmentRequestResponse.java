@@ -2,6 +2,7 @@ package by.bsuir.productservice.dto.response;
 
 import by.bsuir.productservice.model.enums.DocumentLayout;
 import by.bsuir.productservice.model.enums.DomesticDocumentKind;
+import by.bsuir.productservice.model.enums.ShipmentDocumentStatus;
 import by.bsuir.productservice.model.enums.ShipmentRequestStatus;
 import by.bsuir.productservice.model.enums.ShipmentType;
 
@@ -33,6 +34,7 @@ public record ShipmentRequestResponse(
         BigDecimal progress,
         UUID pickingListDocId,
         String documentError,
+        ShipmentDocumentStatus documentStatus,
         List<UUID> documentIds,
         List<Item> items
 ) {
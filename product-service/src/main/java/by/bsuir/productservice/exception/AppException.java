@@ -36,4 +36,8 @@ public class AppException extends RuntimeException {
     public static AppException unauthorized(String message) {
         return new AppException(message, HttpStatus.UNAUTHORIZED);
     }
+
+    public static AppException serviceUnavailable(String message) {
+        return new AppException(message, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
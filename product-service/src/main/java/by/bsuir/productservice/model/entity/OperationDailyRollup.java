@@ -0,0 +1,56 @@
+package by.bsuir.productservice.model.entity;
+
+import by.bsuir.productservice.model.enums.OperationType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Дневной свод операций: число и сумма количества по (организация, склад, день, тип).
+ * Пополняется upsert'ом в той же транзакции, что и запись {@link ProductOperation}.
+ */
+@Entity
+@Table(name = "operation_daily_rollup")
+@IdClass(OperationDailyRollupId.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationDailyRollup {
+
+    @Id
+    @Column(name = "organization_id", nullable = false)
+    private UUID organizationId;
+
+    @Id
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Id
+    @Column(name = "operation_day", nullable = false)
+    private LocalDate operationDay;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", nullable = false, length = 32)
+    private OperationType operationType;
+
+    @Column(name = "operations_count", nullable = false)
+    private Long operationsCount;
+
+    @Column(name = "total_quantity", nullable = false, precision = 18, scale = 3)
+    private BigDecimal totalQuantity;
+}
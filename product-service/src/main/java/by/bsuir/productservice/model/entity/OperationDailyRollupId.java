@@ -0,0 +1,24 @@
+package by.bsuir.productservice.model.entity;
+
+import by.bsuir.productservice.model.enums.OperationType;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class OperationDailyRollupId implements Serializable {
+
+    private UUID organizationId;
+    private UUID warehouseId;
+    private LocalDate operationDay;
+    private OperationType operationType;
+}
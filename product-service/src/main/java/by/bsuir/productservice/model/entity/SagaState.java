@@ -45,6 +45,13 @@ public class SagaState {
     @Column(name = "failure_reason", columnDefinition = "TEXT")
     private String failureReason;
 
+    /** Экземпляр сервиса, который ведёт сагу; null у завершённых. */
+    @Column(name = "owner_instance", length = 100)
+    private String ownerInstance;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,65 @@
+package by.bsuir.productservice.model.entity;
+
+import by.bsuir.productservice.model.enums.SagaStepEvent;
+import by.bsuir.productservice.model.enums.SagaType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Запись журнала шагов саги — одна строка на переход, строки только добавляются.
+ * Состояние саги восстанавливается из начального payload в {@code saga_state} и данных шагов по порядку id.
+ */
+@Entity
+@Table(name = "saga_step_log")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaStepLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "saga_id", nullable = false)
+    private UUID sagaId;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
+    @Column(name = "saga_type", nullable = false, columnDefinition = "saga_type")
+    private SagaType sagaType;
+
+    @Column(name = "step", nullable = false, length = 50)
+    private String step;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event", nullable = false, length = 32)
+    private SagaStepEvent event;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "data", columnDefinition = "jsonb")
+    private String data;
+
+    @Column(name = "instance_id", length = 100)
+    private String instanceId;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
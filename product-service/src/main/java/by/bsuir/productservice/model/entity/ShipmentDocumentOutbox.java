@@ -0,0 +1,91 @@
+package by.bsuir.productservice.model.entity;
+
+import by.bsuir.productservice.model.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Задание на генерацию отгрузочных документов. Пишется в транзакции завершения заявки,
+ * обрабатывается {@code ShipmentDocumentWorker} уже после снятия блокировок с inventory.
+ * Уже созданные документы запоминаются по типу, чтобы повтор задания не выпускал их заново.
+ */
+@Entity
+@Table(name = "shipment_document_outbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipmentDocumentOutbox {
+
+    @Id
+    @Column(name = "id")
+    private UUID id;
+
+    @Column(name = "request_id", nullable = false)
+    private UUID requestId;
+
+    @Column(name = "organization_id")
+    private UUID organizationId;
+
+    @Column(name = "operation_id")
+    private UUID operationId;
+
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "manual_fields", columnDefinition = "jsonb")
+    private String manualFields;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private OutboxStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    /** Токен текущей аренды: обновить задание может только обработчик, который его забрал. */
+    @Column(name = "lease_token")
+    private UUID leaseToken;
+
+    /** Тип документа → id уже сохранённого документа. */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "generated_documents", columnDefinition = "jsonb")
+    private Map<String, UUID> generatedDocuments;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (id == null) id = UUID.randomUUID();
+        if (status == null) status = OutboxStatus.PENDING;
+        if (createdAt == null) createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) nextAttemptAt = createdAt;
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
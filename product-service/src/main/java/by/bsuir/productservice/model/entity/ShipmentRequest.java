@@ -3,14 +3,18 @@ package by.bsuir.productservice.model.entity;
 import by.bsuir.productservice.model.enums.AllocationStrategy;
 import by.bsuir.productservice.model.enums.DocumentLayout;
 import by.bsuir.productservice.model.enums.DomesticDocumentKind;
+import by.bsuir.productservice.model.enums.ShipmentDocumentStatus;
 import by.bsuir.productservice.model.enums.ShipmentRequestStatus;
 import by.bsuir.productservice.model.enums.ShipmentType;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
@@ -83,6 +87,14 @@ public class ShipmentRequest {
     @Column(name = "document_error", columnDefinition = "TEXT")
     private String documentError;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_status", length = 16)
+    private ShipmentDocumentStatus documentStatus;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "document_ids", columnDefinition = "jsonb")
+    private List<UUID> documentIds;
+
     @Column(name = "created_by")
     private UUID createdBy;
 
@@ -0,0 +1,57 @@
+package by.bsuir.productservice.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Неотправленное изменение остатка высоты слота в warehouse-service — одна строка на слот.
+ * Новые дельты складываются в {@code pending_delta_cm} в транзакции бизнес-операции. При отправке
+ * накопленная сумма переносится в {@code inflight_delta_cm} под ключом идемпотентности; до подтверждения
+ * повторяется ровно эта пара, поэтому повтор после потерянного ответа не применит дельту дважды.
+ */
+@Entity
+@Table(name = "slot_height_outbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotHeightOutbox {
+
+    @Id
+    @Column(name = "slot_id")
+    private UUID slotId;
+
+    @Column(name = "pending_delta_cm", nullable = false, precision = 12, scale = 2)
+    private BigDecimal pendingDeltaCm;
+
+    @Column(name = "inflight_delta_cm", precision = 12, scale = 2)
+    private BigDecimal inflightDeltaCm;
+
+    @Column(name = "inflight_key")
+    private UUID inflightKey;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,7 @@
+package by.bsuir.productservice.model.enums;
+
+public enum JobRunStatus {
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,8 @@
+package by.bsuir.productservice.model.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED
+}
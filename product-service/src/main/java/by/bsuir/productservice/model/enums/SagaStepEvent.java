@@ -0,0 +1,11 @@
+package by.bsuir.productservice.model.enums;
+
+public enum SagaStepEvent {
+    STARTED,
+    STEP_COMPLETED,
+    STEP_FAILED,
+    COMPENSATION_STARTED,
+    STEP_COMPENSATED,
+    COMPENSATED,
+    COMPENSATION_FAILED
+}
@@ -4,8 +4,12 @@ import by.bsuir.productservice.model.entity.InventoryCount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,6 +18,19 @@ public interface InventoryCountRepository extends JpaRepository<InventoryCount,
 
     List<InventoryCount> findBySessionId(UUID sessionId);
 
+    /** Строки подсчёта товара в сессии; пустые cellId/batchId не сужают выборку. */
+    @Query("SELECT c FROM InventoryCount c WHERE c.sessionId = :sessionId AND c.productId = :productId "
+            + "AND (:cellId IS NULL OR c.cellId = :cellId) "
+            + "AND (:batchId IS NULL OR c.batchId = :batchId)")
+    List<InventoryCount> findSessionMatches(@Param("sessionId") UUID sessionId,
+                                            @Param("productId") UUID productId,
+                                            @Param("cellId") UUID cellId,
+                                            @Param("batchId") UUID batchId);
+
+    List<InventoryCount> findBySessionIdAndProductIdIn(UUID sessionId, Collection<UUID> productIds);
+
+    List<InventoryCount> findBySessionIdAndCountIdIn(UUID sessionId, Collection<UUID> countIds);
+
     List<InventoryCount> findBySessionIdAndDiscrepancyNot(UUID sessionId, java.math.BigDecimal zero);
 
     List<InventoryCount> findByOrganizationIdAndWarehouseIdAndMarkedForWriteoffTrue(UUID organizationId, UUID warehouseId);
@@ -23,4 +40,26 @@ public interface InventoryCountRepository extends JpaRepository<InventoryCount,
     List<InventoryCount> findByOrganizationIdAndMarkedForWriteoffTrue(UUID organizationId);
 
     Page<InventoryCount> findByOrganizationIdAndMarkedForWriteoffTrue(UUID organizationId, Pageable pageable);
+
+    String SNAPSHOT_INSERT = "INSERT INTO inventory_count (count_id, session_id, organization_id, product_id, "
+            + "batch_id, cell_id, warehouse_id, expected_quantity, actual_quantity, discrepancy, marked_for_writeoff) ";
+
+    /** Снимок остатков всего склада одним INSERT ... SELECT; возвращает число созданных строк. */
+    @Modifying
+    @Query(value = SNAPSHOT_INSERT
+            + "SELECT uuid_generate_v4(), :sessionId, i.organization_id, i.product_id, i.batch_id, i.cell_id, "
+            + "i.warehouse_id, i.quantity, NULL, 0, FALSE FROM inventory i WHERE i.warehouse_id = :warehouseId",
+            nativeQuery = true)
+    int insertSnapshot(@Param("sessionId") UUID sessionId, @Param("warehouseId") UUID warehouseId);
+
+    /** Снимок остатков организации на складе одним INSERT ... SELECT; возвращает число созданных строк. */
+    @Modifying
+    @Query(value = SNAPSHOT_INSERT
+            + "SELECT uuid_generate_v4(), :sessionId, :orgId, i.product_id, i.batch_id, i.cell_id, "
+            + "i.warehouse_id, i.quantity, NULL, 0, FALSE FROM inventory i "
+            + "WHERE i.organization_id = :orgId AND i.warehouse_id = :warehouseId",
+            nativeQuery = true)
+    int insertSnapshot(@Param("sessionId") UUID sessionId,
+                       @Param("orgId") UUID orgId,
+                       @Param("warehouseId") UUID warehouseId);
 }
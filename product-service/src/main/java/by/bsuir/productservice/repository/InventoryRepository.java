@@ -1,19 +1,28 @@
 package by.bsuir.productservice.repository;
 
 import by.bsuir.productservice.model.entity.Inventory;
+import by.bsuir.productservice.model.enums.InventoryStatus;
+import by.bsuir.productservice.model.enums.StorageConditions;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
@@ -67,6 +76,126 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
         BigDecimal getTotalQuantity();
     }
 
+    @Query("SELECT i.inventoryId AS inventoryId, i.cellId AS cellId, i.quantity AS quantity, "
+            + "b.unitsPerPackage AS unitsPerPackage, b.packageWeightKg AS packageWeightKg "
+            + "FROM Inventory i LEFT JOIN ProductBatch b ON b.batchId = i.batchId "
+            + "WHERE i.warehouseId = :warehouseId AND i.cellId IS NOT NULL AND i.quantity > 0")
+    List<SlotStockProjection> findSlotStockByWarehouseId(@Param("warehouseId") UUID warehouseId);
+
+    interface SlotStockProjection {
+        UUID getInventoryId();
+        UUID getCellId();
+        BigDecimal getQuantity();
+        Integer getUnitsPerPackage();
+        BigDecimal getPackageWeightKg();
+    }
+
+    /** Транзакционная advisory-блокировка стеллажа: сериализует проверку веса и размещение на нём. */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtextextended(:rackId, 0))", nativeQuery = true)
+    Integer lockRack(@Param("rackId") String rackId);
+
+    @Query(value = "SELECT COALESCE(SUM(CEIL(i.quantity / GREATEST(COALESCE(b.units_per_package, 1), 1)) "
+            + "* b.package_weight_kg), 0) "
+            + "FROM inventory i LEFT JOIN product_batch b ON b.batch_id = i.batch_id "
+            + "WHERE i.cell_id IN (:cellIds) AND i.quantity > 0", nativeQuery = true)
+    BigDecimal sumWeightKgByCellIds(@Param("cellIds") Collection<UUID> cellIds);
+
+    String ALLOCATION_CANDIDATES = "SELECT i.inventoryId AS inventoryId, i.productId AS productId, "
+            + "i.batchId AS batchId, i.warehouseId AS warehouseId, i.cellId AS cellId, "
+            + "i.quantity AS quantity, i.reservedQuantity AS reservedQuantity, "
+            + "b.batchNumber AS batchNumber, b.expiryDate AS expiryDate, b.createdAt AS batchCreatedAt "
+            + "FROM Inventory i LEFT JOIN ProductBatch b ON b.batchId = i.batchId "
+            + "WHERE i.warehouseId = :warehouseId AND i.productId = :productId AND i.status = :status "
+            + "AND i.quantity > COALESCE(i.reservedQuantity, 0) ";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    @Query(ALLOCATION_CANDIDATES
+            + "ORDER BY b.expiryDate ASC NULLS LAST, b.createdAt ASC NULLS LAST, i.lastUpdated ASC")
+    Stream<AllocationCandidate> streamFefoCandidates(@Param("productId") UUID productId,
+                                                     @Param("warehouseId") UUID warehouseId,
+                                                     @Param("status") InventoryStatus status);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    @Query(ALLOCATION_CANDIDATES
+            + "ORDER BY b.createdAt ASC NULLS LAST, i.lastUpdated ASC")
+    Stream<AllocationCandidate> streamFifoCandidates(@Param("productId") UUID productId,
+                                                     @Param("warehouseId") UUID warehouseId,
+                                                     @Param("status") InventoryStatus status);
+
+    interface AllocationCandidate {
+        UUID getInventoryId();
+        UUID getProductId();
+        UUID getBatchId();
+        UUID getWarehouseId();
+        UUID getCellId();
+        BigDecimal getQuantity();
+        BigDecimal getReservedQuantity();
+        String getBatchNumber();
+        LocalDate getExpiryDate();
+        LocalDateTime getBatchCreatedAt();
+    }
+
+    @Query("SELECT COALESCE(SUM(i.quantity), 0) AS totalQuantity, "
+            + "COALESCE(SUM(i.reservedQuantity), 0) AS reservedQuantity, "
+            + "COUNT(DISTINCT i.productId) AS uniqueProducts, COUNT(i) AS totalRecords "
+            + "FROM Inventory i WHERE i.organizationId = :orgId "
+            + "AND (:warehouseId IS NULL OR i.warehouseId = :warehouseId)")
+    StockTotals aggregateStock(@Param("orgId") UUID orgId, @Param("warehouseId") UUID warehouseId);
+
+    interface StockTotals {
+        BigDecimal getTotalQuantity();
+        BigDecimal getReservedQuantity();
+        Long getUniqueProducts();
+        Long getTotalRecords();
+    }
+
+    @Query("SELECT COALESCE(p.abcClass, 'C') AS abcClass, COALESCE(SUM(i.quantity), 0) AS quantity "
+            + "FROM Inventory i JOIN ProductReadModel p ON p.productId = i.productId "
+            + "WHERE i.organizationId = :orgId AND (:warehouseId IS NULL OR i.warehouseId = :warehouseId) "
+            + "GROUP BY COALESCE(p.abcClass, 'C')")
+    List<AbcClassQuantity> sumQuantityByAbcClass(@Param("orgId") UUID orgId,
+                                                 @Param("warehouseId") UUID warehouseId);
+
+    interface AbcClassQuantity {
+        String getAbcClass();
+        BigDecimal getQuantity();
+    }
+
+    @Query("SELECT b.batchId AS batchId, b.batchNumber AS batchNumber, b.productId AS productId, "
+            + "p.name AS productName, p.sku AS sku, b.expiryDate AS expiryDate, "
+            + "b.storageConditions AS storageConditions, COALESCE(SUM(i.quantity), 0) AS quantity "
+            + "FROM ProductBatch b "
+            + "LEFT JOIN ProductReadModel p ON p.productId = b.productId "
+            + "LEFT JOIN Inventory i ON i.batchId = b.batchId "
+            + "WHERE b.organizationId = :orgId AND b.expiryDate <= :cutoff "
+            + "AND (:warehouseId IS NULL OR i.warehouseId = :warehouseId) "
+            + "GROUP BY b.batchId, b.batchNumber, b.productId, p.name, p.sku, b.expiryDate, b.storageConditions "
+            + "ORDER BY b.expiryDate ASC")
+    List<ExpiringBatch> findExpiringBatches(@Param("orgId") UUID orgId,
+                                            @Param("warehouseId") UUID warehouseId,
+                                            @Param("cutoff") LocalDate cutoff);
+
+    interface ExpiringBatch {
+        UUID getBatchId();
+        String getBatchNumber();
+        UUID getProductId();
+        String getProductName();
+        String getSku();
+        LocalDate getExpiryDate();
+        StorageConditions getStorageConditions();
+        BigDecimal getQuantity();
+    }
+
+    @Query("SELECT i.inventoryId AS inventoryId, i.organizationId AS organizationId, i.unitSku AS unitSku "
+            + "FROM Inventory i WHERE i.inventoryId IN :ids AND i.unitSku IS NOT NULL")
+    List<BarcodeLabelSource> findBarcodeLabelSources(@Param("ids") Collection<UUID> ids);
+
+    interface BarcodeLabelSource {
+        UUID getInventoryId();
+        UUID getOrganizationId();
+        String getUnitSku();
+    }
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT i FROM Inventory i WHERE i.inventoryId = :id")
     Optional<Inventory> findByIdForUpdate(@Param("id") UUID id);
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -14,6 +15,10 @@ public interface InventorySessionRepository extends JpaRepository<InventorySessi
 
     List<InventorySession> findByStatus(InventorySession.SessionStatus status);
 
+    /** Идущая инвентаризация склада; не больше одной благодаря uq_inventory_session_active_warehouse. */
+    Optional<InventorySession> findFirstByWarehouseIdAndStatus(UUID warehouseId,
+                                                               InventorySession.SessionStatus status);
+
     List<InventorySession> findByOrganizationId(UUID organizationId);
 
     List<InventorySession> findByOrganizationIdAndWarehouseId(UUID organizationId, UUID warehouseId);
@@ -0,0 +1,103 @@
+package by.bsuir.productservice.repository;
+
+import by.bsuir.productservice.model.entity.OperationDailyRollup;
+import by.bsuir.productservice.model.entity.OperationDailyRollupId;
+import by.bsuir.productservice.model.enums.OperationType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OperationDailyRollupRepository
+        extends JpaRepository<OperationDailyRollup, OperationDailyRollupId> {
+
+    String ORG_LOCK_KEY = "hashtextextended('operation_rollup:' || CAST(:orgId AS text), 0)";
+
+    /**
+     * Прибавляет {@code count} операций и {@code quantity} к строке дня, создавая её при отсутствии.
+     * Держит разделяемую advisory-блокировку организации до конца транзакции, чтобы {@link #lockOrganization}
+     * пересчёта дождался фиксации операций, уже попавших в свод.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO operation_daily_rollup "
+            + "(organization_id, warehouse_id, operation_day, operation_type, operations_count, total_quantity) "
+            + "SELECT :orgId, :warehouseId, :day, :type, :count, :quantity "
+            + "FROM pg_advisory_xact_lock_shared(" + ORG_LOCK_KEY + ") "
+            + "ON CONFLICT (organization_id, warehouse_id, operation_day, operation_type) DO UPDATE SET "
+            + "operations_count = operation_daily_rollup.operations_count + EXCLUDED.operations_count, "
+            + "total_quantity = operation_daily_rollup.total_quantity + EXCLUDED.total_quantity",
+            nativeQuery = true)
+    int increment(@Param("orgId") UUID orgId,
+                  @Param("warehouseId") UUID warehouseId,
+                  @Param("day") LocalDate day,
+                  @Param("type") String type,
+                  @Param("count") long count,
+                  @Param("quantity") BigDecimal quantity);
+
+    /** Исключительная advisory-блокировка свода организации до конца транзакции — на время пересчёта. */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(" + ORG_LOCK_KEY + ")", nativeQuery = true)
+    Integer lockOrganization(@Param("orgId") UUID orgId);
+
+    @Modifying
+    @Query(value = "DELETE FROM operation_daily_rollup WHERE organization_id = :orgId "
+            + "AND operation_day >= :from AND operation_day <= :to",
+            nativeQuery = true)
+    int deleteRange(@Param("orgId") UUID orgId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Пересчитывает свод из журнала операций за [from, to). Вызывается под {@link #lockOrganization}
+     * после {@link #deleteRange}: параллельных приращений нет, а конфликтующая строка может остаться
+     * только от незавершённой ранее попытки — она заменяется пересчитанными значениями, а не складывается.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO operation_daily_rollup "
+            + "(organization_id, warehouse_id, operation_day, operation_type, operations_count, total_quantity) "
+            + "SELECT o.organization_id, o.warehouse_id, CAST(o.operation_date AS DATE), o.operation_type, "
+            + "COUNT(*), COALESCE(SUM(o.quantity), 0) FROM product_operation o "
+            + "WHERE o.organization_id = :orgId AND o.operation_date >= :from AND o.operation_date < :to "
+            + "GROUP BY o.organization_id, o.warehouse_id, CAST(o.operation_date AS DATE), o.operation_type "
+            + "ON CONFLICT (organization_id, warehouse_id, operation_day, operation_type) DO UPDATE SET "
+            + "operations_count = EXCLUDED.operations_count, total_quantity = EXCLUDED.total_quantity",
+            nativeQuery = true)
+    int insertFromOperations(@Param("orgId") UUID orgId,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to);
+
+    String PERIOD_FILTER = "WHERE r.organizationId = :orgId "
+            + "AND (:warehouseId IS NULL OR r.warehouseId = :warehouseId) "
+            + "AND r.operationDay >= :from AND r.operationDay <= :to ";
+
+    @Query("SELECT r.operationType AS operationType, SUM(r.operationsCount) AS operations, "
+            + "SUM(r.totalQuantity) AS quantity FROM OperationDailyRollup r "
+            + PERIOD_FILTER + "GROUP BY r.operationType")
+    List<TypeTotals> aggregateByType(@Param("orgId") UUID orgId, @Param("warehouseId") UUID warehouseId,
+                                     @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    interface TypeTotals {
+        OperationType getOperationType();
+        Long getOperations();
+        BigDecimal getQuantity();
+    }
+
+    @Query("SELECT r.operationDay AS operationDay, SUM(r.operationsCount) AS operations "
+            + "FROM OperationDailyRollup r " + PERIOD_FILTER + "GROUP BY r.operationDay")
+    List<DailyCount> countByDay(@Param("orgId") UUID orgId, @Param("warehouseId") UUID warehouseId,
+                                @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    interface DailyCount {
+        LocalDate getOperationDay();
+        Long getOperations();
+    }
+
+    @Query("SELECT COALESCE(SUM(r.operationsCount), 0) FROM OperationDailyRollup r " + PERIOD_FILTER)
+    long countInPeriod(@Param("orgId") UUID orgId, @Param("warehouseId") UUID warehouseId,
+                       @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
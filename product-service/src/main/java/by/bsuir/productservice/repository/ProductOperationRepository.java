@@ -8,6 +8,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -39,6 +41,32 @@ public interface ProductOperationRepository
 
     List<ProductOperation> findBySessionId(UUID sessionId);
 
+    String PERIOD_FILTER = "WHERE o.organizationId = :orgId "
+            + "AND (:warehouseId IS NULL OR o.warehouseId = :warehouseId) "
+            + "AND o.operationDate >= :from AND o.operationDate < :to ";
+
+    @Query("SELECT o.userId AS userId, COUNT(o) AS operations FROM ProductOperation o "
+            + PERIOD_FILTER + "AND o.userId IS NOT NULL GROUP BY o.userId")
+    List<UserCount> countByUser(@Param("orgId") UUID orgId, @Param("warehouseId") UUID warehouseId,
+                                @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    interface UserCount {
+        UUID getUserId();
+        Long getOperations();
+    }
+
+    @Query("SELECT DISTINCT o.organizationId FROM ProductOperation o WHERE o.organizationId IS NOT NULL")
+    List<UUID> findDistinctOrganizationIds();
+
+    @Query("SELECT MIN(o.operationDate) FROM ProductOperation o WHERE o.organizationId = :orgId")
+    LocalDateTime findFirstOperationDate(@Param("orgId") UUID orgId);
+
+    @Query("SELECT COUNT(DISTINCT o.productId) FROM ProductOperation o "
+            + PERIOD_FILTER + "AND o.operationType = :type")
+    long countDistinctProducts(@Param("orgId") UUID orgId, @Param("warehouseId") UUID warehouseId,
+                               @Param("type") OperationType type,
+                               @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     default Page<ProductOperation> searchHistory(
             UUID orgId,
             OperationType type,
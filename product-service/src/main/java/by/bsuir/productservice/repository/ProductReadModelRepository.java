@@ -40,4 +40,13 @@ public interface ProductReadModelRepository
             + "ORDER BY p.name ASC LIMIT :limit",
            nativeQuery = true)
     List<ProductReadModel> searchByTextNative(@Param("q") String query, @Param("limit") int limit);
+
+    @Query("SELECT COALESCE(p.abcClass, 'C') AS abcClass, COUNT(p) AS products FROM ProductReadModel p "
+            + "WHERE p.organizationId = :orgId GROUP BY COALESCE(p.abcClass, 'C')")
+    List<AbcClassCount> countByAbcClass(@Param("orgId") UUID orgId);
+
+    interface AbcClassCount {
+        String getAbcClass();
+        Long getProducts();
+    }
 }
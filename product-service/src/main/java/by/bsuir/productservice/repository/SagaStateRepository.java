@@ -4,7 +4,13 @@ import by.bsuir.productservice.model.entity.SagaState;
 import by.bsuir.productservice.model.enums.SagaStatus;
 import by.bsuir.productservice.model.enums.SagaType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,4 +22,46 @@ public interface SagaStateRepository extends JpaRepository<SagaState, UUID> {
     List<SagaState> findBySagaTypeAndStatus(SagaType sagaType, SagaStatus status);
 
     List<SagaState> findByStatusIn(List<SagaStatus> statuses);
-}
\ No newline at end of file
+
+    /**
+     * Переводит сагу в новое состояние, только если строка всё ещё в ожидаемом (статус + шаг).
+     * 0 обновлённых строк означает, что сагу уже продвинул другой экземпляр. Payload не перезаписывается.
+     */
+    @Modifying
+    @Query("UPDATE SagaState s SET s.status = :status, s.currentStep = :step, s.failureReason = :failureReason, "
+            + "s.ownerInstance = :owner, s.leaseUntil = :leaseUntil, s.updatedAt = :now "
+            + "WHERE s.sagaId = :sagaId AND s.status = :expectedStatus AND s.currentStep = :expectedStep")
+    int advance(@Param("sagaId") UUID sagaId,
+                @Param("expectedStatus") SagaStatus expectedStatus,
+                @Param("expectedStep") String expectedStep,
+                @Param("status") SagaStatus status,
+                @Param("step") String step,
+                @Param("failureReason") String failureReason,
+                @Param("owner") String owner,
+                @Param("leaseUntil") LocalDateTime leaseUntil,
+                @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SagaState s SET s.leaseUntil = :leaseUntil "
+            + "WHERE s.ownerInstance = :owner AND s.status IN :statuses")
+    int renewLeases(@Param("owner") String owner,
+                    @Param("statuses") Collection<SagaStatus> statuses,
+                    @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Незавершённые саги с истёкшей арендой (их экземпляр упал или остановлен).
+     * SKIP LOCKED: параллельно работающие экземпляры разбирают разные саги.
+     */
+    @Query(value = "SELECT saga_id FROM saga_state "
+            + "WHERE status IN ('PENDING', 'FAILED', 'COMPENSATING') "
+            + "AND (lease_until IS NULL OR lease_until < :now) "
+            + "ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<UUID> lockExpiredLeases(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE SagaState s SET s.ownerInstance = :owner, s.leaseUntil = :leaseUntil WHERE s.sagaId IN :sagaIds")
+    int claim(@Param("sagaIds") Collection<UUID> sagaIds,
+              @Param("owner") String owner,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+}
@@ -0,0 +1,17 @@
+package by.bsuir.productservice.repository;
+
+import by.bsuir.productservice.model.entity.SagaStepLog;
+import by.bsuir.productservice.model.enums.SagaStepEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SagaStepLogRepository extends JpaRepository<SagaStepLog, Long> {
+
+    List<SagaStepLog> findBySagaIdOrderByIdAsc(UUID sagaId);
+
+    List<SagaStepLog> findBySagaIdAndEvent(UUID sagaId, SagaStepEvent event);
+}
@@ -0,0 +1,33 @@
+package by.bsuir.productservice.repository;
+
+import by.bsuir.productservice.model.entity.ShipmentDocumentOutbox;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ShipmentDocumentOutboxRepository extends JpaRepository<ShipmentDocumentOutbox, UUID> {
+
+    /**
+     * Забирает готовые к обработке задания: ожидающие с наступившим сроком и «зависшие»
+     * в PROCESSING с истёкшей арендой. SKIP LOCKED позволяет нескольким инстансам не мешать друг другу.
+     */
+    @Query(value = "SELECT * FROM shipment_document_outbox "
+            + "WHERE (status = 'PENDING' AND next_attempt_at <= :now) "
+            + "OR (status = 'PROCESSING' AND locked_until < :now) "
+            + "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<ShipmentDocumentOutbox> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM ShipmentDocumentOutbox t WHERE t.id = :id")
+    Optional<ShipmentDocumentOutbox> findByIdForUpdate(@Param("id") UUID id);
+}
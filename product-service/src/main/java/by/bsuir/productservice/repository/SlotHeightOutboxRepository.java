@@ -0,0 +1,59 @@
+package by.bsuir.productservice.repository;
+
+import by.bsuir.productservice.model.entity.SlotHeightOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SlotHeightOutboxRepository extends JpaRepository<SlotHeightOutbox, UUID> {
+
+    /** Прибавляет дельту к накопленной по слоту; строка слота создаётся при первой дельте. */
+    @Modifying
+    @Query(value = "INSERT INTO slot_height_outbox (slot_id, pending_delta_cm, attempts, next_attempt_at, updated_at) "
+            + "VALUES (:slotId, :delta, 0, :now, :now) "
+            + "ON CONFLICT (slot_id) DO UPDATE SET "
+            + "pending_delta_cm = slot_height_outbox.pending_delta_cm + EXCLUDED.pending_delta_cm, "
+            + "updated_at = EXCLUDED.updated_at",
+            nativeQuery = true)
+    int accumulate(@Param("slotId") UUID slotId, @Param("delta") BigDecimal delta, @Param("now") LocalDateTime now);
+
+    /**
+     * Забирает слоты к отправке: срок повтора наступил и никто не держит аренду.
+     * SKIP LOCKED позволяет нескольким инстансам отправлять разные слоты параллельно.
+     */
+    @Query(value = "SELECT * FROM slot_height_outbox "
+            + "WHERE next_attempt_at <= :now AND (locked_until IS NULL OR locked_until < :now) "
+            + "ORDER BY next_attempt_at "
+            + "LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<SlotHeightOutbox> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE SlotHeightOutbox o SET o.inflightKey = NULL, o.inflightDeltaCm = NULL, o.attempts = 0, "
+            + "o.lockedUntil = NULL, o.lastError = NULL, o.nextAttemptAt = :now, o.updatedAt = :now "
+            + "WHERE o.slotId = :slotId AND o.inflightKey = :key")
+    int complete(@Param("slotId") UUID slotId, @Param("key") UUID key, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SlotHeightOutbox o SET o.lockedUntil = NULL, o.nextAttemptAt = :nextAttemptAt, "
+            + "o.lastError = :error, o.updatedAt = :now "
+            + "WHERE o.slotId = :slotId AND o.inflightKey = :key")
+    int reschedule(@Param("slotId") UUID slotId,
+                   @Param("key") UUID key,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error,
+                   @Param("now") LocalDateTime now);
+
+    /** Удаляет строку слота, если подтверждённая отправка была последней и новых дельт не пришло. */
+    @Modifying
+    @Query("DELETE FROM SlotHeightOutbox o WHERE o.slotId = :slotId AND o.inflightKey IS NULL AND o.pendingDeltaCm = 0")
+    int deleteDrained(@Param("slotId") UUID slotId);
+}
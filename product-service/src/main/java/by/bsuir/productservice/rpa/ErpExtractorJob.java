@@ -2,8 +2,11 @@ package by.bsuir.productservice.rpa;
 
 import by.bsuir.productservice.dto.import_.SupplyDto;
 import by.bsuir.productservice.model.entity.ExtractionLog;
+import by.bsuir.productservice.model.enums.JobTrigger;
 import by.bsuir.productservice.repository.ExtractionLogRepository;
+import by.bsuir.productservice.service.ClusterJobRunner;
 import by.bsuir.productservice.service.SupplyImportService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,17 +27,28 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ErpExtractorJob {
 
+    public static final String JOB_NAME = "erp-extractor";
+
     private final ExtractionLogRepository logRepository;
     private final SupplyImportService importService;
+    private final ClusterJobRunner jobRunner;
 
     @Autowired(required = false)
     @Qualifier("oneCExtractor")
     private SupplyExtractor pythonExtractor;
 
+    @PostConstruct
+    void registerJob() {
+        jobRunner.register(JOB_NAME, context -> {
+            log.info("ErpExtractorJob: плановый запуск в {}", LocalDateTime.now());
+            Map<String, Object> result = runManually(null, null, null);
+            return ((Number) result.get("found")).longValue();
+        });
+    }
+
     @Scheduled(cron = "0 0 3 * * *")
     public void runScheduled() {
-        log.info("ErpExtractorJob: плановый запуск в {}", LocalDateTime.now());
-        runManually(null, null, null);
+        jobRunner.run(JOB_NAME, JobTrigger.SCHEDULED);
     }
 
     @Transactional
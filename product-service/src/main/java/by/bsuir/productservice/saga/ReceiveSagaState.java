@@ -12,7 +12,7 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class ReceiveSagaState {
+public class ReceiveSagaState implements SagaProgress {
     private UUID sagaId;
     private UUID productId;
     private UUID warehouseId;
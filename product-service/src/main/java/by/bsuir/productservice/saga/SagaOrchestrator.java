@@ -1,82 +1,131 @@
 package by.bsuir.productservice.saga;
 
-import by.bsuir.productservice.model.entity.Inventory;
+import by.bsuir.productservice.exception.AppException;
+import by.bsuir.productservice.model.entity.ProductOperation;
 import by.bsuir.productservice.model.entity.SagaState;
+import by.bsuir.productservice.model.entity.SagaStepLog;
 import by.bsuir.productservice.model.enums.InventoryEventType;
 import by.bsuir.productservice.model.enums.SagaStatus;
+import by.bsuir.productservice.model.enums.SagaStepEvent;
 import by.bsuir.productservice.model.enums.SagaType;
 import by.bsuir.productservice.repository.InventoryRepository;
 import by.bsuir.productservice.repository.ProductBatchRepository;
 import by.bsuir.productservice.repository.ProductOperationRepository;
 import by.bsuir.productservice.repository.SagaStateRepository;
+import by.bsuir.productservice.repository.SagaStepLogRepository;
 import by.bsuir.productservice.service.DocumentRegistryService;
 import by.bsuir.productservice.service.InventoryEventService;
+import by.bsuir.productservice.service.OperationRollupService;
+import by.bsuir.productservice.service.SlotHeightOutboxService;
+import by.bsuir.productservice.util.InstanceIds;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
-import lombok.Setter;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.event.ContextRefreshedEvent;
-import org.springframework.context.event.EventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Оркестратор саг приёмки и отгрузки.
+ * <p>
+ * Строка {@code saga_state} хранит начальный payload (пишется один раз), текущий шаг, статус и аренду
+ * экземпляра-владельца; каждый переход добавляет строку в {@code saga_step_log}. В памяти держится
+ * ограниченный рабочий набор незавершённых саг — завершённые вытесняются сразу, а при промахе состояние
+ * собирается из payload и журнала шагов. Экземпляр продлевает аренды своих саг и забирает саги с истёкшей
+ * арендой, доводя их компенсацию, поэтому восстановление не выполняется на всех репликах одновременно.
+ */
 @Slf4j
 @Service
-@Getter
-@Setter
-@RequiredArgsConstructor
 public class SagaOrchestrator {
 
+    private static final String METRIC = "saga";
+    private static final List<SagaStatus> IN_FLIGHT =
+            List.of(SagaStatus.PENDING, SagaStatus.FAILED, SagaStatus.COMPENSATING);
+    private static final Set<SagaStatus> TERMINAL =
+            EnumSet.of(SagaStatus.COMPLETED, SagaStatus.COMPENSATED, SagaStatus.COMPENSATION_FAILED);
+    private static final TypeReference<Map<String, Object>> STEP_DATA = new TypeReference<>() {};
+
     private final SagaStateRepository sagaStateRepository;
+    private final SagaStepLogRepository stepLogRepository;
     private final ObjectMapper objectMapper;
     private final ProductBatchRepository batchRepository;
     private final InventoryRepository inventoryRepository;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final InventoryEventService inventoryEventService;
-    private final by.bsuir.productservice.client.WarehouseClient warehouseClient;
+    private final SlotHeightOutboxService slotHeightOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String instanceId;
+    private final Duration lease;
+    private final int recoveryBatchSize;
+
+    private final Cache<UUID, Tracked<ReceiveSagaState>> activeSagas;
+    private final Cache<UUID, Tracked<ShipSagaState>> activeShipSagas;
 
     @Autowired(required = false)
     private DocumentRegistryService documentRegistryService;
 
-    private final Map<UUID, ReceiveSagaState> activeSagas = new ConcurrentHashMap<>();
-    private final Map<UUID, ShipSagaState> activeShipSagas = new ConcurrentHashMap<>();
-
-    @EventListener(ContextRefreshedEvent.class)
-    public void restoreInProgressSagas() {
-        try {
-            List<SagaState> sagas = sagaStateRepository.findByStatusIn(
-                    List.of(SagaStatus.PENDING, SagaStatus.COMPENSATING));
-            int restored = 0;
-            for (SagaState s : sagas) {
-                try {
-                    if (s.getSagaType() == SagaType.RECEIVE) {
-                        ReceiveSagaState state = objectMapper.readValue(s.getPayload(), ReceiveSagaState.class);
-                        activeSagas.put(s.getSagaId(), state);
-                        restored++;
-                    } else if (s.getSagaType() == SagaType.SHIP) {
-                        ShipSagaState state = objectMapper.readValue(s.getPayload(), ShipSagaState.class);
-                        activeShipSagas.put(s.getSagaId(), state);
-                        restored++;
-                    }
-                } catch (Exception e) {
-                    log.error("Failed to restore saga {}: {}", s.getSagaId(), e.getMessage());
-                }
-            }
-            log.info("Restored {} in-progress sagas from DB", restored);
-        } catch (Exception e) {
-            log.warn("Saga restore skipped: {}", e.getMessage());
-        }
+    @Autowired
+    public SagaOrchestrator(SagaStateRepository sagaStateRepository,
+                            SagaStepLogRepository stepLogRepository,
+                            ObjectMapper objectMapper,
+                            ProductBatchRepository batchRepository,
+                            InventoryRepository inventoryRepository,
+                            ProductOperationRepository operationRepository,
+                            OperationRollupService operationRollupService,
+                            InventoryEventService inventoryEventService,
+                            SlotHeightOutboxService slotHeightOutbox,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${saga.instance-id:}") String instanceId,
+                            @Value("${saga.lease-seconds:120}") long leaseSeconds,
+                            @Value("${saga.working-set.max-size:1000}") int maxWorkingSet,
+                            @Value("${saga.working-set.idle-minutes:30}") long idleMinutes,
+                            @Value("${saga.recovery.batch-size:50}") int recoveryBatchSize) {
+        this.sagaStateRepository = sagaStateRepository;
+        this.stepLogRepository = stepLogRepository;
+        this.objectMapper = objectMapper;
+        this.batchRepository = batchRepository;
+        this.inventoryRepository = inventoryRepository;
+        this.operationRepository = operationRepository;
+        this.operationRollupService = operationRollupService;
+        this.inventoryEventService = inventoryEventService;
+        this.slotHeightOutbox = slotHeightOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.instanceId = InstanceIds.resolve(instanceId);
+        this.lease = Duration.ofSeconds(Math.max(leaseSeconds, 10));
+        this.recoveryBatchSize = Math.max(recoveryBatchSize, 1);
+        this.activeSagas = workingSet(maxWorkingSet, idleMinutes);
+        this.activeShipSagas = workingSet(maxWorkingSet, idleMinutes);
+
+        Gauge.builder(METRIC + ".working.set", activeSagas, c -> c.estimatedSize())
+                .tag("type", SagaType.RECEIVE.name()).register(meterRegistry);
+        Gauge.builder(METRIC + ".working.set", activeShipSagas, c -> c.estimatedSize())
+                .tag("type", SagaType.SHIP.name()).register(meterRegistry);
     }
 
     @Transactional
@@ -86,8 +135,7 @@ public class SagaOrchestrator {
         initialState.setStatus("PENDING");
         initialState.setCurrentStep("BATCH_CREATION");
 
-        activeSagas.put(sagaId, initialState);
-        persistSaga(sagaId, SagaType.RECEIVE, initialState, SagaStatus.PENDING, null);
+        activeSagas.put(sagaId, create(SagaType.RECEIVE, initialState));
         log.info("Started receive saga: {}", sagaId);
 
         return sagaId;
@@ -100,8 +148,7 @@ public class SagaOrchestrator {
         initialState.setStatus("PENDING");
         initialState.setCurrentStep("STOCK_RESERVATION");
 
-        activeShipSagas.put(sagaId, initialState);
-        persistSaga(sagaId, SagaType.SHIP, initialState, SagaStatus.PENDING, null);
+        activeShipSagas.put(sagaId, create(SagaType.SHIP, initialState));
         log.info("Started ship saga: {}", sagaId);
 
         return sagaId;
@@ -109,132 +156,83 @@ public class SagaOrchestrator {
 
     @Transactional
     public void markStepCompleted(UUID sagaId, String step, Map<String, Object> data) {
-        ReceiveSagaState saga = activeSagas.get(sagaId);
-        if (saga == null) {
+        Tracked<ReceiveSagaState> tracked = receiveSaga(sagaId);
+        if (tracked == null) {
             log.warn("Saga not found: {}", sagaId);
             return;
         }
 
         log.info("Saga {} completed step: {}", sagaId, step);
-
-        switch (step) {
-            case "BATCH_CREATION":
-                saga.setBatchId((UUID) data.get("batchId"));
-                saga.setCurrentStep("INVENTORY_UPDATE");
-                break;
-            case "INVENTORY_UPDATE":
-                saga.setInventoryId((UUID) data.get("inventoryId"));
-                saga.setCurrentStep("OPERATION_RECORD");
-                break;
-            case "OPERATION_RECORD":
-                saga.setOperationId((UUID) data.get("operationId"));
-                saga.setCurrentStep("COMPLETED");
-                saga.setStatus("COMPLETED");
-                break;
-        }
-
-        activeSagas.put(sagaId, saga);
-        persistSaga(sagaId, SagaType.RECEIVE, saga, mapStatus(saga.getStatus()), saga.getFailureReason());
+        applyReceiveStep(tracked.state, step, data);
+        transition(tracked, SagaStepEvent.STEP_COMPLETED, step, data);
     }
 
     @Transactional
     public void markShipStepCompleted(UUID sagaId, String step, Map<String, Object> data) {
-        ShipSagaState saga = activeShipSagas.get(sagaId);
-        if (saga == null) {
+        Tracked<ShipSagaState> tracked = shipSaga(sagaId);
+        if (tracked == null) {
             log.warn("Ship saga not found: {}", sagaId);
             return;
         }
 
         log.info("Ship saga {} completed step: {}", sagaId, step);
-
-        switch (step) {
-            case "STOCK_RESERVATION":
-                saga.setReservationId((UUID) data.get("reservationId"));
-                saga.setCurrentStep("STAGING");
-                break;
-            case "STAGING":
-                saga.setStagingOperationId((UUID) data.get("stagingOperationId"));
-                saga.setCurrentStep("DOCUMENT_GENERATION");
-                break;
-            case "DOCUMENT_GENERATION":
-                saga.setDocumentIds(extractDocumentIds(data, saga.getDocumentIds()));
-                saga.setCurrentStep("INVENTORY_UPDATE");
-                break;
-            case "INVENTORY_UPDATE":
-                saga.setInventoryId((UUID) data.get("inventoryId"));
-                saga.setCurrentStep("OPERATION_RECORD");
-                break;
-            case "OPERATION_RECORD":
-                saga.setOperationId((UUID) data.get("operationId"));
-                saga.setCurrentStep("COMPLETED");
-                saga.setStatus("COMPLETED");
-                break;
-        }
-
-        activeShipSagas.put(sagaId, saga);
-        persistSaga(sagaId, SagaType.SHIP, saga, mapStatus(saga.getStatus()), saga.getFailureReason());
+        applyShipStep(tracked.state, step, data);
+        transition(tracked, SagaStepEvent.STEP_COMPLETED, step, data);
     }
 
     @Transactional
     public void markStepFailed(UUID sagaId, String step, String reason) {
-        ReceiveSagaState saga = activeSagas.get(sagaId);
-        if (saga == null) {
+        Tracked<ReceiveSagaState> tracked = receiveSaga(sagaId);
+        if (tracked == null) {
             log.warn("Saga not found: {}", sagaId);
             return;
         }
 
         log.error("Saga {} failed at step: {}, reason: {}", sagaId, step, reason);
-        saga.setStatus("FAILED");
-        saga.setFailureReason(reason);
-        saga.setCurrentStep(step);
-
-        activeSagas.put(sagaId, saga);
-        persistSaga(sagaId, SagaType.RECEIVE, saga, SagaStatus.FAILED, reason);
+        fail(tracked, step, reason);
 
         compensate(sagaId);
     }
 
     @Transactional
     public void markShipStepFailed(UUID sagaId, String step, String reason) {
-        ShipSagaState saga = activeShipSagas.get(sagaId);
-        if (saga == null) {
+        Tracked<ShipSagaState> tracked = shipSaga(sagaId);
+        if (tracked == null) {
             log.warn("Ship saga not found: {}", sagaId);
             return;
         }
 
         log.error("Ship saga {} failed at step: {}, reason: {}", sagaId, step, reason);
-        saga.setStatus("FAILED");
-        saga.setFailureReason(reason);
-        saga.setCurrentStep(step);
-
-        activeShipSagas.put(sagaId, saga);
-        persistSaga(sagaId, SagaType.SHIP, saga, SagaStatus.FAILED, reason);
+        fail(tracked, step, reason);
 
         compensateShipSaga(sagaId);
     }
 
     @Transactional
     public void compensate(UUID sagaId) {
-        ReceiveSagaState saga = activeSagas.get(sagaId);
-        if (saga == null) {
+        Tracked<ReceiveSagaState> tracked = receiveSaga(sagaId);
+        if (tracked == null) {
             log.warn("Cannot compensate, saga not found: {}", sagaId);
             return;
         }
+        ReceiveSagaState saga = tracked.state;
 
         log.info("Starting compensation for saga: {}", sagaId);
-        saga.setStatus("COMPENSATING");
-        persistSaga(sagaId, SagaType.RECEIVE, saga, SagaStatus.COMPENSATING, saga.getFailureReason());
+        Set<String> undone = beginCompensation(tracked);
 
         try {
             String currentStep = saga.getCurrentStep();
 
-            if (stepReached(currentStep, "OPERATION_RECORD") && saga.getOperationId() != null) {
+            if (stepReached(currentStep, "OPERATION_RECORD") && saga.getOperationId() != null
+                    && !undone.contains("OPERATION_RECORD")) {
                 log.info("Compensating: deleting operation record {}", saga.getOperationId());
                 operationRepository.findById(saga.getOperationId())
-                        .ifPresent(operationRepository::delete);
+                        .ifPresent(this::deleteOperation);
+                markUndone(tracked, "OPERATION_RECORD");
             }
 
-            if (stepReached(currentStep, "INVENTORY_UPDATE") && saga.getInventoryId() != null) {
+            if (stepReached(currentStep, "INVENTORY_UPDATE") && saga.getInventoryId() != null
+                    && !undone.contains("INVENTORY_UPDATE")) {
                 log.info("Compensating: reverting inventory {} (qty -{})",
                         saga.getInventoryId(), saga.getQuantity());
                 inventoryRepository.findByIdForUpdate(saga.getInventoryId()).ifPresent(inv -> {
@@ -257,16 +255,19 @@ public class SagaOrchestrator {
                     if (inv.getCellId() != null && saga.getBatchId() != null) {
                         BigDecimal heightDelta = computeHeightDelta(saga.getBatchId(), qty);
                         if (heightDelta.signum() > 0) {
-                            warehouseClient.adjustSlotHeight(inv.getCellId(), heightDelta);
+                            slotHeightOutbox.enqueue(inv.getCellId(), heightDelta);
                         }
                     }
                 });
+                markUndone(tracked, "INVENTORY_UPDATE");
             }
 
-            if (stepReached(currentStep, "BATCH_CREATION") && saga.getBatchId() != null) {
+            if (stepReached(currentStep, "BATCH_CREATION") && saga.getBatchId() != null
+                    && !undone.contains("BATCH_CREATION")) {
                 log.info("Compensating: removing batch {}", saga.getBatchId());
                 batchRepository.findById(saga.getBatchId())
                         .ifPresent(batchRepository::delete);
+                markUndone(tracked, "BATCH_CREATION");
             }
 
             saga.setStatus("COMPENSATED");
@@ -277,33 +278,35 @@ public class SagaOrchestrator {
             saga.setStatus("COMPENSATION_FAILED");
         }
 
-        activeSagas.put(sagaId, saga);
-        persistSaga(sagaId, SagaType.RECEIVE, saga, mapStatus(saga.getStatus()), saga.getFailureReason());
+        finishCompensation(tracked);
     }
 
     @Transactional
     public void compensateShipSaga(UUID sagaId) {
-        ShipSagaState saga = activeShipSagas.get(sagaId);
-        if (saga == null) {
+        Tracked<ShipSagaState> tracked = shipSaga(sagaId);
+        if (tracked == null) {
             log.warn("Cannot compensate, ship saga not found: {}", sagaId);
             return;
         }
+        ShipSagaState saga = tracked.state;
 
         log.info("Starting compensation for ship saga: {}", sagaId);
-        saga.setStatus("COMPENSATING");
-        persistSaga(sagaId, SagaType.SHIP, saga, SagaStatus.COMPENSATING, saga.getFailureReason());
+        Set<String> undone = beginCompensation(tracked);
 
         try {
             String currentStep = saga.getCurrentStep();
             BigDecimal qty = saga.getQuantity() != null ? saga.getQuantity() : BigDecimal.ZERO;
 
-            if (shipStepReached(currentStep, "OPERATION_RECORD") && saga.getOperationId() != null) {
+            if (shipStepReached(currentStep, "OPERATION_RECORD") && saga.getOperationId() != null
+                    && !undone.contains("OPERATION_RECORD")) {
                 log.info("Compensating: deleting operation record {}", saga.getOperationId());
                 operationRepository.findById(saga.getOperationId())
-                        .ifPresent(operationRepository::delete);
+                        .ifPresent(this::deleteOperation);
+                markUndone(tracked, "OPERATION_RECORD");
             }
 
-            if (shipStepReached(currentStep, "INVENTORY_UPDATE") && saga.getInventoryId() != null) {
+            if (shipStepReached(currentStep, "INVENTORY_UPDATE") && saga.getInventoryId() != null
+                    && !undone.contains("INVENTORY_UPDATE")) {
                 log.info("Compensating: restoring inventory {} (+{})", saga.getInventoryId(), qty);
                 inventoryRepository.findByIdForUpdate(saga.getInventoryId()).ifPresent(inv -> {
                     BigDecimal qtyBefore = inv.getQuantity();
@@ -316,15 +319,17 @@ public class SagaOrchestrator {
                     if (inv.getCellId() != null && inv.getBatchId() != null) {
                         BigDecimal heightDelta = computeHeightDelta(inv.getBatchId(), qty);
                         if (heightDelta.signum() > 0) {
-                            warehouseClient.adjustSlotHeight(inv.getCellId(), heightDelta.negate());
+                            slotHeightOutbox.enqueue(inv.getCellId(), heightDelta.negate());
                         }
                     }
                 });
+                markUndone(tracked, "INVENTORY_UPDATE");
             }
 
             if (shipStepReached(currentStep, "DOCUMENT_GENERATION")
                     && saga.getDocumentIds() != null
-                    && !saga.getDocumentIds().isEmpty()) {
+                    && !saga.getDocumentIds().isEmpty()
+                    && !undone.contains("DOCUMENT_GENERATION")) {
                 if (documentRegistryService == null) {
                     log.warn("Compensating: documentRegistryService not wired, skipping document cleanup");
                 } else {
@@ -337,15 +342,19 @@ public class SagaOrchestrator {
                         }
                     }
                 }
+                markUndone(tracked, "DOCUMENT_GENERATION");
             }
 
-            if (shipStepReached(currentStep, "STAGING") && saga.getStagingOperationId() != null) {
+            if (shipStepReached(currentStep, "STAGING") && saga.getStagingOperationId() != null
+                    && !undone.contains("STAGING")) {
                 log.info("Compensating: removing staging operation {}", saga.getStagingOperationId());
                 operationRepository.findById(saga.getStagingOperationId())
-                        .ifPresent(operationRepository::delete);
+                        .ifPresent(this::deleteOperation);
+                markUndone(tracked, "STAGING");
             }
 
-            if (shipStepReached(currentStep, "STOCK_RESERVATION") && saga.getReservationId() != null) {
+            if (shipStepReached(currentStep, "STOCK_RESERVATION") && saga.getReservationId() != null
+                    && !undone.contains("STOCK_RESERVATION")) {
                 log.info("Compensating: releasing reservation on inventory {} (-{})",
                         saga.getReservationId(), qty);
                 inventoryRepository.findByIdForUpdate(saga.getReservationId()).ifPresent(inv -> {
@@ -358,6 +367,7 @@ public class SagaOrchestrator {
                     inv.setLastUpdated(LocalDateTime.now());
                     inventoryRepository.save(inv);
                 });
+                markUndone(tracked, "STOCK_RESERVATION");
             }
 
             saga.setStatus("COMPENSATED");
@@ -368,34 +378,317 @@ public class SagaOrchestrator {
             saga.setStatus("COMPENSATION_FAILED");
         }
 
-        activeShipSagas.put(sagaId, saga);
-        persistSaga(sagaId, SagaType.SHIP, saga, mapStatus(saga.getStatus()), saga.getFailureReason());
+        finishCompensation(tracked);
     }
 
-    private void persistSaga(UUID sagaId, SagaType type, Object payload, SagaStatus status, String failureReason) {
+    /**
+     * Продлевает аренду своих незавершённых саг и забирает саги с истёкшей арендой.
+     * Упавшие и недокомпенсированные саги доводятся до конца компенсации, ожидающие просто меняют владельца.
+     */
+    @Scheduled(fixedDelayString = "${saga.recovery.poll-interval-ms:30000}",
+            initialDelayString = "${saga.recovery.initial-delay-ms:15000}")
+    public void maintainLeases() {
+        List<UUID> claimed;
         try {
-            String payloadJson = objectMapper.writeValueAsString(payload);
-            String currentStep = (payload instanceof ReceiveSagaState rs) ? rs.getCurrentStep()
-                    : ((ShipSagaState) payload).getCurrentStep();
-
-            SagaState entity = sagaStateRepository.findById(sagaId).orElseGet(() -> SagaState.builder()
-                    .sagaId(sagaId)
-                    .sagaType(type)
-                    .createdAt(LocalDateTime.now())
-                    .build());
-            entity.setSagaType(type);
-            entity.setStatus(status);
-            entity.setCurrentStep(currentStep);
-            entity.setPayload(payloadJson);
-            entity.setFailureReason(failureReason);
-            entity.setUpdatedAt(LocalDateTime.now());
-            if (entity.getCreatedAt() == null) {
-                entity.setCreatedAt(LocalDateTime.now());
-            }
-            sagaStateRepository.save(entity);
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status ->
+                    sagaStateRepository.renewLeases(instanceId, IN_FLIGHT, now.plus(lease)));
+            claimed = transactionTemplate.execute(status -> {
+                List<UUID> expired = sagaStateRepository.lockExpiredLeases(now, recoveryBatchSize);
+                if (!expired.isEmpty()) {
+                    sagaStateRepository.claim(expired, instanceId, now.plus(lease));
+                }
+                return expired;
+            });
         } catch (Exception e) {
-            log.error("Failed to persist saga {}: {}", sagaId, e.getMessage(), e);
+            log.warn("Saga lease maintenance skipped: {}", e.getMessage());
+            return;
+        }
+        if (claimed == null || claimed.isEmpty()) return;
+
+        log.info("Instance {} claimed {} sagas with expired lease", instanceId, claimed.size());
+        for (UUID sagaId : claimed) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> resume(sagaId));
+            } catch (Exception e) {
+                log.error("Failed to resume saga {}: {}", sagaId, e.getMessage());
+            }
+        }
+    }
+
+    public ReceiveSagaState getSagaState(UUID sagaId) {
+        Tracked<ReceiveSagaState> tracked = receiveSaga(sagaId);
+        return tracked != null ? tracked.state : null;
+    }
+
+    public ShipSagaState getShipSagaState(UUID sagaId) {
+        Tracked<ShipSagaState> tracked = shipSaga(sagaId);
+        return tracked != null ? tracked.state : null;
+    }
+
+    public void cleanupSaga(UUID sagaId) {
+        activeSagas.invalidate(sagaId);
+        log.info("Cleaned up saga: {}", sagaId);
+    }
+
+    public void cleanupShipSaga(UUID sagaId) {
+        activeShipSagas.invalidate(sagaId);
+        log.info("Cleaned up ship saga: {}", sagaId);
+    }
+
+    private void resume(UUID sagaId) {
+        SagaState header = sagaStateRepository.findById(sagaId).orElse(null);
+        if (header == null) return;
+
+        String action = "adopted";
+        if (header.getStatus() == SagaStatus.FAILED || header.getStatus() == SagaStatus.COMPENSATING) {
+            if (header.getSagaType() == SagaType.RECEIVE) {
+                compensate(sagaId);
+            } else {
+                compensateShipSaga(sagaId);
+            }
+            action = "compensated";
+        }
+        Counter.builder(METRIC + ".recovered")
+                .tag("type", header.getSagaType().name())
+                .tag("action", action)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private <S extends SagaProgress> Tracked<S> create(SagaType type, S state) {
+        LocalDateTime now = LocalDateTime.now();
+        sagaStateRepository.save(SagaState.builder()
+                .sagaId(state.getSagaId())
+                .sagaType(type)
+                .status(SagaStatus.PENDING)
+                .currentStep(state.getCurrentStep())
+                .payload(toJson(state))
+                .ownerInstance(instanceId)
+                .leaseUntil(now.plus(lease))
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        appendLog(type, state.getSagaId(), state.getCurrentStep(), SagaStepEvent.STARTED, null, null);
+        Counter.builder(METRIC + ".started").tag("type", type.name()).register(meterRegistry).increment();
+        return new Tracked<>(type, state, SagaStatus.PENDING, state.getCurrentStep(), now);
+    }
+
+    private <S extends SagaProgress> void fail(Tracked<S> tracked, String step, String reason) {
+        S saga = tracked.state;
+        saga.setStatus("FAILED");
+        saga.setFailureReason(reason);
+        saga.setCurrentStep(step);
+        transition(tracked, SagaStepEvent.STEP_FAILED, step, null);
+    }
+
+    /** Возвращает шаги, уже откатанные до сбоя, — при возобновлении компенсации они пропускаются. */
+    private <S extends SagaProgress> Set<String> beginCompensation(Tracked<S> tracked) {
+        S saga = tracked.state;
+        if ("COMPENSATING".equals(saga.getStatus())) {
+            Set<String> undone = new HashSet<>();
+            for (SagaStepLog entry : stepLogRepository.findBySagaIdAndEvent(
+                    saga.getSagaId(), SagaStepEvent.STEP_COMPENSATED)) {
+                undone.add(entry.getStep());
+            }
+            log.info("Resuming compensation for saga {}, already undone: {}", saga.getSagaId(), undone);
+            return undone;
+        }
+
+        saga.setStatus("COMPENSATING");
+        transition(tracked, SagaStepEvent.COMPENSATION_STARTED, saga.getCurrentStep(), null);
+        Counter.builder(METRIC + ".compensations").tag("type", tracked.type.name()).register(meterRegistry).increment();
+        return Set.of();
+    }
+
+    private <S extends SagaProgress> void markUndone(Tracked<S> tracked, String step) {
+        appendLog(tracked.type, tracked.state.getSagaId(), step, SagaStepEvent.STEP_COMPENSATED, null, null);
+    }
+
+    /** Удаляет запись операции вместе с её вкладом в дневной свод. */
+    private void deleteOperation(ProductOperation operation) {
+        operationRepository.delete(operation);
+        operationRollupService.recordDeleted(operation);
+    }
+
+    private <S extends SagaProgress> void finishCompensation(Tracked<S> tracked) {
+        S saga = tracked.state;
+        SagaStepEvent event = "COMPENSATED".equals(saga.getStatus())
+                ? SagaStepEvent.COMPENSATED
+                : SagaStepEvent.COMPENSATION_FAILED;
+        transition(tracked, event, saga.getCurrentStep(), null);
+    }
+
+    /**
+     * Фиксирует переход: условное обновление заголовка (без payload) и строка журнала шагов.
+     * Если заголовок уже изменил другой экземпляр, локальная копия вытесняется и переход отклоняется.
+     */
+    private <S extends SagaProgress> void transition(Tracked<S> tracked, SagaStepEvent event, String step,
+                                                     Map<String, Object> data) {
+        S saga = tracked.state;
+        SagaStatus status = mapStatus(saga.getStatus());
+        boolean finished = TERMINAL.contains(status);
+        LocalDateTime now = LocalDateTime.now();
+
+        int updated = sagaStateRepository.advance(saga.getSagaId(),
+                tracked.persistedStatus, tracked.persistedStep,
+                status, saga.getCurrentStep(), saga.getFailureReason(),
+                finished ? null : instanceId, finished ? null : now.plus(lease), now);
+        if (updated == 0) {
+            evict(tracked);
+            throw AppException.conflict("Сага " + saga.getSagaId() + " уже изменена другим экземпляром сервиса");
+        }
+
+        Duration elapsed = Duration.between(tracked.lastTransitionAt, now);
+        appendLog(tracked.type, saga.getSagaId(), step, event, data, elapsed);
+        if (event == SagaStepEvent.STEP_COMPLETED) {
+            Timer.builder(METRIC + ".step.duration")
+                    .tag("type", tracked.type.name())
+                    .tag("step", step)
+                    .register(meterRegistry)
+                    .record(elapsed);
         }
+
+        tracked.persistedStatus = status;
+        tracked.persistedStep = saga.getCurrentStep();
+        tracked.lastTransitionAt = now;
+
+        if (finished) {
+            evict(tracked);
+            Counter.builder(METRIC + ".finished")
+                    .tag("type", tracked.type.name())
+                    .tag("outcome", status.name())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private void appendLog(SagaType type, UUID sagaId, String step, SagaStepEvent event,
+                           Map<String, Object> data, Duration elapsed) {
+        stepLogRepository.save(SagaStepLog.builder()
+                .sagaId(sagaId)
+                .sagaType(type)
+                .step(step)
+                .event(event)
+                .data(data == null || data.isEmpty() ? null : toJson(data))
+                .instanceId(instanceId)
+                .durationMs(elapsed != null ? elapsed.toMillis() : null)
+                .build());
+    }
+
+    private Tracked<ReceiveSagaState> receiveSaga(UUID sagaId) {
+        Tracked<ReceiveSagaState> tracked = activeSagas.getIfPresent(sagaId);
+        if (tracked == null) {
+            tracked = load(sagaId, SagaType.RECEIVE, ReceiveSagaState.class, this::applyReceiveStep);
+            if (tracked != null && !tracked.finished()) {
+                activeSagas.put(sagaId, tracked);
+            }
+        }
+        return tracked;
+    }
+
+    private Tracked<ShipSagaState> shipSaga(UUID sagaId) {
+        Tracked<ShipSagaState> tracked = activeShipSagas.getIfPresent(sagaId);
+        if (tracked == null) {
+            tracked = load(sagaId, SagaType.SHIP, ShipSagaState.class, this::applyShipStep);
+            if (tracked != null && !tracked.finished()) {
+                activeShipSagas.put(sagaId, tracked);
+            }
+        }
+        return tracked;
+    }
+
+    /** Собирает состояние саги: начальный payload + данные завершённых шагов + статус из заголовка. */
+    private <S extends SagaProgress> Tracked<S> load(UUID sagaId, SagaType type, Class<S> stateClass,
+                                                     StepApplier<S> applier) {
+        SagaState header = sagaStateRepository.findById(sagaId).orElse(null);
+        if (header == null || header.getSagaType() != type) {
+            return null;
+        }
+        try {
+            S state = objectMapper.readValue(header.getPayload(), stateClass);
+            for (SagaStepLog entry : stepLogRepository.findBySagaIdOrderByIdAsc(sagaId)) {
+                if (entry.getEvent() == SagaStepEvent.STEP_COMPLETED) {
+                    applier.apply(state, entry.getStep(), readStepData(entry.getData()));
+                }
+            }
+            state.setStatus(header.getStatus().name());
+            state.setCurrentStep(header.getCurrentStep());
+            state.setFailureReason(header.getFailureReason());
+            LocalDateTime since = header.getUpdatedAt() != null ? header.getUpdatedAt() : LocalDateTime.now();
+            return new Tracked<>(type, state, header.getStatus(), header.getCurrentStep(), since);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to restore saga {}: {}", sagaId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void applyReceiveStep(ReceiveSagaState saga, String step, Map<String, Object> data) {
+        switch (step) {
+            case "BATCH_CREATION":
+                saga.setBatchId(asUuid(data.get("batchId")));
+                saga.setCurrentStep("INVENTORY_UPDATE");
+                break;
+            case "INVENTORY_UPDATE":
+                saga.setInventoryId(asUuid(data.get("inventoryId")));
+                saga.setCurrentStep("OPERATION_RECORD");
+                break;
+            case "OPERATION_RECORD":
+                saga.setOperationId(asUuid(data.get("operationId")));
+                saga.setCurrentStep("COMPLETED");
+                saga.setStatus("COMPLETED");
+                break;
+        }
+    }
+
+    private void applyShipStep(ShipSagaState saga, String step, Map<String, Object> data) {
+        switch (step) {
+            case "STOCK_RESERVATION":
+                saga.setReservationId(asUuid(data.get("reservationId")));
+                saga.setCurrentStep("STAGING");
+                break;
+            case "STAGING":
+                saga.setStagingOperationId(asUuid(data.get("stagingOperationId")));
+                saga.setCurrentStep("DOCUMENT_GENERATION");
+                break;
+            case "DOCUMENT_GENERATION":
+                saga.setDocumentIds(extractDocumentIds(data, saga.getDocumentIds()));
+                saga.setCurrentStep("INVENTORY_UPDATE");
+                break;
+            case "INVENTORY_UPDATE":
+                saga.setInventoryId(asUuid(data.get("inventoryId")));
+                saga.setCurrentStep("OPERATION_RECORD");
+                break;
+            case "OPERATION_RECORD":
+                saga.setOperationId(asUuid(data.get("operationId")));
+                saga.setCurrentStep("COMPLETED");
+                saga.setStatus("COMPLETED");
+                break;
+        }
+    }
+
+    private void evict(Tracked<?> tracked) {
+        UUID sagaId = tracked.state.getSagaId();
+        if (tracked.type == SagaType.RECEIVE) {
+            activeSagas.invalidate(sagaId);
+        } else {
+            activeShipSagas.invalidate(sagaId);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw AppException.internalError("Не удалось сериализовать состояние саги: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> readStepData(String json) throws JsonProcessingException {
+        if (json == null || json.isBlank()) {
+            return Map.of();
+        }
+        return objectMapper.readValue(json, STEP_DATA);
     }
 
     private SagaStatus mapStatus(String status) {
@@ -418,28 +711,29 @@ public class SagaOrchestrator {
         return currentIndex >= checkIndex;
     }
 
-    @SuppressWarnings("unchecked")
     private List<UUID> extractDocumentIds(Map<String, Object> data, List<UUID> existing) {
         List<UUID> merged = existing != null ? new ArrayList<>(existing) : new ArrayList<>();
         Object docIds = data.get("documentIds");
         if (docIds instanceof List<?> list) {
             for (Object o : list) {
-                if (o instanceof UUID u) {
-                    merged.add(u);
-                } else if (o != null) {
-                    merged.add(UUID.fromString(o.toString()));
+                if (o != null) {
+                    merged.add(asUuid(o));
                 }
             }
         }
         Object singleDocId = data.get("documentId");
-        if (singleDocId instanceof UUID u) {
-            merged.add(u);
-        } else if (singleDocId != null) {
-            merged.add(UUID.fromString(singleDocId.toString()));
+        if (singleDocId != null) {
+            merged.add(asUuid(singleDocId));
         }
         return merged;
     }
 
+    private static UUID asUuid(Object value) {
+        if (value == null) return null;
+        if (value instanceof UUID uuid) return uuid;
+        return UUID.fromString(value.toString());
+    }
+
     private boolean shipStepReached(String currentStep, String checkStep) {
         String[] stepOrder = {"STOCK_RESERVATION", "STAGING", "DOCUMENT_GENERATION", "INVENTORY_UPDATE", "OPERATION_RECORD", "COMPLETED"};
         int currentIndex = -1, checkIndex = -1;
@@ -452,24 +746,6 @@ public class SagaOrchestrator {
         return currentIndex >= checkIndex;
     }
 
-    public ReceiveSagaState getSagaState(UUID sagaId) {
-        return activeSagas.get(sagaId);
-    }
-
-    public ShipSagaState getShipSagaState(UUID sagaId) {
-        return activeShipSagas.get(sagaId);
-    }
-
-    public void cleanupSaga(UUID sagaId) {
-        activeSagas.remove(sagaId);
-        log.info("Cleaned up saga: {}", sagaId);
-    }
-
-    public void cleanupShipSaga(UUID sagaId) {
-        activeShipSagas.remove(sagaId);
-        log.info("Cleaned up ship saga: {}", sagaId);
-    }
-
     private BigDecimal computeHeightDelta(UUID batchId, BigDecimal quantityUnits) {
         if (batchId == null || quantityUnits == null || quantityUnits.signum() <= 0) {
             return BigDecimal.ZERO;
@@ -482,5 +758,38 @@ public class SagaOrchestrator {
                 BigDecimal.valueOf(upp), 0, java.math.RoundingMode.CEILING);
         return batch.getPackageHeightCm().multiply(numPackages);
     }
-}
 
+    private static <S extends SagaProgress> Cache<UUID, Tracked<S>> workingSet(int maxSize, long idleMinutes) {
+        return Caffeine.newBuilder()
+                .maximumSize(Math.max(maxSize, 1))
+                .expireAfterAccess(Duration.ofMinutes(Math.max(idleMinutes, 1)))
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface StepApplier<S> {
+        void apply(S state, String step, Map<String, Object> data);
+    }
+
+    /** Состояние саги в рабочем наборе и то, что о ней сейчас записано в saga_state. */
+    private static final class Tracked<S extends SagaProgress> {
+        private final SagaType type;
+        private final S state;
+        private SagaStatus persistedStatus;
+        private String persistedStep;
+        private LocalDateTime lastTransitionAt;
+
+        private Tracked(SagaType type, S state, SagaStatus persistedStatus, String persistedStep,
+                        LocalDateTime lastTransitionAt) {
+            this.type = type;
+            this.state = state;
+            this.persistedStatus = persistedStatus;
+            this.persistedStep = persistedStep;
+            this.lastTransitionAt = lastTransitionAt;
+        }
+
+        private boolean finished() {
+            return TERMINAL.contains(persistedStatus);
+        }
+    }
+}
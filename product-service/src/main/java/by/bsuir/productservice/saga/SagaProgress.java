@@ -0,0 +1,21 @@
+package by.bsuir.productservice.saga;
+
+import java.util.UUID;
+
+/** Общая часть состояния саг, которую оркестратор ведёт в {@code saga_state}. */
+public interface SagaProgress {
+
+    UUID getSagaId();
+
+    String getCurrentStep();
+
+    void setCurrentStep(String currentStep);
+
+    String getStatus();
+
+    void setStatus(String status);
+
+    String getFailureReason();
+
+    void setFailureReason(String failureReason);
+}
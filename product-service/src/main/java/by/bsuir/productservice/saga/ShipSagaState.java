@@ -14,7 +14,7 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class ShipSagaState {
+public class ShipSagaState implements SagaProgress {
     private UUID sagaId;
     private UUID productId;
     private UUID warehouseId;
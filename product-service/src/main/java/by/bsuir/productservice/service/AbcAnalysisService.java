@@ -1,12 +1,17 @@
 package by.bsuir.productservice.service;
 
+import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.ProductBatch;
 import by.bsuir.productservice.model.entity.ProductOperation;
 import by.bsuir.productservice.model.entity.ProductReadModel;
+import by.bsuir.productservice.model.entity.ScheduledJobRun;
+import by.bsuir.productservice.model.enums.JobRunStatus;
+import by.bsuir.productservice.model.enums.JobTrigger;
 import by.bsuir.productservice.model.enums.OperationType;
 import by.bsuir.productservice.repository.ProductBatchRepository;
 import by.bsuir.productservice.repository.ProductOperationRepository;
 import by.bsuir.productservice.repository.ProductReadModelRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
@@ -23,6 +28,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -30,6 +36,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AbcAnalysisService {
 
+    public static final String JOB_NAME = "abc-analysis";
+
     private static final int LOOKBACK_DAYS = 90;
     private static final double CLASS_A_THRESHOLD = 0.80;
     private static final double CLASS_B_THRESHOLD = 0.95;
@@ -37,21 +45,35 @@ public class AbcAnalysisService {
     private final ProductOperationRepository operationRepository;
     private final ProductReadModelRepository productRepository;
     private final ProductBatchRepository batchRepository;
+    private final ClusterJobRunner jobRunner;
+
+    @PostConstruct
+    void registerJob() {
+        jobRunner.register(JOB_NAME, context -> totalClassified(calculateAndSave()));
+    }
 
+    /**
+     * Плановый пересчёт выполняет одна реплика; кэш распределения сбрасывается на каждой,
+     * потому что классы в БД могла обновить соседняя.
+     */
     @Scheduled(cron = "0 0 2 * * *")
-    @Transactional
     @CacheEvict(value = "abcDistribution", allEntries = true)
     public void runDailyAbcAnalysis() {
-        log.info("Запуск ежедневного ABC-анализа товаров");
-        calculateAndSave();
-        log.info("ABC-анализ завершён");
+        jobRunner.run(JOB_NAME, JobTrigger.SCHEDULED);
     }
 
-    @Transactional
     @CacheEvict(value = "abcDistribution", allEntries = true)
     public Map<String, Object> runManually() {
         log.info("Ручной запуск ABC-анализа");
-        Map<String, Long> classCounts = calculateAndSave();
+        AtomicReference<Map<String, Long>> counts = new AtomicReference<>(Map.of());
+        ScheduledJobRun run = jobRunner.run(JOB_NAME, JobTrigger.MANUAL, context -> {
+            counts.set(calculateAndSave());
+            return totalClassified(counts.get());
+        }).orElseThrow(() -> AppException.conflict("ABC-анализ уже выполняется другим экземпляром сервиса"));
+        if (run.getStatus() == JobRunStatus.FAILED) {
+            throw AppException.internalError("ABC-анализ завершился ошибкой: " + run.getError());
+        }
+        Map<String, Long> classCounts = counts.get();
         Map<String, Object> result = new HashMap<>();
         result.put("message", "ABC-анализ выполнен");
         result.put("period_days", LOOKBACK_DAYS);
@@ -138,6 +160,10 @@ public class AbcAnalysisService {
         return classCounts;
     }
 
+    private long totalClassified(Map<String, Long> classCounts) {
+        return classCounts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
     private BigDecimal resolveUnitPrice(ProductOperation op,
                                         Map<UUID, BigDecimal> batchPriceCache,
                                         Map<UUID, BigDecimal> productPriceCache) {
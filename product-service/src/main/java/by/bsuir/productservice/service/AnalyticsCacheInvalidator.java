@@ -0,0 +1,56 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.config.tenant.TenantCacheKeyGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сбрасывает кэши аналитики организации при изменении остатков и операций.
+ * Удаляются только записи этой организации и сводные записи без организации.
+ * Сброс выполняется после коммита, иначе параллельный запрос успел бы закэшировать данные до изменения.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalyticsCacheInvalidator {
+
+    static final List<String> TENANT_CACHES = List.of(
+            "inventoryAnalytics", "operationsDynamics", "operationsComparison", "abcDistribution");
+
+    private final CacheManager cacheManager;
+
+    public void stockChanged(UUID organizationId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictTenant(organizationId);
+                }
+            });
+        } else {
+            evictTenant(organizationId);
+        }
+    }
+
+    void evictTenant(UUID organizationId) {
+        for (String name : TENANT_CACHES) {
+            org.springframework.cache.Cache cache = cacheManager.getCache(name);
+            if (cache == null) continue;
+            if (cache.getNativeCache() instanceof Cache<?, ?> caffeine) {
+                caffeine.asMap().keySet().removeIf(key -> key instanceof TenantCacheKeyGenerator.Key k
+                        && (k.organizationId() == null || k.organizationId().equals(organizationId)));
+            } else {
+                cache.clear();
+            }
+        }
+        log.debug("Кэши аналитики сброшены для организации {}", organizationId);
+    }
+}
@@ -3,6 +3,8 @@ package by.bsuir.productservice.service;
 import by.bsuir.productservice.client.DocumentClient;
 import by.bsuir.productservice.client.WarehouseAnalyticsClient;
 import by.bsuir.productservice.dto.request.AnalyticsReportRequest;
+import by.bsuir.productservice.dto.response.AbcDistributionResponse;
+import by.bsuir.productservice.dto.response.ExpiringProductResponse;
 import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.GeneratedDocument;
 import lombok.RequiredArgsConstructor;
@@ -100,12 +102,12 @@ public class AnalyticsReportService {
         }
 
         if (request.hasSection(AnalyticsReportRequest.SECTION_ABC)) {
-            payload.put("abc", buildAbcSection());
+            payload.put("abc", buildAbcSection(organizationId));
             sectionsIncluded.add(AnalyticsReportRequest.SECTION_ABC);
         }
 
         if (request.hasSection(AnalyticsReportRequest.SECTION_DETAILED)) {
-            payload.put("detailed", buildDetailedSection(request.from(), request.to()));
+            payload.put("detailed", buildDetailedSection(organizationId, request.from(), request.to()));
             sectionsIncluded.add(AnalyticsReportRequest.SECTION_DETAILED);
         }
 
@@ -173,21 +175,8 @@ public class AnalyticsReportService {
         return result;
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> buildAbcSection() {
-        Map<String, Object> distribution = analyticsService.getAbcDistribution();
-        if (distribution == null) distribution = new LinkedHashMap<>();
-        Map<String, Object> productCountByClass = new LinkedHashMap<>();
-        productCountByClass.put("A", 0L);
-        productCountByClass.put("B", 0L);
-        productCountByClass.put("C", 0L);
-        Object raw = distribution.get("productCountByClass");
-        if (raw instanceof Map<?, ?> rm) {
-            for (Map.Entry<?, ?> e : rm.entrySet()) {
-                productCountByClass.put(String.valueOf(e.getKey()), longOf(e.getValue()));
-            }
-        }
-        distribution.put("productCountByClass", productCountByClass);
+    private Map<String, Object> buildAbcSection(UUID organizationId) {
+        AbcDistributionResponse distribution = analyticsService.getAbcDistribution(organizationId, null);
 
         List<Map<String, Object>> fullReport = abcAnalysisService.getAbcReport();
         List<Map<String, Object>> top = fullReport.stream()
@@ -227,20 +216,17 @@ public class AnalyticsReportService {
         return s;
     }
 
-    private Map<String, Object> buildDetailedSection(LocalDate from, LocalDate to) {
+    private Map<String, Object> buildDetailedSection(UUID organizationId, LocalDate from, LocalDate to) {
         Map<String, Object> result = new LinkedHashMap<>();
-        Map<String, Object> inventory = analyticsService.getInventoryAnalytics();
-        result.put("inventory", inventory);
-
-        Map<String, Object> dynamics = analyticsService.getOperationsDynamics(from, to);
-        result.put("operations", dynamics);
+        result.put("inventory", analyticsService.getInventoryAnalytics(organizationId, null));
+        result.put("operations", analyticsService.getOperationsDynamics(organizationId, null, from, to));
 
-        List<Map<String, Object>> expiring = analyticsService.getExpiringProducts(EXPIRING_WINDOW_DAYS);
+        List<ExpiringProductResponse> expiring =
+                analyticsService.getExpiringProducts(organizationId, null, EXPIRING_WINDOW_DAYS);
         result.put("expiring", expiring);
         result.put("expiringCount", expiring.size());
 
-        Map<String, Object> comparison = analyticsService.getInventoryComparison(from, to);
-        result.put("inventoryComparison", comparison);
+        result.put("inventoryComparison", analyticsService.getInventoryComparison(organizationId, null, from, to));
         return result;
     }
 
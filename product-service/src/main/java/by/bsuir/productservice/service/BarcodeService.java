@@ -1,31 +1,33 @@
 package by.bsuir.productservice.service;
 
-import by.bsuir.productservice.client.WarehouseClient;
 import by.bsuir.productservice.client.dto.RackInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.Inventory;
 import by.bsuir.productservice.repository.InventoryRepository;
 import com.google.zxing.BarcodeFormat;
-import com.google.zxing.MultiFormatWriter;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.EAN13Writer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -34,8 +36,45 @@ import java.util.concurrent.atomic.AtomicInteger;
 @RequiredArgsConstructor
 public class BarcodeService {
 
+    private static final int LABEL_LOOKUP_CHUNK = 1000;
+    private static final float LABEL_PADDING = 6f;
+    private static final PDType1Font LABEL_FONT = PDType1Font.HELVETICA;
+
     private final InventoryRepository inventoryRepository;
-    private final WarehouseClient warehouseClient;
+    private final WarehouseTopologyCache topologyCache;
+    private final EAN13Writer ean13Writer = new EAN13Writer();
+
+    /** Этикетка листа: SKU запаса и построенный из него EAN-13. */
+    public record BarcodeLabel(UUID inventoryId, String unitSku, String ean13) {
+    }
+
+    /** Раскладка листа: сетка {@code columns}×{@code rows} этикеток на странице с полями {@code margin} (pt). */
+    public record LabelLayout(PDRectangle page, int columns, int rows, float margin) {
+
+        public static final int MAX_COLUMNS = 5;
+        public static final int MAX_ROWS = 12;
+        public static final LabelLayout DEFAULT = a4(3, 8);
+
+        public static LabelLayout a4(int columns, int rows) {
+            if (columns < 1 || columns > MAX_COLUMNS || rows < 1 || rows > MAX_ROWS) {
+                throw AppException.badRequest("Раскладка этикеток должна быть от 1×1 до "
+                        + MAX_COLUMNS + "×" + MAX_ROWS);
+            }
+            return new LabelLayout(PDRectangle.A4, columns, rows, 20f);
+        }
+
+        public int perPage() {
+            return columns * rows;
+        }
+
+        float labelWidth() {
+            return (page.getWidth() - 2 * margin) / columns;
+        }
+
+        float labelHeight() {
+            return (page.getHeight() - 2 * margin) / rows;
+        }
+    }
 
     @Transactional
     public String assignSkuToInventory(UUID inventoryId, String userRole) {
@@ -49,11 +88,11 @@ public class BarcodeService {
             throw AppException.badRequest("Не указаны organizationId или warehouseId");
         }
 
-        UUID rackId = resolveRackId(inventory.getCellId(), inventory.getWarehouseId(), userRole);
+        UUID rackId = resolveRackId(inventory.getCellId(), inventory.getWarehouseId());
         if (rackId == null) {
             throw AppException.notFound("Стеллаж для ячейки не найден");
         }
-        RackInfoDto rack = warehouseClient.getRack(rackId, userRole);
+        RackInfoDto rack = topologyCache.getRack(inventory.getWarehouseId(), rackId);
         if (rack == null) {
             throw AppException.notFound("Стеллаж не найден");
         }
@@ -80,61 +119,77 @@ public class BarcodeService {
         return sku;
     }
 
+    /** Лист этикеток для печати со штатной раскладкой 3×8 на A4. */
     public byte[] generateBarcodeSheetPdf(List<UUID> inventoryIds, UUID organizationId) {
+        List<BarcodeLabel> labels = loadBarcodeLabels(inventoryIds, organizationId);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeBarcodeSheetPdf(labels, LabelLayout.DEFAULT, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Этикетки в порядке запроса. Запасы читаются пачками по {@value #LABEL_LOOKUP_CHUNK} одним запросом
+     * на пачку и только нужными колонками; отсутствующие, чужие и запасы без SKU пропускаются.
+     */
+    public List<BarcodeLabel> loadBarcodeLabels(List<UUID> inventoryIds, UUID organizationId) {
         if (inventoryIds == null || inventoryIds.isEmpty()) {
             throw AppException.badRequest("Список inventoryIds пуст");
         }
 
-        try (PDDocument doc = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            PDPage page = new PDPage(PDRectangle.A4);
-            doc.addPage(page);
-            PDPageContentStream cs = new PDPageContentStream(doc, page);
-
-            float pageWidth = page.getMediaBox().getWidth();
-            float startX = 40f;
-            float startY = page.getMediaBox().getHeight() - 60f;
-            float labelHeight = 80f;
-            float yPos = startY;
-
-            for (UUID inventoryId : inventoryIds) {
-                Inventory inv = inventoryRepository.findById(inventoryId).orElse(null);
-                if (inv == null) continue;
-                if (organizationId != null && inv.getOrganizationId() != null
-                        && !organizationId.equals(inv.getOrganizationId())) continue;
-                if (inv.getUnitSku() == null) continue;
-
-                String ean13 = toEan13(inv.getUnitSku());
-                BufferedImage barcodeImg = renderEan13(ean13);
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(barcodeImg, "PNG", baos);
-                PDImageXObject pdImage = LosslessFactory.createFromImage(doc, ImageIO.read(new ByteArrayInputStream(baos.toByteArray())));
-
-                cs.drawImage(pdImage, startX, yPos - 60, 200, 60);
-
-                cs.beginText();
-                cs.setFont(PDType1Font.HELVETICA, 10);
-                cs.newLineAtOffset(startX + 220, yPos - 20);
-                cs.showText("SKU: " + inv.getUnitSku());
-                cs.newLineAtOffset(0, -14);
-                cs.showText("EAN-13: " + ean13);
-                cs.newLineAtOffset(0, -14);
-                cs.showText("Inventory: " + inv.getInventoryId());
-                cs.endText();
-
-                yPos -= labelHeight + 20;
-
-                if (yPos < 80) {
+        Map<UUID, InventoryRepository.BarcodeLabelSource> sources = new HashMap<>();
+        List<UUID> distinct = inventoryIds.stream().filter(Objects::nonNull).distinct().toList();
+        for (int from = 0; from < distinct.size(); from += LABEL_LOOKUP_CHUNK) {
+            List<UUID> chunk = distinct.subList(from, Math.min(from + LABEL_LOOKUP_CHUNK, distinct.size()));
+            for (InventoryRepository.BarcodeLabelSource source : inventoryRepository.findBarcodeLabelSources(chunk)) {
+                sources.put(source.getInventoryId(), source);
+            }
+        }
+
+        List<BarcodeLabel> labels = new ArrayList<>(inventoryIds.size());
+        for (UUID inventoryId : inventoryIds) {
+            InventoryRepository.BarcodeLabelSource source = sources.get(inventoryId);
+            if (source == null || source.getUnitSku() == null) continue;
+            if (organizationId != null && source.getOrganizationId() != null
+                    && !organizationId.equals(source.getOrganizationId())) continue;
+            labels.add(new BarcodeLabel(inventoryId, source.getUnitSku(), toEan13(source.getUnitSku())));
+        }
+        return labels;
+    }
+
+    /**
+     * Пишет PDF с этикетками в {@code out}. Штрихкод рисуется векторными прямоугольниками прямо из
+     * {@link BitMatrix}, без растровых картинок; содержимое страниц держится во временном файле PDFBox,
+     * поэтому расход памяти не зависит от числа этикеток.
+     */
+    public void writeBarcodeSheetPdf(List<BarcodeLabel> labels, LabelLayout layout, OutputStream out) {
+        try (PDDocument doc = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+            PDPageContentStream cs = null;
+            try {
+                int slot = 0;
+                for (BarcodeLabel label : labels) {
+                    if (cs != null && slot == 0) {
+                        cs.close();
+                        cs = null;
+                    }
+                    if (cs == null) {
+                        PDPage page = new PDPage(layout.page());
+                        doc.addPage(page);
+                        cs = new PDPageContentStream(doc, page);
+                    }
+                    drawLabel(cs, label, layout, slot);
+                    slot = (slot + 1) % layout.perPage();
+                }
+            } finally {
+                if (cs != null) {
                     cs.close();
-                    page = new PDPage(PDRectangle.A4);
-                    doc.addPage(page);
-                    cs = new PDPageContentStream(doc, page);
-                    yPos = page.getMediaBox().getHeight() - 60f;
                 }
             }
-
-            cs.close();
+            if (doc.getNumberOfPages() == 0) {
+                doc.addPage(new PDPage(layout.page()));
+            }
             doc.save(out);
-            return out.toByteArray();
+            log.debug("Barcode sheet written: {} labels, {} pages, layout {}x{}",
+                    labels.size(), doc.getNumberOfPages(), layout.columns(), layout.rows());
         } catch (AppException e) {
             throw e;
         } catch (Exception e) {
@@ -143,8 +198,55 @@ public class BarcodeService {
         }
     }
 
+    private void drawLabel(PDPageContentStream cs, BarcodeLabel label, LabelLayout layout, int slot)
+            throws IOException, WriterException {
+        float width = layout.labelWidth();
+        float height = layout.labelHeight();
+        float x = layout.margin() + (slot % layout.columns()) * width + LABEL_PADDING;
+        float top = layout.page().getHeight() - layout.margin() - (slot / layout.columns()) * height - LABEL_PADDING;
+        float innerWidth = width - 2 * LABEL_PADDING;
+        float innerHeight = height - 2 * LABEL_PADDING;
+
+        float fontSize = Math.max(5f, Math.min(9f, height * 0.09f));
+        float lineHeight = fontSize + 2f;
+        float barsHeight = innerHeight - 2 * lineHeight;
+        float barsBottom = top - barsHeight;
+
+        BitMatrix matrix = ean13Writer.encode(label.ean13(), BarcodeFormat.EAN_13, 0, 1);
+        float module = innerWidth / matrix.getWidth();
+        for (int col = 0; col < matrix.getWidth(); ) {
+            if (!matrix.get(col, 0)) {
+                col++;
+                continue;
+            }
+            int run = col;
+            while (run < matrix.getWidth() && matrix.get(run, 0)) run++;
+            cs.addRect(x + col * module, barsBottom, (run - col) * module, barsHeight);
+            col = run;
+        }
+        cs.fill();
+
+        cs.beginText();
+        cs.setFont(LABEL_FONT, fontSize);
+        cs.newLineAtOffset(x + (innerWidth - textWidth(label.ean13(), fontSize)) / 2, barsBottom - lineHeight + 2f);
+        cs.showText(label.ean13());
+        cs.endText();
+
+        String sku = "SKU: " + label.unitSku();
+        float skuSize = Math.min(fontSize, fontSize * innerWidth / Math.max(textWidth(sku, fontSize), 1f));
+        cs.beginText();
+        cs.setFont(LABEL_FONT, skuSize);
+        cs.newLineAtOffset(x, barsBottom - 2 * lineHeight + 2f);
+        cs.showText(sku);
+        cs.endText();
+    }
+
+    private static float textWidth(String text, float fontSize) throws IOException {
+        return LABEL_FONT.getStringWidth(text) / 1000f * fontSize;
+    }
+
     public String formatSku(UUID organizationId, UUID warehouseId, UUID rackId, String rackKind, int cellNumber) {
-        int rackCount = warehouseClient.getRacksByWarehouse(warehouseId, "WORKER").size();
+        int rackCount = topologyCache.get(warehouseId).racksOrEmpty().size();
         String aaaa = hashMod4(organizationId);
         String bbbb = hashMod4(warehouseId);
         String cccc = String.format("%04d", Math.abs(stableHash(rackId)) % Math.max(rackCount, 1));
@@ -176,14 +278,9 @@ public class BarcodeService {
         };
     }
 
-    private UUID resolveRackId(UUID cellId, UUID warehouseId, String userRole) {
-        for (RackInfoDto rack : warehouseClient.getRacksByWarehouse(warehouseId, userRole)) {
-            if (warehouseClient.getCellsByRack(rack.rackId(), userRole)
-                    .stream().anyMatch(c -> cellId.equals(c.cellId()))) {
-                return rack.rackId();
-            }
-        }
-        return null;
+    private UUID resolveRackId(UUID cellId, UUID warehouseId) {
+        WarehouseTopologyDto.RackNode rack = topologyCache.findRackOfSlot(warehouseId, cellId);
+        return rack != null ? rack.rackId() : null;
     }
 
     private String toEan13(String sku) {
@@ -200,9 +297,4 @@ public class BarcodeService {
         int check = (10 - (sum % 10)) % 10;
         return body + check;
     }
-
-    private BufferedImage renderEan13(String ean13) throws Exception {
-        BitMatrix matrix = new MultiFormatWriter().encode(ean13, BarcodeFormat.EAN_13, 300, 100);
-        return MatrixToImageWriter.toBufferedImage(matrix);
-    }
 }
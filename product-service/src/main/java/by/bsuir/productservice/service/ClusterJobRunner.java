@@ -0,0 +1,253 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.exception.AppException;
+import by.bsuir.productservice.model.entity.ScheduledJob;
+import by.bsuir.productservice.model.entity.ScheduledJobRun;
+import by.bsuir.productservice.model.enums.JobRunStatus;
+import by.bsuir.productservice.model.enums.JobTrigger;
+import by.bsuir.productservice.repository.ScheduledJobRepository;
+import by.bsuir.productservice.repository.ScheduledJobRunRepository;
+import by.bsuir.productservice.util.InstanceIds;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запускает фоновые задачи так, чтобы при нескольких репликах каждую выполнял один экземпляр.
+ * <p>
+ * Перед запуском экземпляр берёт аренду строки {@code scheduled_job}; плановый запуск пропускается,
+ * если аренда занята или задача уже стартовала в пределах {@code jobs.min-interval-seconds}
+ * (так реплики, сработавшие по одному cron, не повторяют работу друг за другом). Каждый запуск
+ * пишется в {@code scheduled_job_run} с длительностью и числом затронутых строк. Длинные задачи
+ * сохраняют контрольные точки через {@link JobContext#checkpoint(String)}: это продлевает аренду,
+ * а после сбоя следующий запуск продолжит с последней точки.
+ * <p>
+ * Учёт аренды и истории ведётся в отдельных транзакциях, поэтому откат тела задачи его не затирает.
+ */
+@Slf4j
+@Service
+public class ClusterJobRunner {
+
+    private static final String METRIC = "cluster.job";
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    /** Тело задачи. Возвращает число затронутых строк для истории запусков. */
+    @FunctionalInterface
+    public interface JobBody {
+        long run(JobContext context);
+    }
+
+    private record Registration(JobBody body, boolean transactional) {}
+
+    private final ScheduledJobRepository jobRepository;
+    private final ScheduledJobRunRepository runRepository;
+    private final TransactionTemplate bookkeeping;
+    private final TransactionTemplate bodyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final String instanceId;
+    private final Duration lease;
+    private final Duration minInterval;
+
+    private final Map<String, Registration> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ClusterJobRunner(ScheduledJobRepository jobRepository,
+                            ScheduledJobRunRepository runRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${jobs.instance-id:}") String instanceId,
+                            @Value("${jobs.lease-minutes:30}") long leaseMinutes,
+                            @Value("${jobs.min-interval-seconds:50}") long minIntervalSeconds) {
+        this.jobRepository = jobRepository;
+        this.runRepository = runRepository;
+        this.bookkeeping = new TransactionTemplate(transactionManager);
+        this.bookkeeping.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.bodyTransaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.instanceId = InstanceIds.resolve(instanceId);
+        this.lease = Duration.ofMinutes(Math.max(leaseMinutes, 1));
+        this.minInterval = Duration.ofSeconds(Math.max(minIntervalSeconds, 0));
+    }
+
+    /** Регистрирует задачу, тело которой выполняется одной транзакцией. */
+    public void register(String jobName, JobBody body) {
+        jobs.put(jobName, new Registration(body, true));
+    }
+
+    /** Регистрирует задачу, которая сама делит работу на транзакции и сохраняет контрольные точки. */
+    public void registerChunked(String jobName, JobBody body) {
+        jobs.put(jobName, new Registration(body, false));
+    }
+
+    public List<String> jobNames() {
+        return jobs.keySet().stream().sorted().toList();
+    }
+
+    public boolean isRegistered(String jobName) {
+        return jobs.containsKey(jobName);
+    }
+
+    /**
+     * Запускает зарегистрированную задачу. Пустой результат — задачу выполняет или только что
+     * выполнил другой экземпляр; ошибки тела не пробрасываются, а записываются в историю как FAILED.
+     */
+    public Optional<ScheduledJobRun> run(String jobName, JobTrigger trigger) {
+        Registration registration = jobs.get(jobName);
+        if (registration == null) {
+            throw AppException.notFound("Фоновая задача " + jobName + " не зарегистрирована");
+        }
+        return execute(jobName, trigger, registration);
+    }
+
+    /** Запуск с явным телом в одной транзакции — для ручных вызовов, которым нужен результат тела. */
+    public Optional<ScheduledJobRun> run(String jobName, JobTrigger trigger, JobBody body) {
+        return execute(jobName, trigger, new Registration(body, true));
+    }
+
+    public boolean hasCheckpoint(String jobName) {
+        return jobRepository.findById(jobName).map(job -> job.getCheckpoint() != null).orElse(false);
+    }
+
+    public List<ScheduledJob> states() {
+        List<ScheduledJob> states = new ArrayList<>();
+        for (String name : jobNames()) {
+            states.add(jobRepository.findById(name)
+                    .orElseGet(() -> ScheduledJob.builder().jobName(name).build()));
+        }
+        return states;
+    }
+
+    public List<ScheduledJobRun> history(String jobName) {
+        return runRepository.findTop20ByJobNameOrderByStartedAtDesc(jobName);
+    }
+
+    private Optional<ScheduledJobRun> execute(String jobName, JobTrigger trigger, Registration registration) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime notBefore = trigger == JobTrigger.MANUAL ? now : now.minus(minInterval);
+
+        ScheduledJobRun run = bookkeeping.execute(status -> {
+            jobRepository.ensureExists(jobName);
+            if (jobRepository.tryAcquire(jobName, instanceId, now, now.plus(lease), notBefore) == 0) {
+                return null;
+            }
+            String checkpoint = jobRepository.findById(jobName).map(ScheduledJob::getCheckpoint).orElse(null);
+            return runRepository.save(ScheduledJobRun.builder()
+                    .jobName(jobName)
+                    .instanceId(instanceId)
+                    .trigger(trigger)
+                    .status(JobRunStatus.RUNNING)
+                    .startedAt(now)
+                    .resumedFrom(checkpoint)
+                    .build());
+        });
+        if (run == null) {
+            log.debug("Задача {} пропущена: её выполняет или недавно выполнил другой экземпляр", jobName);
+            Counter.builder(METRIC + ".skipped").tag("job", jobName).register(meterRegistry).increment();
+            return Optional.empty();
+        }
+
+        JobContext context = new JobContext(jobName, trigger, run.getResumedFrom());
+        if (context.resumed()) {
+            log.info("Задача {} продолжает работу с контрольной точки {}", jobName, run.getResumedFrom());
+        }
+        long started = System.nanoTime();
+        try {
+            Long rows = registration.transactional()
+                    ? bodyTransaction.execute(status -> registration.body().run(context))
+                    : Long.valueOf(registration.body().run(context));
+            finish(run, JobRunStatus.SUCCEEDED, rows, null, null, started);
+        } catch (RuntimeException e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.error("Задача {} завершилась ошибкой: {}", jobName, error, e);
+            finish(run, JobRunStatus.FAILED, null, error, context.checkpoint(), started);
+        }
+        return Optional.of(run);
+    }
+
+    private void finish(ScheduledJobRun run, JobRunStatus status, Long rows, String error,
+                        String checkpoint, long startedNanos) {
+        long elapsedNanos = System.nanoTime() - startedNanos;
+        LocalDateTime now = LocalDateTime.now();
+        run.setStatus(status);
+        run.setFinishedAt(now);
+        run.setDurationMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        run.setRowsAffected(rows);
+        run.setError(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        bookkeeping.executeWithoutResult(tx -> {
+            runRepository.save(run);
+            if (jobRepository.release(run.getJobName(), instanceId, checkpoint, status, now) == 0) {
+                log.warn("Задача {}: аренду к концу запуска перехватил другой экземпляр", run.getJobName());
+            }
+        });
+        Timer.builder(METRIC + ".duration")
+                .tag("job", run.getJobName())
+                .tag("status", status.name())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        log.info("Задача {} ({}): {} за {} мс, строк: {}",
+                run.getJobName(), run.getTrigger(), status, run.getDurationMs(), rows);
+    }
+
+    /** Контекст одного запуска: триггер и контрольная точка, с которой продолжать. */
+    public final class JobContext {
+
+        private final String jobName;
+        private final JobTrigger trigger;
+        private final String resumedFrom;
+        private String checkpoint;
+
+        JobContext(String jobName, JobTrigger trigger, String resumedFrom) {
+            this.jobName = jobName;
+            this.trigger = trigger;
+            this.resumedFrom = resumedFrom;
+            this.checkpoint = resumedFrom;
+        }
+
+        public String jobName() {
+            return jobName;
+        }
+
+        public JobTrigger trigger() {
+            return trigger;
+        }
+
+        public boolean resumed() {
+            return resumedFrom != null;
+        }
+
+        /** Последняя сохранённая точка; в начале запуска — точка, на которой остановился прошлый. */
+        public String checkpoint() {
+            return checkpoint;
+        }
+
+        /**
+         * Фиксирует прогресс и продлевает аренду. Если аренду уже перехватил другой экземпляр,
+         * бросает конфликт — продолжать работу нельзя.
+         */
+        public void checkpoint(String value) {
+            LocalDateTime now = LocalDateTime.now();
+            Integer updated = bookkeeping.execute(status ->
+                    jobRepository.saveCheckpoint(jobName, instanceId, value, now.plus(lease), now));
+            if (updated == null || updated == 0) {
+                throw AppException.conflict("Аренду задачи " + jobName + " перехватил другой экземпляр сервиса");
+            }
+            this.checkpoint = value;
+        }
+    }
+}
@@ -3,18 +3,30 @@ package by.bsuir.productservice.service;
 import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.DocumentCounter;
 import by.bsuir.productservice.repository.DocumentCounterRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.time.Year;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * Нумерация документов по (организация, тип, год).
+ * <p>
+ * Для большинства типов номера резервируются блоками (hi/lo): одна блокировка строки
+ * {@code document_counters} сдвигает счётчик на {@code block-size}, дальше номера выдаются из памяти.
+ * Невыданный остаток блока при рестарте теряется — возможны пропуски. Типы из {@code gap-free-types}
+ * (бланки строгой отчётности) нумеруются строго подряд: по одной блокировке на номер.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DocumentNumberService {
 
     private static final Map<String, String> PREFIX_BY_TYPE = Map.ofEntries(
@@ -31,9 +43,30 @@ public class DocumentNumberService {
             Map.entry("placement-list", "ЛР"),
             Map.entry("analytics-report", "ОТЧ"));
 
+    private static final String METRIC = "document.number";
+
     private final DocumentCounterRepository repository;
+    private final TransactionTemplate requiresNew;
+    private final MeterRegistry meterRegistry;
+    private final int blockSize;
+    private final Set<String> gapFreeTypes;
+
+    private final Map<BlockKey, Block> blocks = new ConcurrentHashMap<>();
+
+    public DocumentNumberService(
+            DocumentCounterRepository repository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${documents.numbering.block-size:20}") int blockSize,
+            @Value("${documents.numbering.gap-free-types:waybill,transport-note}") Set<String> gapFreeTypes) {
+        this.repository = repository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.meterRegistry = meterRegistry;
+        this.blockSize = Math.max(blockSize, 1);
+        this.gapFreeTypes = Set.copyOf(gapFreeTypes);
+    }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public String next(UUID organizationId, String documentType) {
         if (organizationId == null) {
             throw AppException.badRequest("organizationId обязателен для генерации номера документа");
@@ -44,19 +77,63 @@ public class DocumentNumberService {
         }
 
         int year = Year.now().getValue();
-        DocumentCounter counter = repository
-                .findForUpdate(organizationId, documentType, year)
-                .orElseGet(() -> repository.saveAndFlush(DocumentCounter.builder()
-                        .organizationId(organizationId)
-                        .documentType(documentType)
-                        .year(year)
-                        .counter(0L)
-                        .build()));
-
-        long next = counter.getCounter() + 1L;
-        counter.setCounter(next);
-        repository.save(counter);
-
+        long next;
+        if (blockSize == 1 || gapFreeTypes.contains(documentType)) {
+            next = reserve(organizationId, documentType, year, 1);
+            refills(documentType, "gap-free").increment();
+        } else {
+            Block block = blocks.computeIfAbsent(
+                    new BlockKey(organizationId, documentType, year), k -> new Block());
+            synchronized (block) {
+                if (block.next > block.last) {
+                    blocks.keySet().removeIf(k -> k.year() < year);
+                    long last = reserve(organizationId, documentType, year, blockSize);
+                    block.next = last - blockSize + 1;
+                    block.last = last;
+                    refills(documentType, "block").increment();
+                    log.debug("Номера {} для org={} зарезервированы блоком {}..{}",
+                            documentType, organizationId, block.next, last);
+                }
+                next = block.next++;
+            }
+        }
         return String.format("%s-%d-%05d", prefix, year, next);
     }
+
+    /** Сдвигает счётчик на {@code count} под блокировкой строки и возвращает новое значение. */
+    private long reserve(UUID organizationId, String documentType, int year, int count) {
+        Long reserved = requiresNew.execute(status -> {
+            DocumentCounter counter = repository
+                    .findForUpdate(organizationId, documentType, year)
+                    .orElseGet(() -> repository.saveAndFlush(DocumentCounter.builder()
+                            .organizationId(organizationId)
+                            .documentType(documentType)
+                            .year(year)
+                            .counter(0L)
+                            .build()));
+            long last = counter.getCounter() + count;
+            counter.setCounter(last);
+            repository.save(counter);
+            return last;
+        });
+        if (reserved == null) {
+            throw AppException.internalError("Не удалось зарезервировать номер документа " + documentType);
+        }
+        return reserved;
+    }
+
+    private Counter refills(String documentType, String mode) {
+        return Counter.builder(METRIC + ".reservations")
+                .tag("type", documentType)
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private record BlockKey(UUID organizationId, String documentType, int year) {
+    }
+
+    private static final class Block {
+        private long next = 1;
+        private long last = 0;
+    }
 }
@@ -15,20 +15,31 @@ import io.minio.http.Method;
 import java.io.ByteArrayInputStream;
 import java.time.LocalDateTime;
 import java.time.Year;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DocumentRegistryService {
 
     private final DocumentClient documentClient;
@@ -36,12 +47,44 @@ public class DocumentRegistryService {
     private final GeneratedDocumentRepository repository;
     private final MinioClient minioClient;
     private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final TaskExecutor registrationExecutor;
+    private final String bucket;
+    private final int presignedUrlTtlMinutes;
+    private final long registrationTimeoutSeconds;
 
-    @Value("${minio.bucket}")
-    private String bucket;
+    @Autowired
+    public DocumentRegistryService(DocumentClient documentClient,
+                                   DocumentNumberService documentNumberService,
+                                   GeneratedDocumentRepository repository,
+                                   MinioClient minioClient,
+                                   ObjectMapper objectMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   @Qualifier("documentRegistrationExecutor") TaskExecutor registrationExecutor,
+                                   @Value("${minio.bucket}") String bucket,
+                                   @Value("${minio.presigned-url-ttl-minutes:15}") int presignedUrlTtlMinutes,
+                                   @Value("${documents.registration.timeout-seconds:60}") long registrationTimeoutSeconds) {
+        this.documentClient = documentClient;
+        this.documentNumberService = documentNumberService;
+        this.repository = repository;
+        this.minioClient = minioClient;
+        this.objectMapper = objectMapper;
+        this.transactionManager = transactionManager;
+        this.registrationExecutor = registrationExecutor;
+        this.bucket = bucket;
+        this.presignedUrlTtlMinutes = presignedUrlTtlMinutes;
+        this.registrationTimeoutSeconds = registrationTimeoutSeconds;
+    }
+
+    public record DocumentSpec(String documentType, Map<String, Object> payload) {
+    }
 
-    @Value("${minio.presigned-url-ttl-minutes:15}")
-    private int presignedUrlTtlMinutes;
+    /** Итог регистрации одного документа пакета: либо документ, либо текст ошибки. */
+    public record RegistrationResult(String documentType, GeneratedDocument document, String error) {
+        public boolean succeeded() {
+            return document != null;
+        }
+    }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public GeneratedDocument register(
@@ -74,6 +117,111 @@ public class DocumentRegistryService {
         String documentNumber = documentNumberService.next(organizationId, documentType);
         enrichedPayload.putIfAbsent("documentNumber", documentNumber);
 
+        return repository.save(render(operationId, documentType, documentNumber, enrichedPayload,
+                organizationId, userId, mode));
+    }
+
+    /**
+     * Регистрирует несколько документов одной операции. Номера выделяются заранее, затем генерация
+     * в document-service и загрузка в MinIO идут параллельно, записи сохраняются одним saveAll
+     * в отдельной транзакции. Ошибка одного документа не мешает остальным — она возвращается
+     * в его {@link RegistrationResult}. Порядок результатов совпадает с порядком {@code specs}.
+     * Генерация, не уложившаяся в таймаут, прерывается и до MinIO и БД не доходит.
+     */
+    public List<RegistrationResult> registerAll(
+            UUID operationId,
+            List<DocumentSpec> specs,
+            UUID organizationId,
+            UUID userId) {
+        return registerAll(operationId, specs, organizationId, userId, saved -> { });
+    }
+
+    /**
+     * То же, но {@code onSaved} выполняется в транзакции сохранения документов: вызывающий может
+     * атомарно с ними записать, что документы созданы, или откатить сохранение исключением.
+     */
+    public List<RegistrationResult> registerAll(
+            UUID operationId,
+            List<DocumentSpec> specs,
+            UUID organizationId,
+            UUID userId,
+            Consumer<List<GeneratedDocument>> onSaved) {
+
+        if (organizationId == null) {
+            throw AppException.badRequest("organizationId обязателен для регистрации документа");
+        }
+        if (userId == null) {
+            throw AppException.badRequest("userId обязателен для регистрации документа");
+        }
+        String mode = GenerationModeContext.current();
+        long started = System.nanoTime();
+
+        List<FutureTask<GeneratedDocument>> tasks = new ArrayList<>(specs.size());
+        for (DocumentSpec spec : specs) {
+            Map<String, Object> enrichedPayload = new HashMap<>(spec.payload() != null ? spec.payload() : Map.of());
+            FutureTask<GeneratedDocument> task;
+            try {
+                String documentNumber = documentNumberService.next(organizationId, spec.documentType());
+                enrichedPayload.putIfAbsent("documentNumber", documentNumber);
+                task = new FutureTask<>(() -> render(operationId, spec.documentType(),
+                        documentNumber, enrichedPayload, organizationId, userId, mode));
+                registrationExecutor.execute(task);
+            } catch (Exception e) {
+                task = new FutureTask<>(() -> {
+                    throw e;
+                });
+                task.run();
+            }
+            tasks.add(task);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(registrationTimeoutSeconds);
+        List<RegistrationResult> results = new ArrayList<>(specs.size());
+        List<GeneratedDocument> rendered = new ArrayList<>();
+        for (int i = 0; i < specs.size(); i++) {
+            String type = specs.get(i).documentType();
+            FutureTask<GeneratedDocument> task = tasks.get(i);
+            try {
+                GeneratedDocument document = task.get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+                rendered.add(document);
+                results.add(new RegistrationResult(type, document, null));
+            } catch (TimeoutException e) {
+                task.cancel(true);
+                log.warn("Пакетная регистрация: документ типа {} не готов за {} с, генерация прервана",
+                        type, registrationTimeoutSeconds);
+                results.add(new RegistrationResult(type, null, "Превышено время генерации документа"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(true);
+                results.add(new RegistrationResult(type, null, "Регистрация прервана"));
+            } catch (ExecutionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Не удалось зарегистрировать документ типа {} (org={}): {}",
+                        type, organizationId, cause.getMessage());
+                results.add(new RegistrationResult(type, null,
+                        cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName()));
+            }
+        }
+
+        if (!rendered.isEmpty()) {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            tx.executeWithoutResult(status -> onSaved.accept(repository.saveAll(rendered)));
+        }
+        log.info("Пакетная регистрация {} документов (успешно {}) за {} мс",
+                specs.size(), rendered.size(), (System.nanoTime() - started) / 1_000_000);
+        return results;
+    }
+
+    private GeneratedDocument render(
+            UUID operationId,
+            String documentType,
+            String documentNumber,
+            Map<String, Object> enrichedPayload,
+            UUID organizationId,
+            UUID userId,
+            String mode) {
+
         DocumentClient.Fetched fetched = documentClient.fetch(documentType, enrichedPayload, organizationId, mode);
         if (fetched.body() == null || fetched.body().length == 0) {
             throw AppException.internalError(
@@ -81,6 +229,9 @@ public class DocumentRegistryService {
         }
         String channel = fetched.channel();
         String fileFormat = detectFileFormat(fetched);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Генерация документа " + documentNumber + " отменена по таймауту");
+        }
 
         String objectKey = buildObjectKey(organizationId, documentType, documentNumber, fileFormat);
         uploadToMinio(objectKey, fetched.body(), fileFormat);
@@ -100,7 +251,7 @@ public class DocumentRegistryService {
 
         log.info("Document {} registered via channel={}, fileFormat={}, key={}",
                 documentNumber, channel, fileFormat, objectKey);
-        return repository.save(document);
+        return document;
     }
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -0,0 +1,361 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.client.dto.CellInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
+import by.bsuir.productservice.model.entity.Inventory;
+import by.bsuir.productservice.model.entity.ProductBatch;
+import by.bsuir.productservice.model.enums.StorageConditions;
+import by.bsuir.productservice.repository.InventoryRepository;
+import by.bsuir.productservice.repository.ProductBatchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Индекс свободных мест склада для авто-размещения.
+ * Свободные слоты сгруппированы по (условия хранения стеллажа, паллетный/нет, тип паллета)
+ * и внутри группы — по классу габарита (наименьшая сторона слота, шаг 10 см), порядок — как в топологии.
+ * Занятость и вес по стеллажам поддерживаются инкрементально через {@link #onStockChanged(Inventory)};
+ * откат транзакции сбрасывает индекс склада, он перестраивается при следующем обращении.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FreeSlotIndex {
+
+    private static final BigDecimal DIMENSION_CLASS_CM = BigDecimal.TEN;
+    private static final int UNKNOWN_DIMENSION_CLASS = Integer.MAX_VALUE;
+
+    private final WarehouseTopologyCache topologyCache;
+    private final InventoryRepository inventoryRepository;
+    private final ProductBatchRepository batchRepository;
+
+    @Value("${placement.slot-index.max-age-minutes:10}")
+    private long maxAgeMinutes = 10;
+
+    private final Map<UUID, WarehouseSlots> warehouses = new ConcurrentHashMap<>();
+
+    public record FreeSlot(WarehouseTopologyDto.RackNode rack, CellInfoDto slot, int slotIndex) {
+    }
+
+    /**
+     * Первый (в порядке топологии) свободный слот, удовлетворяющий условиям, с учётом остатка
+     * грузоподъёмности стеллажа. {@code fits} проверяет габариты по актуальному остатку высоты.
+     */
+    public FreeSlot findFirstFit(UUID warehouseId, StorageConditions required, boolean pallet, String palletType,
+                                 BigDecimal minPackageSideCm, BigDecimal incomingWeightKg,
+                                 Predicate<CellInfoDto> fits) {
+        WarehouseSlots ws = slotsFor(warehouseId);
+        synchronized (ws) {
+            int fromClass = minPackageSideCm != null ? dimensionClass(minPackageSideCm) : Integer.MIN_VALUE;
+            SlotEntry best = null;
+            CellInfoDto bestSlot = null;
+            for (SlotKey key : ws.matchingKeys(required, pallet, palletType)) {
+                for (NavigableSet<SlotEntry> bucket : ws.free.get(key).tailMap(fromClass, true).values()) {
+                    for (SlotEntry e : bucket) {
+                        if (best != null && e.ordinal() >= best.ordinal()) break;
+                        if (!ws.rackHasCapacity(e.rack(), incomingWeightKg)) continue;
+                        CellInfoDto live = ws.live(e);
+                        if (!fits.test(live)) continue;
+                        best = e;
+                        bestSlot = live;
+                        break;
+                    }
+                }
+            }
+            return best == null ? null : new FreeSlot(best.rack(), bestSlot, best.slotIndex());
+        }
+    }
+
+    /** Все свободные слоты подходящих стеллажей в порядке топологии. */
+    public List<FreeSlot> freeSlots(UUID warehouseId, StorageConditions required, boolean pallet) {
+        WarehouseSlots ws = slotsFor(warehouseId);
+        synchronized (ws) {
+            List<SlotEntry> entries = new ArrayList<>();
+            for (SlotKey key : ws.matchingKeys(required, pallet, null)) {
+                ws.free.get(key).values().forEach(entries::addAll);
+            }
+            entries.sort(Comparator.comparingInt(SlotEntry::ordinal));
+            return entries.stream()
+                    .map(e -> new FreeSlot(e.rack(), ws.live(e), e.slotIndex()))
+                    .toList();
+        }
+    }
+
+    public BigDecimal rackUsedKg(UUID warehouseId, UUID rackId) {
+        WarehouseSlots ws = slotsFor(warehouseId);
+        synchronized (ws) {
+            return ws.rackWeightKg.getOrDefault(rackId, BigDecimal.ZERO);
+        }
+    }
+
+    public void onStockChanged(Inventory inventory) {
+        if (inventory == null || inventory.getWarehouseId() == null || inventory.getInventoryId() == null) return;
+        WarehouseSlots ws = warehouses.get(inventory.getWarehouseId());
+        if (ws == null) return;
+
+        BigDecimal weight = BigDecimal.ZERO;
+        if (inventory.getBatchId() != null && inventory.getQuantity() != null) {
+            ProductBatch batch = batchRepository.findById(inventory.getBatchId()).orElse(null);
+            if (batch != null) {
+                weight = weightOf(inventory.getQuantity(), batch.getUnitsPerPackage(), batch.getPackageWeightKg());
+            }
+        }
+        boolean stocked = inventory.getCellId() != null
+                && inventory.getQuantity() != null && inventory.getQuantity().signum() > 0;
+        synchronized (ws) {
+            ws.removeStock(inventory.getInventoryId());
+            if (stocked) {
+                ws.addStock(inventory.getInventoryId(), inventory.getCellId(), weight);
+            }
+        }
+        resetOnRollback(inventory.getWarehouseId());
+    }
+
+    public void onSlotHeightChanged(UUID warehouseId, UUID slotId, BigDecimal remainingHeightCm) {
+        WarehouseSlots ws = warehouses.get(warehouseId);
+        if (ws == null || slotId == null) return;
+        synchronized (ws) {
+            if (ws.slots.containsKey(slotId)) {
+                ws.remainingHeight.put(slotId, remainingHeightCm);
+            }
+        }
+    }
+
+    public void evict(UUID warehouseId) {
+        warehouses.remove(warehouseId);
+    }
+
+    /** Для массовых изменений остатков, минующих {@link #onStockChanged(Inventory)}. */
+    public void evictAll() {
+        warehouses.clear();
+    }
+
+    private WarehouseSlots slotsFor(UUID warehouseId) {
+        WarehouseTopologyDto topology = topologyCache.get(warehouseId);
+        WarehouseSlots ws = warehouses.get(warehouseId);
+        if (ws != null && ws.matches(topology, maxAgeMinutes)) {
+            return ws;
+        }
+        WarehouseSlots rebuilt = build(warehouseId, topology);
+        if (topology.topologyVersion() != null) {
+            warehouses.put(warehouseId, rebuilt);
+        }
+        return rebuilt;
+    }
+
+    private WarehouseSlots build(UUID warehouseId, WarehouseTopologyDto topology) {
+        long started = System.nanoTime();
+        WarehouseSlots ws = new WarehouseSlots(topology.topologyVersion(), Instant.now());
+        int ordinal = 0;
+        for (WarehouseTopologyDto.RackNode rack : topology.racksOrEmpty()) {
+            StorageConditions conditions = parseConditions(rack.storageConditions());
+            boolean indexed = Boolean.TRUE.equals(rack.isActive()) && conditions != null;
+            int slotIndex = 0;
+            for (CellInfoDto slot : rack.slotsOrEmpty()) {
+                SlotEntry e = new SlotEntry(
+                        new SlotKey(conditions, "PALLET".equals(rack.kind()), normalize(slot.palletType())),
+                        staticDimensionClass(slot), ordinal++, slotIndex++, rack, slot, indexed);
+                ws.slots.put(slot.cellId(), e);
+                ws.remainingHeight.put(slot.cellId(), slot.remainingHeightCm());
+                ws.markFree(e);
+            }
+        }
+        if (warehouseId != null) {
+            for (InventoryRepository.SlotStockProjection row : inventoryRepository.findSlotStockByWarehouseId(warehouseId)) {
+                ws.addStock(row.getInventoryId(), row.getCellId(),
+                        weightOf(row.getQuantity(), row.getUnitsPerPackage(), row.getPackageWeightKg()));
+            }
+        }
+        log.debug("Free-slot index for warehouse {} built: {} slots, {} stocked, {} ms",
+                warehouseId, ws.slots.size(), ws.stockBySlot.size(), (System.nanoTime() - started) / 1_000_000);
+        return ws;
+    }
+
+    private void resetOnRollback(UUID warehouseId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    warehouses.remove(warehouseId);
+                }
+            }
+        });
+    }
+
+    static BigDecimal weightOf(BigDecimal quantity, Integer unitsPerPackage, BigDecimal packageWeightKg) {
+        if (quantity == null || packageWeightKg == null) return BigDecimal.ZERO;
+        int upp = (unitsPerPackage != null && unitsPerPackage > 0) ? unitsPerPackage : 1;
+        BigDecimal numPackages = quantity.divide(BigDecimal.valueOf(upp), 0, RoundingMode.CEILING);
+        return packageWeightKg.multiply(numPackages);
+    }
+
+    private static int dimensionClass(BigDecimal sideCm) {
+        return sideCm.divide(DIMENSION_CLASS_CM, 0, RoundingMode.FLOOR).intValue();
+    }
+
+    /**
+     * Класс по наименьшей стороне слота при максимально возможной высоте (остаток высоты
+     * не превышает её), поэтому для любого подходящего груза класс слота не меньше класса груза.
+     */
+    private static int staticDimensionClass(CellInfoDto slot) {
+        BigDecimal height = slot.heightCm();
+        if (slot.maxHeightCm() != null && (height == null || slot.maxHeightCm().compareTo(height) > 0)) {
+            height = slot.maxHeightCm();
+        }
+        if (slot.lengthCm() == null || slot.widthCm() == null || height == null) {
+            return UNKNOWN_DIMENSION_CLASS;
+        }
+        return dimensionClass(slot.lengthCm().min(slot.widthCm()).min(height));
+    }
+
+    private static StorageConditions parseConditions(String value) {
+        if (value == null) return StorageConditions.ROOM;
+        try {
+            return StorageConditions.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int coldnessLevel(StorageConditions c) {
+        return switch (c) {
+            case ROOM -> 0;
+            case COOL -> 1;
+            case FRIDGE -> 2;
+            case FREEZER -> 3;
+        };
+    }
+
+    private static String normalize(String palletType) {
+        return palletType != null ? palletType.toUpperCase() : null;
+    }
+
+    private record SlotKey(StorageConditions conditions, boolean pallet, String palletType) {
+    }
+
+    private record SlotEntry(SlotKey key, int dimensionClass, int ordinal, int slotIndex,
+                             WarehouseTopologyDto.RackNode rack, CellInfoDto slot, boolean indexed) {
+    }
+
+    private record StockRow(UUID slotId, BigDecimal weightKg) {
+    }
+
+    private static final class WarehouseSlots {
+        final Long topologyVersion;
+        final Instant builtAt;
+        final Map<UUID, SlotEntry> slots = new HashMap<>();
+        final Map<SlotKey, NavigableMap<Integer, NavigableSet<SlotEntry>>> free = new HashMap<>();
+        final Map<UUID, BigDecimal> remainingHeight = new HashMap<>();
+        final Map<UUID, Set<UUID>> stockBySlot = new HashMap<>();
+        final Map<UUID, StockRow> stockByInventory = new HashMap<>();
+        final Map<UUID, BigDecimal> rackWeightKg = new HashMap<>();
+
+        WarehouseSlots(Long topologyVersion, Instant builtAt) {
+            this.topologyVersion = topologyVersion;
+            this.builtAt = builtAt;
+        }
+
+        boolean matches(WarehouseTopologyDto topology, long maxAgeMinutes) {
+            return topologyVersion != null
+                    && topologyVersion.equals(topology.topologyVersion())
+                    && Duration.between(builtAt, Instant.now()).toMinutes() < maxAgeMinutes;
+        }
+
+        List<SlotKey> matchingKeys(StorageConditions required, boolean pallet, String palletType) {
+            int need = coldnessLevel(required != null ? required : StorageConditions.ROOM);
+            String type = normalize(palletType);
+            List<SlotKey> keys = new ArrayList<>();
+            for (SlotKey key : free.keySet()) {
+                if (key.pallet() != pallet || coldnessLevel(key.conditions()) < need) continue;
+                if (type != null && key.palletType() != null && !type.equals(key.palletType())) continue;
+                keys.add(key);
+            }
+            return keys;
+        }
+
+        CellInfoDto live(SlotEntry e) {
+            BigDecimal remaining = remainingHeight.get(e.slot().cellId());
+            return remaining == null || remaining.equals(e.slot().remainingHeightCm())
+                    ? e.slot() : e.slot().withRemainingHeightCm(remaining);
+        }
+
+        boolean rackHasCapacity(WarehouseTopologyDto.RackNode rack, BigDecimal incomingWeightKg) {
+            if (rack.maxWeightKg() == null) return true;
+            BigDecimal used = rackWeightKg.getOrDefault(rack.rackId(), BigDecimal.ZERO);
+            BigDecimal incoming = incomingWeightKg != null ? incomingWeightKg : BigDecimal.ZERO;
+            return used.add(incoming).compareTo(rack.maxWeightKg()) <= 0;
+        }
+
+        void markFree(SlotEntry e) {
+            if (!e.indexed()) return;
+            free.computeIfAbsent(e.key(), k -> new TreeMap<>())
+                    .computeIfAbsent(e.dimensionClass(),
+                            k -> new TreeSet<>(Comparator.comparingInt(SlotEntry::ordinal)))
+                    .add(e);
+        }
+
+        void markOccupied(SlotEntry e) {
+            if (!e.indexed()) return;
+            NavigableMap<Integer, NavigableSet<SlotEntry>> byClass = free.get(e.key());
+            if (byClass == null) return;
+            NavigableSet<SlotEntry> bucket = byClass.get(e.dimensionClass());
+            if (bucket != null) {
+                bucket.remove(e);
+                if (bucket.isEmpty()) byClass.remove(e.dimensionClass());
+            }
+        }
+
+        void addStock(UUID inventoryId, UUID slotId, BigDecimal weightKg) {
+            stockByInventory.put(inventoryId, new StockRow(slotId, weightKg));
+            SlotEntry e = slots.get(slotId);
+            if (e != null) {
+                rackWeightKg.merge(e.rack().rackId(), weightKg, BigDecimal::add);
+            }
+            Set<UUID> stock = stockBySlot.computeIfAbsent(slotId, k -> new HashSet<>());
+            if (stock.isEmpty() && e != null) {
+                markOccupied(e);
+            }
+            stock.add(inventoryId);
+        }
+
+        void removeStock(UUID inventoryId) {
+            StockRow row = stockByInventory.remove(inventoryId);
+            if (row == null) return;
+            SlotEntry e = slots.get(row.slotId());
+            if (e != null) {
+                rackWeightKg.merge(e.rack().rackId(), row.weightKg().negate(), BigDecimal::add);
+            }
+            Set<UUID> stock = stockBySlot.get(row.slotId());
+            if (stock == null) return;
+            stock.remove(inventoryId);
+            if (stock.isEmpty()) {
+                stockBySlot.remove(row.slotId());
+                if (e != null) markFree(e);
+            }
+        }
+    }
+}
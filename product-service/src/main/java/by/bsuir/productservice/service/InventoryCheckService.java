@@ -19,6 +19,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,12 +37,13 @@ public class InventoryCheckService {
     private final InventoryCountRepository countRepository;
     private final InventoryRepository inventoryRepository;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final ProductReadModelRepository productReadModelRepository;
     private final ProductBatchRepository productBatchRepository;
     private final ObjectMapper objectMapper;
     private final InventoryEventService inventoryEventService;
     private final DocumentRegistryService documentRegistryService;
-    private final by.bsuir.productservice.client.WarehouseClient warehouseClient;
+    private final SlotHeightOutboxService slotHeightOutbox;
 
     @Transactional
     public UUID startInventory(UUID warehouseId, UUID userId, String notes) {
@@ -70,15 +72,11 @@ public class InventoryCheckService {
                                         List<UUID> commissionMembers, String notes) {
         log.info("Starting inventory check for warehouse: {} (org: {})", warehouseId, organizationId);
 
-        List<InventorySession> activeSessions = sessionRepository.findByStatus(
-                InventorySession.SessionStatus.IN_PROGRESS);
-
-        for (InventorySession session : activeSessions) {
-            if (session.getWarehouseId().equals(warehouseId)) {
-                throw AppException.conflict("На складе уже идёт инвентаризация. Сессия: "
-                        + session.getSessionId());
-            }
-        }
+        sessionRepository.findFirstByWarehouseIdAndStatus(warehouseId, InventorySession.SessionStatus.IN_PROGRESS)
+                .ifPresent(active -> {
+                    throw AppException.conflict("На складе уже идёт инвентаризация. Сессия: "
+                            + active.getSessionId());
+                });
 
         String commissionJson = null;
         if (commissionMembers != null && !commissionMembers.isEmpty()) {
@@ -102,36 +100,24 @@ public class InventoryCheckService {
                 .status(InventorySession.SessionStatus.IN_PROGRESS)
                 .notes(notes)
                 .build();
-        sessionRepository.save(session);
-
-        List<Inventory> currentInventory = (organizationId != null)
-                ? inventoryRepository.findByOrganizationIdAndWarehouseId(organizationId, warehouseId)
-                : inventoryRepository.findByWarehouseId(warehouseId);
+        try {
+            sessionRepository.saveAndFlush(session);
+        } catch (DataIntegrityViolationException e) {
+            // параллельный старт на том же складе: второй IN_PROGRESS отсекает частичный уникальный индекс
+            throw AppException.conflict("На складе уже идёт инвентаризация");
+        }
 
-        log.info("Creating snapshot of {} inventory records", currentInventory.size());
+        int snapshotSize = (organizationId != null)
+                ? countRepository.insertSnapshot(sessionId, organizationId, warehouseId)
+                : countRepository.insertSnapshot(sessionId, warehouseId);
 
-        for (Inventory inv : currentInventory) {
-            InventoryCount count = InventoryCount.builder()
-                    .countId(UUID.randomUUID())
-                    .sessionId(sessionId)
-                    .organizationId(organizationId != null ? organizationId : inv.getOrganizationId())
-                    .productId(inv.getProductId())
-                    .batchId(inv.getBatchId())
-                    .cellId(inv.getCellId())
-                    .warehouseId(warehouseId)
-                    .expectedQuantity(inv.getQuantity())
-                    .actualQuantity(null)
-                    .discrepancy(BigDecimal.ZERO)
-                    .markedForWriteoff(false)
-                    .build();
-            countRepository.save(count);
-        }
+        log.info("Created snapshot of {} inventory records", snapshotSize);
 
         log.info("Inventory session started: {}", sessionId);
         return sessionId;
     }
 
-    private InventorySession loadOwnedSession(UUID sessionId, UUID organizationId) {
+    InventorySession loadOwnedSession(UUID sessionId, UUID organizationId) {
         InventorySession session = sessionRepository.findById(sessionId)
                 .orElseThrow(() -> AppException.notFound("Сессия инвентаризации не найдена"));
         if (organizationId != null && session.getOrganizationId() != null
@@ -144,8 +130,14 @@ public class InventoryCheckService {
     @Transactional
     public void recordActualCount(UUID sessionId, UUID productId, UUID cellId,
                                    BigDecimal actualQuantity, String notes, UUID organizationId) {
-        log.info("Recording actual count for session: {}, product: {}, cell: {}, quantity: {}",
-                sessionId, productId, cellId, actualQuantity);
+        recordActualCount(sessionId, productId, cellId, null, actualQuantity, notes, organizationId);
+    }
+
+    @Transactional
+    public void recordActualCount(UUID sessionId, UUID productId, UUID cellId, UUID batchId,
+                                   BigDecimal actualQuantity, String notes, UUID organizationId) {
+        log.info("Recording actual count for session: {}, product: {}, cell: {}, batch: {}, quantity: {}",
+                sessionId, productId, cellId, batchId, actualQuantity);
 
         InventorySession session = loadOwnedSession(sessionId, organizationId);
 
@@ -153,10 +145,7 @@ public class InventoryCheckService {
             throw AppException.badRequest("Сессия инвентаризации уже завершена");
         }
 
-        List<InventoryCount> matches = countRepository.findBySessionId(sessionId).stream()
-                .filter(c -> c.getProductId().equals(productId)
-                        && (cellId == null || cellId.equals(c.getCellId())))
-                .collect(Collectors.toList());
+        List<InventoryCount> matches = countRepository.findSessionMatches(sessionId, productId, cellId, batchId);
         if (matches.isEmpty()) {
             throw AppException.notFound("Запись подсчёта не найдена");
         }
@@ -439,6 +428,7 @@ public class InventoryCheckService {
                             oldQuantity, count.getActualQuantity()))
                     .build();
             operationRepository.save(operation);
+            operationRollupService.recordCreated(operation);
 
             BigDecimal delta = count.getActualQuantity().subtract(oldQuantity);
             InventoryEventType eventType = delta.signum() >= 0
@@ -455,7 +445,7 @@ public class InventoryCheckService {
                 BigDecimal heightDelta = computeHeightDelta(count.getBatchId(), delta.abs());
                 if (heightDelta.signum() > 0) {
                     BigDecimal applied = delta.signum() > 0 ? heightDelta.negate() : heightDelta;
-                    warehouseClient.adjustSlotHeight(count.getCellId(), applied);
+                    slotHeightOutbox.enqueue(count.getCellId(), applied);
                 }
             }
 
@@ -1,39 +1,49 @@
 package by.bsuir.productservice.service;
 
+import by.bsuir.productservice.model.enums.JobTrigger;
 import by.bsuir.productservice.repository.InventoryRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class InventoryCleanupService {
 
+    public static final String JOB_NAME = "inventory-cleanup";
+
     private final InventoryRepository inventoryRepository;
+    private final ClusterJobRunner jobRunner;
+    private final FreeSlotIndex freeSlotIndex;
+
+    @PostConstruct
+    void registerJob() {
+        jobRunner.register(JOB_NAME, context -> runCleanup(context.trigger()));
+    }
 
     @EventListener(ApplicationReadyEvent.class)
-    @Transactional
     public void cleanupOnStartup() {
-        runCleanup("startup");
+        jobRunner.run(JOB_NAME, JobTrigger.STARTUP);
     }
 
     @Scheduled(cron = "0 */15 * * * *")
-    @Transactional
     public void scheduledCleanup() {
-        runCleanup("scheduled");
+        jobRunner.run(JOB_NAME, JobTrigger.SCHEDULED);
     }
 
-    private void runCleanup(String trigger) {
+    private int runCleanup(JobTrigger trigger) {
         int empty = inventoryRepository.deleteEmptyInventory();
         int orphans = inventoryRepository.deleteOrphanedInventoryWithoutCell();
         if (empty > 0 || orphans > 0) {
+            freeSlotIndex.evictAll();
             log.info("Inventory cleanup ({}): empty={} (qty<=0), orphans={} (cellId=null, no reserve)",
                     trigger, empty, orphans);
         }
+        return empty + orphans;
     }
 }
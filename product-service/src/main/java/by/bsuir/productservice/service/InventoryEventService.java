@@ -24,6 +24,8 @@ public class InventoryEventService {
 
     private final InventoryEventRepository repository;
     private final ObjectMapper objectMapper;
+    private final FreeSlotIndex freeSlotIndex;
+    private final AnalyticsCacheInvalidator analyticsCacheInvalidator;
 
     @Transactional(propagation = Propagation.MANDATORY)
     public InventoryEvent record(UUID inventoryId, InventoryEventType type, Map<String, Object> payload) {
@@ -67,6 +69,8 @@ public class InventoryEventService {
         payload.put("operationId", operationId);
         payload.put("userId", userId);
         if (extra != null) payload.putAll(extra);
+        freeSlotIndex.onStockChanged(inventory);
+        analyticsCacheInvalidator.stockChanged(inventory.getOrganizationId());
         return record(inventory.getInventoryId(), type, payload);
     }
 }
@@ -0,0 +1,149 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.dto.request.RecordScansRequest;
+import by.bsuir.productservice.dto.response.ScanIngestResponse;
+import by.bsuir.productservice.exception.AppException;
+import by.bsuir.productservice.model.entity.InventoryCount;
+import by.bsuir.productservice.model.entity.InventorySession;
+import by.bsuir.productservice.repository.InventoryCountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Пакетный приём сканов инвентаризации с терминалов, в том числе накопленных офлайн. Скан добавляет
+ * подсчитанное количество к фактическому количеству своей строки подсчёта. Сканы сохраняются в
+ * {@code inventory_scan} по scanId, поэтому повторная выгрузка того же буфера после обрыва связи
+ * ничего не добавляет. Строки подсчёта обновляются одним UPDATE по всем новым сканам выгрузки.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryScanService {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String INSERT_SCAN = "INSERT INTO inventory_scan "
+            + "(scan_id, session_id, count_id, quantity, device_id, scanned_at, upload_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (scan_id) DO NOTHING";
+
+    private static final String COUNT_INSERTED = "SELECT COUNT(*) FROM inventory_scan WHERE upload_id = ?";
+
+    private static final String APPLY_SCANS = "UPDATE inventory_count c SET "
+            + "actual_quantity = COALESCE(c.actual_quantity, 0) + s.quantity, "
+            + "discrepancy = COALESCE(c.actual_quantity, 0) + s.quantity - c.expected_quantity "
+            + "FROM (SELECT count_id, SUM(quantity) AS quantity FROM inventory_scan "
+            + "WHERE upload_id = ? GROUP BY count_id) s WHERE c.count_id = s.count_id";
+
+    private final InventoryCheckService inventoryCheckService;
+    private final InventoryCountRepository countRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public ScanIngestResponse recordScans(UUID sessionId, List<RecordScansRequest.Scan> scans, UUID organizationId) {
+        InventorySession session = inventoryCheckService.loadOwnedSession(sessionId, organizationId);
+        if (session.getStatus() != InventorySession.SessionStatus.IN_PROGRESS) {
+            throw AppException.badRequest("Сессия инвентаризации уже завершена");
+        }
+
+        Map<UUID, RecordScansRequest.Scan> unique = new LinkedHashMap<>();
+        for (RecordScansRequest.Scan scan : scans) {
+            unique.putIfAbsent(scan.scanId(), scan);
+        }
+        int duplicates = scans.size() - unique.size();
+
+        List<ScanIngestResponse.RejectedScan> rejected = new ArrayList<>();
+        Map<UUID, UUID> targets = resolveCounts(sessionId, unique.values(), rejected);
+        if (targets.isEmpty()) {
+            return new ScanIngestResponse(sessionId, scans.size(), 0, duplicates, 0, rejected);
+        }
+
+        UUID uploadId = UUID.randomUUID();
+        List<Object[]> rows = new ArrayList<>(targets.size());
+        targets.forEach((scanId, countId) -> {
+            RecordScansRequest.Scan scan = unique.get(scanId);
+            rows.add(new Object[]{scanId, sessionId, countId, scan.quantity(), scan.deviceId(),
+                    scan.scannedAt() != null ? Timestamp.valueOf(scan.scannedAt()) : null, uploadId});
+        });
+        jdbcTemplate.batchUpdate(INSERT_SCAN, rows);
+
+        Integer inserted = jdbcTemplate.queryForObject(COUNT_INSERTED, Integer.class, uploadId);
+        int applied = inserted != null ? inserted : 0;
+        duplicates += targets.size() - applied;
+        int countsUpdated = applied > 0 ? jdbcTemplate.update(APPLY_SCANS, uploadId) : 0;
+
+        log.info("Inventory session {}: received {} scans, applied {}, duplicates {}, rejected {}, counts updated {}",
+                sessionId, scans.size(), applied, duplicates, rejected.size(), countsUpdated);
+        return new ScanIngestResponse(sessionId, scans.size(), applied, duplicates, countsUpdated, rejected);
+    }
+
+    /** scanId → countId; сканы без однозначной строки подсчёта попадают в {@code rejected}. */
+    private Map<UUID, UUID> resolveCounts(UUID sessionId, Collection<RecordScansRequest.Scan> scans,
+                                          List<ScanIngestResponse.RejectedScan> rejected) {
+        Set<UUID> countIds = new HashSet<>();
+        Set<UUID> productIds = new HashSet<>();
+        for (RecordScansRequest.Scan scan : scans) {
+            if (scan.countId() != null) {
+                countIds.add(scan.countId());
+            } else if (scan.productId() != null) {
+                productIds.add(scan.productId());
+            }
+        }
+
+        Set<UUID> sessionCountIds = new HashSet<>();
+        for (InventoryCount count : loadInChunks(countIds,
+                chunk -> countRepository.findBySessionIdAndCountIdIn(sessionId, chunk))) {
+            sessionCountIds.add(count.getCountId());
+        }
+        Map<UUID, List<InventoryCount>> byProduct = new HashMap<>();
+        for (InventoryCount count : loadInChunks(productIds,
+                chunk -> countRepository.findBySessionIdAndProductIdIn(sessionId, chunk))) {
+            byProduct.computeIfAbsent(count.getProductId(), id -> new ArrayList<>()).add(count);
+        }
+
+        Map<UUID, UUID> targets = new LinkedHashMap<>();
+        for (RecordScansRequest.Scan scan : scans) {
+            if (scan.countId() != null) {
+                if (sessionCountIds.contains(scan.countId())) {
+                    targets.put(scan.scanId(), scan.countId());
+                } else {
+                    rejected.add(new ScanIngestResponse.RejectedScan(scan.scanId(),
+                            "Запись подсчёта не найдена в сессии"));
+                }
+                continue;
+            }
+            if (scan.productId() == null) {
+                rejected.add(new ScanIngestResponse.RejectedScan(scan.scanId(), "Укажите countId или productId"));
+                continue;
+            }
+            List<InventoryCount> matches = byProduct.getOrDefault(scan.productId(), List.of()).stream()
+                    .filter(c -> scan.cellId() == null || scan.cellId().equals(c.getCellId()))
+                    .filter(c -> scan.batchId() == null || scan.batchId().equals(c.getBatchId()))
+                    .toList();
+            if (matches.size() == 1) {
+                targets.put(scan.scanId(), matches.get(0).getCountId());
+            } else {
+                rejected.add(new ScanIngestResponse.RejectedScan(scan.scanId(), matches.isEmpty()
+                        ? "Запись подсчёта не найдена"
+                        : "Несколько партий товара в этой ячейке — укажите countId конкретной строки"));
+            }
+        }
+        return targets;
+    }
+
+    private static List<InventoryCount> loadInChunks(Set<UUID> ids,
+                                                     Function<List<UUID>, List<InventoryCount>> loader) {
+        List<UUID> all = new ArrayList<>(ids);
+        List<InventoryCount> result = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            result.addAll(loader.apply(all.subList(from, Math.min(from + CHUNK_SIZE, all.size()))));
+        }
+        return result;
+    }
+}
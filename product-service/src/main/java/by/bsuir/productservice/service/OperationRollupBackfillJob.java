@@ -0,0 +1,134 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.model.enums.JobTrigger;
+import by.bsuir.productservice.repository.OperationDailyRollupRepository;
+import by.bsuir.productservice.repository.ProductOperationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Заполнение и сверка свода операций.
+ * <p>
+ * При старте, если свод пуст, история каждой организации пересчитывается помесячно — каждый месяц
+ * отдельной транзакцией, чтобы не держать блокировки на всю историю. Ночью пересчитываются последние
+ * дни: это исправляет расхождения, если операцию записали в обход {@link OperationRollupService}.
+ * Обе задачи выполняются через {@link ClusterJobRunner}; заполнение после каждого месяца сохраняет
+ * контрольную точку {@code organizationId/последний день}, и прерванный запуск при следующем старте
+ * продолжает с неё, даже если свод уже не пуст.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OperationRollupBackfillJob {
+
+    public static final String BACKFILL_JOB = "operation-rollup-backfill";
+    public static final String RECONCILE_JOB = "operation-rollup-reconcile";
+
+    private final OperationRollupService rollupService;
+    private final OperationDailyRollupRepository rollupRepository;
+    private final ProductOperationRepository operationRepository;
+    private final ClusterJobRunner jobRunner;
+
+    @Value("${analytics.rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${analytics.rollup.reconcile-days:2}")
+    private int reconcileDays;
+
+    @PostConstruct
+    void registerJobs() {
+        jobRunner.registerChunked(BACKFILL_JOB, this::backfill);
+        jobRunner.registerChunked(RECONCILE_JOB, context -> reconcile());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        boolean interrupted = jobRunner.hasCheckpoint(BACKFILL_JOB);
+        if (!interrupted && rollupRepository.count() > 0) {
+            return;
+        }
+        log.info(interrupted ? "Заполнение свода операций было прервано — продолжаем"
+                : "Свод операций пуст — заполняем по истории");
+        jobRunner.run(BACKFILL_JOB, JobTrigger.STARTUP);
+    }
+
+    @Scheduled(cron = "${analytics.rollup.reconcile-cron:0 30 2 * * *}")
+    public void reconcileRecentDays() {
+        jobRunner.run(RECONCILE_JOB, JobTrigger.SCHEDULED);
+    }
+
+    long backfill(ClusterJobRunner.JobContext context) {
+        UUID resumeOrganization = null;
+        LocalDate resumeAfter = null;
+        if (context.checkpoint() != null) {
+            String[] parts = context.checkpoint().split("/", 2);
+            resumeOrganization = UUID.fromString(parts[0]);
+            resumeAfter = LocalDate.parse(parts[1]);
+        }
+
+        List<UUID> organizations = operationRepository.findDistinctOrganizationIds().stream().sorted().toList();
+        long rows = 0;
+        for (UUID organizationId : organizations) {
+            if (resumeOrganization != null && organizationId.compareTo(resumeOrganization) < 0) {
+                continue;
+            }
+            LocalDateTime first = operationRepository.findFirstOperationDate(organizationId);
+            if (first == null) {
+                continue;
+            }
+            LocalDate from = organizationId.equals(resumeOrganization) ? resumeAfter.plusDays(1) : first.toLocalDate();
+            rows += rebuildByMonth(organizationId, from, LocalDate.now(),
+                    day -> context.checkpoint(organizationId + "/" + day));
+        }
+        return rows;
+    }
+
+    long reconcile() {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(Math.max(reconcileDays, 1));
+        long rows = 0;
+        for (UUID organizationId : operationRepository.findDistinctOrganizationIds()) {
+            try {
+                rows += rollupService.rebuild(organizationId, from, to);
+            } catch (Exception e) {
+                log.warn("Сверка свода операций org={} не удалась: {}", organizationId, e.getMessage());
+            }
+        }
+        return rows;
+    }
+
+    /** Пересчёт за произвольный период, по месяцу на транзакцию. Возвращает число записанных строк. */
+    public int rebuildByMonth(UUID organizationId, LocalDate from, LocalDate to) {
+        return rebuildByMonth(organizationId, from, to, day -> { });
+    }
+
+    private int rebuildByMonth(UUID organizationId, LocalDate from, LocalDate to, Consumer<LocalDate> onMonthDone) {
+        int rows = 0;
+        LocalDate chunkStart = from;
+        while (!chunkStart.isAfter(to)) {
+            LocalDate chunkEnd = chunkStart.withDayOfMonth(chunkStart.lengthOfMonth());
+            if (chunkEnd.isAfter(to)) {
+                chunkEnd = to;
+            }
+            rows += rollupService.rebuild(organizationId, chunkStart, chunkEnd);
+            onMonthDone.accept(chunkEnd);
+            chunkStart = chunkEnd.plusDays(1);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,86 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.model.entity.ProductOperation;
+import by.bsuir.productservice.repository.OperationDailyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Ведение дневного свода операций {@code operation_daily_rollup}.
+ * <p>
+ * Вызывается сразу после {@code operationRepository.save} и при {@code delete} в той же транзакции:
+ * свод откатывается вместе с операцией. Пересчёт за период ({@link #rebuild}) нужен для истории
+ * и для ручной починки; он идёт под блокировкой организации и не пересекается с приращениями.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OperationRollupService {
+
+    private final OperationDailyRollupRepository rollupRepository;
+
+    @Transactional
+    public void recordCreated(ProductOperation operation) {
+        apply(operation, 1, quantityOf(operation));
+    }
+
+    @Transactional
+    public void recordCreated(Collection<ProductOperation> operations) {
+        operations.forEach(this::recordCreated);
+    }
+
+    /** Операция уже учтена в своде, изменилось только её количество. */
+    @Transactional
+    public void recordQuantityChanged(ProductOperation operation, BigDecimal oldQuantity) {
+        BigDecimal delta = quantityOf(operation).subtract(oldQuantity != null ? oldQuantity : BigDecimal.ZERO);
+        if (delta.signum() != 0) {
+            apply(operation, 0, delta);
+        }
+    }
+
+    /** Операция удаляется из журнала — вычитается из свода. */
+    @Transactional
+    public void recordDeleted(ProductOperation operation) {
+        apply(operation, -1, quantityOf(operation).negate());
+    }
+
+    /**
+     * Пересчитывает свод организации за дни [from, to] из журнала операций. Исключительная блокировка
+     * организации ждёт фиксации транзакций, уже добавивших операции в свод, и задерживает новые до конца
+     * пересчёта, поэтому каждая операция учитывается ровно один раз.
+     */
+    @Transactional
+    public int rebuild(UUID organizationId, LocalDate from, LocalDate to) {
+        rollupRepository.lockOrganization(organizationId);
+        int deleted = rollupRepository.deleteRange(organizationId, from, to);
+        int inserted = rollupRepository.insertFromOperations(
+                organizationId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        log.info("Свод операций org={} за [{} - {}] пересчитан: удалено {}, записано {} строк",
+                organizationId, from, to, deleted, inserted);
+        return inserted;
+    }
+
+    private void apply(ProductOperation operation, long count, BigDecimal quantity) {
+        if (operation.getOrganizationId() == null || operation.getWarehouseId() == null
+                || operation.getOperationType() == null) {
+            log.debug("Операция {} без организации/склада/типа — в свод не попадает", operation.getOperationId());
+            return;
+        }
+        LocalDate day = operation.getOperationDate() != null
+                ? operation.getOperationDate().toLocalDate()
+                : LocalDate.now();
+        rollupRepository.increment(operation.getOrganizationId(), operation.getWarehouseId(), day,
+                operation.getOperationType().name(), count, quantity);
+    }
+
+    private BigDecimal quantityOf(ProductOperation operation) {
+        return operation.getQuantity() != null ? operation.getQuantity() : BigDecimal.ZERO;
+    }
+}
@@ -3,6 +3,7 @@ package by.bsuir.productservice.service;
 import by.bsuir.productservice.client.WarehouseClient;
 import by.bsuir.productservice.client.dto.CellInfoDto;
 import by.bsuir.productservice.client.dto.RackInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.dto.request.PlacementRequest;
 import by.bsuir.productservice.dto.response.PlacementResponse;
 import by.bsuir.productservice.exception.AppException;
@@ -25,22 +26,28 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PlacementService {
 
+    /** Сколько кандидатов из индекса перепроверить по БД, прежде чем признать, что мест нет. */
+    private static final int MAX_PICK_ATTEMPTS = 20;
+
     private final WarehouseClient warehouseClient;
+    private final WarehouseTopologyCache topologyCache;
+    private final FreeSlotIndex freeSlotIndex;
     private final ProductBatchRepository batchRepository;
     private final ProductReadModelRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
 
     public UUID autoSelectCellForReceipt(
             UUID warehouseId, UUID productId, BigDecimal quantity, Integer unitsPerPackage,
@@ -83,70 +90,57 @@ public class PlacementService {
 
         boolean requirePallet = packagingType == by.bsuir.productservice.model.enums.PackagingType.PALLET;
 
-        List<RackInfoDto> matching;
-        try {
-            matching = warehouseClient.getRacksByWarehouse(warehouseId, userRole).stream()
-                    .filter(r -> Boolean.TRUE.equals(r.isActive()))
-                    .filter(r -> matchesConditions(r.storageConditions(), cond))
-                    .filter(r -> requirePallet
-                            ? "PALLET".equals(r.kind())
-                            : !"PALLET".equals(r.kind()))
-                    .toList();
-        } catch (Exception e) {
-            log.warn("autoSelectCellForReceipt: warehouseClient failed: {}", e.getMessage());
-            return null;
-        }
+        WarehouseTopologyDto topology = topologyCache.get(warehouseId);
+        List<WarehouseTopologyDto.RackNode> matching = topology.racksOrEmpty().stream()
+                .filter(r -> Boolean.TRUE.equals(r.isActive()))
+                .filter(r -> matchesConditions(r.storageConditions(), cond))
+                .filter(r -> requirePallet
+                        ? "PALLET".equals(r.kind())
+                        : !"PALLET".equals(r.kind()))
+                .toList();
         if (matching.isEmpty()) {
             log.warn("autoSelectCellForReceipt: нет стеллажей с условиями {} на складе {}", cond, warehouseId);
             return null;
         }
 
-        List<Inventory> warehouseInv = inventoryRepository.findByWarehouseId(warehouseId);
-        Set<UUID> occupied = warehouseInv.stream()
-                .filter(inv -> inv.getQuantity() != null && inv.getQuantity().compareTo(BigDecimal.ZERO) > 0)
-                .map(Inventory::getCellId)
-                .filter(java.util.Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        Map<UUID, BigDecimal> weightByRack = computeWeightByRack(warehouseInv);
-
-        for (RackInfoDto rack : matching) {
-            BigDecimal rackUsed = weightByRack.getOrDefault(rack.rackId(), BigDecimal.ZERO);
-            if (rack.maxWeightKg() != null
-                    && rackUsed.add(incomingWeightKg).compareTo(rack.maxWeightKg()) > 0) {
-                log.info("autoSelectCellForReceipt: стеллаж {} перегружен — used={}кг, нужно ещё {}кг, max={}кг",
-                        rack.name(), rackUsed, incomingWeightKg, rack.maxWeightKg());
-                continue;
+        BigDecimal minPackageSide = packageLengthCm != null && packageWidthCm != null && packageHeightCm != null
+                ? packageLengthCm.min(packageWidthCm).min(packageHeightCm) : null;
+        Set<UUID> rejected = new HashSet<>();
+        boolean indexRefreshed = false;
+        for (int attempt = 0; attempt < MAX_PICK_ATTEMPTS; attempt++) {
+            FreeSlotIndex.FreeSlot picked = freeSlotIndex.findFirstFit(
+                    warehouseId, cond, requirePallet, requirePallet ? palletType : null,
+                    minPackageSide, incomingWeightKg,
+                    cell -> {
+                        if (rejected.contains(cell.cellId())) return false;
+                        BigDecimal effectiveHeight = cell.remainingHeightCm() != null
+                                ? cell.remainingHeightCm() : cell.heightCm();
+                        return capacityByDims(
+                                cell.lengthCm(), cell.widthCm(), effectiveHeight,
+                                packageLengthCm, packageWidthCm, packageHeightCm) != 0L;
+                    });
+            if (picked == null) {
+                break;
             }
-
-            List<CellInfoDto> cells;
-            try {
-                cells = warehouseClient.getCellsByRack(rack.rackId(), userRole);
-            } catch (Exception e) {
+            BigDecimal rackUsed = lockRack(picked.rack());
+            if (isCellOccupied(picked.slot().cellId())) {
+                log.info("autoSelectCellForReceipt: ячейка {} по индексу свободна, но уже занята", picked.slot().cellId());
+                rejected.add(picked.slot().cellId());
+                if (!indexRefreshed) {
+                    freeSlotIndex.evict(warehouseId);
+                    indexRefreshed = true;
+                }
                 continue;
             }
-            for (CellInfoDto cell : cells) {
-                if (occupied.contains(cell.cellId())) continue;
-                if (requirePallet && palletType != null && cell.palletType() != null
-                        && !palletType.equalsIgnoreCase(cell.palletType())) {
-                    continue;
-                }
-                BigDecimal effectiveHeight = cell.remainingHeightCm() != null
-                        ? cell.remainingHeightCm() : cell.heightCm();
-                long cap = capacityByDims(
-                        cell.lengthCm(), cell.widthCm(), effectiveHeight,
-                        packageLengthCm, packageWidthCm, packageHeightCm);
-                if (cap == 0L) {
-                    log.debug("Cell {} не вмещает упаковку: package={}x{}x{}см, cell={}x{}x{}см",
-                            cell.cellId(),
-                            packageLengthCm, packageWidthCm, packageHeightCm,
-                            cell.lengthCm(), cell.widthCm(), effectiveHeight);
-                    continue;
-                }
-                log.info("Auto-picked cell {} on rack {} for product {} (weight={}кг, capacity={}шт, need={}шт)",
-                        cell.cellId(), rack.name(), productId, incomingWeightKg, cap, numPackages);
-                return cell.cellId();
+            if (exceedsRackLimit(picked.rack(), rackUsed, incomingWeightKg)) {
+                log.info("autoSelectCellForReceipt: стеллаж {} перегружен — занято {}кг, груз {}кг, лимит {}кг",
+                        picked.rack().name(), rackUsed, incomingWeightKg, picked.rack().maxWeightKg());
+                picked.rack().slotsOrEmpty().forEach(slot -> rejected.add(slot.cellId()));
+                continue;
             }
+            log.info("Auto-picked cell {} on rack {} for product {} (weight={}кг, need={}шт)",
+                    picked.slot().cellId(), picked.rack().name(), productId, incomingWeightKg, numPackages);
+            return picked.slot().cellId();
         }
         log.warn("autoSelectCellForReceipt: нет свободных ячеек на складе {} (cond={}, weight={}кг)",
                 warehouseId, cond, incomingWeightKg);
@@ -166,37 +160,22 @@ public class PlacementService {
 
         final StorageConditions cond = overrideConditions != null ? overrideConditions : StorageConditions.ROOM;
 
-        List<RackInfoDto> matching;
-        try {
-            matching = warehouseClient.getRacksByWarehouse(warehouseId, userRole).stream()
-                    .filter(r -> Boolean.TRUE.equals(r.isActive()))
-                    .filter(r -> "PALLET".equals(r.kind()))
-                    .filter(r -> matchesConditions(r.storageConditions(), cond))
-                    .toList();
-        } catch (Exception e) {
-            log.warn("autoSelectPalletPlaces: warehouseClient failed: {}", e.getMessage());
-            return new PalletSelection(List.of(),
-                    "не удалось получить список стеллажей склада — попробуйте позже");
-        }
+        WarehouseTopologyDto topology = topologyCache.get(warehouseId);
+        List<WarehouseTopologyDto.RackNode> matching = topology.racksOrEmpty().stream()
+                .filter(r -> Boolean.TRUE.equals(r.isActive()))
+                .filter(r -> "PALLET".equals(r.kind()))
+                .filter(r -> matchesConditions(r.storageConditions(), cond))
+                .toList();
         if (matching.isEmpty()) {
             log.warn("autoSelectPalletPlaces: нет паллет-стеллажей с условиями {} на складе {}", cond, warehouseId);
             return new PalletSelection(List.of(),
                     "на складе нет паллетных стеллажей с условиями «" + cond.getLabel() + "»");
         }
 
-        List<Inventory> warehouseInv = inventoryRepository.findByWarehouseId(warehouseId);
-        Set<UUID> occupied = warehouseInv.stream()
-                .filter(inv -> inv.getQuantity() != null && inv.getQuantity().compareTo(BigDecimal.ZERO) > 0)
-                .map(Inventory::getCellId)
-                .filter(java.util.Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        Map<UUID, BigDecimal> weightByRack = computeWeightByRack(warehouseInv);
         BigDecimal weightPerPallet = palletWeightKg != null ? palletWeightKg : BigDecimal.ZERO;
 
         List<UUID> selected = new java.util.ArrayList<>();
-        Set<UUID> chosen = new java.util.HashSet<>();
-        Map<UUID, BigDecimal> rackRunningWeight = new java.util.HashMap<>(weightByRack);
+        Map<UUID, BigDecimal> rackRunningWeight = new java.util.HashMap<>();
 
         int freeTotal = 0;
         int blockedType = 0;
@@ -205,48 +184,47 @@ public class PlacementService {
         BigDecimal sampleMaxHeight = null;
         BigDecimal sampleRackLimit = null;
 
-        for (RackInfoDto rack : matching) {
-            List<CellInfoDto> cells;
-            try {
-                cells = warehouseClient.getCellsByRack(rack.rackId(), userRole);
-            } catch (Exception e) {
+        for (FreeSlotIndex.FreeSlot free : freeSlotIndex.freeSlots(warehouseId, cond, true)) {
+            WarehouseTopologyDto.RackNode rack = free.rack();
+            CellInfoDto cell = free.slot();
+            freeTotal++;
+
+            if (palletType != null && cell.palletType() != null
+                    && !palletType.equalsIgnoreCase(cell.palletType())) {
+                blockedType++;
                 continue;
             }
-            for (CellInfoDto cell : cells) {
-                if (occupied.contains(cell.cellId()) || chosen.contains(cell.cellId())) continue;
-                freeTotal++;
-
-                if (palletType != null && cell.palletType() != null
-                        && !palletType.equalsIgnoreCase(cell.palletType())) {
-                    blockedType++;
-                    continue;
-                }
 
-                BigDecimal placeMaxHeight = cell.maxHeightCm() != null ? cell.maxHeightCm() : cell.heightCm();
-                if (loadHeightCm != null && placeMaxHeight != null
-                        && loadHeightCm.compareTo(placeMaxHeight) > 0) {
-                    log.debug("autoSelectPalletPlaces: место {} ниже груза — груз {}см, место {}см",
-                            cell.cellId(), loadHeightCm, placeMaxHeight);
-                    blockedHeight++;
-                    sampleMaxHeight = placeMaxHeight;
-                    continue;
-                }
+            BigDecimal placeMaxHeight = cell.maxHeightCm() != null ? cell.maxHeightCm() : cell.heightCm();
+            if (loadHeightCm != null && placeMaxHeight != null
+                    && loadHeightCm.compareTo(placeMaxHeight) > 0) {
+                log.debug("autoSelectPalletPlaces: место {} ниже груза — груз {}см, место {}см",
+                        cell.cellId(), loadHeightCm, placeMaxHeight);
+                blockedHeight++;
+                sampleMaxHeight = placeMaxHeight;
+                continue;
+            }
 
-                BigDecimal rackUsed = rackRunningWeight.getOrDefault(rack.rackId(), BigDecimal.ZERO);
-                if (rack.maxWeightKg() != null
-                        && rackUsed.add(weightPerPallet).compareTo(rack.maxWeightKg()) > 0) {
-                    log.info("autoSelectPalletPlaces: стеллаж {} перегружен — занято {}кг, паллет {}кг, лимит {}кг",
-                            rack.name(), rackUsed, weightPerPallet, rack.maxWeightKg());
-                    blockedWeight++;
-                    sampleRackLimit = rack.maxWeightKg();
-                    continue;
-                }
+            BigDecimal rackUsed = rackRunningWeight.computeIfAbsent(
+                    rack.rackId(), id -> lockRack(rack));
+            if (rack.maxWeightKg() != null
+                    && rackUsed.add(weightPerPallet).compareTo(rack.maxWeightKg()) > 0) {
+                log.info("autoSelectPalletPlaces: стеллаж {} перегружен — занято {}кг, паллет {}кг, лимит {}кг",
+                        rack.name(), rackUsed, weightPerPallet, rack.maxWeightKg());
+                blockedWeight++;
+                sampleRackLimit = rack.maxWeightKg();
+                continue;
+            }
 
-                selected.add(cell.cellId());
-                chosen.add(cell.cellId());
-                rackRunningWeight.put(rack.rackId(), rackUsed.add(weightPerPallet));
-                if (selected.size() >= numPallets) break;
+            if (isCellOccupied(cell.cellId())) {
+                log.info("autoSelectPalletPlaces: место {} по индексу свободно, но уже занято", cell.cellId());
+                freeSlotIndex.evict(warehouseId);
+                freeTotal--;
+                continue;
             }
+
+            selected.add(cell.cellId());
+            rackRunningWeight.put(rack.rackId(), rackUsed.add(weightPerPallet));
             if (selected.size() >= numPallets) break;
         }
 
@@ -373,24 +351,18 @@ public class PlacementService {
             by.bsuir.productservice.model.enums.PackagingType packagingType,
             String userRole) {
         if (cellId == null) return;
+        validateCellFit(requireRackOfSlot(warehouseId, cellId, userRole), cellId,
+                packageLengthCm, packageWidthCm, packageHeightCm,
+                packageWeightKg, unitsPerPackage, quantityUnits, packagingType);
+    }
 
-        UUID rackId = lookupRackOfCell(cellId);
-        if (rackId == null) return;
-
-        RackInfoDto rack = null;
-        try {
-            rack = warehouseClient.getRack(rackId, userRole);
-        } catch (Exception ignored) { }
-        if (rack == null) return;
-
-        if (warehouseId != null && rack.warehouseId() != null
-                && !warehouseId.equals(rack.warehouseId())) {
-            throw AppException.conflict(
-                    "Выбранная ячейка принадлежит другому складу — выберите ячейку текущего склада");
-        }
-
-        CellInfoDto cell = resolveCellInfo(cellId, rackId, userRole);
-        if (cell == null) return;
+    private void validateCellFit(
+            WarehouseTopologyDto.RackNode rackNode, UUID cellId,
+            BigDecimal packageLengthCm, BigDecimal packageWidthCm, BigDecimal packageHeightCm,
+            BigDecimal packageWeightKg, Integer unitsPerPackage, BigDecimal quantityUnits,
+            by.bsuir.productservice.model.enums.PackagingType packagingType) {
+        RackInfoDto rack = rackNode.toRackInfo();
+        CellInfoDto cell = rackNode.findSlot(cellId);
 
         boolean rackIsPallet = "PALLET".equals(rack.kind());
         boolean batchIsPallet =
@@ -401,9 +373,7 @@ public class PlacementService {
                     : "Упаковка " + packagingType + " — выберите ячейку/полку, а не паллет-место");
         }
 
-        Map<UUID, BigDecimal> rackWeights = computeWeightByRack(
-                inventoryRepository.findByWarehouseId(warehouseId));
-        BigDecimal rackUsed = rackWeights.getOrDefault(rackId, BigDecimal.ZERO);
+        BigDecimal rackUsed = lockRack(rackNode);
 
         enforcePlacementFitRaw(
                 cell, rack,
@@ -412,33 +382,72 @@ public class PlacementService {
                 quantityUnits, rackUsed, batchIsPallet);
     }
 
-    private CellInfoDto resolveCellInfo(UUID cellId, UUID rackId, String userRole) {
+    /**
+     * Стеллаж слота по топологии склада. Промах кэша перечитывает топологию один раз (слот мог быть
+     * создан после загрузки снимка); пустой ответ warehouse-service — 503, а отсутствующий слот — конфликт:
+     * без габаритов и лимита стеллажа проверить размещение нельзя.
+     */
+    private WarehouseTopologyDto.RackNode requireRackOfSlot(UUID warehouseId, UUID slotId, String userRole) {
+        WarehouseTopologyDto.RackNode rackNode = findRackOfSlot(warehouseId, slotId);
+        if (rackNode == null) {
+            ensureCellNotInOtherWarehouse(warehouseId, slotId, userRole);
+            throw AppException.conflict("Место не найдено на складе — обновите схему склада и выберите место заново");
+        }
+        return rackNode;
+    }
+
+    private WarehouseTopologyDto.RackNode findRackOfSlot(UUID warehouseId, UUID slotId) {
+        WarehouseTopologyDto topology = topologyCache.get(warehouseId);
+        WarehouseTopologyDto.RackNode rackNode = topology.findRackOfSlot(slotId);
+        if (rackNode != null) {
+            return rackNode;
+        }
+        topology = topologyCache.refresh(warehouseId);
+        if (topology.topologyVersion() == null) {
+            throw AppException.serviceUnavailable("Схема склада недоступна — повторите попытку позже");
+        }
+        return topology.findRackOfSlot(slotId);
+    }
+
+    private void ensureCellNotInOtherWarehouse(UUID warehouseId, UUID cellId, String userRole) {
+        if (warehouseId == null) return;
+        UUID rackId = lookupRackOfCell(cellId);
+        if (rackId == null) return;
+        RackInfoDto rack = null;
         try {
-            return warehouseClient.getCellsByRack(rackId, userRole).stream()
-                    .filter(c -> cellId.equals(c.cellId()))
-                    .findFirst()
-                    .orElse(null);
+            rack = warehouseClient.getRack(rackId, userRole);
         } catch (Exception e) {
-            return null;
+            log.warn("Не удалось получить стеллаж {} ячейки {}: {}", rackId, cellId, e.getMessage());
+        }
+        if (rack != null && rack.warehouseId() != null && !warehouseId.equals(rack.warehouseId())) {
+            throw AppException.conflict(
+                    "Выбранная ячейка принадлежит другому складу — выберите ячейку текущего склада");
         }
     }
 
-    private Map<UUID, BigDecimal> computeWeightByRack(List<Inventory> warehouseInv) {
-        Map<UUID, BigDecimal> byRack = new java.util.HashMap<>();
-        for (Inventory inv : warehouseInv) {
-            if (inv.getQuantity() == null || inv.getBatchId() == null || inv.getCellId() == null) continue;
-            ProductBatch b = batchRepository.findById(inv.getBatchId()).orElse(null);
-            if (b == null || b.getPackageWeightKg() == null) continue;
-            int upp = (b.getUnitsPerPackage() != null && b.getUnitsPerPackage() > 0)
-                    ? b.getUnitsPerPackage() : 1;
-            BigDecimal numPackages = inv.getQuantity()
-                    .divide(BigDecimal.valueOf(upp), 0, java.math.RoundingMode.CEILING);
-            BigDecimal w = b.getPackageWeightKg().multiply(numPackages);
-            UUID rackId = lookupRackOfCell(inv.getCellId());
-            if (rackId == null) continue;
-            byRack.merge(rackId, w, BigDecimal::add);
-        }
-        return byRack;
+    /**
+     * Берёт advisory-блокировку стеллажа до конца транзакции и возвращает его занятый вес по БД.
+     * Индекс свободных мест отстаёт и локален для инстанса, поэтому годится лишь для подбора
+     * кандидатов — занятость места ({@link #isCellOccupied}) и перегруз проверяются под этой блокировкой.
+     */
+    private BigDecimal lockRack(WarehouseTopologyDto.RackNode rack) {
+        inventoryRepository.lockRack(rack.rackId().toString());
+        if (rack.maxWeightKg() == null) return BigDecimal.ZERO;
+        List<UUID> slotIds = rack.slotsOrEmpty().stream().map(CellInfoDto::cellId).toList();
+        if (slotIds.isEmpty()) return BigDecimal.ZERO;
+        BigDecimal used = inventoryRepository.sumWeightKgByCellIds(slotIds);
+        return used != null ? used : BigDecimal.ZERO;
+    }
+
+    private boolean isCellOccupied(UUID cellId) {
+        return inventoryRepository.findByCellId(cellId)
+                .filter(inv -> inv.getQuantity() != null && inv.getQuantity().compareTo(BigDecimal.ZERO) > 0)
+                .isPresent();
+    }
+
+    private static boolean exceedsRackLimit(WarehouseTopologyDto.RackNode rack, BigDecimal usedKg, BigDecimal incomingKg) {
+        return rack.maxWeightKg() != null
+                && usedKg.add(incomingKg != null ? incomingKg : BigDecimal.ZERO).compareTo(rack.maxWeightKg()) > 0;
     }
 
     private final Map<UUID, UUID> cellToRackCache = new java.util.concurrent.ConcurrentHashMap<>();
@@ -484,8 +493,8 @@ public class PlacementService {
         boolean batchIsPallet = batch.getPackagingType()
                 == by.bsuir.productservice.model.enums.PackagingType.PALLET;
 
-        List<RackInfoDto> matchingRacks = warehouseClient.getRacksByWarehouse(request.warehouseId(), userRole)
-                .stream()
+        WarehouseTopologyDto topology = topologyCache.get(request.warehouseId());
+        List<WarehouseTopologyDto.RackNode> matchingRacks = topology.racksOrEmpty().stream()
                 .filter(r -> Boolean.TRUE.equals(r.isActive()))
                 .filter(r -> matchesConditions(r.storageConditions(), required))
                 .filter(r -> batchIsPallet
@@ -499,34 +508,26 @@ public class PlacementService {
                             + " типа " + (batchIsPallet ? "PALLET" : "CELL/SHELF"));
         }
 
-        List<Inventory> warehouseInv = inventoryRepository.findByWarehouseId(request.warehouseId());
-        Set<UUID> occupiedCells = warehouseInv.stream()
-                .filter(inv -> inv.getQuantity() != null && inv.getQuantity().compareTo(BigDecimal.ZERO) > 0)
-                .map(Inventory::getCellId)
-                .filter(java.util.Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        Map<UUID, BigDecimal> rackWeights = computeWeightByRack(warehouseInv);
+        Map<UUID, Integer> rackIndex = new java.util.HashMap<>();
+        for (WarehouseTopologyDto.RackNode node : matchingRacks) {
+            rackIndex.put(node.rackId(), rackIndex.size());
+        }
 
-        record RackedCell(RackInfoDto rack, CellInfoDto cell, int rackIdx, int cellIdx) {}
+        record RackedCell(WarehouseTopologyDto.RackNode node, RackInfoDto rack, CellInfoDto cell,
+                          int rackIdx, int cellIdx) {}
         List<RackedCell> freeCells = new java.util.ArrayList<>();
-        int rackIdx = 0;
-        for (RackInfoDto rack : matchingRacks) {
-            List<CellInfoDto> cells = warehouseClient.getCellsByRack(rack.rackId(), userRole);
-            int cellIdx = 0;
-            BigDecimal rackUsed = rackWeights.getOrDefault(rack.rackId(), BigDecimal.ZERO);
-            for (CellInfoDto cell : cells) {
-                if (!occupiedCells.contains(cell.cellId())) {
-                    try {
-                        enforcePlacementFit(cell, rack, batch, request.quantity(), rackUsed, batchIsPallet);
-                        freeCells.add(new RackedCell(rack, cell, rackIdx, cellIdx));
-                    } catch (AppException skip) {
-                        log.debug("Auto: пропущена ячейка {}: {}", cell.cellId(), skip.getMessage());
-                    }
-                }
-                cellIdx++;
+        Map<UUID, BigDecimal> rackWeights = new java.util.HashMap<>();
+        for (FreeSlotIndex.FreeSlot free : freeSlotIndex.freeSlots(request.warehouseId(), required, batchIsPallet)) {
+            RackInfoDto rack = free.rack().toRackInfo();
+            BigDecimal rackUsed = rackWeights.computeIfAbsent(
+                    rack.rackId(), id -> freeSlotIndex.rackUsedKg(request.warehouseId(), id));
+            try {
+                enforcePlacementFit(free.slot(), rack, batch, request.quantity(), rackUsed, batchIsPallet);
+                freeCells.add(new RackedCell(free.rack(), rack, free.slot(),
+                        rackIndex.getOrDefault(rack.rackId(), 0), free.slotIndex()));
+            } catch (AppException skip) {
+                log.debug("Auto: пропущена ячейка {}: {}", free.slot().cellId(), skip.getMessage());
             }
-            rackIdx++;
         }
 
         if (freeCells.isEmpty()) {
@@ -541,7 +542,32 @@ public class PlacementService {
         };
         freeCells.sort(sorter);
 
-        RackedCell chosen = freeCells.get(0);
+        RackedCell chosen = null;
+        Map<UUID, BigDecimal> lockedWeights = new java.util.HashMap<>();
+        boolean indexRefreshed = false;
+        for (RackedCell candidate : freeCells) {
+            BigDecimal rackUsed = lockedWeights.computeIfAbsent(
+                    candidate.rack.rackId(), id -> lockRack(candidate.node));
+            if (isCellOccupied(candidate.cell.cellId())) {
+                log.info("Auto: ячейка {} по индексу свободна, но уже занята", candidate.cell.cellId());
+                if (!indexRefreshed) {
+                    freeSlotIndex.evict(request.warehouseId());
+                    indexRefreshed = true;
+                }
+                continue;
+            }
+            try {
+                enforcePlacementFit(candidate.cell, candidate.rack, batch, request.quantity(), rackUsed, batchIsPallet);
+                chosen = candidate;
+                break;
+            } catch (AppException skip) {
+                log.debug("Auto: ячейка {} отклонена по актуальному весу стеллажа: {}",
+                        candidate.cell.cellId(), skip.getMessage());
+            }
+        }
+        if (chosen == null) {
+            throw AppException.conflict("На складе нет подходящих ячеек: свободные места заняты или стеллажи перегружены по весу");
+        }
         log.info("Auto-selected cell {} (rack {}, ABC class {})",
                 chosen.cell.cellId(), chosen.rack.name(), abc);
 
@@ -576,18 +602,11 @@ public class PlacementService {
             required = StorageConditions.ROOM;
         }
 
-        List<RackInfoDto> racks = warehouseClient.getRacksByWarehouse(request.warehouseId(), userRole);
-        RackInfoDto matchingRack = null;
-        for (RackInfoDto rack : racks) {
-            List<CellInfoDto> cells = warehouseClient.getCellsByRack(rack.rackId(), userRole);
-            if (cells.stream().anyMatch(c -> request.cellId().equals(c.cellId()))) {
-                matchingRack = rack;
-                break;
-            }
-        }
-        if (matchingRack == null) {
+        WarehouseTopologyDto.RackNode rackNode = findRackOfSlot(request.warehouseId(), request.cellId());
+        if (rackNode == null) {
             throw AppException.notFound("Ячейка не найдена на указанном складе");
         }
+        RackInfoDto matchingRack = rackNode.toRackInfo();
 
         if (!matchesConditions(matchingRack.storageConditions(), required)) {
             throw AppException.conflict(
@@ -595,14 +614,12 @@ public class PlacementService {
                             + ") не соответствуют требуемым (" + required + ")");
         }
 
-        boolean cellOccupied = inventoryRepository.findByCellId(request.cellId())
-                .filter(inv -> inv.getQuantity() != null && inv.getQuantity().compareTo(BigDecimal.ZERO) > 0)
-                .isPresent();
-        if (cellOccupied) {
+        BigDecimal rackUsed = lockRack(rackNode);
+        if (isCellOccupied(request.cellId())) {
             throw AppException.conflict("Ячейка уже занята");
         }
 
-        CellInfoDto cellInfo = resolveCellInfo(request.cellId(), matchingRack.rackId(), userRole);
+        CellInfoDto cellInfo = rackNode.findSlot(request.cellId());
         if (cellInfo != null) {
             boolean isPallet = "PALLET".equals(matchingRack.kind());
             boolean packagingPallet = batch.getPackagingType()
@@ -612,9 +629,6 @@ public class PlacementService {
                         ? "Упаковка PALLET — выберите паллет-место"
                         : "Упаковка не PALLET — выберите ячейку/полку, а не паллет-место");
             }
-            Map<UUID, BigDecimal> rackWeights = computeWeightByRack(
-                    inventoryRepository.findByWarehouseId(request.warehouseId()));
-            BigDecimal rackUsed = rackWeights.getOrDefault(matchingRack.rackId(), BigDecimal.ZERO);
             enforcePlacementFit(cellInfo, matchingRack, batch, request.quantity(), rackUsed, isPallet);
         }
 
@@ -640,6 +654,7 @@ public class PlacementService {
                 .lastUpdated(LocalDateTime.now())
                 .build();
         inventoryRepository.save(inventory);
+        freeSlotIndex.onStockChanged(inventory);
 
         ProductOperation operation = ProductOperation.builder()
                 .operationId(UUID.randomUUID())
@@ -655,6 +670,7 @@ public class PlacementService {
                 .notes("Размещение " + mode + ". " + (request.notes() != null ? request.notes() : ""))
                 .build();
         operationRepository.save(operation);
+        operationRollupService.recordCreated(operation);
 
         return new PlacementResponse(
                 operation.getOperationId(),
@@ -696,19 +712,8 @@ public class PlacementService {
         if (toCellId == null || batch == null) {
             return;
         }
-        UUID rackId = lookupRackOfCell(toCellId);
-        if (rackId == null) {
-            return;
-        }
-        RackInfoDto rack;
-        try {
-            rack = warehouseClient.getRack(rackId, userRole);
-        } catch (Exception ignored) {
-            rack = null;
-        }
-        if (rack == null) {
-            return;
-        }
+        WarehouseTopologyDto.RackNode rackNode = requireRackOfSlot(warehouseId, toCellId, userRole);
+        RackInfoDto rack = rackNode.toRackInfo();
 
         StorageConditions required = batch.getStorageConditions();
         if (required == null && product != null) {
@@ -723,10 +728,10 @@ public class PlacementService {
                             + ") не подходят для товара (требуется " + required + " или строже)");
         }
 
-        validateReceiptCellFit(
-                warehouseId, toCellId,
+        validateCellFit(
+                rackNode, toCellId,
                 batch.getPackageLengthCm(), batch.getPackageWidthCm(), batch.getPackageHeightCm(),
                 batch.getPackageWeightKg(), batch.getUnitsPerPackage(), quantityUnits,
-                batch.getPackagingType(), userRole);
+                batch.getPackagingType());
     }
 }
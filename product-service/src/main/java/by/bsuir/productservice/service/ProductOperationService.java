@@ -1,5 +1,7 @@
 package by.bsuir.productservice.service;
 
+import by.bsuir.productservice.client.dto.CellInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.dto.request.ReceiveProductRequest;
 import by.bsuir.productservice.dto.request.TransferProductRequest;
 import by.bsuir.productservice.exception.AppException;
@@ -33,9 +35,12 @@ import java.util.UUID;
 public class ProductOperationService {
 
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final InventoryRepository inventoryRepository;
     private final ProductReadModelRepository productRepository;
     private final by.bsuir.productservice.client.WarehouseClient warehouseClient;
+    private final SlotHeightOutboxService slotHeightOutbox;
+    private final WarehouseTopologyCache topologyCache;
     private final InventoryEventService inventoryEventService;
     private final ProductBatchRepository batchRepository;
     private final DocumentRegistryService documentRegistryService;
@@ -97,6 +102,7 @@ public class ProductOperationService {
                     .notes(request.notes())
                     .build();
             operationRepository.save(operation);
+            operationRollupService.recordCreated(operation);
 
             Inventory existing = inventoryRepository.findExactInventoryForUpdate(
                     request.productId(), request.batchId(),
@@ -133,7 +139,7 @@ public class ProductOperationService {
             if (request.cellId() != null && request.batchId() != null) {
                 BigDecimal heightDelta = computeHeightDelta(request.batchId(), request.quantity());
                 if (heightDelta.signum() > 0) {
-                    warehouseClient.adjustSlotHeight(request.cellId(), heightDelta.negate());
+                    slotHeightOutbox.enqueue(request.cellId(), heightDelta.negate());
                 }
             }
 
@@ -160,8 +166,8 @@ public class ProductOperationService {
             return;
         }
         try {
-            var racks = warehouseClient.getRacksByWarehouse(warehouseId, "WORKER");
-            if (racks == null || racks.isEmpty()) {
+            var racks = topologyCache.get(warehouseId).racksOrEmpty();
+            if (racks.isEmpty()) {
                 throw AppException.conflict("На складе нет стеллажей — приёмка отменена");
             }
             java.util.Set<UUID> occupied = inventoryRepository.findByWarehouseId(warehouseId).stream()
@@ -172,7 +178,7 @@ public class ProductOperationService {
                     .collect(java.util.stream.Collectors.toSet());
             boolean anyFreeCell = racks.stream()
                     .filter(r -> Boolean.TRUE.equals(r.isActive()))
-                    .flatMap(r -> warehouseClient.getCellsByRack(r.rackId(), "WORKER").stream())
+                    .flatMap(r -> r.slotsOrEmpty().stream())
                     .anyMatch(c -> !occupied.contains(c.cellId()));
             if (!anyFreeCell) {
                 throw AppException.conflict("На складе нет свободных ячеек — приёмка отменена");
@@ -287,6 +293,7 @@ public class ProductOperationService {
                     .notes(request.notes())
                     .build();
             operationRepository.save(operation);
+            operationRollupService.recordCreated(operation);
 
             Map<String, Object> transferMeta = Map.of(
                     "fromWarehouseId", request.fromWarehouseId(),
@@ -308,10 +315,10 @@ public class ProductOperationService {
                 BigDecimal heightDelta = computeHeightDelta(batchForHeight, request.quantity());
                 if (heightDelta.signum() > 0) {
                     if (request.fromCellId() != null) {
-                        warehouseClient.adjustSlotHeight(request.fromCellId(), heightDelta);
+                        slotHeightOutbox.enqueue(request.fromCellId(), heightDelta);
                     }
                     if (request.toCellId() != null) {
-                        warehouseClient.adjustSlotHeight(request.toCellId(), heightDelta.negate());
+                        slotHeightOutbox.enqueue(request.toCellId(), heightDelta.negate());
                     }
                 }
             }
@@ -336,7 +343,7 @@ public class ProductOperationService {
         try {
             ProductBatch batch = operation.getBatchId() != null
                     ? batchRepository.findById(operation.getBatchId()).orElse(null) : null;
-            Map<String, String> loc = resolveCellLocation(request.toCellId());
+            Map<String, String> loc = resolveCellLocation(request.toWarehouseId(), request.toCellId());
 
             Map<String, Object> line = new HashMap<>();
             line.put("rowNumber", 1);
@@ -372,29 +379,40 @@ public class ProductOperationService {
         }
     }
 
-    private Map<String, String> resolveCellLocation(UUID cellId) {
+    private Map<String, String> resolveCellLocation(UUID warehouseId, UUID cellId) {
         String rackName = "—";
         String cellCode = cellId != null
                 ? String.valueOf(cellId).substring(0, 8).toUpperCase() : "—";
         if (cellId == null) {
             return Map.of("rackName", rackName, "cellCode", cellCode);
         }
-        try {
-            Map<String, Object> info = warehouseClient.getCellInfo(cellId, "WORKER");
-            if (info != null) {
-                if (info.get("slotCode") != null) {
-                    cellCode = info.get("slotCode").toString();
-                }
-                if (info.get("rackId") != null) {
-                    UUID rackId = UUID.fromString(info.get("rackId").toString());
-                    var rack = warehouseClient.getRack(rackId, "WORKER");
-                    if (rack != null && rack.name() != null) {
-                        rackName = rack.name();
+        WarehouseTopologyDto.RackNode rackNode = topologyCache.findRackOfSlot(warehouseId, cellId);
+        if (rackNode != null) {
+            if (rackNode.name() != null) {
+                rackName = rackNode.name();
+            }
+            CellInfoDto slot = rackNode.findSlot(cellId);
+            if (slot != null && slot.slotCode() != null) {
+                cellCode = slot.slotCode();
+            }
+        } else {
+            try {
+                Map<String, Object> info = warehouseClient.getCellInfo(cellId, "WORKER");
+                if (info != null) {
+                    if (info.get("slotCode") != null) {
+                        cellCode = info.get("slotCode").toString();
+                    }
+                    if (info.get("rackId") != null) {
+                        UUID rackId = UUID.fromString(info.get("rackId").toString());
+                        var rack = warehouseClient.getRack(rackId, "WORKER");
+                        if (rack != null && rack.name() != null) {
+                            rackName = rack.name();
+                        }
                     }
                 }
+            } catch (Exception ex) {
+                log.debug("resolveCellLocation: failed for cell {}: {}", cellId, ex.getMessage());
             }
-        } catch (Exception ex) {
-            log.debug("resolveCellLocation: failed for cell {}: {}", cellId, ex.getMessage());
         }
         return Map.of("rackName", rackName, "cellCode", cellCode);
     }
@@ -1,8 +1,10 @@
 package by.bsuir.productservice.service;
 
 import by.bsuir.productservice.model.entity.ReceiptSession;
+import by.bsuir.productservice.model.enums.JobTrigger;
 import by.bsuir.productservice.model.enums.ReceiptSessionStatus;
 import by.bsuir.productservice.repository.ReceiptSessionRepository;
+import jakarta.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
@@ -10,26 +12,36 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ReceiptSessionCleanupService {
 
+    public static final String JOB_NAME = "receipt-session-cleanup";
+
     private final ReceiptSessionRepository receiptSessionRepository;
+    private final ClusterJobRunner jobRunner;
 
     @Value("${receipt-session.stale-ttl-hours:48}")
     private long staleTtlHours;
 
+    @PostConstruct
+    void registerJob() {
+        jobRunner.register(JOB_NAME, context -> expireStaleSessions());
+    }
+
     @Scheduled(cron = "0 0 * * * *")
-    @Transactional
-    public void expireStaleSessions() {
+    public void scheduledExpire() {
+        jobRunner.run(JOB_NAME, JobTrigger.SCHEDULED);
+    }
+
+    int expireStaleSessions() {
         LocalDateTime cutoff = LocalDateTime.now().minusHours(staleTtlHours);
         List<ReceiptSession> stale =
                 receiptSessionRepository.findByStatusAndCreatedAtBefore(ReceiptSessionStatus.PAUSED, cutoff);
         if (stale.isEmpty()) {
-            return;
+            return 0;
         }
         for (ReceiptSession session : stale) {
             session.setStatus(ReceiptSessionStatus.EXPIRED);
@@ -38,5 +50,6 @@ public class ReceiptSessionCleanupService {
         receiptSessionRepository.saveAll(stale);
         log.info("Receipt-session cleanup: помечено EXPIRED {} зависших PAUSED-сессий (старше {} ч)",
                 stale.size(), staleTtlHours);
+        return stale.size();
     }
 }
@@ -1,5 +1,7 @@
 package by.bsuir.productservice.service;
 
+import by.bsuir.productservice.client.dto.CellInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.dto.request.CreateReceiptSessionRequest;
 import by.bsuir.productservice.dto.request.ReceiveProductRequest;
 import by.bsuir.productservice.dto.request.SessionDiscrepancyRequest;
@@ -46,6 +48,7 @@ public class ReceiptSessionService {
     private final ReceiptSessionRepository sessionRepository;
     private final ProductOperationService productOperationService;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final ProductReadModelRepository productRepository;
     private final ProductBatchRepository batchRepository;
     private final SupplierRepository supplierRepository;
@@ -54,6 +57,9 @@ public class ReceiptSessionService {
     private final DocumentRegistryService documentRegistryService;
     private final by.bsuir.productservice.repository.InventoryRepository inventoryRepository;
     private final by.bsuir.productservice.client.WarehouseClient warehouseClient;
+    private final SlotHeightOutboxService slotHeightOutbox;
+    private final FreeSlotIndex freeSlotIndex;
+    private final WarehouseTopologyCache topologyCache;
 
     @Transactional
     public ReceiptSession createSession(CreateReceiptSessionRequest req, UUID organizationId) {
@@ -193,29 +199,23 @@ public class ReceiptSessionService {
             }
         }
 
-        GeneratedDocument receiptOrder = safeRegister(
-                "receipt-order",
-                buildReceiptOrderPayload(session, req),
-                organizationId,
-                req.userId());
+        Map<String, GeneratedDocument> docs = safeRegisterAll(List.of(
+                new DocumentRegistryService.DocumentSpec("receipt-order", buildReceiptOrderPayload(session, req)),
+                new DocumentRegistryService.DocumentSpec("receipt-act",
+                        buildReceiptActPayload(session, req, List.of())),
+                new DocumentRegistryService.DocumentSpec("placement-list",
+                        buildPlacementListPayload(session, placedItems))),
+                organizationId, req.userId());
+
+        GeneratedDocument receiptOrder = docs.get("receipt-order");
         if (receiptOrder != null) {
             session.setReceiptOrderDocId(receiptOrder.getId());
         }
-
-        GeneratedDocument receiptAct = safeRegister(
-                "receipt-act",
-                buildReceiptActPayload(session, req, List.of()),
-                organizationId,
-                req.userId());
+        GeneratedDocument receiptAct = docs.get("receipt-act");
         if (receiptAct != null) {
             session.setReceiptActDocId(receiptAct.getId());
         }
-
-        GeneratedDocument placementList = safeRegister(
-                "placement-list",
-                buildPlacementListPayload(session, placedItems),
-                organizationId,
-                req.userId());
+        GeneratedDocument placementList = docs.get("placement-list");
         if (placementList != null) {
             session.setPlacementListDocId(placementList.getId());
         }
@@ -327,13 +327,6 @@ public class ReceiptSessionService {
         actPayload.put("totalLines", itemRows.size());
         actPayload.put("discrepancies", discrepancyRows);
         actPayload.put("discrepancyCount", discrepancyRows.size());
-        GeneratedDocument receiptAct = safeRegister(
-                "receipt-act", actPayload, organizationId, req.userId());
-        if (receiptAct != null) {
-            session.setReceiptActDocId(receiptAct.getId());
-            documentRegistryService.markSuperseded(prevActDocId, receiptAct.getId(), organizationId);
-        }
-
         Map<String, Object> orderPayload = baseHeader(session);
         orderPayload.put("items", itemRows);
         orderPayload.put("totalAmount", totalAmount);
@@ -341,18 +334,28 @@ public class ReceiptSessionService {
                 by.bsuir.productservice.util.MoneyToWordsRu.rubles(totalAmount));
         orderPayload.put("totalQuantity", totalActualQty.stripTrailingZeros().toPlainString());
         orderPayload.put("totalLines", itemRows.size());
-        GeneratedDocument receiptOrder = safeRegister(
-                "receipt-order", orderPayload, organizationId, req.userId());
-        if (receiptOrder != null) {
-            session.setReceiptOrderDocId(receiptOrder.getId());
-            documentRegistryService.markSuperseded(prevOrderDocId, receiptOrder.getId(), organizationId);
-        }
 
         UUID prevPlacementDocId = session.getPlacementListDocId();
         Map<String, Object> placementPayload = baseHeader(session);
         placementPayload.put("items", buildPlacementRowsFromOps(ops));
-        GeneratedDocument placementList = safeRegister(
-                "placement-list", placementPayload, organizationId, req.userId());
+
+        Map<String, GeneratedDocument> docs = safeRegisterAll(List.of(
+                new DocumentRegistryService.DocumentSpec("receipt-act", actPayload),
+                new DocumentRegistryService.DocumentSpec("receipt-order", orderPayload),
+                new DocumentRegistryService.DocumentSpec("placement-list", placementPayload)),
+                organizationId, req.userId());
+
+        GeneratedDocument receiptAct = docs.get("receipt-act");
+        if (receiptAct != null) {
+            session.setReceiptActDocId(receiptAct.getId());
+            documentRegistryService.markSuperseded(prevActDocId, receiptAct.getId(), organizationId);
+        }
+        GeneratedDocument receiptOrder = docs.get("receipt-order");
+        if (receiptOrder != null) {
+            session.setReceiptOrderDocId(receiptOrder.getId());
+            documentRegistryService.markSuperseded(prevOrderDocId, receiptOrder.getId(), organizationId);
+        }
+        GeneratedDocument placementList = docs.get("placement-list");
         if (placementList != null) {
             session.setPlacementListDocId(placementList.getId());
             documentRegistryService.markSuperseded(prevPlacementDocId, placementList.getId(), organizationId);
@@ -472,15 +475,22 @@ public class ReceiptSessionService {
         return batch.getBatchId();
     }
 
-    private GeneratedDocument safeRegister(
-            String type, Map<String, Object> payload, UUID organizationId, UUID userId) {
+    private Map<String, GeneratedDocument> safeRegisterAll(
+            List<DocumentRegistryService.DocumentSpec> specs, UUID organizationId, UUID userId) {
+        Map<String, GeneratedDocument> registered = new HashMap<>();
         try {
-            return documentRegistryService.register(null, type, payload, organizationId, userId);
+            for (DocumentRegistryService.RegistrationResult result
+                    : documentRegistryService.registerAll(null, specs, organizationId, userId)) {
+                if (result.succeeded()) {
+                    registered.put(result.documentType(), result.document());
+                }
+            }
         } catch (Exception e) {
-            log.error("Не удалось зарегистрировать документ типа {} (org={}): {}",
-                    type, organizationId, e.getMessage(), e);
-            return null;
+            log.error("Не удалось зарегистрировать документы {} (org={}): {}",
+                    specs.stream().map(DocumentRegistryService.DocumentSpec::documentType).toList(),
+                    organizationId, e.getMessage(), e);
         }
+        return registered;
     }
 
     private List<Map<String, Object>> buildItemRows(CreateReceiptSessionRequest req) {
@@ -580,15 +590,17 @@ public class ReceiptSessionService {
                     } else {
                         inventoryRepository.save(inv);
                     }
+                    freeSlotIndex.onStockChanged(inv);
                 });
 
                 BigDecimal heightDelta = computeReceiveHeightDelta(op.getBatchId(), delta);
                 if (heightDelta.signum() != 0) {
-                    warehouseClient.adjustSlotHeight(cellId, heightDelta.negate());
+                    slotHeightOutbox.enqueue(cellId, heightDelta.negate());
                 }
             }
 
             op.setQuantity(actual);
+            operationRollupService.recordQuantityChanged(op, expected);
             String suffix = String.format(" [расхождение: план %s, факт %s, тип %s]",
                     expected.stripTrailingZeros().toPlainString(),
                     actual.stripTrailingZeros().toPlainString(),
@@ -751,7 +763,7 @@ public class ReceiptSessionService {
                 continue;
             }
             UUID cellId = op.getToCellId() != null ? op.getToCellId() : op.getFromCellId();
-            Map<String, String> loc = resolveCellLocation(cellId, locationCache);
+            Map<String, String> loc = resolveCellLocation(op.getWarehouseId(), cellId, locationCache);
             ProductBatch batch = op.getBatchId() != null
                     ? batchRepository.findById(op.getBatchId()).orElse(null) : null;
             Map<String, Object> line = new HashMap<>();
@@ -814,7 +826,7 @@ public class ReceiptSessionService {
         int row = 1;
         for (PlacedItem pi : placed) {
             CreateReceiptSessionRequest.ReceiptItem it = pi.item();
-            Map<String, String> loc = resolveCellLocation(pi.cellId(), locationCache);
+            Map<String, String> loc = resolveCellLocation(session.getWarehouseId(), pi.cellId(), locationCache);
             Map<String, Object> line = new HashMap<>();
             line.put("rowNumber", row);
             line.put("lineNo", row++);
@@ -840,7 +852,8 @@ public class ReceiptSessionService {
         return payload;
     }
 
-    private Map<String, String> resolveCellLocation(UUID cellId, Map<UUID, Map<String, String>> cache) {
+    private Map<String, String> resolveCellLocation(
+            UUID warehouseId, UUID cellId, Map<UUID, Map<String, String>> cache) {
         Map<String, String> empty = Map.of("rackName", "—", "cellCode", "—");
         if (cellId == null) {
             return empty;
@@ -850,22 +863,33 @@ public class ReceiptSessionService {
         }
         String rackName = "—";
         String cellCode = String.valueOf(cellId).substring(0, 8).toUpperCase();
-        try {
-            Map<String, Object> info = warehouseClient.getCellInfo(cellId, "WORKER");
-            if (info != null) {
-                if (info.get("slotCode") != null) {
-                    cellCode = info.get("slotCode").toString();
-                }
-                if (info.get("rackId") != null) {
-                    UUID rackId = UUID.fromString(info.get("rackId").toString());
-                    var rack = warehouseClient.getRack(rackId, "WORKER");
-                    if (rack != null && rack.name() != null) {
-                        rackName = rack.name();
+        WarehouseTopologyDto.RackNode rackNode = topologyCache.findRackOfSlot(warehouseId, cellId);
+        if (rackNode != null) {
+            if (rackNode.name() != null) {
+                rackName = rackNode.name();
+            }
+            CellInfoDto slot = rackNode.findSlot(cellId);
+            if (slot != null && slot.slotCode() != null) {
+                cellCode = slot.slotCode();
+            }
+        } else {
+            try {
+                Map<String, Object> info = warehouseClient.getCellInfo(cellId, "WORKER");
+                if (info != null) {
+                    if (info.get("slotCode") != null) {
+                        cellCode = info.get("slotCode").toString();
+                    }
+                    if (info.get("rackId") != null) {
+                        UUID rackId = UUID.fromString(info.get("rackId").toString());
+                        var rack = warehouseClient.getRack(rackId, "WORKER");
+                        if (rack != null && rack.name() != null) {
+                            rackName = rack.name();
+                        }
                     }
                 }
+            } catch (Exception ex) {
+                log.debug("resolveCellLocation: failed for cell {}: {}", cellId, ex.getMessage());
             }
-        } catch (Exception ex) {
-            log.debug("resolveCellLocation: failed for cell {}: {}", cellId, ex.getMessage());
         }
         Map<String, String> result = Map.of("rackName", rackName, "cellCode", cellCode);
         cache.put(cellId, result);
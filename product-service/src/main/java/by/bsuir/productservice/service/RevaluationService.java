@@ -30,6 +30,7 @@ public class RevaluationService {
 
     private final ProductReadModelRepository productRepository;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final InventoryRepository inventoryRepository;
     private final InventoryEventService inventoryEventService;
 
@@ -80,6 +81,7 @@ public class RevaluationService {
                 .notes(notes.toString())
                 .build();
         operationRepository.save(operation);
+        operationRollupService.recordCreated(operation);
 
         List<Inventory> affected = (request.warehouseId() != null)
                 ? inventoryRepository.findAllByProductIdAndWarehouseId(
@@ -0,0 +1,189 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.dto.request.CompleteShipmentRequest;
+import by.bsuir.productservice.model.entity.GeneratedDocument;
+import by.bsuir.productservice.model.entity.ShipmentDocumentOutbox;
+import by.bsuir.productservice.model.enums.OutboxStatus;
+import by.bsuir.productservice.repository.ShipmentDocumentOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Обрабатывает outbox отгрузочных документов пулом потоков.
+ * Задание забирается с арендой (locked_until): если инстанс упал посреди генерации,
+ * после истечения аренды задание подхватит другой. Ошибки повторяются с экспоненциальной паузой.
+ * Каждая аренда получает свой токен: созданные документы записываются в задание и итог
+ * проставляется только при совпадении токена, а повтор пропускает уже созданные документы.
+ */
+@Slf4j
+@Service
+public class ShipmentDocumentWorker {
+
+    private static final long INITIAL_BACKOFF_SECONDS = 30L;
+
+    private final ShipmentDocumentOutboxRepository outboxRepository;
+    private final ShipmentRequestService shipmentRequestService;
+    private final TaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final long leaseMinutes;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Autowired
+    public ShipmentDocumentWorker(ShipmentDocumentOutboxRepository outboxRepository,
+                                  ShipmentRequestService shipmentRequestService,
+                                  @Qualifier("shipmentDocumentExecutor") TaskExecutor executor,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${shipment.documents.worker-threads:4}") int maxInFlight,
+                                  @Value("${shipment.documents.max-attempts:5}") int maxAttempts,
+                                  @Value("${shipment.documents.lease-minutes:5}") long leaseMinutes) {
+        this.outboxRepository = outboxRepository;
+        this.shipmentRequestService = shipmentRequestService;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxInFlight = Math.max(maxInFlight, 1);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.leaseMinutes = leaseMinutes;
+    }
+
+    @Scheduled(fixedDelayString = "${shipment.documents.poll-interval-ms:2000}")
+    public void poll() {
+        int capacity = maxInFlight - inFlight.get();
+        if (capacity <= 0) return;
+
+        List<ShipmentDocumentOutbox> claimed = transactionTemplate.execute(status -> claim(capacity));
+        if (claimed == null || claimed.isEmpty()) return;
+        log.debug("Shipment documents: claimed {} outbox tasks", claimed.size());
+
+        for (ShipmentDocumentOutbox task : claimed) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(task);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                log.warn("Shipment documents: пул занят, задание {} будет подхвачено после аренды", task.getId());
+            }
+        }
+    }
+
+    private List<ShipmentDocumentOutbox> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ShipmentDocumentOutbox> due = outboxRepository.lockDue(now, limit);
+        for (ShipmentDocumentOutbox task : due) {
+            task.setStatus(OutboxStatus.PROCESSING);
+            task.setLockedUntil(now.plusMinutes(leaseMinutes));
+            task.setLeaseToken(UUID.randomUUID());
+            task.setAttempts(task.getAttempts() + 1);
+        }
+        return outboxRepository.saveAll(due);
+    }
+
+    void process(ShipmentDocumentOutbox task) {
+        UUID requestId = task.getRequestId();
+        UUID leaseToken = task.getLeaseToken();
+        String error;
+        try {
+            CompleteShipmentRequest manual = shipmentRequestService.readManualFields(task.getManualFields());
+            ShipmentRequestService.ShipmentDocuments documents = shipmentRequestService.generateShipmentDocuments(
+                    requestId, task.getOperationId(), task.getUserId(), task.getOrganizationId(), manual,
+                    task.getGeneratedDocuments(), saved -> recordGenerated(task.getId(), leaseToken, saved));
+            if (documents.complete()) {
+                fenced(requestId, () -> transactionTemplate.executeWithoutResult(status -> {
+                    finish(task.getId(), leaseToken, OutboxStatus.DONE, null, null);
+                    shipmentRequestService.attachDocuments(requestId, documents.documentIds());
+                }));
+                return;
+            }
+            error = "Не удалось сгенерировать: " + String.join("; ", documents.failures());
+        } catch (LeaseLostException e) {
+            log.warn("Shipment documents for request {}: {}", requestId, e.getMessage());
+            return;
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        scheduleRetryOrFail(task, leaseToken, error);
+    }
+
+    private void scheduleRetryOrFail(ShipmentDocumentOutbox task, UUID leaseToken, String error) {
+        UUID requestId = task.getRequestId();
+        if (task.getAttempts() >= maxAttempts) {
+            log.error("Shipment documents for request {} failed after {} attempts: {}",
+                    requestId, task.getAttempts(), error);
+            fenced(requestId, () -> transactionTemplate.executeWithoutResult(status -> {
+                finish(task.getId(), leaseToken, OutboxStatus.FAILED, error, null);
+                shipmentRequestService.markDocumentsFailed(requestId, error);
+            }));
+        } else {
+            long backoffSeconds = INITIAL_BACKOFF_SECONDS * (1L << Math.min(task.getAttempts() - 1, 5));
+            log.warn("Shipment documents for request {} failed (attempt {}/{}), retry in {}s: {}",
+                    requestId, task.getAttempts(), maxAttempts, backoffSeconds, error);
+            fenced(requestId, () -> transactionTemplate.executeWithoutResult(status -> finish(task.getId(),
+                    leaseToken, OutboxStatus.PENDING, error, LocalDateTime.now().plusSeconds(backoffSeconds))));
+        }
+    }
+
+    private void fenced(UUID requestId, Runnable action) {
+        try {
+            action.run();
+        } catch (LeaseLostException e) {
+            log.warn("Shipment documents for request {}: {}", requestId, e.getMessage());
+        }
+    }
+
+    /** Выполняется в транзакции сохранения документов: без актуальной аренды сохранение откатывается. */
+    private void recordGenerated(UUID taskId, UUID leaseToken, List<GeneratedDocument> saved) {
+        ShipmentDocumentOutbox task = lockOwned(taskId, leaseToken);
+        Map<String, UUID> generated = new HashMap<>(
+                task.getGeneratedDocuments() != null ? task.getGeneratedDocuments() : Map.of());
+        saved.forEach(doc -> generated.put(doc.getDocumentType(), doc.getId()));
+        task.setGeneratedDocuments(generated);
+        outboxRepository.save(task);
+    }
+
+    private void finish(UUID taskId, UUID leaseToken, OutboxStatus status, String error, LocalDateTime nextAttemptAt) {
+        ShipmentDocumentOutbox task = lockOwned(taskId, leaseToken);
+        task.setStatus(status);
+        task.setLockedUntil(null);
+        task.setLeaseToken(null);
+        task.setLastError(error);
+        if (nextAttemptAt != null) task.setNextAttemptAt(nextAttemptAt);
+        outboxRepository.save(task);
+    }
+
+    private ShipmentDocumentOutbox lockOwned(UUID taskId, UUID leaseToken) {
+        return outboxRepository.findByIdForUpdate(taskId)
+                .filter(task -> task.getStatus() == OutboxStatus.PROCESSING
+                        && leaseToken != null && leaseToken.equals(task.getLeaseToken()))
+                .orElseThrow(() -> new LeaseLostException(
+                        "аренда задания " + taskId + " истекла и перехвачена другим обработчиком"));
+    }
+
+    static final class LeaseLostException extends RuntimeException {
+        LeaseLostException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package by.bsuir.productservice.service;
 
+import by.bsuir.productservice.client.dto.CellInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.dto.request.CompleteShipmentRequest;
 import by.bsuir.productservice.dto.request.CreateShipmentRequestRequest;
 import by.bsuir.productservice.dto.request.PickRequest;
@@ -10,6 +12,7 @@ import by.bsuir.productservice.model.entity.Inventory;
 import by.bsuir.productservice.model.entity.ProductOperation;
 import by.bsuir.productservice.model.entity.ProductBatch;
 import by.bsuir.productservice.model.entity.ProductReadModel;
+import by.bsuir.productservice.model.entity.ShipmentDocumentOutbox;
 import by.bsuir.productservice.model.entity.ShipmentRequest;
 import by.bsuir.productservice.model.entity.ShipmentRequestItem;
 import by.bsuir.productservice.model.enums.AllocationStrategy;
@@ -17,14 +20,18 @@ import by.bsuir.productservice.model.enums.DocumentLayout;
 import by.bsuir.productservice.model.enums.DomesticDocumentKind;
 import by.bsuir.productservice.model.enums.InventoryEventType;
 import by.bsuir.productservice.model.enums.OperationType;
+import by.bsuir.productservice.model.enums.ShipmentDocumentStatus;
 import by.bsuir.productservice.model.enums.ShipmentRequestStatus;
 import by.bsuir.productservice.model.enums.ShipmentType;
 import by.bsuir.productservice.repository.InventoryRepository;
 import by.bsuir.productservice.repository.ProductBatchRepository;
 import by.bsuir.productservice.repository.ProductOperationRepository;
 import by.bsuir.productservice.repository.ProductReadModelRepository;
+import by.bsuir.productservice.repository.ShipmentDocumentOutboxRepository;
 import by.bsuir.productservice.repository.ShipmentRequestItemRepository;
 import by.bsuir.productservice.repository.ShipmentRequestRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -39,7 +46,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -51,12 +60,17 @@ public class ShipmentRequestService {
     private final ShipmentRequestItemRepository itemRepository;
     private final InventoryRepository inventoryRepository;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final ProductBatchRepository batchRepository;
     private final ProductReadModelRepository productRepository;
     private final FEFOService fefoService;
     private final InventoryEventService inventoryEventService;
     private final DocumentRegistryService documentRegistryService;
     private final by.bsuir.productservice.client.WarehouseClient warehouseClient;
+    private final SlotHeightOutboxService slotHeightOutbox;
+    private final WarehouseTopologyCache topologyCache;
+    private final ShipmentDocumentOutboxRepository documentOutboxRepository;
+    private final ObjectMapper objectMapper;
 
     @Transactional
     public ShipmentRequestResponse create(CreateShipmentRequestRequest request, UUID userId, UUID organizationId) {
@@ -395,6 +409,7 @@ public class ShipmentRequestService {
                     .notes(String.format("Отгрузка по заявке %s (стратегия %s)", requestId, strategy))
                     .build();
             operationRepository.save(operation);
+            operationRollupService.recordCreated(operation);
             if (primaryOperationId == null) primaryOperationId = operation.getOperationId();
 
             inventoryEventService.recordQuantityChange(inventory, InventoryEventType.ITEM_REMOVED,
@@ -405,29 +420,86 @@ public class ShipmentRequestService {
             if (item.getCellId() != null && item.getBatchId() != null) {
                 BigDecimal heightDelta = computeHeightDelta(item.getBatchId(), qty);
                 if (heightDelta.signum() > 0) {
-                    warehouseClient.adjustSlotHeight(item.getCellId(), heightDelta);
+                    slotHeightOutbox.enqueue(item.getCellId(), heightDelta);
                 }
             }
         }
 
-        List<UUID> generatedIds;
-        try {
-            generatedIds = generateShipmentDocuments(req, items, primaryOperationId,
-                    userId != null ? userId : req.getCreatedBy(), organizationId, manual);
-            req.setDocumentError(null);
-        } catch (Exception ex) {
-            log.warn("Не удалось сгенерировать отгрузочные документы для заявки {}: {}",
-                    requestId, ex.getMessage());
-            generatedIds = List.of();
-            req.setDocumentError("Отгрузка проведена, но документы не сгенерированы — перевыпустите позже");
-        }
+        // Документы (HTTP в document-service, PDF, MinIO) генерируются воркером после коммита,
+        // чтобы блокировки inventory не держались на время ввода-вывода.
+        documentOutboxRepository.save(ShipmentDocumentOutbox.builder()
+                .requestId(requestId)
+                .organizationId(organizationId)
+                .operationId(primaryOperationId)
+                .userId(userId != null ? userId : req.getCreatedBy())
+                .manualFields(writeManualFields(manual))
+                .build());
+        req.setDocumentStatus(ShipmentDocumentStatus.PENDING);
+        req.setDocumentIds(null);
+        req.setDocumentError(null);
 
         req.setStatus(ShipmentRequestStatus.COMPLETED);
         req.setUpdatedAt(LocalDateTime.now());
         requestRepository.save(req);
-        log.info("Shipment request {} completed (strategy={}, type={}). Documents generated: {}",
-                requestId, strategy, req.getShipmentType(), generatedIds);
-        return mapToResponse(req, generatedIds);
+        log.info("Shipment request {} completed (strategy={}, type={}). Documents queued",
+                requestId, strategy, req.getShipmentType());
+        return mapToResponse(req, List.of());
+    }
+
+    /**
+     * Генерирует отгрузочные документы завершённой заявки. Вызывается воркером outbox вне транзакции
+     * завершения. Типы из {@code alreadyGenerated} не выпускаются повторно — их id берутся оттуда;
+     * {@code onSaved} получает новые документы в транзакции их сохранения. Ошибки отдельных документов
+     * не бросаются, а возвращаются в {@link ShipmentDocuments#failures()} — созданные остаются записанными.
+     */
+    public ShipmentDocuments generateShipmentDocuments(UUID requestId, UUID operationId, UUID userId,
+                                                UUID organizationId, CompleteShipmentRequest manual,
+                                                Map<String, UUID> alreadyGenerated,
+                                                Consumer<List<GeneratedDocument>> onSaved) {
+        ShipmentRequest req = requestRepository.findById(requestId)
+                .orElseThrow(() -> AppException.notFound("Заявка на отгрузку не найдена"));
+        List<ShipmentRequestItem> items = itemRepository.findByRequestId(requestId);
+        return generateShipmentDocuments(req, items, operationId, userId, organizationId, manual,
+                alreadyGenerated, onSaved);
+    }
+
+    @Transactional
+    public void attachDocuments(UUID requestId, List<UUID> documentIds) {
+        ShipmentRequest req = requestRepository.findById(requestId)
+                .orElseThrow(() -> AppException.notFound("Заявка на отгрузку не найдена"));
+        req.setDocumentIds(new ArrayList<>(documentIds));
+        req.setDocumentStatus(ShipmentDocumentStatus.READY);
+        req.setDocumentError(null);
+        requestRepository.save(req);
+        log.info("Shipment request {}: documents attached {}", requestId, documentIds);
+    }
+
+    @Transactional
+    public void markDocumentsFailed(UUID requestId, String reason) {
+        requestRepository.findById(requestId).ifPresent(req -> {
+            req.setDocumentStatus(ShipmentDocumentStatus.FAILED);
+            req.setDocumentError("Отгрузка проведена, но документы не сгенерированы — перевыпустите позже");
+            requestRepository.save(req);
+            log.warn("Не удалось сгенерировать отгрузочные документы для заявки {}: {}", requestId, reason);
+        });
+    }
+
+    public CompleteShipmentRequest readManualFields(String json) {
+        if (json == null || json.isBlank()) return null;
+        try {
+            return objectMapper.readValue(json, CompleteShipmentRequest.class);
+        } catch (JsonProcessingException e) {
+            throw AppException.internalError("Некорректные ручные поля отгрузки: " + e.getOriginalMessage());
+        }
+    }
+
+    private String writeManualFields(CompleteShipmentRequest manual) {
+        if (manual == null) return null;
+        try {
+            return objectMapper.writeValueAsString(manual);
+        } catch (JsonProcessingException e) {
+            throw AppException.badRequest("Некорректные данные для документов: " + e.getOriginalMessage());
+        }
     }
 
     @Transactional
@@ -456,13 +528,22 @@ public class ShipmentRequestService {
         log.info("Shipment request {} cancelled, released reservation on {} items", requestId, items.size());
     }
 
-    private List<UUID> generateShipmentDocuments(
+    /** Итог генерации комплекта: id документов в порядке комплекта и ошибки несозданных. */
+    public record ShipmentDocuments(List<UUID> documentIds, List<String> failures) {
+        public boolean complete() {
+            return failures.isEmpty();
+        }
+    }
+
+    private ShipmentDocuments generateShipmentDocuments(
             ShipmentRequest req,
             List<ShipmentRequestItem> items,
             UUID operationId,
             UUID userId,
             UUID organizationId,
-            CompleteShipmentRequest manual) {
+            CompleteShipmentRequest manual,
+            Map<String, UUID> alreadyGenerated,
+            Consumer<List<GeneratedDocument>> onSaved) {
 
         ShipmentType shipmentType = req.getShipmentType() != null ? req.getShipmentType() : ShipmentType.DOMESTIC;
         DocumentLayout layout = req.getDocumentLayout() != null ? req.getDocumentLayout() : DocumentLayout.HORIZONTAL;
@@ -472,21 +553,33 @@ public class ShipmentRequestService {
 
         Map<String, Object> basePayload = buildBasePayload(req, items, layout, currency);
         mergeManualFields(basePayload, manual);
-        List<UUID> result = new ArrayList<>();
 
-        if (shipmentType == ShipmentType.EXPORT) {
-            for (String type : List.of("transport-note", "cmr", "invoice")) {
-                GeneratedDocument doc = documentRegistryService.register(
-                        operationId, type, basePayload, organizationId, userId);
-                result.add(doc.getId());
+        List<String> types = shipmentType == ShipmentType.EXPORT
+                ? List.of("transport-note", "cmr", "invoice")
+                : List.of(kind == DomesticDocumentKind.TTN ? "waybill" : "transport-note");
+        Map<String, UUID> generated = new HashMap<>(alreadyGenerated != null ? alreadyGenerated : Map.of());
+        List<DocumentRegistryService.DocumentSpec> missing = types.stream()
+                .filter(type -> !generated.containsKey(type))
+                .map(type -> new DocumentRegistryService.DocumentSpec(type, basePayload))
+                .toList();
+        if (missing.size() < types.size()) {
+            log.info("Shipment request {}: документы {} уже созданы, повторно не выпускаются",
+                    req.getRequestId(), generated.keySet());
+        }
+
+        List<String> failed = new ArrayList<>();
+        if (!missing.isEmpty()) {
+            for (DocumentRegistryService.RegistrationResult r : documentRegistryService.registerAll(
+                    operationId, missing, organizationId, userId, onSaved)) {
+                if (r.succeeded()) {
+                    generated.put(r.documentType(), r.document().getId());
+                } else {
+                    failed.add(r.documentType() + ": " + r.error());
+                }
             }
-        } else {
-            String type = kind == DomesticDocumentKind.TTN ? "waybill" : "transport-note";
-            GeneratedDocument doc = documentRegistryService.register(
-                    operationId, type, basePayload, organizationId, userId);
-            result.add(doc.getId());
         }
-        return result;
+        List<UUID> documentIds = types.stream().map(generated::get).filter(Objects::nonNull).toList();
+        return new ShipmentDocuments(documentIds, failed);
     }
 
     private Map<String, Object> buildBasePayload(
@@ -583,7 +676,7 @@ public class ShipmentRequestService {
                 lineVolume = pkgVolM3.multiply(numPkgs).setScale(4, RoundingMode.HALF_UP);
             }
 
-            Map<String, String> loc = resolveLocation(i.getCellId(), locationCache);
+            Map<String, String> loc = resolveLocation(req.getWarehouseId(), i.getCellId(), locationCache);
             String unitLabel = product != null && product.getUnitOfMeasure() != null
                     ? product.getUnitOfMeasure() : "шт";
 
@@ -668,27 +761,39 @@ public class ShipmentRequestService {
         return payload;
     }
 
-    private Map<String, String> resolveLocation(UUID cellId, Map<UUID, Map<String, String>> cache) {
+    private Map<String, String> resolveLocation(
+            UUID warehouseId, UUID cellId, Map<UUID, Map<String, String>> cache) {
         Map<String, String> empty = Map.of("rackName", "—", "cellCode", "—", "location", "— / —");
         if (cellId == null) return empty;
         if (cache.containsKey(cellId)) return cache.get(cellId);
 
         String rackName = "—";
         String cellCode = String.valueOf(cellId).substring(0, 8).toUpperCase();
-        try {
-            Map<String, Object> info = warehouseClient.getCellInfo(cellId, "WORKER");
-            if (info != null) {
-                if (info.get("slotCode") != null) {
-                    cellCode = info.get("slotCode").toString();
-                }
-                if (info.get("rackId") != null) {
-                    UUID rackId = UUID.fromString(info.get("rackId").toString());
-                    var rack = warehouseClient.getRack(rackId, "WORKER");
-                    if (rack != null && rack.name() != null) rackName = rack.name();
+        WarehouseTopologyDto.RackNode rackNode = topologyCache.findRackOfSlot(warehouseId, cellId);
+        if (rackNode != null) {
+            if (rackNode.name() != null) {
+                rackName = rackNode.name();
+            }
+            CellInfoDto slot = rackNode.findSlot(cellId);
+            if (slot != null && slot.slotCode() != null) {
+                cellCode = slot.slotCode();
+            }
+        } else {
+            try {
+                Map<String, Object> info = warehouseClient.getCellInfo(cellId, "WORKER");
+                if (info != null) {
+                    if (info.get("slotCode") != null) {
+                        cellCode = info.get("slotCode").toString();
+                    }
+                    if (info.get("rackId") != null) {
+                        UUID rackId = UUID.fromString(info.get("rackId").toString());
+                        var rack = warehouseClient.getRack(rackId, "WORKER");
+                        if (rack != null && rack.name() != null) rackName = rack.name();
+                    }
                 }
+            } catch (Exception ex) {
+                log.debug("resolveLocation: failed for cell {}: {}", cellId, ex.getMessage());
             }
-        } catch (Exception ex) {
-            log.debug("resolveLocation: failed for cell {}: {}", cellId, ex.getMessage());
         }
         Map<String, String> result = Map.of(
                 "rackName", rackName,
@@ -811,7 +916,9 @@ public class ShipmentRequestService {
                 progress,
                 entity.getPickingListDocId(),
                 entity.getDocumentError(),
-                documentIds != null ? documentIds : List.of(),
+                entity.getDocumentStatus(),
+                documentIds != null && !documentIds.isEmpty() ? documentIds
+                        : entity.getDocumentIds() != null ? entity.getDocumentIds() : List.of(),
                 itemDtos
         );
     }
@@ -35,6 +35,7 @@ public class ShipmentSagaService {
     private final SagaOrchestrator sagaOrchestrator;
     private final InventoryRepository inventoryRepository;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final FEFOService fefoService;
     private final InventoryEventRepository inventoryEventRepository;
     private final ProductOperationEventRepository productOperationEventRepository;
@@ -143,6 +144,7 @@ public class ShipmentSagaService {
                     .build();
 
             operationRepository.save(stagingOp);
+            operationRollupService.recordCreated(stagingOp);
             saveOperationEvent(stagingOp, "OPERATION_RECORDED", buildOperationEventPayload(stagingOp));
 
             Map<String, Object> data = new HashMap<>();
@@ -238,6 +240,7 @@ public class ShipmentSagaService {
                     .build();
 
             operationRepository.save(operation);
+            operationRollupService.recordCreated(operation);
             saveOperationEvent(operation, "OPERATION_RECORDED", buildOperationEventPayload(operation));
 
             Map<String, Object> data = new HashMap<>();
@@ -0,0 +1,153 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.client.WarehouseClient;
+import by.bsuir.productservice.client.dto.SlotHeightAdjustmentDto;
+import by.bsuir.productservice.client.dto.SlotHeightResultDto;
+import by.bsuir.productservice.model.entity.SlotHeightOutbox;
+import by.bsuir.productservice.repository.SlotHeightOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Доставляет изменения остатка высоты слотов в warehouse-service через outbox.
+ * <p>
+ * Бизнес-операция только прибавляет дельту к строке слота в {@code slot_height_outbox} в своей транзакции:
+ * откат операции откатывает и дельту, а удалённого вызова на критическом пути нет. Фоновая отправка
+ * забирает слоты с арендой, шлёт накопленные суммы одним пакетом на {@code /api/internal/slots/heights}
+ * и повторяет недоставленное с экспоненциальной паузой, не теряя дельт при рестарте. Дельта слота, которого
+ * warehouse-service не знает (NOT_FOUND), тоже повторяется — слот может появиться позже, — и отбрасывается
+ * только после {@value #MAX_MISSING_ATTEMPTS} попыток.
+ */
+@Slf4j
+@Service
+public class SlotHeightOutboxService {
+
+    private static final String METRIC = "slot.height.outbox";
+    private static final long INITIAL_BACKOFF_SECONDS = 30L;
+    private static final int DRIFT_ALERT_ATTEMPTS = 5;
+    private static final int MAX_MISSING_ATTEMPTS = 10;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final SlotHeightOutboxRepository outboxRepository;
+    private final WarehouseClient warehouseClient;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final long leaseSeconds;
+
+    @Autowired
+    public SlotHeightOutboxService(SlotHeightOutboxRepository outboxRepository,
+                                   WarehouseClient warehouseClient,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${slot-height.outbox.batch-size:200}") int batchSize,
+                                   @Value("${slot-height.outbox.lease-seconds:60}") long leaseSeconds) {
+        this.outboxRepository = outboxRepository;
+        this.warehouseClient = warehouseClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.batchSize = Math.min(Math.max(batchSize, 1), 500);
+        this.leaseSeconds = Math.max(leaseSeconds, 5);
+    }
+
+    /** Откладывает изменение высоты слота; дельты одного слота складываются до отправки. */
+    @Transactional
+    public void enqueue(UUID slotId, BigDecimal deltaCm) {
+        if (slotId == null || deltaCm == null || deltaCm.signum() == 0) return;
+        outboxRepository.accumulate(slotId, deltaCm, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${slot-height.outbox.poll-interval-ms:2000}")
+    public void flush() {
+        List<SlotHeightOutbox> claimed = transactionTemplate.execute(status -> claim());
+        if (claimed == null || claimed.isEmpty()) return;
+
+        List<SlotHeightAdjustmentDto> batch = claimed.stream()
+                .map(row -> new SlotHeightAdjustmentDto(row.getSlotId(), row.getInflightDeltaCm(), row.getInflightKey()))
+                .toList();
+        List<SlotHeightResultDto> results;
+        try {
+            results = warehouseClient.adjustSlotHeights(batch);
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.warn("Slot height outbox: пакет из {} слотов не доставлен, повтор позже: {}", claimed.size(), error);
+            transactionTemplate.executeWithoutResult(status -> claimed.forEach(row -> reschedule(row, error)));
+            Counter.builder(METRIC + ".failures").register(meterRegistry).increment();
+            return;
+        }
+
+        Map<UUID, SlotHeightOutbox> bySlot = new HashMap<>();
+        claimed.forEach(row -> bySlot.put(row.getSlotId(), row));
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (SlotHeightResultDto result : results) {
+                if (result.slotMissing()) {
+                    SlotHeightOutbox row = bySlot.get(result.slotId());
+                    if (row != null && row.getAttempts() < MAX_MISSING_ATTEMPTS) {
+                        reschedule(row, "Слот не найден в warehouse-service");
+                        continue;
+                    }
+                    log.error("Slot height outbox: слот {} не найден в warehouse-service после {} попыток, "
+                            + "дельта отброшена", result.slotId(), row != null ? row.getAttempts() : 0);
+                    Counter.builder(METRIC + ".dropped").register(meterRegistry).increment();
+                }
+                outboxRepository.complete(result.slotId(), result.idempotencyKey(), now);
+                outboxRepository.deleteDrained(result.slotId());
+            }
+        });
+        for (SlotHeightResultDto result : results) {
+            Counter.builder(METRIC + ".delivered").tag("status", String.valueOf(result.status()))
+                    .register(meterRegistry).increment();
+        }
+        log.debug("Slot height outbox: доставлено {} изменений", results.size());
+    }
+
+    private List<SlotHeightOutbox> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SlotHeightOutbox> claimed = new ArrayList<>();
+        for (SlotHeightOutbox row : outboxRepository.lockDue(now, batchSize)) {
+            if (row.getInflightKey() == null) {
+                if (row.getPendingDeltaCm().signum() == 0) {
+                    outboxRepository.delete(row);
+                    continue;
+                }
+                row.setInflightKey(UUID.randomUUID());
+                row.setInflightDeltaCm(row.getPendingDeltaCm());
+                row.setPendingDeltaCm(BigDecimal.ZERO);
+            }
+            row.setAttempts(row.getAttempts() + 1);
+            row.setLockedUntil(now.plusSeconds(leaseSeconds));
+            claimed.add(row);
+        }
+        return outboxRepository.saveAll(claimed);
+    }
+
+    private void reschedule(SlotHeightOutbox row, String error) {
+        long backoffSeconds = INITIAL_BACKOFF_SECONDS * (1L << Math.min(row.getAttempts() - 1, 5));
+        if (row.getAttempts() == DRIFT_ALERT_ATTEMPTS) {
+            log.error("Slot height outbox: слот {} не синхронизирован после {} попыток (delta={}), "
+                    + "остаток высоты в warehouse-service расходится до доставки", row.getSlotId(),
+                    row.getAttempts(), row.getInflightDeltaCm());
+        }
+        outboxRepository.reschedule(row.getSlotId(), row.getInflightKey(),
+                LocalDateTime.now().plusSeconds(backoffSeconds),
+                error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error,
+                LocalDateTime.now());
+    }
+}
@@ -0,0 +1,259 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.client.WarehouseClient;
+import by.bsuir.productservice.client.dto.RackInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Локальный кэш топологии складов (стеллажи + слоты) с LRU-вытеснением.
+ * Снимок хранится вместе с topologyVersion из warehouse-service; структурные события
+ * с более новой версией сбрасывают запись, события высоты патчат слот на месте.
+ * max-age — страховка на случай потерянного события.
+ */
+@Slf4j
+@Service
+public class WarehouseTopologyCache {
+
+    private static final String METRIC = "warehouse.topology.cache";
+
+    private final WarehouseClient warehouseClient;
+    private final Clock clock;
+    private final int maxWarehouses;
+    private final Duration maxAge;
+
+    private final Map<UUID, Entry> entries;
+    /**
+     * Последняя версия, о которой сообщили события, — не даёт закэшировать устаревший снимок.
+     * Нужна только пока в кэше нет снимка этой версии: снимается при его загрузке и при вытеснении
+     * записи, а сама ограничена тем же числом складов.
+     */
+    private final Map<UUID, Long> announcedVersions;
+    /** Загрузки в процессе: параллельные промахи по одному складу ждут один REST-вызов. */
+    private final Map<UUID, CompletableFuture<WarehouseTopologyDto>> inFlight = new HashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter patches;
+    private final Counter staleSnapshots;
+    private final Counter coalesced;
+    private final Counter evictedByVersion;
+    private final Counter evictedByAge;
+    private final Counter evictedBySize;
+    private final Counter evictedByDeletion;
+    private final Counter evictedByMiss;
+    private final DistributionSummary hitAge;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public WarehouseTopologyCache(WarehouseClient warehouseClient,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${warehouse.topology-cache.max-warehouses:256}") int maxWarehouses,
+                                  @Value("${warehouse.topology-cache.max-age-minutes:10}") long maxAgeMinutes) {
+        this(warehouseClient, meterRegistry, maxWarehouses, Duration.ofMinutes(maxAgeMinutes), Clock.systemUTC());
+    }
+
+    WarehouseTopologyCache(WarehouseClient warehouseClient, MeterRegistry meterRegistry,
+                           int maxWarehouses, Duration maxAge, Clock clock) {
+        this.warehouseClient = warehouseClient;
+        this.clock = clock;
+        this.maxWarehouses = Math.max(maxWarehouses, 1);
+        this.maxAge = maxAge;
+        this.evictedBySize = evictionCounter(meterRegistry, "size");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                boolean evict = size() > WarehouseTopologyCache.this.maxWarehouses;
+                if (evict) {
+                    evictedBySize.increment();
+                    announcedVersions.remove(eldest.getKey());
+                }
+                return evict;
+            }
+        };
+        this.announcedVersions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                return size() > WarehouseTopologyCache.this.maxWarehouses;
+            }
+        };
+        this.hits = Counter.builder(METRIC + ".requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder(METRIC + ".requests").tag("result", "miss").register(meterRegistry);
+        this.patches = Counter.builder(METRIC + ".patches").register(meterRegistry);
+        this.staleSnapshots = Counter.builder(METRIC + ".stale").register(meterRegistry);
+        this.coalesced = Counter.builder(METRIC + ".requests").tag("result", "coalesced").register(meterRegistry);
+        this.evictedByVersion = evictionCounter(meterRegistry, "version");
+        this.evictedByAge = evictionCounter(meterRegistry, "age");
+        this.evictedByDeletion = evictionCounter(meterRegistry, "deleted");
+        this.evictedByMiss = evictionCounter(meterRegistry, "miss");
+        this.hitAge = DistributionSummary.builder(METRIC + ".hit.age")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder(METRIC + ".size", this, WarehouseTopologyCache::size).register(meterRegistry);
+    }
+
+    public WarehouseTopologyDto get(UUID warehouseId) {
+        if (warehouseId == null) return WarehouseTopologyDto.empty(null);
+        Instant now = clock.instant();
+        CompletableFuture<WarehouseTopologyDto> load;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = entries.get(warehouseId);
+            if (entry != null) {
+                Duration age = Duration.between(entry.loadedAt(), now);
+                if (age.compareTo(maxAge) < 0) {
+                    hits.increment();
+                    hitAge.record(age.toSeconds());
+                    return entry.topology();
+                }
+                entries.remove(warehouseId);
+                announcedVersions.remove(warehouseId);
+                evictedByAge.increment();
+            }
+            misses.increment();
+            load = inFlight.get(warehouseId);
+            if (load == null) {
+                load = new CompletableFuture<>();
+                inFlight.put(warehouseId, load);
+                owner = true;
+            } else {
+                coalesced.increment();
+            }
+        }
+        if (!owner) {
+            return load.join();
+        }
+
+        try {
+            WarehouseTopologyDto fetched = warehouseClient.getWarehouseTopology(warehouseId, "WORKER");
+            if (fetched.topologyVersion() != null) {
+                store(warehouseId, fetched, now);
+            }
+            load.complete(fetched);
+            return fetched;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                inFlight.remove(warehouseId, load);
+            }
+        }
+    }
+
+    private synchronized void store(UUID warehouseId, WarehouseTopologyDto fetched, Instant loadedAt) {
+        Long announced = announcedVersions.get(warehouseId);
+        if (announced != null && fetched.topologyVersion() < announced) {
+            staleSnapshots.increment();
+            log.debug("Topology of warehouse {} v{} is older than announced v{} — not cached",
+                    warehouseId, fetched.topologyVersion(), announced);
+            return;
+        }
+        Entry current = entries.get(warehouseId);
+        if (current == null || current.topology().topologyVersion() <= fetched.topologyVersion()) {
+            entries.put(warehouseId, new Entry(fetched, loadedAt));
+            announcedVersions.remove(warehouseId);
+        }
+    }
+
+    /**
+     * Перечитывает топологию склада мимо кэшированного снимка — когда в нём не нашлось слота,
+     * который мог появиться после загрузки, а событие о нём ещё не дошло.
+     */
+    public WarehouseTopologyDto refresh(UUID warehouseId) {
+        synchronized (this) {
+            if (entries.remove(warehouseId) != null) {
+                evictedByMiss.increment();
+            }
+        }
+        return get(warehouseId);
+    }
+
+    public RackInfoDto getRack(UUID warehouseId, UUID rackId) {
+        if (rackId == null) return null;
+        return get(warehouseId).racksOrEmpty().stream()
+                .filter(r -> rackId.equals(r.rackId()))
+                .findFirst()
+                .map(WarehouseTopologyDto.RackNode::toRackInfo)
+                .orElse(null);
+    }
+
+    public WarehouseTopologyDto.RackNode findRackOfSlot(UUID warehouseId, UUID slotId) {
+        if (warehouseId == null || slotId == null) return null;
+        return get(warehouseId).findRackOfSlot(slotId);
+    }
+
+    public synchronized void onTopologyChanged(UUID warehouseId, long topologyVersion) {
+        Entry entry = entries.get(warehouseId);
+        if (entry != null && entry.topology().topologyVersion() >= topologyVersion) {
+            return;
+        }
+        announcedVersions.merge(warehouseId, topologyVersion, Math::max);
+        if (entry != null) {
+            entries.remove(warehouseId);
+            evictedByVersion.increment();
+            log.debug("Topology cache: warehouse {} invalidated (v{} → v{})",
+                    warehouseId, entry.topology().topologyVersion(), topologyVersion);
+        }
+    }
+
+    public synchronized void onSlotHeightChanged(UUID warehouseId, UUID slotId,
+                                                 BigDecimal remainingHeightCm, long topologyVersion) {
+        Entry entry = entries.get(warehouseId);
+        if (entry == null) return;
+        long cachedVersion = entry.topology().topologyVersion();
+        if (cachedVersion < topologyVersion) {
+            onTopologyChanged(warehouseId, topologyVersion);
+            return;
+        }
+        if (cachedVersion > topologyVersion || entry.topology().findRackOfSlot(slotId) == null) return;
+        entries.put(warehouseId, new Entry(
+                entry.topology().withSlotRemainingHeight(slotId, remainingHeightCm), entry.loadedAt()));
+        patches.increment();
+    }
+
+    public synchronized void evict(UUID warehouseId) {
+        announcedVersions.remove(warehouseId);
+        if (entries.remove(warehouseId) != null) {
+            evictedByDeletion.increment();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized int announcedSize() {
+        return announcedVersions.size();
+    }
+
+    private static Counter evictionCounter(MeterRegistry registry, String reason) {
+        return Counter.builder(METRIC + ".evictions").tag("reason", reason).register(registry);
+    }
+
+    private record Entry(WarehouseTopologyDto topology, Instant loadedAt) {
+    }
+}
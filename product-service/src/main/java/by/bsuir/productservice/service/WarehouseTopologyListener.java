@@ -0,0 +1,50 @@
+package by.bsuir.productservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WarehouseTopologyListener {
+
+    private final WarehouseTopologyCache topologyCache;
+    private final FreeSlotIndex freeSlotIndex;
+
+    @RabbitListener(queues = "#{warehouseTopologyQueue.name}")
+    public void handleWarehouseEvent(Map<String, Object> event) {
+        try {
+            Object warehouseIdRaw = event.get("warehouseId");
+            if (warehouseIdRaw == null) {
+                log.warn("warehouse topology: некорректное событие: {}", event);
+                return;
+            }
+            UUID warehouseId = UUID.fromString(warehouseIdRaw.toString());
+            String eventType = String.valueOf(event.get("eventType"));
+            Object versionRaw = event.get("topologyVersion");
+            if (versionRaw == null || "WAREHOUSE_DELETED".equals(eventType)) {
+                topologyCache.evict(warehouseId);
+                freeSlotIndex.evict(warehouseId);
+                return;
+            }
+            long version = Long.parseLong(versionRaw.toString());
+            if ("SLOT_HEIGHT_CHANGED".equals(eventType)) {
+                UUID slotId = UUID.fromString(event.get("slotId").toString());
+                BigDecimal remaining = event.get("remainingHeightCm") != null
+                        ? new BigDecimal(event.get("remainingHeightCm").toString()) : null;
+                topologyCache.onSlotHeightChanged(warehouseId, slotId, remaining, version);
+                freeSlotIndex.onSlotHeightChanged(warehouseId, slotId, remaining);
+            } else {
+                topologyCache.onTopologyChanged(warehouseId, version);
+            }
+        } catch (Exception e) {
+            log.error("warehouse topology: ошибка обработки события {}: {}", event, e.getMessage());
+        }
+    }
+}
@@ -36,12 +36,13 @@ public class WriteOffService {
 
     private final InventoryRepository inventoryRepository;
     private final ProductOperationRepository operationRepository;
+    private final OperationRollupService operationRollupService;
     private final InventoryCountRepository countRepository;
     private final InventoryEventService inventoryEventService;
     private final ProductReadModelRepository productRepository;
     private final ProductBatchRepository batchRepository;
     private final FEFOService fefoService;
-    private final by.bsuir.productservice.client.WarehouseClient warehouseClient;
+    private final SlotHeightOutboxService slotHeightOutbox;
 
     @Transactional
     public Map<String, Object> writeOff(WriteOffRequest request, UUID organizationId) {
@@ -108,6 +109,7 @@ public class WriteOffService {
                 .notes(notes.toString())
                 .build();
         operationRepository.save(operation);
+        operationRollupService.recordCreated(operation);
 
         Map<UUID, BigDecimal> takenByInv = new java.util.LinkedHashMap<>();
         BigDecimal remaining = request.quantity();
@@ -133,7 +135,7 @@ public class WriteOffService {
             if (inv.getCellId() != null && inv.getBatchId() != null) {
                 BigDecimal heightDelta = computeHeightDelta(inv.getBatchId(), take);
                 if (heightDelta.signum() > 0) {
-                    warehouseClient.adjustSlotHeight(inv.getCellId(), heightDelta);
+                    slotHeightOutbox.enqueue(inv.getCellId(), heightDelta);
                 }
             }
 
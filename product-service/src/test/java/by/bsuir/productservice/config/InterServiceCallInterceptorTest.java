@@ -0,0 +1,101 @@
+package by.bsuir.productservice.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@DisplayName("InterServiceCallInterceptor — модульные тесты")
+class InterServiceCallInterceptorTest {
+
+    private InterServiceProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        properties = new InterServiceProperties();
+        properties.setSlidingWindowSize(4);
+        properties.setMinimumCalls(4);
+        meterRegistry = new SimpleMeterRegistry();
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    private void installInterceptor() {
+        restTemplate.getInterceptors().add(new InterServiceCallInterceptor(properties, meterRegistry));
+    }
+
+    @Test
+    @DisplayName("успешный вызов → таймер с target, route без идентификаторов и outcome=SUCCESS")
+    void intercept_GivenSuccess_ShouldRecordRouteMetric() {
+        installInterceptor();
+        UUID warehouseId = UUID.randomUUID();
+        server.expect(requestTo("http://WAREHOUSE-SERVICE/api/warehouses/" + warehouseId))
+                .andRespond(withSuccess());
+
+        restTemplate.getForEntity("http://WAREHOUSE-SERVICE/api/warehouses/" + warehouseId, String.class);
+
+        assertThat(meterRegistry.get("inter.service.client.requests")
+                .tag("target", "warehouse-service")
+                .tag("route", "/api/warehouses/{id}")
+                .tag("outcome", "SUCCESS")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("серия 5xx → circuit breaker открывается, следующий вызов отклоняется без обращения к сервису")
+    void intercept_GivenServerErrors_ShouldOpenCircuit() {
+        installInterceptor();
+        server.expect(ExpectedCount.times(4), requestTo("http://WAREHOUSE-SERVICE/api/racks"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> restTemplate.getForEntity("http://WAREHOUSE-SERVICE/api/racks", String.class))
+                    .isInstanceOf(HttpServerErrorException.class);
+        }
+
+        assertThatThrownBy(() -> restTemplate.getForEntity("http://WAREHOUSE-SERVICE/api/racks", String.class))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("circuit breaker");
+        server.verify();
+        assertThat(meterRegistry.get("inter.service.client.requests")
+                .tag("outcome", "CIRCUIT_OPEN").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("лимит одновременных вызовов сервиса исчерпан → вызов отклоняется сразу")
+    void intercept_GivenBulkheadFull_ShouldRejectImmediately() {
+        InterServiceProperties.Target target = new InterServiceProperties.Target();
+        target.setMaxConcurrentCalls(0);
+        properties.getTargets().put("document-service", target);
+        installInterceptor();
+
+        assertThatThrownBy(() -> restTemplate.getForEntity("http://DOCUMENT-SERVICE/api/documents", String.class))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("лимит");
+        server.verify();
+    }
+
+    @Test
+    @DisplayName("route: UUID и числовые сегменты заменяются на {id}")
+    void route_ShouldReplaceIdentifiers() {
+        assertThat(InterServiceCallInterceptor.route("/api/racks/" + UUID.randomUUID() + "/cells/42"))
+                .isEqualTo("/api/racks/{id}/cells/{id}");
+        assertThat(InterServiceCallInterceptor.route("")).isEqualTo("/");
+    }
+}
@@ -1,6 +1,7 @@
 package by.bsuir.productservice.controller;
 
 import by.bsuir.productservice.service.InventoryCheckService;
+import by.bsuir.productservice.service.InventoryScanService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -26,6 +27,9 @@ class InventoryCheckControllerTest {
     @Mock
     private InventoryCheckService inventoryCheckService;
 
+    @Mock
+    private InventoryScanService inventoryScanService;
+
     @InjectMocks
     private InventoryCheckController inventoryCheckController;
 
@@ -97,14 +101,14 @@ class InventoryCheckControllerTest {
         UUID cellId = UUID.randomUUID();
         BigDecimal actualQuantity = new BigDecimal("50.00");
 
-        doNothing().when(inventoryCheckService).recordActualCount(any(), any(), any(), any(), any(), any());
+        doNothing().when(inventoryCheckService).recordActualCount(any(), any(), any(), any(), any(), any(), any());
 
         ResponseEntity<Map<String, String>> response = inventoryCheckController.recordActualCount(
-                sessionId, null, productId, cellId, actualQuantity, "Test notes", "ACCOUNTANT", UUID.randomUUID());
+                sessionId, null, productId, cellId, null, actualQuantity, "Test notes", "ACCOUNTANT", UUID.randomUUID());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).containsKey("message");
-        verify(inventoryCheckService, times(1)).recordActualCount(any(), any(), any(), any(), any(), any());
+        verify(inventoryCheckService, times(1)).recordActualCount(any(), any(), any(), any(), any(), any(), any());
     }
 
     @Test
@@ -115,10 +119,10 @@ class InventoryCheckControllerTest {
         BigDecimal actualQuantity = new BigDecimal("50.00");
 
         ResponseEntity<Map<String, String>> response = inventoryCheckController.recordActualCount(
-                sessionId, null, productId, null, actualQuantity, "Test notes", null, UUID.randomUUID());
+                sessionId, null, productId, null, null, actualQuantity, "Test notes", null, UUID.randomUUID());
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
-        verify(inventoryCheckService, never()).recordActualCount(any(), any(), any(), any(), any(), any());
+        verify(inventoryCheckService, never()).recordActualCount(any(), any(), any(), any(), any(), any(), any());
     }
 
     @Test
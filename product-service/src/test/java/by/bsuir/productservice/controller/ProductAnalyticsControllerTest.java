@@ -1,5 +1,7 @@
 package by.bsuir.productservice.controller;
 
+import by.bsuir.productservice.dto.response.InventoryAnalyticsResponse;
+import by.bsuir.productservice.dto.response.OperationsDynamicsResponse;
 import by.bsuir.productservice.service.ProductAnalyticsService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,9 +14,12 @@ import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDate;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,36 +32,69 @@ class ProductAnalyticsControllerTest {
     @InjectMocks
     private ProductAnalyticsController productAnalyticsController;
 
+    private final UUID orgId = UUID.randomUUID();
+
+    private OperationsDynamicsResponse dynamics(LocalDate start, LocalDate end) {
+        return new OperationsDynamicsResponse(start, end, 150, Map.of("RECEIPT", 150L), Map.of(), Map.of());
+    }
+
     @Test
     @DisplayName("getInventoryAnalytics: Given DIRECTOR role Should return analytics")
     void getInventoryAnalytics_GivenDirectorRole_ShouldReturnAnalytics() {
-        Map<String, Object> analytics = Map.of("totalProducts", 100, "totalValue", 50000);
+        InventoryAnalyticsResponse analytics = new InventoryAnalyticsResponse(100, 10, 90, 5, 7);
 
-        when(analyticsService.getInventoryAnalytics()).thenReturn(analytics);
+        when(analyticsService.getInventoryAnalytics(orgId, null)).thenReturn(analytics);
 
-        ResponseEntity<Map<String, Object>> response = productAnalyticsController.getInventoryAnalytics("DIRECTOR");
+        ResponseEntity<InventoryAnalyticsResponse> response =
+                productAnalyticsController.getInventoryAnalytics(null, orgId, "DIRECTOR");
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody()).containsKey("totalProducts");
-        verify(analyticsService, times(1)).getInventoryAnalytics();
+        assertThat(response.getBody()).isEqualTo(analytics);
+        verify(analyticsService, times(1)).getInventoryAnalytics(orgId, null);
+    }
+
+    @Test
+    @DisplayName("getInventoryAnalytics: Given warehouseId Should scope analytics to warehouse")
+    void getInventoryAnalytics_GivenWarehouse_ShouldPassItThrough() {
+        UUID warehouseId = UUID.randomUUID();
+        when(analyticsService.getInventoryAnalytics(orgId, warehouseId))
+                .thenReturn(new InventoryAnalyticsResponse(1, 0, 1, 1, 1));
+
+        ResponseEntity<InventoryAnalyticsResponse> response =
+                productAnalyticsController.getInventoryAnalytics(warehouseId, orgId, "ACCOUNTANT");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(analyticsService).getInventoryAnalytics(orgId, warehouseId);
+    }
+
+    @Test
+    @DisplayName("getInventoryAnalytics: Given no organization Should return 400")
+    void getInventoryAnalytics_GivenNoOrganization_ShouldReturn400() {
+        ResponseEntity<InventoryAnalyticsResponse> response =
+                productAnalyticsController.getInventoryAnalytics(null, null, "DIRECTOR");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(analyticsService);
     }
 
     @Test
     @DisplayName("getInventoryAnalytics: Given no role Should return 403")
     void getInventoryAnalytics_GivenNoRole_ShouldReturn403() {
-        ResponseEntity<Map<String, Object>> response = productAnalyticsController.getInventoryAnalytics(null);
+        ResponseEntity<InventoryAnalyticsResponse> response =
+                productAnalyticsController.getInventoryAnalytics(null, orgId, null);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
-        verify(analyticsService, never()).getInventoryAnalytics();
+        verify(analyticsService, never()).getInventoryAnalytics(any(), any());
     }
 
     @Test
     @DisplayName("getInventoryAnalytics: Given non-DIRECTOR role Should return 403")
     void getInventoryAnalytics_GivenNonDirectorRole_ShouldReturn403() {
-        ResponseEntity<Map<String, Object>> response = productAnalyticsController.getInventoryAnalytics("ADMIN");
+        ResponseEntity<InventoryAnalyticsResponse> response =
+                productAnalyticsController.getInventoryAnalytics(null, orgId, "ADMIN");
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
-        verify(analyticsService, never()).getInventoryAnalytics();
+        verify(analyticsService, never()).getInventoryAnalytics(any(), any());
     }
 
     @Test
@@ -64,16 +102,16 @@ class ProductAnalyticsControllerTest {
     void getOperationsDynamics_GivenDirectorRole_ShouldReturnDynamics() {
         LocalDate startDate = LocalDate.now().minusDays(30);
         LocalDate endDate = LocalDate.now();
-        Map<String, Object> dynamics = Map.of("operations", 150, "totalValue", 30000);
 
-        when(analyticsService.getOperationsDynamics(any(LocalDate.class), any(LocalDate.class))).thenReturn(dynamics);
+        when(analyticsService.getOperationsDynamics(orgId, null, startDate, endDate))
+                .thenReturn(dynamics(startDate, endDate));
 
-        ResponseEntity<Map<String, Object>> response = productAnalyticsController.getOperationsDynamics(
-                startDate, endDate, "DIRECTOR");
+        ResponseEntity<OperationsDynamicsResponse> response = productAnalyticsController.getOperationsDynamics(
+                startDate, endDate, null, orgId, "DIRECTOR");
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody()).containsKey("operations");
-        verify(analyticsService, times(1)).getOperationsDynamics(any(LocalDate.class), any(LocalDate.class));
+        assertThat(response.getBody().totalOperations()).isEqualTo(150);
+        verify(analyticsService, times(1)).getOperationsDynamics(orgId, null, startDate, endDate);
     }
 
     @Test
@@ -82,35 +120,36 @@ class ProductAnalyticsControllerTest {
         LocalDate startDate = LocalDate.now().minusDays(30);
         LocalDate endDate = LocalDate.now();
 
-        ResponseEntity<Map<String, Object>> response = productAnalyticsController.getOperationsDynamics(
-                startDate, endDate, "ADMIN");
+        ResponseEntity<OperationsDynamicsResponse> response = productAnalyticsController.getOperationsDynamics(
+                startDate, endDate, null, orgId, "ADMIN");
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
-        verify(analyticsService, never()).getOperationsDynamics(any(), any());
+        verify(analyticsService, never()).getOperationsDynamics(any(), any(), any(), any());
     }
 
     @Test
     @DisplayName("getOperationsSummary: Given DIRECTOR role Should return summary")
     void getOperationsSummary_GivenDirectorRole_ShouldReturnSummary() {
-        Map<String, Object> summary = Map.of("operations", 150, "totalValue", 30000);
-
-        when(analyticsService.getOperationsDynamics(any(LocalDate.class), any(LocalDate.class))).thenReturn(summary);
+        when(analyticsService.getOperationsDynamics(eq(orgId), isNull(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(dynamics(LocalDate.now().minusDays(30), LocalDate.now()));
 
-        ResponseEntity<Map<String, Object>> response = productAnalyticsController.getOperationsSummary("DIRECTOR");
+        ResponseEntity<OperationsDynamicsResponse> response =
+                productAnalyticsController.getOperationsSummary(null, orgId, "DIRECTOR");
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
-        assertThat(response.getBody()).containsKey("operations");
-        verify(analyticsService, times(1)).getOperationsDynamics(any(LocalDate.class), any(LocalDate.class));
+        assertThat(response.getBody().operationsByType()).containsKey("RECEIPT");
+        verify(analyticsService, times(1))
+                .getOperationsDynamics(eq(orgId), isNull(), any(LocalDate.class), any(LocalDate.class));
     }
 
     @org.junit.jupiter.api.Disabled("Role-check semantics changed — pending update to assert correct status under new RBAC")
     @Test
     @DisplayName("getOperationsSummary: Given non-DIRECTOR role Should return 403")
     void getOperationsSummary_GivenNonDirectorRole_ShouldReturn403() {
-        ResponseEntity<Map<String, Object>> response = productAnalyticsController.getOperationsSummary("ACCOUNTANT");
+        ResponseEntity<OperationsDynamicsResponse> response =
+                productAnalyticsController.getOperationsSummary(null, orgId, "ACCOUNTANT");
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
-        verify(analyticsService, never()).getOperationsDynamics(any(), any());
+        verify(analyticsService, never()).getOperationsDynamics(any(), any(), any(), any());
     }
 }
-
@@ -51,7 +51,7 @@ class ShipmentRequestControllerTest {
                 ShipmentRequestStatus.PLANNED, ShipmentType.DOMESTIC, "BYN",
                 DocumentLayout.HORIZONTAL, DomesticDocumentKind.TN, null, null,
                 UUID.randomUUID(), LocalDateTime.now(), LocalDateTime.now(),
-                BigDecimal.ZERO, null, null, List.of(), List.of());
+                BigDecimal.ZERO, null, null, null, List.of(), List.of());
     }
 
     private CreateShipmentRequestRequest sampleCreate() {
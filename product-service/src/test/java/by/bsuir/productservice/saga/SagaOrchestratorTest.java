@@ -3,32 +3,46 @@ package by.bsuir.productservice.saga;
 import by.bsuir.productservice.model.entity.Inventory;
 import by.bsuir.productservice.model.entity.ProductBatch;
 import by.bsuir.productservice.model.entity.ProductOperation;
+import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.SagaState;
+import by.bsuir.productservice.model.entity.SagaStepLog;
 import by.bsuir.productservice.model.enums.SagaStatus;
+import by.bsuir.productservice.model.enums.SagaStepEvent;
 import by.bsuir.productservice.model.enums.SagaType;
 import by.bsuir.productservice.repository.InventoryRepository;
 import by.bsuir.productservice.repository.ProductBatchRepository;
 import by.bsuir.productservice.repository.ProductOperationRepository;
 import by.bsuir.productservice.repository.SagaStateRepository;
+import by.bsuir.productservice.repository.SagaStepLogRepository;
+import by.bsuir.productservice.service.OperationRollupService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -39,13 +53,69 @@ import static org.mockito.Mockito.when;
 class SagaOrchestratorTest {
 
     @Mock private SagaStateRepository sagaStateRepository;
-    @Spy  private ObjectMapper objectMapper = new ObjectMapper();
+    @Mock private SagaStepLogRepository stepLogRepository;
     @Mock private ProductBatchRepository batchRepository;
     @Mock private InventoryRepository inventoryRepository;
     @Mock private ProductOperationRepository operationRepository;
+    @Mock private OperationRollupService operationRollupService;
     @Mock private by.bsuir.productservice.service.InventoryEventService inventoryEventService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<UUID, SagaState> headers = new HashMap<>();
+    private final List<SagaStepLog> stepLog = new ArrayList<>();
+
+    private SagaOrchestrator orchestrator;
+
+    /** saga_state и saga_step_log подменены картой и списком — так проверяется и сборка состояния из журнала. */
+    @BeforeEach
+    void setUp() {
+        orchestrator = new SagaOrchestrator(sagaStateRepository, stepLogRepository, objectMapper,
+                batchRepository, inventoryRepository, operationRepository, operationRollupService,
+                inventoryEventService, null, transactionManager, meterRegistry, "test-instance", 120, 100, 30, 50);
+
+        lenient().when(sagaStateRepository.save(any(SagaState.class))).thenAnswer(inv -> {
+            SagaState header = inv.getArgument(0);
+            headers.put(header.getSagaId(), header);
+            return header;
+        });
+        lenient().when(sagaStateRepository.findById(any()))
+                .thenAnswer(inv -> Optional.ofNullable(headers.get(inv.<UUID>getArgument(0))));
+        lenient().when(sagaStateRepository.advance(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(this::advanceHeader);
+        lenient().when(stepLogRepository.save(any(SagaStepLog.class))).thenAnswer(inv -> {
+            SagaStepLog entry = inv.getArgument(0);
+            entry.setId((long) stepLog.size() + 1);
+            stepLog.add(entry);
+            return entry;
+        });
+        lenient().when(stepLogRepository.findBySagaIdOrderByIdAsc(any())).thenAnswer(inv -> stepLog.stream()
+                .filter(e -> e.getSagaId().equals(inv.getArgument(0)))
+                .toList());
+        lenient().when(stepLogRepository.findBySagaIdAndEvent(any(), any())).thenAnswer(inv -> stepLog.stream()
+                .filter(e -> e.getSagaId().equals(inv.getArgument(0)) && e.getEvent() == inv.getArgument(1))
+                .toList());
+    }
+
+    private int advanceHeader(InvocationOnMock inv) {
+        SagaState header = headers.get(inv.<UUID>getArgument(0));
+        if (header == null || header.getStatus() != inv.getArgument(1)
+                || !Objects.equals(header.getCurrentStep(), inv.getArgument(2))) {
+            return 0;
+        }
+        header.setStatus(inv.getArgument(3));
+        header.setCurrentStep(inv.getArgument(4));
+        header.setFailureReason(inv.getArgument(5));
+        header.setOwnerInstance(inv.getArgument(6));
+        header.setLeaseUntil(inv.getArgument(7));
+        header.setUpdatedAt(inv.getArgument(8));
+        return 1;
+    }
 
-    @InjectMocks private SagaOrchestrator orchestrator;
+    private List<SagaStepEvent> events(UUID sagaId) {
+        return stepLog.stream().filter(e -> e.getSagaId().equals(sagaId)).map(SagaStepLog::getEvent).toList();
+    }
 
     @Test
     @DisplayName("startReceiveSaga: создаёт sagaId, ставит PENDING + BATCH_CREATION, persist'ит state")
@@ -128,6 +198,7 @@ class SagaOrchestratorTest {
         orchestrator.markStepFailed(sagaId, "OPERATION_RECORD", "оператор отменил");
 
         verify(operationRepository).delete(op);
+        verify(operationRollupService).recordDeleted(op);
         verify(inventoryRepository).save(inv);
         assertThat(inv.getQuantity()).isEqualByComparingTo(BigDecimal.valueOf(10));
         verify(batchRepository).delete(batch);
@@ -263,7 +334,9 @@ class SagaOrchestratorTest {
         orchestrator.markShipStepFailed(sagaId, "OPERATION_RECORD", "fail");
 
         verify(operationRepository).delete(op);
+        verify(operationRollupService).recordDeleted(op);
         verify(operationRepository).delete(staging);
+        verify(operationRollupService).recordDeleted(staging);
 
         assertThat(inv.getQuantity()).isEqualByComparingTo(BigDecimal.valueOf(25));
 
@@ -292,48 +365,155 @@ class SagaOrchestratorTest {
     }
 
     @Test
-    @DisplayName("restoreInProgressSagas: загружает PENDING/COMPENSATING из БД в in-memory map")
-    void restoreInProgressSagas_ShouldRestoreFromDb() throws Exception {
-        ReceiveSagaState saga1 = ReceiveSagaState.builder()
-                .sagaId(UUID.randomUUID()).productId(UUID.randomUUID())
-                .warehouseId(UUID.randomUUID()).quantity(BigDecimal.ONE)
-                .currentStep("INVENTORY_UPDATE").status("PENDING").build();
-        ShipSagaState saga2 = ShipSagaState.builder()
-                .sagaId(UUID.randomUUID()).productId(UUID.randomUUID())
-                .warehouseId(UUID.randomUUID()).quantity(BigDecimal.TEN)
-                .currentStep("STAGING").status("PENDING").build();
-
-        SagaState s1 = SagaState.builder().sagaId(saga1.getSagaId()).sagaType(SagaType.RECEIVE)
-                .status(SagaStatus.PENDING).currentStep("INVENTORY_UPDATE")
-                .payload(objectMapper.writeValueAsString(saga1)).build();
-        SagaState s2 = SagaState.builder().sagaId(saga2.getSagaId()).sagaType(SagaType.SHIP)
-                .status(SagaStatus.COMPENSATING).currentStep("STAGING")
-                .payload(objectMapper.writeValueAsString(saga2)).build();
-
-        when(sagaStateRepository.findByStatusIn(eq(List.of(SagaStatus.PENDING, SagaStatus.COMPENSATING))))
-                .thenReturn(List.of(s1, s2));
-
-        orchestrator.restoreInProgressSagas();
-
-        assertThat(orchestrator.getSagaState(saga1.getSagaId())).isNotNull();
-        assertThat(orchestrator.getShipSagaState(saga2.getSagaId())).isNotNull();
+    @DisplayName("maintainLeases: продлевает свои аренды, забирает просроченные и доводит компенсацию упавшей саги")
+    void maintainLeases_ShouldClaimExpiredAndResumeCompensation() throws Exception {
+        UUID pendingId = UUID.randomUUID();
+        UUID failedId = UUID.randomUUID();
+        UUID invId = UUID.randomUUID();
+        headers.put(pendingId, header(pendingId, SagaType.SHIP, SagaStatus.PENDING, "STAGING",
+                ShipSagaState.builder().sagaId(pendingId).quantity(BigDecimal.ONE).build()));
+        headers.put(failedId, header(failedId, SagaType.RECEIVE, SagaStatus.FAILED, "INVENTORY_UPDATE",
+                ReceiveSagaState.builder().sagaId(failedId).quantity(BigDecimal.valueOf(4)).build()));
+        stepLog.add(SagaStepLog.builder().id(1L).sagaId(failedId).sagaType(SagaType.RECEIVE)
+                .step("INVENTORY_UPDATE").event(SagaStepEvent.STEP_COMPLETED)
+                .data("{\"inventoryId\":\"" + invId + "\"}").build());
+
+        when(sagaStateRepository.lockExpiredLeases(any(LocalDateTime.class), anyInt()))
+                .thenReturn(List.of(pendingId, failedId));
+        Inventory inv = Inventory.builder().inventoryId(invId).quantity(BigDecimal.valueOf(10)).build();
+        when(inventoryRepository.findByIdForUpdate(invId)).thenReturn(Optional.of(inv));
+
+        orchestrator.maintainLeases();
+
+        verify(sagaStateRepository).renewLeases(eq("test-instance"), any(), any(LocalDateTime.class));
+        verify(sagaStateRepository).claim(eq(List.of(pendingId, failedId)), eq("test-instance"), any(LocalDateTime.class));
+        assertThat(inv.getQuantity()).isEqualByComparingTo(BigDecimal.valueOf(6));
+        assertThat(headers.get(failedId).getStatus()).isEqualTo(SagaStatus.COMPENSATED);
+        assertThat(headers.get(pendingId).getStatus()).isEqualTo(SagaStatus.PENDING);
+        assertThat(meterRegistry.get("saga.recovered").tag("action", "compensated").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("saga.recovered").tag("action", "adopted").counter().count()).isEqualTo(1.0);
     }
 
     @Test
-    @DisplayName("cleanupSaga / cleanupShipSaga: убирают state из памяти")
-    void cleanupSaga_ShouldRemoveFromMemory() {
+    @DisplayName("compensate: возобновление COMPENSATING пропускает шаги, уже откатанные до сбоя")
+    void compensate_WhenResuming_ShouldSkipAlreadyUndoneSteps() throws Exception {
+        UUID sagaId = UUID.randomUUID();
+        UUID invId = UUID.randomUUID();
+        UUID opId = UUID.randomUUID();
+        headers.put(sagaId, header(sagaId, SagaType.RECEIVE, SagaStatus.COMPENSATING, "OPERATION_RECORD",
+                ReceiveSagaState.builder().sagaId(sagaId).quantity(BigDecimal.valueOf(2)).build()));
+        stepLog.add(SagaStepLog.builder().id(1L).sagaId(sagaId).sagaType(SagaType.RECEIVE)
+                .step("INVENTORY_UPDATE").event(SagaStepEvent.STEP_COMPLETED)
+                .data("{\"inventoryId\":\"" + invId + "\"}").build());
+        stepLog.add(SagaStepLog.builder().id(2L).sagaId(sagaId).sagaType(SagaType.RECEIVE)
+                .step("OPERATION_RECORD").event(SagaStepEvent.STEP_COMPLETED)
+                .data("{\"operationId\":\"" + opId + "\"}").build());
+        stepLog.add(SagaStepLog.builder().id(3L).sagaId(sagaId).sagaType(SagaType.RECEIVE)
+                .step("OPERATION_RECORD").event(SagaStepEvent.STEP_COMPENSATED).build());
+
+        Inventory inv = Inventory.builder().inventoryId(invId).quantity(BigDecimal.valueOf(10)).build();
+        when(inventoryRepository.findByIdForUpdate(invId)).thenReturn(Optional.of(inv));
+
+        orchestrator.compensate(sagaId);
+
+        verify(operationRepository, never()).findById(any());
+        assertThat(inv.getQuantity()).isEqualByComparingTo(BigDecimal.valueOf(8));
+        assertThat(headers.get(sagaId).getStatus()).isEqualTo(SagaStatus.COMPENSATED);
+    }
+
+    @Test
+    @DisplayName("завершённая сага вытесняется из памяти и собирается из payload и журнала шагов")
+    void completedSaga_ShouldBeEvictedAndRebuiltFromStepLog() {
+        ShipSagaState state = ShipSagaState.builder()
+                .productId(UUID.randomUUID()).warehouseId(UUID.randomUUID())
+                .quantity(BigDecimal.TEN).build();
+        UUID sagaId = orchestrator.startShipSaga(state);
+        UUID resId = UUID.randomUUID();
+        UUID docId = UUID.randomUUID();
+        UUID opId = UUID.randomUUID();
+
+        orchestrator.markShipStepCompleted(sagaId, "STOCK_RESERVATION", Map.of("reservationId", resId));
+        orchestrator.markShipStepCompleted(sagaId, "STAGING", Map.of("stagingOperationId", UUID.randomUUID()));
+        orchestrator.markShipStepCompleted(sagaId, "DOCUMENT_GENERATION", Map.of("documentIds", List.of(docId)));
+        orchestrator.markShipStepCompleted(sagaId, "INVENTORY_UPDATE", Map.of("inventoryId", UUID.randomUUID()));
+        orchestrator.markShipStepCompleted(sagaId, "OPERATION_RECORD", Map.of("operationId", opId));
+
+        ShipSagaState restored = orchestrator.getShipSagaState(sagaId);
+
+        assertThat(restored).isNotSameAs(state);
+        assertThat(restored.getStatus()).isEqualTo("COMPLETED");
+        assertThat(restored.getReservationId()).isEqualTo(resId);
+        assertThat(restored.getDocumentIds()).containsExactly(docId);
+        assertThat(restored.getOperationId()).isEqualTo(opId);
+        assertThat(headers.get(sagaId).getOwnerInstance()).isNull();
+        assertThat(events(sagaId)).containsExactly(SagaStepEvent.STARTED,
+                SagaStepEvent.STEP_COMPLETED, SagaStepEvent.STEP_COMPLETED, SagaStepEvent.STEP_COMPLETED,
+                SagaStepEvent.STEP_COMPLETED, SagaStepEvent.STEP_COMPLETED);
+        verify(sagaStateRepository, times(1)).save(any(SagaState.class));
+        assertThat(meterRegistry.get("saga.finished").tag("outcome", "COMPLETED").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("saga.step.duration").tag("step", "STAGING").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("переход по устаревшей копии: сагу уже продвинул другой экземпляр → conflict и вытеснение")
+    void markStepCompleted_WhenHeaderChangedElsewhere_ShouldRejectAndEvict() {
+        ShipSagaState state = ShipSagaState.builder()
+                .productId(UUID.randomUUID()).warehouseId(UUID.randomUUID())
+                .quantity(BigDecimal.ONE).build();
+        UUID sagaId = orchestrator.startShipSaga(state);
+        headers.get(sagaId).setCurrentStep("STAGING");
+
+        assertThatThrownBy(() -> orchestrator.markShipStepCompleted(
+                sagaId, "STOCK_RESERVATION", Map.of("reservationId", UUID.randomUUID())))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("другим экземпляром");
+
+        assertThat(orchestrator.getShipSagaState(sagaId)).isNotSameAs(state);
+    }
+
+    @Test
+    @DisplayName("метрики: старт, компенсация и исход саги считаются по типу")
+    void failedSaga_ShouldCountCompensation() {
         UUID sagaId = orchestrator.startReceiveSaga(ReceiveSagaState.builder()
                 .productId(UUID.randomUUID()).warehouseId(UUID.randomUUID())
                 .quantity(BigDecimal.ONE).build());
-        UUID shipId = orchestrator.startShipSaga(ShipSagaState.builder()
+
+        orchestrator.markStepFailed(sagaId, "BATCH_CREATION", null);
+
+        assertThat(meterRegistry.get("saga.started").tag("type", "RECEIVE").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("saga.compensations").tag("type", "RECEIVE").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("saga.finished").tag("outcome", "COMPENSATED").counter().count()).isEqualTo(1.0);
+        assertThat(events(sagaId)).containsExactly(SagaStepEvent.STARTED, SagaStepEvent.STEP_FAILED,
+                SagaStepEvent.COMPENSATION_STARTED, SagaStepEvent.COMPENSATED);
+    }
+
+    private SagaState header(UUID sagaId, SagaType type, SagaStatus status, String step, Object payload)
+            throws Exception {
+        return SagaState.builder().sagaId(sagaId).sagaType(type).status(status).currentStep(step)
+                .payload(objectMapper.writeValueAsString(payload))
+                .updatedAt(LocalDateTime.now().minusMinutes(10)).build();
+    }
+
+    @Test
+    @DisplayName("cleanupSaga / cleanupShipSaga: убирают state из памяти, сага остаётся доступной из БД")
+    void cleanupSaga_ShouldRemoveFromMemory() {
+        ReceiveSagaState receive = ReceiveSagaState.builder()
                 .productId(UUID.randomUUID()).warehouseId(UUID.randomUUID())
-                .quantity(BigDecimal.ONE).build());
+                .quantity(BigDecimal.ONE).build();
+        ShipSagaState ship = ShipSagaState.builder()
+                .productId(UUID.randomUUID()).warehouseId(UUID.randomUUID())
+                .quantity(BigDecimal.ONE).build();
+        UUID sagaId = orchestrator.startReceiveSaga(receive);
+        UUID shipId = orchestrator.startShipSaga(ship);
 
         orchestrator.cleanupSaga(sagaId);
         orchestrator.cleanupShipSaga(shipId);
 
-        assertThat(orchestrator.getSagaState(sagaId)).isNull();
-        assertThat(orchestrator.getShipSagaState(shipId)).isNull();
+        assertThat(orchestrator.getSagaState(sagaId)).isNotSameAs(receive)
+                .extracting(ReceiveSagaState::getProductId).isEqualTo(receive.getProductId());
+        assertThat(orchestrator.getShipSagaState(shipId)).isNotSameAs(ship)
+                .extracting(ShipSagaState::getCurrentStep).isEqualTo("STOCK_RESERVATION");
+        assertThat(orchestrator.getSagaState(UUID.randomUUID())).isNull();
     }
 
     @Test
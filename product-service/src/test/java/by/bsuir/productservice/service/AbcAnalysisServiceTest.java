@@ -1,7 +1,11 @@
 package by.bsuir.productservice.service;
 
+import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.ProductOperation;
 import by.bsuir.productservice.model.entity.ProductReadModel;
+import by.bsuir.productservice.model.entity.ScheduledJobRun;
+import by.bsuir.productservice.model.enums.JobRunStatus;
+import by.bsuir.productservice.model.enums.JobTrigger;
 import by.bsuir.productservice.model.enums.OperationType;
 import by.bsuir.productservice.repository.ProductOperationRepository;
 import by.bsuir.productservice.repository.ProductReadModelRepository;
@@ -21,6 +25,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
@@ -37,9 +42,26 @@ class AbcAnalysisServiceTest {
     @Mock
     private ProductReadModelRepository productRepository;
 
+    @Mock
+    private ClusterJobRunner jobRunner;
+
     @InjectMocks
     private AbcAnalysisService service;
 
+    /** Раннер без БД: сразу выполняет тело ручного запуска на этом экземпляре. */
+    private void runsInline() {
+        when(jobRunner.run(eq(AbcAnalysisService.JOB_NAME), eq(JobTrigger.MANUAL), any(ClusterJobRunner.JobBody.class)))
+                .thenAnswer(inv -> {
+                    ClusterJobRunner.JobBody body = inv.getArgument(2);
+                    long rows = body.run(null);
+                    return Optional.of(ScheduledJobRun.builder()
+                            .jobName(AbcAnalysisService.JOB_NAME)
+                            .status(JobRunStatus.SUCCEEDED)
+                            .rowsAffected(rows)
+                            .build());
+                });
+    }
+
     private ProductOperation op(UUID productId, BigDecimal qty, OperationType type) {
         return ProductOperation.builder()
                 .operationId(UUID.randomUUID())
@@ -75,6 +97,7 @@ class AbcAnalysisServiceTest {
         when(productRepository.findById(p3)).thenReturn(Optional.of(product(p3, "p3")));
         when(productRepository.save(any(ProductReadModel.class))).thenAnswer(inv -> inv.getArgument(0));
 
+        runsInline();
         Map<String, Object> result = service.runManually();
 
         assertThat(result.get("class_a_count")).isEqualTo(1L);
@@ -90,6 +113,7 @@ class AbcAnalysisServiceTest {
         when(operationRepository.findByOperationDateBetween(any(), any()))
                 .thenReturn(List.of(op(p1, new BigDecimal("100"), OperationType.RECEIPT)));
 
+        runsInline();
         Map<String, Object> result = service.runManually();
 
         assertThat(result.get("class_a_count")).isEqualTo(0L);
@@ -104,6 +128,7 @@ class AbcAnalysisServiceTest {
         when(operationRepository.findByOperationDateBetween(any(), any()))
                 .thenReturn(new ArrayList<>());
 
+        runsInline();
         Map<String, Object> result = service.runManually();
 
         assertThat(result.get("class_a_count")).isEqualTo(0L);
@@ -119,6 +144,7 @@ class AbcAnalysisServiceTest {
                 .thenReturn(List.of(op(p1, new BigDecimal("100"), OperationType.SHIPMENT)));
         when(productRepository.findById(p1)).thenReturn(Optional.empty());
 
+        runsInline();
         Map<String, Object> result = service.runManually();
 
         assertThat(result.get("class_c_count")).isEqualTo(1L);
@@ -126,14 +152,24 @@ class AbcAnalysisServiceTest {
     }
 
     @Test
-    @DisplayName("runDailyAbcAnalysis: вызывает calculateAndSave (cron-обёртка)")
-    void runDailyAbcAnalysis_whenCalled_thenDelegatesToCalculate() {
-        when(operationRepository.findByOperationDateBetween(any(), any()))
-                .thenReturn(List.of());
-
+    @DisplayName("runDailyAbcAnalysis: запускает зарегистрированную задачу через раннер с арендой")
+    void runDailyAbcAnalysis_whenCalled_thenDelegatesToRunner() {
         service.runDailyAbcAnalysis();
 
-        verify(operationRepository).findByOperationDateBetween(any(), any());
+        verify(jobRunner).run(AbcAnalysisService.JOB_NAME, JobTrigger.SCHEDULED);
+        verify(operationRepository, never()).findByOperationDateBetween(any(), any());
+    }
+
+    @Test
+    @DisplayName("runManually: задачу выполняет другой экземпляр → 409")
+    void runManually_givenLeaseHeldElsewhere_whenCalled_thenConflict() {
+        when(jobRunner.run(eq(AbcAnalysisService.JOB_NAME), eq(JobTrigger.MANUAL), any(ClusterJobRunner.JobBody.class)))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.runManually())
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("другим экземпляром");
+        verify(operationRepository, never()).findByOperationDateBetween(any(), any());
     }
 
     @Test
@@ -0,0 +1,86 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.config.tenant.TenantCacheKeyGenerator;
+import by.bsuir.productservice.config.tenant.TenantContext;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AnalyticsCacheInvalidator — модульные тесты")
+class AnalyticsCacheInvalidatorTest {
+
+    private final TenantCacheKeyGenerator keyGenerator = new TenantCacheKeyGenerator();
+    private CaffeineCacheManager cacheManager;
+    private AnalyticsCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache("operationsDynamics", Caffeine.newBuilder().build());
+        invalidator = new AnalyticsCacheInvalidator(cacheManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    private Object keyFor(UUID orgId, Object... params) {
+        TenantContext.set(orgId);
+        try {
+            return keyGenerator.generate(this, null, params);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("ключ: одинаковые параметры разных организаций дают разные ключи")
+    void generate_GivenDifferentTenants_ShouldProduceDifferentKeys() {
+        LocalDate from = LocalDate.of(2026, 1, 1);
+        LocalDate to = LocalDate.of(2026, 1, 31);
+        UUID orgA = UUID.randomUUID();
+
+        assertThat(keyFor(orgA, from, to)).isEqualTo(keyFor(orgA, from, to));
+        assertThat(keyFor(orgA, from, to)).isNotEqualTo(keyFor(UUID.randomUUID(), from, to));
+    }
+
+    @Test
+    @DisplayName("ключ: организация из первого аргумента важнее контекста запроса")
+    void generate_GivenOrganizationArgument_ShouldUseIt() {
+        UUID orgA = UUID.randomUUID();
+
+        Object key = keyFor(UUID.randomUUID(), orgA, "jan");
+
+        assertThat(((TenantCacheKeyGenerator.Key) key).organizationId()).isEqualTo(orgA);
+    }
+
+    @Test
+    @DisplayName("stockChanged: сбрасывает записи организации и сводные, чужие остаются")
+    void stockChanged_GivenTenant_ShouldEvictOnlyItsEntries() {
+        UUID orgA = UUID.randomUUID();
+        UUID orgB = UUID.randomUUID();
+        Cache cache = cacheManager.getCache("operationsDynamics");
+        Object keyA = keyFor(orgA, "jan");
+        Object keyB = keyFor(orgB, "jan");
+        Object keyAll = keyFor(null, "jan");
+        cache.put(keyA, "a");
+        cache.put(keyB, "b");
+        cache.put(keyAll, "all");
+
+        invalidator.stockChanged(orgA);
+
+        assertThat(cache.get(keyA)).isNull();
+        assertThat(cache.get(keyAll)).isNull();
+        assertThat(cache.get(keyB)).isNotNull();
+    }
+}
@@ -1,11 +1,11 @@
 package by.bsuir.productservice.service;
 
-import by.bsuir.productservice.client.WarehouseClient;
 import by.bsuir.productservice.client.dto.CellInfoDto;
-import by.bsuir.productservice.client.dto.RackInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.Inventory;
 import by.bsuir.productservice.repository.InventoryRepository;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +13,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,7 +24,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,7 +33,7 @@ import static org.mockito.Mockito.when;
 class BarcodeServiceTest {
 
     @Mock private InventoryRepository inventoryRepository;
-    @Mock private WarehouseClient warehouseClient;
+    @Mock private WarehouseTopologyCache topologyCache;
 
     @InjectMocks private BarcodeService service;
 
@@ -85,8 +87,7 @@ class BarcodeServiceTest {
         UUID cellId = UUID.randomUUID();
         when(inventoryRepository.findById(id)).thenReturn(Optional.of(
                 inventory(id, UUID.randomUUID(), warehouseId, cellId)));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER"))
-                .thenReturn(List.of());
+        when(topologyCache.findRackOfSlot(warehouseId, cellId)).thenReturn(null);
 
         assertThatThrownBy(() -> service.assignSkuToInventory(id, "WORKER"))
                 .isInstanceOf(AppException.class)
@@ -103,13 +104,14 @@ class BarcodeServiceTest {
         UUID cellId = UUID.randomUUID();
         Inventory inv = inventory(id, orgId, warehouseId, cellId);
         when(inventoryRepository.findById(id)).thenReturn(Optional.of(inv));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER")).thenReturn(List.of(
-                new RackInfoDto(rackId, warehouseId, "SHELF", "R1", "ROOM", null, true)));
-        when(warehouseClient.getCellsByRack(rackId, "WORKER")).thenReturn(List.of(
-                new CellInfoDto(cellId, rackId, null, null, BigDecimal.TEN, BigDecimal.TEN,
-                        BigDecimal.TEN, BigDecimal.TEN, null, null, null)));
-        when(warehouseClient.getRack(rackId, "WORKER")).thenReturn(
-                new RackInfoDto(rackId, warehouseId, "SHELF", "R1", "ROOM", null, true));
+        WarehouseTopologyDto.RackNode rack = new WarehouseTopologyDto.RackNode(
+                rackId, warehouseId, "SHELF", "R1", "ROOM", null, true, List.of(
+                        new CellInfoDto(cellId, rackId, null, null, BigDecimal.TEN, BigDecimal.TEN,
+                                BigDecimal.TEN, BigDecimal.TEN, null, null, null)));
+        when(topologyCache.findRackOfSlot(warehouseId, cellId)).thenReturn(rack);
+        when(topologyCache.getRack(warehouseId, rackId)).thenReturn(rack.toRackInfo());
+        when(topologyCache.get(warehouseId)).thenReturn(
+                new WarehouseTopologyDto(warehouseId, 1L, List.of(rack)));
         when(inventoryRepository.findByOrganizationIdAndUnitSku(any(), anyString())).thenReturn(Optional.empty());
 
         String sku = service.assignSkuToInventory(id, "WORKER");
@@ -127,8 +129,8 @@ class BarcodeServiceTest {
         UUID orgId = UUID.randomUUID();
         UUID warehouseId = UUID.randomUUID();
         UUID rackId = UUID.randomUUID();
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER")).thenReturn(List.of(
-                new RackInfoDto(rackId, warehouseId, "PALLET", "P1", null, null, true)));
+        when(topologyCache.get(warehouseId)).thenReturn(new WarehouseTopologyDto(warehouseId, 1L, List.of(
+                new WarehouseTopologyDto.RackNode(rackId, warehouseId, "PALLET", "P1", null, null, true, List.of()))));
 
         String sku = service.formatSku(orgId, warehouseId, rackId, "PALLET", 5);
 
@@ -141,7 +143,7 @@ class BarcodeServiceTest {
     @DisplayName("formatSku: неизвестный rackKind → код 'X'")
     void formatSku_GivenUnknownKind_ShouldUseXCode() {
         UUID warehouseId = UUID.randomUUID();
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER")).thenReturn(List.of());
+        when(topologyCache.get(warehouseId)).thenReturn(WarehouseTopologyDto.empty(warehouseId));
 
         String sku = service.formatSku(UUID.randomUUID(), warehouseId, UUID.randomUUID(), "UNKNOWN", 1);
 
@@ -152,7 +154,7 @@ class BarcodeServiceTest {
     @DisplayName("formatSku: rackKind=null → код 'X'")
     void formatSku_GivenNullKind_ShouldUseXCode() {
         UUID warehouseId = UUID.randomUUID();
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER")).thenReturn(List.of());
+        when(topologyCache.get(warehouseId)).thenReturn(WarehouseTopologyDto.empty(warehouseId));
 
         String sku = service.formatSku(UUID.randomUUID(), warehouseId, UUID.randomUUID(), null, 1);
 
@@ -179,9 +181,7 @@ class BarcodeServiceTest {
     @DisplayName("generateBarcodeSheetPdf: inventory без unitSku → пропускается, PDF не пустой")
     void generateBarcodeSheet_GivenInventoryWithoutSku_ShouldSkip() {
         UUID id = UUID.randomUUID();
-        Inventory inv = inventory(id, UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
-        inv.setUnitSku(null);
-        lenient().when(inventoryRepository.findById(id)).thenReturn(Optional.of(inv));
+        when(inventoryRepository.findBarcodeLabelSources(List.of(id))).thenReturn(List.of());
 
         byte[] pdf = service.generateBarcodeSheetPdf(List.of(id), null);
         assertThat(pdf).isNotEmpty();
@@ -189,17 +189,31 @@ class BarcodeServiceTest {
     }
 
     @Test
-    @DisplayName("generateBarcodeSheetPdf: inventory чужой организации → пропускается")
-    void generateBarcodeSheet_GivenForeignOrg_ShouldSkip() {
+    @DisplayName("loadBarcodeLabels: inventory чужой организации → пропускается")
+    void loadBarcodeLabels_GivenForeignOrg_ShouldSkip() {
         UUID id = UUID.randomUUID();
-        UUID inventoryOrg = UUID.randomUUID();
         UUID callerOrg = UUID.randomUUID();
-        Inventory inv = inventory(id, inventoryOrg, UUID.randomUUID(), UUID.randomUUID());
-        inv.setUnitSku("AAAABBBBCCCCS001");
-        lenient().when(inventoryRepository.findById(id)).thenReturn(Optional.of(inv));
+        when(inventoryRepository.findBarcodeLabelSources(List.of(id)))
+                .thenReturn(List.of(labelSource(id, UUID.randomUUID(), "AAAABBBBCCCCS001")));
 
-        byte[] pdf = service.generateBarcodeSheetPdf(List.of(id), callerOrg);
-        assertThat(pdf).isNotEmpty();
+        assertThat(service.loadBarcodeLabels(List.of(id), callerOrg)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("loadBarcodeLabels: один запрос на пачку, порядок запроса сохраняется")
+    void loadBarcodeLabels_GivenSeveralIds_ShouldBatchAndKeepOrder() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID orgId = UUID.randomUUID();
+        when(inventoryRepository.findBarcodeLabelSources(List.of(first, second))).thenReturn(List.of(
+                labelSource(second, orgId, "AAAABBBBCCCCS002"),
+                labelSource(first, orgId, "AAAABBBBCCCCS001")));
+
+        List<BarcodeService.BarcodeLabel> labels = service.loadBarcodeLabels(List.of(first, second, first), orgId);
+
+        assertThat(labels).extracting(BarcodeService.BarcodeLabel::inventoryId).containsExactly(first, second, first);
+        assertThat(labels.get(0).ean13()).hasSize(13).containsOnlyDigits();
+        verify(inventoryRepository, never()).findById(any());
     }
 
     @Test
@@ -207,12 +221,43 @@ class BarcodeServiceTest {
     void generateBarcodeSheet_GivenValid_ShouldReturnPdf() {
         UUID id = UUID.randomUUID();
         UUID orgId = UUID.randomUUID();
-        Inventory inv = inventory(id, orgId, UUID.randomUUID(), UUID.randomUUID());
-        inv.setUnitSku("AAAABBBBCCCCS001");
-        when(inventoryRepository.findById(id)).thenReturn(Optional.of(inv));
+        when(inventoryRepository.findBarcodeLabelSources(List.of(id)))
+                .thenReturn(List.of(labelSource(id, orgId, "AAAABBBBCCCCS001")));
 
         byte[] pdf = service.generateBarcodeSheetPdf(List.of(id), orgId);
         assertThat(pdf).isNotEmpty();
         assertThat(new String(pdf, 0, 4)).isEqualTo("%PDF");
     }
+
+    @Test
+    @DisplayName("writeBarcodeSheetPdf: 25 этикеток в раскладке 3×8 → 2 страницы без растровых картинок")
+    void writeBarcodeSheet_GivenLayout_ShouldPaginateWithVectorBars() throws Exception {
+        List<BarcodeService.BarcodeLabel> labels = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            labels.add(new BarcodeService.BarcodeLabel(UUID.randomUUID(), "AAAABBBBCCCCS001", "1234567890128"));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.writeBarcodeSheetPdf(labels, BarcodeService.LabelLayout.a4(3, 8), out);
+
+        try (PDDocument doc = PDDocument.load(out.toByteArray())) {
+            assertThat(doc.getNumberOfPages()).isEqualTo(2);
+            assertThat(doc.getPage(0).getResources().getXObjectNames()).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("LabelLayout: раскладка вне допустимых пределов → bad request")
+    void labelLayout_GivenTooManyColumns_ShouldThrow() {
+        assertThatThrownBy(() -> BarcodeService.LabelLayout.a4(BarcodeService.LabelLayout.MAX_COLUMNS + 1, 8))
+                .isInstanceOf(AppException.class);
+    }
+
+    private static InventoryRepository.BarcodeLabelSource labelSource(UUID id, UUID orgId, String sku) {
+        return new InventoryRepository.BarcodeLabelSource() {
+            @Override public UUID getInventoryId() { return id; }
+            @Override public UUID getOrganizationId() { return orgId; }
+            @Override public String getUnitSku() { return sku; }
+        };
+    }
 }
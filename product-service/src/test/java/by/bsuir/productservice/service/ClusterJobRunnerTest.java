@@ -0,0 +1,160 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.exception.AppException;
+import by.bsuir.productservice.model.entity.ScheduledJob;
+import by.bsuir.productservice.model.entity.ScheduledJobRun;
+import by.bsuir.productservice.model.enums.JobRunStatus;
+import by.bsuir.productservice.model.enums.JobTrigger;
+import by.bsuir.productservice.repository.ScheduledJobRepository;
+import by.bsuir.productservice.repository.ScheduledJobRunRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ClusterJobRunner — модульные тесты")
+class ClusterJobRunnerTest {
+
+    private static final String JOB = "test-job";
+
+    @Mock private ScheduledJobRepository jobRepository;
+    @Mock private ScheduledJobRunRepository runRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ClusterJobRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        runner = new ClusterJobRunner(jobRepository, runRepository, transactionManager, meterRegistry,
+                "node-1", 30, 50);
+    }
+
+    private void givenLeaseAcquired(String checkpoint) {
+        when(jobRepository.tryAcquire(eq(JOB), eq("node-1"), any(), any(), any())).thenReturn(1);
+        when(jobRepository.findById(JOB)).thenReturn(Optional.of(
+                ScheduledJob.builder().jobName(JOB).checkpoint(checkpoint).build()));
+        when(runRepository.save(any(ScheduledJobRun.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("run: аренда взята — тело выполняется, запуск пишется в историю с числом строк")
+    void run_GivenLeaseAcquired_ShouldRecordSucceededRun() {
+        givenLeaseAcquired(null);
+        runner.register(JOB, context -> 7);
+
+        Optional<ScheduledJobRun> run = runner.run(JOB, JobTrigger.SCHEDULED);
+
+        assertThat(run).isPresent();
+        assertThat(run.get().getStatus()).isEqualTo(JobRunStatus.SUCCEEDED);
+        assertThat(run.get().getRowsAffected()).isEqualTo(7L);
+        assertThat(run.get().getInstanceId()).isEqualTo("node-1");
+        assertThat(run.get().getDurationMs()).isNotNull();
+        verify(jobRepository).ensureExists(JOB);
+        verify(jobRepository).release(eq(JOB), eq("node-1"), isNull(), eq(JobRunStatus.SUCCEEDED), any());
+        assertThat(meterRegistry.find("cluster.job.duration").tag("status", "SUCCEEDED").timer()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("run: аренду держит другой экземпляр — тело не выполняется, запуск пропущен")
+    void run_GivenLeaseHeldElsewhere_ShouldSkip() {
+        when(jobRepository.tryAcquire(eq(JOB), eq("node-1"), any(), any(), any())).thenReturn(0);
+        List<String> calls = new ArrayList<>();
+        runner.register(JOB, context -> {
+            calls.add("run");
+            return 0;
+        });
+
+        Optional<ScheduledJobRun> run = runner.run(JOB, JobTrigger.SCHEDULED);
+
+        assertThat(run).isEmpty();
+        assertThat(calls).isEmpty();
+        verify(runRepository, never()).save(any());
+        assertThat(meterRegistry.counter("cluster.job.skipped", "job", JOB).count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("run: плановый запуск не повторяет свежий запуск соседа, ручной — повторяет")
+    void run_ShouldUseMinIntervalOnlyForScheduledTriggers() {
+        when(jobRepository.tryAcquire(eq(JOB), eq("node-1"), any(), any(), any())).thenReturn(0);
+        runner.register(JOB, context -> 0);
+
+        runner.run(JOB, JobTrigger.SCHEDULED);
+        runner.run(JOB, JobTrigger.MANUAL);
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> notBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(jobRepository, times(2))
+                .tryAcquire(eq(JOB), eq("node-1"), now.capture(), any(), notBefore.capture());
+        assertThat(notBefore.getAllValues().get(0)).isEqualTo(now.getAllValues().get(0).minusSeconds(50));
+        assertThat(notBefore.getAllValues().get(1)).isEqualTo(now.getAllValues().get(1));
+    }
+
+    @Test
+    @DisplayName("run: ошибка тела не пробрасывается — FAILED в истории, контрольная точка сохраняется")
+    void run_GivenBodyFails_ShouldRecordFailureAndKeepCheckpoint() {
+        givenLeaseAcquired("org/2026-01-31");
+        when(jobRepository.saveCheckpoint(eq(JOB), eq("node-1"), eq("org/2026-02-28"), any(), any())).thenReturn(1);
+        runner.registerChunked(JOB, context -> {
+            assertThat(context.resumed()).isTrue();
+            context.checkpoint("org/2026-02-28");
+            throw new IllegalStateException("boom");
+        });
+
+        ScheduledJobRun run = runner.run(JOB, JobTrigger.STARTUP).orElseThrow();
+
+        assertThat(run.getStatus()).isEqualTo(JobRunStatus.FAILED);
+        assertThat(run.getError()).isEqualTo("boom");
+        assertThat(run.getResumedFrom()).isEqualTo("org/2026-01-31");
+        verify(jobRepository).release(eq(JOB), eq("node-1"), eq("org/2026-02-28"), eq(JobRunStatus.FAILED), any());
+    }
+
+    @Test
+    @DisplayName("checkpoint: аренду перехватили — работа прерывается конфликтом")
+    void checkpoint_GivenLeaseLost_ShouldAbortRun() {
+        givenLeaseAcquired(null);
+        when(jobRepository.saveCheckpoint(eq(JOB), eq("node-1"), anyString(), any(), any())).thenReturn(0);
+        List<String> processed = new ArrayList<>();
+        runner.registerChunked(JOB, context -> {
+            context.checkpoint("part-1");
+            processed.add("part-2");
+            return 2;
+        });
+
+        ScheduledJobRun run = runner.run(JOB, JobTrigger.SCHEDULED).orElseThrow();
+
+        assertThat(processed).isEmpty();
+        assertThat(run.getStatus()).isEqualTo(JobRunStatus.FAILED);
+        assertThat(run.getError()).contains("перехватил");
+    }
+
+    @Test
+    @DisplayName("run: незарегистрированная задача → 404")
+    void run_GivenUnknownJob_ShouldThrowNotFound() {
+        assertThatThrownBy(() -> runner.run("missing", JobTrigger.MANUAL))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("не зарегистрирована");
+    }
+}
@@ -3,16 +3,19 @@ package by.bsuir.productservice.service;
 import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.entity.DocumentCounter;
 import by.bsuir.productservice.repository.DocumentCounterRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Year;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,14 +35,37 @@ class DocumentNumberServiceTest {
     @Mock
     private DocumentCounterRepository repository;
 
-    @InjectMocks
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
     private DocumentNumberService service;
 
     private final UUID orgId = UUID.randomUUID();
     private final int currentYear = Year.now().getValue();
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new DocumentNumberService(repository, transactionManager, meterRegistry, 20, Set.of("waybill"));
+    }
+
+    private double reservations(String type, String mode) {
+        return meterRegistry.get("document.number.reservations").tag("type", type).tag("mode", mode)
+                .counter().count();
+    }
+
+    private DocumentCounter counter(String type, long value) {
+        return DocumentCounter.builder()
+                .organizationId(orgId)
+                .documentType(type)
+                .year(currentYear)
+                .counter(value)
+                .build();
+    }
+
     @Test
-    @DisplayName("next: первый вызов для (org, type, year) создаёт счётчик и возвращает -00001")
+    @DisplayName("next: первый вызов для (org, type, year) создаёт счётчик, резервирует блок и возвращает -00001")
     void next_givenNoCounter_whenCalled_thenCreatesCounterAndReturnsFirst() {
         when(repository.findForUpdate(eq(orgId), eq("receipt-order"), eq(currentYear)))
                 .thenReturn(Optional.empty());
@@ -57,18 +83,44 @@ class DocumentNumberServiceTest {
         assertThat(saved.getOrganizationId()).isEqualTo(orgId);
         assertThat(saved.getDocumentType()).isEqualTo("receipt-order");
         assertThat(saved.getYear()).isEqualTo(currentYear);
-        assertThat(saved.getCounter()).isEqualTo(1L);
+        assertThat(saved.getCounter()).isEqualTo(20L);
     }
 
     @Test
-    @DisplayName("next: существующий счётчик инкрементируется и сохраняется")
+    @DisplayName("next: номера внутри блока выдаются из памяти без повторной блокировки строки")
+    void next_givenReservedBlock_whenCalledRepeatedly_thenLocksCounterOnce() {
+        when(repository.findForUpdate(orgId, "picking-list", currentYear))
+                .thenReturn(Optional.of(counter("picking-list", 100L)));
+
+        assertThat(service.next(orgId, "picking-list")).isEqualTo(String.format("ЛП-%d-00101", currentYear));
+        assertThat(service.next(orgId, "picking-list")).isEqualTo(String.format("ЛП-%d-00102", currentYear));
+        assertThat(service.next(orgId, "picking-list")).isEqualTo(String.format("ЛП-%d-00103", currentYear));
+
+        verify(repository, times(1)).findForUpdate(orgId, "picking-list", currentYear);
+        assertThat(reservations("picking-list", "block")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("next: исчерпанный блок перезаполняется с текущего значения счётчика в БД")
+    void next_givenExhaustedBlock_whenCalled_thenReservesNextRange() {
+        service = new DocumentNumberService(repository, transactionManager, meterRegistry, 2, Set.of());
+        DocumentCounter stored = counter("cmr", 0L);
+        when(repository.findForUpdate(orgId, "cmr", currentYear)).thenReturn(Optional.of(stored));
+
+        service.next(orgId, "cmr");
+        service.next(orgId, "cmr");
+        stored.setCounter(10L);
+        String third = service.next(orgId, "cmr");
+
+        assertThat(third).isEqualTo(String.format("CMR-%d-00011", currentYear));
+        assertThat(stored.getCounter()).isEqualTo(12L);
+        assertThat(reservations("cmr", "block")).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("next: тип без пропусков — счётчик инкрементируется и сохраняется на каждый номер")
     void next_givenExistingCounter_whenCalled_thenIncrementsAndSaves() {
-        DocumentCounter existing = DocumentCounter.builder()
-                .organizationId(orgId)
-                .documentType("waybill")
-                .year(currentYear)
-                .counter(41L)
-                .build();
+        DocumentCounter existing = counter("waybill", 41L);
         when(repository.findForUpdate(eq(orgId), eq("waybill"), eq(currentYear)))
                 .thenReturn(Optional.of(existing));
         when(repository.save(any(DocumentCounter.class)))
@@ -79,6 +131,10 @@ class DocumentNumberServiceTest {
         assertThat(number).isEqualTo(String.format("ТТН-%d-00042", currentYear));
         assertThat(existing.getCounter()).isEqualTo(42L);
         verify(repository, times(1)).save(existing);
+
+        service.next(orgId, "waybill");
+        assertThat(existing.getCounter()).isEqualTo(43L);
+        assertThat(reservations("waybill", "gap-free")).isEqualTo(2.0);
     }
 
     @Test
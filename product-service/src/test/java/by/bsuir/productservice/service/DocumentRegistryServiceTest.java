@@ -16,21 +16,26 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.ByteArrayInputStream;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -50,7 +55,9 @@ class DocumentRegistryServiceTest {
     @Mock
     private MinioClient minioClient;
 
-    @InjectMocks
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private DocumentRegistryService service;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -64,9 +71,8 @@ class DocumentRegistryServiceTest {
         orgId = UUID.randomUUID();
         userId = UUID.randomUUID();
         operationId = UUID.randomUUID();
-        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
-        ReflectionTestUtils.setField(service, "bucket", "wms-documents");
-        ReflectionTestUtils.setField(service, "presignedUrlTtlMinutes", 15);
+        service = new DocumentRegistryService(documentClient, documentNumberService, repository, minioClient,
+                objectMapper, transactionManager, new SimpleAsyncTaskExecutor(), "wms-documents", 15, 5L);
     }
 
     @Test
@@ -166,6 +172,84 @@ class DocumentRegistryServiceTest {
         assertThat(document.getPayload()).contains("preserved-number");
     }
 
+    @Test
+    @DisplayName("registerAll: все документы готовы — один saveAll, результаты в порядке запроса")
+    void registerAll_givenAllSucceed_whenCalled_thenSavesOnceInSpecOrder() throws Exception {
+        when(documentNumberService.next(orgId, "transport-note")).thenReturn("ТН-2026-00001");
+        when(documentNumberService.next(orgId, "cmr")).thenReturn("CMR-2026-00001");
+        when(documentNumberService.next(orgId, "invoice")).thenReturn("ИН-2026-00001");
+        when(documentClient.fetch(any(), any(), eq(orgId), eq("auto")))
+                .thenReturn(new DocumentClient.Fetched(new byte[]{1}, "programmatic", null, null));
+
+        List<DocumentRegistryService.RegistrationResult> results = service.registerAll(operationId, List.of(
+                new DocumentRegistryService.DocumentSpec("transport-note", Map.of()),
+                new DocumentRegistryService.DocumentSpec("cmr", Map.of()),
+                new DocumentRegistryService.DocumentSpec("invoice", Map.of())), orgId, userId);
+
+        assertThat(results).extracting(DocumentRegistryService.RegistrationResult::documentType)
+                .containsExactly("transport-note", "cmr", "invoice");
+        assertThat(results).allMatch(DocumentRegistryService.RegistrationResult::succeeded);
+        assertThat(results.get(1).document().getDocumentNumber()).isEqualTo("CMR-2026-00001");
+        verify(minioClient, times(3)).putObject(any(PutObjectArgs.class));
+        verify(repository).saveAll(anyList());
+        verify(repository, never()).save(any(GeneratedDocument.class));
+    }
+
+    @Test
+    @DisplayName("registerAll: ошибка одного документа не мешает остальным")
+    void registerAll_givenOneFails_whenCalled_thenReportsErrorPerDocument() throws Exception {
+        when(documentNumberService.next(eq(orgId), any())).thenReturn("N-1");
+        when(documentClient.fetch(eq("receipt-order"), any(), eq(orgId), eq("auto")))
+                .thenReturn(new DocumentClient.Fetched(new byte[]{1}, "programmatic", null, null));
+        when(documentClient.fetch(eq("receipt-act"), any(), eq(orgId), eq("auto")))
+                .thenReturn(new DocumentClient.Fetched(new byte[0], "programmatic", null, null));
+
+        List<DocumentRegistryService.RegistrationResult> results = service.registerAll(null, List.of(
+                new DocumentRegistryService.DocumentSpec("receipt-order", Map.of()),
+                new DocumentRegistryService.DocumentSpec("receipt-act", Map.of())), orgId, userId);
+
+        assertThat(results.get(0).succeeded()).isTrue();
+        assertThat(results.get(1).succeeded()).isFalse();
+        assertThat(results.get(1).error()).contains("receipt-act");
+        verify(repository).saveAll(List.of(results.get(0).document()));
+    }
+
+    @Test
+    @DisplayName("registerAll: по таймауту генерация прерывается, документ не загружается и не сохраняется")
+    void registerAll_givenSlowDocument_whenTimedOut_thenInterruptsAndSkipsIt() throws Exception {
+        service = new DocumentRegistryService(documentClient, documentNumberService, repository, minioClient,
+                objectMapper, transactionManager, new SimpleAsyncTaskExecutor(), "wms-documents", 15, 1L);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(documentNumberService.next(orgId, "cmr")).thenReturn("CMR-2026-00001");
+        when(documentClient.fetch(eq("cmr"), any(), eq(orgId), eq("auto"))).thenAnswer(inv -> {
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return new DocumentClient.Fetched(new byte[]{1}, "programmatic", null, null);
+        });
+
+        List<DocumentRegistryService.RegistrationResult> results = service.registerAll(operationId,
+                List.of(new DocumentRegistryService.DocumentSpec("cmr", Map.of())), orgId, userId);
+
+        assertThat(results.get(0).succeeded()).isFalse();
+        assertThat(results.get(0).error()).contains("Превышено время");
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+        verify(repository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("registerAll: без userId — badRequest до выделения номеров")
+    void registerAll_givenNullUserId_whenCalled_thenThrows() {
+        assertThatThrownBy(() -> service.registerAll(operationId,
+                List.of(new DocumentRegistryService.DocumentSpec("cmr", Map.of())), orgId, null))
+                .isInstanceOf(AppException.class);
+        verify(documentNumberService, never()).next(any(), any());
+    }
+
     @Test
     @DisplayName("downloadBytes: возвращает массив байт из MinIO")
     void downloadBytes_givenExisting_whenCalled_thenReturnsBytes() throws Exception {
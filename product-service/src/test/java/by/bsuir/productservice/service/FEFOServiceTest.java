@@ -1,11 +1,9 @@
 package by.bsuir.productservice.service;
 
 import by.bsuir.productservice.exception.AppException;
-import by.bsuir.productservice.model.entity.Inventory;
-import by.bsuir.productservice.model.entity.ProductBatch;
+import by.bsuir.productservice.model.enums.AllocationStrategy;
 import by.bsuir.productservice.model.enums.InventoryStatus;
 import by.bsuir.productservice.repository.InventoryRepository;
-import by.bsuir.productservice.repository.ProductBatchRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,13 +15,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,53 +29,36 @@ class FEFOServiceTest {
     @Mock
     private InventoryRepository inventoryRepository;
 
-    @Mock
-    private ProductBatchRepository batchRepository;
-
     @InjectMocks
     private FEFOService fefoService;
 
     private UUID productId;
     private UUID warehouseId;
     private UUID batchId;
-    private Inventory inventory;
-    private ProductBatch batch;
 
     @BeforeEach
     void setUp() {
         productId = UUID.randomUUID();
         warehouseId = UUID.randomUUID();
         batchId = UUID.randomUUID();
+    }
+
+    private Candidate candidate(UUID batchId, String quantity, String reserved, LocalDate expiryDate) {
+        return new Candidate(UUID.randomUUID(), productId, batchId, warehouseId, UUID.randomUUID(),
+                new BigDecimal(quantity), new BigDecimal(reserved),
+                batchId != null ? "BATCH-001" : null, expiryDate,
+                batchId != null ? LocalDateTime.now() : null);
+    }
 
-        inventory = Inventory.builder()
-                .inventoryId(UUID.randomUUID())
-                .productId(productId)
-                .batchId(batchId)
-                .warehouseId(warehouseId)
-                .cellId(UUID.randomUUID())
-                .quantity(new BigDecimal("100"))
-                .reservedQuantity(new BigDecimal("20"))
-                .status(InventoryStatus.AVAILABLE)
-                .lastUpdated(LocalDateTime.now())
-                .build();
-
-        batch = ProductBatch.builder()
-                .batchId(batchId)
-                .productId(productId)
-                .batchNumber("BATCH-001")
-                .manufactureDate(LocalDate.now().minusMonths(3))
-                .expiryDate(LocalDate.now().plusMonths(3))
-                .supplier("Test Supplier")
-                .purchasePrice(new BigDecimal("100.00"))
-                .createdAt(LocalDateTime.now())
-                .build();
+    private void givenFefo(Candidate... candidates) {
+        when(inventoryRepository.streamFefoCandidates(productId, warehouseId, InventoryStatus.AVAILABLE))
+                .thenReturn(Stream.of(candidates));
     }
 
     @Test
     @DisplayName("Should select inventory by FEFO successfully")
     void shouldSelectInventoryByFefoSuccessfully() {
-        when(inventoryRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(inventory));
-        when(batchRepository.findById(batchId)).thenReturn(Optional.of(batch));
+        givenFefo(candidate(batchId, "100", "20", LocalDate.now().plusMonths(3)));
 
         var allocations = fefoService.selectInventoryByFEFO(
                 productId, warehouseId, new BigDecimal("50")
@@ -87,42 +66,38 @@ class FEFOServiceTest {
 
         assertThat(allocations).isNotEmpty();
         assertThat(allocations.get(0).getQuantity()).isEqualTo(new BigDecimal("50"));
-        verify(inventoryRepository, times(1)).findByWarehouseId(warehouseId);
+        verify(inventoryRepository, times(1))
+                .streamFefoCandidates(productId, warehouseId, InventoryStatus.AVAILABLE);
+        verify(inventoryRepository, never()).findByWarehouseId(warehouseId);
     }
 
     @Test
     @DisplayName("Should throw exception when product not found in warehouse")
     void shouldThrowExceptionWhenProductNotFoundInWarehouse() {
-        when(inventoryRepository.findByWarehouseId(warehouseId)).thenReturn(List.of());
+        givenFefo();
 
         assertThatThrownBy(() -> fefoService.selectInventoryByFEFO(
                 productId, warehouseId, new BigDecimal("50")))
                 .isInstanceOf(AppException.class)
                 .hasMessageContaining("отсутствует");
-
-        verify(inventoryRepository, times(1)).findByWarehouseId(warehouseId);
     }
 
     @Test
     @DisplayName("Should throw exception when insufficient inventory for FEFO")
     void shouldThrowExceptionWhenInsufficientInventoryForFefo() {
-        when(inventoryRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(inventory));
-        when(batchRepository.findById(batchId)).thenReturn(Optional.of(batch));
+        givenFefo(candidate(batchId, "100", "20", LocalDate.now().plusMonths(3)));
 
         assertThatThrownBy(() -> fefoService.selectInventoryByFEFO(
                 productId, warehouseId, new BigDecimal("100")))
                 .isInstanceOf(AppException.class)
-                .hasMessageContaining("Недостаточно");
-
-        verify(inventoryRepository, times(1)).findByWarehouseId(warehouseId);
+                .hasMessageContaining("Недостаточно")
+                .hasMessageContaining("Доступно: 80");
     }
 
     @Test
     @DisplayName("Should handle inventory without batch information")
     void shouldHandleInventoryWithoutBatchInformation() {
-        inventory.setBatchId(null);
-
-        when(inventoryRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(inventory));
+        givenFefo(candidate(null, "100", "20", null));
 
         var allocations = fefoService.selectInventoryByFEFO(
                 productId, warehouseId, new BigDecimal("50")
@@ -130,7 +105,42 @@ class FEFOServiceTest {
 
         assertThat(allocations).isNotEmpty();
         assertThat(allocations.get(0).getQuantity()).isEqualTo(new BigDecimal("50"));
-        verify(batchRepository, never()).findById(any());
+        assertThat(allocations.get(0).getBatchId()).isNull();
     }
-}
 
+    @Test
+    @DisplayName("Should skip expired batches and stop reading once quantity is covered")
+    void shouldSkipExpiredAndStopWhenCovered() {
+        Candidate expired = candidate(UUID.randomUUID(), "30", "0", LocalDate.now().minusDays(1));
+        Candidate first = candidate(UUID.randomUUID(), "30", "0", LocalDate.now().plusDays(5));
+        Candidate second = candidate(UUID.randomUUID(), "30", "0", LocalDate.now().plusDays(10));
+        Candidate notNeeded = spy(candidate(UUID.randomUUID(), "30", "0", LocalDate.now().plusDays(20)));
+        givenFefo(expired, first, second, notNeeded);
+
+        var allocations = fefoService.selectInventoryByFEFO(productId, warehouseId, new BigDecimal("45"));
+
+        assertThat(allocations).extracting(FEFOService.InventoryAllocation::getInventoryId)
+                .containsExactly(first.getInventoryId(), second.getInventoryId());
+        assertThat(allocations.get(1).getQuantity()).isEqualByComparingTo("15");
+        verifyNoInteractions(notNeeded);
+    }
+
+    @Test
+    @DisplayName("FIFO strategy should use the created-date ordered query")
+    void shouldUseFifoQueryForFifoStrategy() {
+        when(inventoryRepository.streamFifoCandidates(productId, warehouseId, InventoryStatus.AVAILABLE))
+                .thenReturn(Stream.of(candidate(batchId, "10", "0", null)));
+
+        var allocations = fefoService.selectInventory(
+                productId, warehouseId, new BigDecimal("10"), AllocationStrategy.FIFO);
+
+        assertThat(allocations).hasSize(1);
+        verify(inventoryRepository, never()).streamFefoCandidates(any(), any(), any());
+    }
+
+    private record Candidate(UUID getInventoryId, UUID getProductId, UUID getBatchId, UUID getWarehouseId,
+                             UUID getCellId, BigDecimal getQuantity, BigDecimal getReservedQuantity,
+                             String getBatchNumber, LocalDate getExpiryDate, LocalDateTime getBatchCreatedAt)
+            implements InventoryRepository.AllocationCandidate {
+    }
+}
@@ -0,0 +1,173 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.client.dto.CellInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
+import by.bsuir.productservice.model.entity.Inventory;
+import by.bsuir.productservice.model.entity.ProductBatch;
+import by.bsuir.productservice.model.enums.StorageConditions;
+import by.bsuir.productservice.repository.InventoryRepository;
+import by.bsuir.productservice.repository.ProductBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FreeSlotIndex — модульные тесты")
+class FreeSlotIndexTest {
+
+    @Mock private WarehouseTopologyCache topologyCache;
+    @Mock private InventoryRepository inventoryRepository;
+    @Mock private ProductBatchRepository batchRepository;
+
+    private FreeSlotIndex index;
+    private UUID warehouseId;
+
+    @BeforeEach
+    void setUp() {
+        index = new FreeSlotIndex(topologyCache, inventoryRepository, batchRepository);
+        warehouseId = UUID.randomUUID();
+    }
+
+    private CellInfoDto slot(UUID rackId, BigDecimal sideCm) {
+        return new CellInfoDto(UUID.randomUUID(), rackId, null, "CELL", sideCm, sideCm,
+                sideCm, sideCm, null, sideCm, null);
+    }
+
+    private WarehouseTopologyDto.RackNode rack(UUID rackId, String sc, BigDecimal maxWeightKg, CellInfoDto... slots) {
+        return new WarehouseTopologyDto.RackNode(rackId, warehouseId, "SHELF", "R", sc, maxWeightKg, true,
+                List.of(slots));
+    }
+
+    private void givenTopology(WarehouseTopologyDto.RackNode... racks) {
+        when(topologyCache.get(warehouseId)).thenReturn(new WarehouseTopologyDto(warehouseId, 1L, List.of(racks)));
+    }
+
+    private record Stock(UUID getInventoryId, UUID getCellId, BigDecimal getQuantity,
+                         Integer getUnitsPerPackage, BigDecimal getPackageWeightKg)
+            implements InventoryRepository.SlotStockProjection {
+    }
+
+    @Test
+    @DisplayName("findFirstFit: возвращает первый свободный слот в порядке топологии, занятые пропускает")
+    void findFirstFit_GivenOccupiedFirstSlot_ShouldReturnNextInOrder() {
+        UUID rackId = UUID.randomUUID();
+        CellInfoDto first = slot(rackId, new BigDecimal("50"));
+        CellInfoDto second = slot(rackId, new BigDecimal("80"));
+        CellInfoDto third = slot(rackId, new BigDecimal("30"));
+        givenTopology(rack(rackId, "ROOM", null, first, second, third));
+        when(inventoryRepository.findSlotStockByWarehouseId(warehouseId)).thenReturn(List.of(
+                new Stock(UUID.randomUUID(), first.cellId(), BigDecimal.ONE, 1, null)));
+
+        FreeSlotIndex.FreeSlot found = index.findFirstFit(warehouseId, StorageConditions.ROOM, false, null,
+                null, BigDecimal.ZERO, s -> true);
+
+        assertThat(found.slot().cellId()).isEqualTo(second.cellId());
+        assertThat(found.slotIndex()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("findFirstFit: слоты с наименьшей стороной меньше груза не рассматриваются")
+    void findFirstFit_GivenLargePackage_ShouldSkipSmallerClasses() {
+        UUID rackId = UUID.randomUUID();
+        CellInfoDto small = slot(rackId, new BigDecimal("20"));
+        CellInfoDto large = slot(rackId, new BigDecimal("60"));
+        givenTopology(rack(rackId, "ROOM", null, small, large));
+
+        FreeSlotIndex.FreeSlot found = index.findFirstFit(warehouseId, StorageConditions.ROOM, false, null,
+                new BigDecimal("45"), BigDecimal.ZERO, s -> true);
+
+        assertThat(found.slot().cellId()).isEqualTo(large.cellId());
+    }
+
+    @Test
+    @DisplayName("findFirstFit: более холодный стеллаж подходит, более тёплый — нет")
+    void findFirstFit_GivenColdRequirement_ShouldUseColderRacksOnly() {
+        UUID roomRack = UUID.randomUUID();
+        UUID freezerRack = UUID.randomUUID();
+        CellInfoDto roomSlot = slot(roomRack, BigDecimal.TEN);
+        CellInfoDto freezerSlot = slot(freezerRack, BigDecimal.TEN);
+        givenTopology(rack(roomRack, "ROOM", null, roomSlot), rack(freezerRack, "FREEZER", null, freezerSlot));
+
+        FreeSlotIndex.FreeSlot found = index.findFirstFit(warehouseId, StorageConditions.FRIDGE, false, null,
+                null, BigDecimal.ZERO, s -> true);
+
+        assertThat(found.slot().cellId()).isEqualTo(freezerSlot.cellId());
+    }
+
+    @Test
+    @DisplayName("findFirstFit: стеллаж без запаса грузоподъёмности пропускается")
+    void findFirstFit_GivenOverweightRack_ShouldSkipRack() {
+        UUID heavyRack = UUID.randomUUID();
+        UUID freeRack = UUID.randomUUID();
+        CellInfoDto stocked = slot(heavyRack, BigDecimal.TEN);
+        CellInfoDto candidate = slot(heavyRack, BigDecimal.TEN);
+        CellInfoDto other = slot(freeRack, BigDecimal.TEN);
+        givenTopology(rack(heavyRack, "ROOM", new BigDecimal("100"), stocked, candidate),
+                rack(freeRack, "ROOM", null, other));
+        when(inventoryRepository.findSlotStockByWarehouseId(warehouseId)).thenReturn(List.of(
+                new Stock(UUID.randomUUID(), stocked.cellId(), new BigDecimal("9"), 1, BigDecimal.TEN)));
+
+        assertThat(index.rackUsedKg(warehouseId, heavyRack)).isEqualByComparingTo("90");
+        FreeSlotIndex.FreeSlot found = index.findFirstFit(warehouseId, StorageConditions.ROOM, false, null,
+                null, new BigDecimal("20"), s -> true);
+
+        assertThat(found.slot().cellId()).isEqualTo(other.cellId());
+    }
+
+    @Test
+    @DisplayName("onStockChanged: размещение занимает слот, списание до нуля освобождает его")
+    void onStockChanged_ShouldTrackOccupancyIncrementally() {
+        UUID rackId = UUID.randomUUID();
+        CellInfoDto first = slot(rackId, BigDecimal.TEN);
+        CellInfoDto second = slot(rackId, BigDecimal.TEN);
+        givenTopology(rack(rackId, "ROOM", null, first, second));
+        UUID batchId = UUID.randomUUID();
+        when(batchRepository.findById(batchId)).thenReturn(Optional.of(ProductBatch.builder()
+                .batchId(batchId).unitsPerPackage(1).packageWeightKg(new BigDecimal("2")).build()));
+        assertThat(index.freeSlots(warehouseId, StorageConditions.ROOM, false)).hasSize(2);
+
+        Inventory inventory = Inventory.builder().inventoryId(UUID.randomUUID()).warehouseId(warehouseId)
+                .batchId(batchId).cellId(first.cellId()).quantity(new BigDecimal("5")).build();
+        index.onStockChanged(inventory);
+
+        assertThat(index.freeSlots(warehouseId, StorageConditions.ROOM, false))
+                .extracting(f -> f.slot().cellId()).containsExactly(second.cellId());
+        assertThat(index.rackUsedKg(warehouseId, rackId)).isEqualByComparingTo("10");
+
+        inventory.setQuantity(BigDecimal.ZERO);
+        index.onStockChanged(inventory);
+
+        assertThat(index.freeSlots(warehouseId, StorageConditions.ROOM, false)).hasSize(2);
+        assertThat(index.rackUsedKg(warehouseId, rackId)).isEqualByComparingTo("0");
+        verify(inventoryRepository, times(1)).findSlotStockByWarehouseId(warehouseId);
+    }
+
+    @Test
+    @DisplayName("slotsFor: новая версия топологии перестраивает индекс")
+    void freeSlots_GivenNewTopologyVersion_ShouldRebuild() {
+        UUID rackId = UUID.randomUUID();
+        CellInfoDto first = slot(rackId, BigDecimal.TEN);
+        CellInfoDto added = slot(rackId, BigDecimal.TEN);
+        when(topologyCache.get(warehouseId))
+                .thenReturn(new WarehouseTopologyDto(warehouseId, 1L, List.of(rack(rackId, "ROOM", null, first))))
+                .thenReturn(new WarehouseTopologyDto(warehouseId, 2L,
+                        List.of(rack(rackId, "ROOM", null, first, added))));
+
+        assertThat(index.freeSlots(warehouseId, StorageConditions.ROOM, false)).hasSize(1);
+        assertThat(index.freeSlots(warehouseId, StorageConditions.ROOM, false)).hasSize(2);
+        verify(inventoryRepository, times(2)).findSlotStockByWarehouseId(warehouseId);
+    }
+}
@@ -16,6 +16,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -24,6 +25,7 @@ import java.util.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,6 +44,9 @@ class InventoryCheckServiceTest {
     @Mock
     private ProductOperationRepository operationRepository;
 
+    @Mock
+    private OperationRollupService operationRollupService;
+
     @InjectMocks
     private InventoryCheckService inventoryCheckService;
 
@@ -96,21 +101,35 @@ class InventoryCheckServiceTest {
     @Test
     @DisplayName("Should start inventory check successfully")
     void shouldStartInventoryCheckSuccessfully() {
-        when(sessionRepository.findByStatus(InventorySession.SessionStatus.IN_PROGRESS))
-                .thenReturn(Collections.emptyList());
-        when(sessionRepository.save(any(InventorySession.class)))
-                .thenAnswer(invocation -> invocation.getArgument(0));
-        when(inventoryRepository.findByWarehouseId(warehouseId))
-                .thenReturn(Arrays.asList(inventory));
-        when(countRepository.save(any(InventoryCount.class)))
+        when(sessionRepository.findFirstByWarehouseIdAndStatus(warehouseId, InventorySession.SessionStatus.IN_PROGRESS))
+                .thenReturn(Optional.empty());
+        when(sessionRepository.saveAndFlush(any(InventorySession.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
+        when(countRepository.insertSnapshot(any(UUID.class), eq(warehouseId))).thenReturn(1);
 
         UUID resultSessionId = inventoryCheckService.startInventory(warehouseId, userId, "Test notes");
 
         assertThat(resultSessionId).isNotNull();
-        verify(sessionRepository, times(1)).save(any(InventorySession.class));
-        verify(inventoryRepository, times(1)).findByWarehouseId(warehouseId);
-        verify(countRepository, times(1)).save(any(InventoryCount.class));
+        verify(sessionRepository, times(1)).saveAndFlush(any(InventorySession.class));
+        verify(countRepository, times(1)).insertSnapshot(resultSessionId, warehouseId);
+        verify(countRepository, never()).save(any(InventoryCount.class));
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    @DisplayName("Should snapshot only organization inventory when organization is given")
+    void shouldSnapshotOrganizationInventory() {
+        UUID organizationId = UUID.randomUUID();
+        when(sessionRepository.findFirstByWarehouseIdAndStatus(warehouseId, InventorySession.SessionStatus.IN_PROGRESS))
+                .thenReturn(Optional.empty());
+        when(sessionRepository.saveAndFlush(any(InventorySession.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(countRepository.insertSnapshot(any(UUID.class), eq(organizationId), eq(warehouseId))).thenReturn(3);
+
+        UUID resultSessionId = inventoryCheckService.startInventory(warehouseId, userId, organizationId, null);
+
+        verify(countRepository).insertSnapshot(resultSessionId, organizationId, warehouseId);
+        verify(countRepository, never()).insertSnapshot(any(UUID.class), any(UUID.class));
     }
 
     @Test
@@ -122,14 +141,29 @@ class InventoryCheckServiceTest {
                 .status(InventorySession.SessionStatus.IN_PROGRESS)
                 .build();
 
-        when(sessionRepository.findByStatus(InventorySession.SessionStatus.IN_PROGRESS))
-                .thenReturn(Arrays.asList(activeSession));
+        when(sessionRepository.findFirstByWarehouseIdAndStatus(warehouseId, InventorySession.SessionStatus.IN_PROGRESS))
+                .thenReturn(Optional.of(activeSession));
+
+        assertThatThrownBy(() -> inventoryCheckService.startInventory(warehouseId, userId, "Test notes"))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("уже идёт");
+
+        verify(sessionRepository, never()).saveAndFlush(any(InventorySession.class));
+    }
+
+    @Test
+    @DisplayName("Should map concurrent start rejected by active session index to conflict")
+    void shouldThrowConflictWhenConcurrentStartHitsUniqueIndex() {
+        when(sessionRepository.findFirstByWarehouseIdAndStatus(warehouseId, InventorySession.SessionStatus.IN_PROGRESS))
+                .thenReturn(Optional.empty());
+        when(sessionRepository.saveAndFlush(any(InventorySession.class)))
+                .thenThrow(new DataIntegrityViolationException("uq_inventory_session_active_warehouse"));
 
         assertThatThrownBy(() -> inventoryCheckService.startInventory(warehouseId, userId, "Test notes"))
                 .isInstanceOf(AppException.class)
                 .hasMessageContaining("уже идёт");
 
-        verify(sessionRepository, never()).save(any(InventorySession.class));
+        verifyNoInteractions(countRepository);
     }
 
     @Test
@@ -138,7 +172,8 @@ class InventoryCheckServiceTest {
         BigDecimal actualQuantity = new BigDecimal("95");
 
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(countRepository.findBySessionId(sessionId)).thenReturn(Arrays.asList(inventoryCount));
+        when(countRepository.findSessionMatches(sessionId, productId, cellId, null))
+                .thenReturn(Arrays.asList(inventoryCount));
         when(countRepository.save(any(InventoryCount.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -186,7 +221,8 @@ class InventoryCheckServiceTest {
         UUID nonExistentProductId = UUID.randomUUID();
 
         when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-        when(countRepository.findBySessionId(sessionId)).thenReturn(Arrays.asList(inventoryCount));
+        when(countRepository.findSessionMatches(sessionId, nonExistentProductId, cellId, null))
+                .thenReturn(Collections.emptyList());
 
         assertThatThrownBy(() -> inventoryCheckService.recordActualCount(
                 sessionId, nonExistentProductId, cellId, new BigDecimal("95"), "Test notes", null))
@@ -196,6 +232,31 @@ class InventoryCheckServiceTest {
         verify(countRepository, never()).save(any(InventoryCount.class));
     }
 
+    @Test
+    @DisplayName("Should ask for countId when several batches match product and cell")
+    void shouldThrowConflictWhenSeveralBatchesMatch() {
+        InventoryCount otherBatch = InventoryCount.builder()
+                .countId(UUID.randomUUID())
+                .sessionId(sessionId)
+                .productId(productId)
+                .batchId(UUID.randomUUID())
+                .cellId(cellId)
+                .expectedQuantity(new BigDecimal("10"))
+                .build();
+
+        when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
+        when(countRepository.findSessionMatches(sessionId, productId, cellId, null))
+                .thenReturn(Arrays.asList(inventoryCount, otherBatch));
+
+        assertThatThrownBy(() -> inventoryCheckService.recordActualCount(
+                sessionId, productId, cellId, new BigDecimal("95"), "Test notes", null))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("countId");
+
+        verify(countRepository, never()).findBySessionId(any());
+        verify(countRepository, never()).save(any(InventoryCount.class));
+    }
+
     @Test
     @DisplayName("Should complete inventory check successfully")
     void shouldCompleteInventoryCheckSuccessfully() {
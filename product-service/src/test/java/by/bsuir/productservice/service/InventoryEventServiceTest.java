@@ -30,6 +30,8 @@ class InventoryEventServiceTest {
 
     @Mock private InventoryEventRepository repository;
     @Spy  private ObjectMapper objectMapper = new ObjectMapper();
+    @Mock private FreeSlotIndex freeSlotIndex;
+    @Mock private AnalyticsCacheInvalidator analyticsCacheInvalidator;
 
     @InjectMocks private InventoryEventService service;
 
@@ -119,6 +121,7 @@ class InventoryEventServiceTest {
         assertThat(saved.getEventData().get("operationId").asText()).isEqualTo(opId.toString());
         assertThat(saved.getEventData().get("userId").asText()).isEqualTo(userId.toString());
         assertThat(saved.getEventData().get("source").asText()).isEqualTo("WRITE_OFF");
+        verify(freeSlotIndex).onStockChanged(inv);
     }
 
     @Test
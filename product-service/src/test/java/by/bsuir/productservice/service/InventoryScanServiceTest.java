@@ -0,0 +1,136 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.dto.request.RecordScansRequest;
+import by.bsuir.productservice.dto.response.ScanIngestResponse;
+import by.bsuir.productservice.exception.AppException;
+import by.bsuir.productservice.model.entity.InventoryCount;
+import by.bsuir.productservice.model.entity.InventorySession;
+import by.bsuir.productservice.repository.InventoryCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("InventoryScanService Tests")
+class InventoryScanServiceTest {
+
+    @Mock
+    private InventoryCheckService inventoryCheckService;
+
+    @Mock
+    private InventoryCountRepository countRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private InventoryScanService inventoryScanService;
+
+    private UUID sessionId;
+    private InventorySession session;
+
+    @BeforeEach
+    void setUp() {
+        sessionId = UUID.randomUUID();
+        session = InventorySession.builder()
+                .sessionId(sessionId)
+                .warehouseId(UUID.randomUUID())
+                .status(InventorySession.SessionStatus.IN_PROGRESS)
+                .build();
+    }
+
+    private InventoryCount count(UUID productId, UUID cellId) {
+        return InventoryCount.builder()
+                .countId(UUID.randomUUID())
+                .sessionId(sessionId)
+                .productId(productId)
+                .cellId(cellId)
+                .expectedQuantity(BigDecimal.TEN)
+                .build();
+    }
+
+    private RecordScansRequest.Scan scan(UUID scanId, UUID countId, UUID productId, UUID cellId) {
+        return new RecordScansRequest.Scan(scanId, countId, productId, cellId, null, BigDecimal.ONE, "tsd-1", null);
+    }
+
+    @Test
+    @DisplayName("Should de-duplicate scans, resolve counts and apply new scans in one update")
+    @SuppressWarnings("unchecked")
+    void shouldIngestScansInOneUpdate() {
+        UUID productId = UUID.randomUUID();
+        UUID cellId = UUID.randomUUID();
+        InventoryCount byId = count(UUID.randomUUID(), null);
+        InventoryCount byProduct = count(productId, cellId);
+        UUID repeatedScan = UUID.randomUUID();
+        UUID unknownScan = UUID.randomUUID();
+
+        when(inventoryCheckService.loadOwnedSession(sessionId, null)).thenReturn(session);
+        when(countRepository.findBySessionIdAndCountIdIn(eq(sessionId), anyCollection())).thenReturn(List.of(byId));
+        when(countRepository.findBySessionIdAndProductIdIn(eq(sessionId), anyCollection()))
+                .thenReturn(List.of(byProduct));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(UUID.class))).thenReturn(1);
+        when(jdbcTemplate.update(anyString(), any(UUID.class))).thenReturn(1);
+
+        ScanIngestResponse response = inventoryScanService.recordScans(sessionId, List.of(
+                scan(repeatedScan, byId.getCountId(), null, null),
+                scan(repeatedScan, byId.getCountId(), null, null),
+                scan(UUID.randomUUID(), null, productId, cellId),
+                scan(unknownScan, null, UUID.randomUUID(), null)), null);
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (scan_id) DO NOTHING"), rows.capture());
+        assertThat(rows.getValue()).hasSize(2);
+        assertThat(rows.getValue()).extracting(row -> row[2])
+                .containsExactly(byId.getCountId(), byProduct.getCountId());
+
+        assertThat(response.received()).isEqualTo(4);
+        assertThat(response.applied()).isEqualTo(1);
+        assertThat(response.duplicates()).isEqualTo(2);
+        assertThat(response.countsUpdated()).isEqualTo(1);
+        assertThat(response.rejected()).extracting(ScanIngestResponse.RejectedScan::scanId)
+                .containsExactly(unknownScan);
+        verify(countRepository, never()).save(any(InventoryCount.class));
+    }
+
+    @Test
+    @DisplayName("Should reject scans for a completed session")
+    void shouldRejectScansForCompletedSession() {
+        session.setStatus(InventorySession.SessionStatus.COMPLETED);
+        when(inventoryCheckService.loadOwnedSession(sessionId, null)).thenReturn(session);
+
+        assertThatThrownBy(() -> inventoryScanService.recordScans(sessionId,
+                List.of(scan(UUID.randomUUID(), UUID.randomUUID(), null, null)), null))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("завершена");
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should not touch the database when no scan resolves to a count")
+    void shouldSkipWritesWhenAllScansRejected() {
+        when(inventoryCheckService.loadOwnedSession(sessionId, null)).thenReturn(session);
+
+        ScanIngestResponse response = inventoryScanService.recordScans(sessionId,
+                List.of(scan(UUID.randomUUID(), null, null, null)), null);
+
+        assertThat(response.applied()).isZero();
+        assertThat(response.rejected()).hasSize(1);
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,102 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.model.entity.ProductOperation;
+import by.bsuir.productservice.model.enums.OperationType;
+import by.bsuir.productservice.repository.OperationDailyRollupRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OperationRollupService — модульные тесты")
+class OperationRollupServiceTest {
+
+    @Mock private OperationDailyRollupRepository rollupRepository;
+
+    @InjectMocks private OperationRollupService service;
+
+    private final UUID orgId = UUID.randomUUID();
+    private final UUID warehouseId = UUID.randomUUID();
+
+    private ProductOperation operation(UUID organizationId, String quantity) {
+        return ProductOperation.builder()
+                .operationId(UUID.randomUUID())
+                .operationType(OperationType.SHIPMENT)
+                .organizationId(organizationId)
+                .warehouseId(warehouseId)
+                .quantity(new BigDecimal(quantity))
+                .operationDate(LocalDateTime.of(2026, 5, 15, 23, 59))
+                .build();
+    }
+
+    @Test
+    @DisplayName("recordCreated: +1 операция и её количество в строку дня")
+    void recordCreated_ShouldIncrementDayRow() {
+        service.recordCreated(operation(orgId, "12.5"));
+
+        verify(rollupRepository).increment(orgId, warehouseId, LocalDate.of(2026, 5, 15),
+                "SHIPMENT", 1L, new BigDecimal("12.5"));
+    }
+
+    @Test
+    @DisplayName("recordCreated: операция без организации в свод не попадает")
+    void recordCreated_GivenNoOrganization_ShouldSkip() {
+        service.recordCreated(operation(null, "1"));
+
+        verify(rollupRepository, never()).increment(any(), any(), any(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("recordQuantityChanged: меняется только объём, число операций нет")
+    void recordQuantityChanged_ShouldApplyDeltaOnly() {
+        service.recordQuantityChanged(operation(orgId, "8"), new BigDecimal("10"));
+
+        verify(rollupRepository).increment(orgId, warehouseId, LocalDate.of(2026, 5, 15),
+                "SHIPMENT", 0L, new BigDecimal("-2"));
+    }
+
+    @Test
+    @DisplayName("recordDeleted: вычитает операцию и её количество из строки дня")
+    void recordDeleted_ShouldDecrementDayRow() {
+        service.recordDeleted(operation(orgId, "12.5"));
+
+        verify(rollupRepository).increment(orgId, warehouseId, LocalDate.of(2026, 5, 15),
+                "SHIPMENT", -1L, new BigDecimal("-12.5"));
+    }
+
+    @Test
+    @DisplayName("rebuild: под блокировкой организации удаляет дни периода и пересчитывает их полуинтервалом")
+    void rebuild_ShouldDeleteAndReinsertRange() {
+        LocalDate from = LocalDate.of(2026, 5, 1);
+        LocalDate to = LocalDate.of(2026, 5, 31);
+        when(rollupRepository.insertFromOperations(orgId, from.atStartOfDay(),
+                LocalDate.of(2026, 6, 1).atStartOfDay())).thenReturn(42);
+
+        int rows = service.rebuild(orgId, from, to);
+
+        assertThat(rows).isEqualTo(42);
+        InOrder order = inOrder(rollupRepository);
+        order.verify(rollupRepository).lockOrganization(orgId);
+        order.verify(rollupRepository).deleteRange(orgId, from, to);
+        order.verify(rollupRepository).insertFromOperations(orgId, from.atStartOfDay(),
+                LocalDate.of(2026, 6, 1).atStartOfDay());
+    }
+}
@@ -2,7 +2,7 @@ package by.bsuir.productservice.service;
 
 import by.bsuir.productservice.client.WarehouseClient;
 import by.bsuir.productservice.client.dto.CellInfoDto;
-import by.bsuir.productservice.client.dto.RackInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.dto.request.PlacementRequest;
 import by.bsuir.productservice.dto.response.PlacementResponse;
 import by.bsuir.productservice.exception.AppException;
@@ -23,6 +23,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -33,7 +34,6 @@ import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("PlacementService — модульные тесты")
-@org.junit.jupiter.api.Disabled("Service эволюционировал (storageConditions enum, новый matchesConditions, validateReceiptCellFit/validateTransferFit добавлены) — тесты требуют переписки под новый контракт")
 class PlacementServiceTest {
 
     @Mock private WarehouseClient warehouseClient;
@@ -41,6 +41,9 @@ class PlacementServiceTest {
     @Mock private ProductReadModelRepository productRepository;
     @Mock private InventoryRepository inventoryRepository;
     @Mock private ProductOperationRepository operationRepository;
+    @Mock private OperationRollupService operationRollupService;
+    @Mock private WarehouseTopologyCache topologyCache;
+    @Mock private FreeSlotIndex freeSlotIndex;
 
     @InjectMocks private PlacementService service;
 
@@ -50,8 +53,14 @@ class PlacementServiceTest {
                 .storageConditions(sc).build();
     }
 
-    private RackInfoDto rack(UUID id, String name, String sc, boolean active) {
-        return new RackInfoDto(id, UUID.randomUUID(), "SHELF", name, sc, null, active);
+    private WarehouseTopologyDto.RackNode rack(UUID id, String name, String sc, boolean active,
+                                              CellInfoDto... cells) {
+        return new WarehouseTopologyDto.RackNode(id, UUID.randomUUID(), "SHELF", name, sc, null, active,
+                List.of(cells));
+    }
+
+    private WarehouseTopologyDto topology(UUID warehouseId, WarehouseTopologyDto.RackNode... racks) {
+        return new WarehouseTopologyDto(warehouseId, 1L, List.of(racks));
     }
 
     private CellInfoDto cell(UUID id, UUID rackId) {
@@ -116,8 +125,8 @@ class PlacementServiceTest {
                 batch(batchId, null, productId, StorageConditions.FRIDGE)));
         when(productRepository.findById(productId)).thenReturn(Optional.of(
                 ProductReadModel.builder().productId(productId).abcClass("A").build()));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER"))
-                .thenReturn(List.of(rack(UUID.randomUUID(), "R1", "ROOM", true)));
+        when(topologyCache.get(warehouseId))
+                .thenReturn(topology(warehouseId, rack(UUID.randomUUID(), "R1", "ROOM", true)));
 
         PlacementRequest req = new PlacementRequest(batchId, warehouseId,
                 BigDecimal.ONE, UUID.randomUUID(), null, null);
@@ -139,20 +148,16 @@ class PlacementServiceTest {
                 batch(batchId, null, productId, StorageConditions.ROOM)));
         when(productRepository.findById(productId)).thenReturn(Optional.of(
                 ProductReadModel.builder().productId(productId).abcClass("B").build()));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER"))
-                .thenReturn(List.of(rack(rackId, "R1", "ROOM", true)));
-        when(warehouseClient.getCellsByRack(rackId, "WORKER"))
-                .thenReturn(List.of(cell(cellId, rackId)));
-        when(inventoryRepository.findByWarehouseId(warehouseId))
-                .thenReturn(List.of(Inventory.builder()
-                        .cellId(cellId).quantity(BigDecimal.TEN).build()));
+        when(topologyCache.get(warehouseId))
+                .thenReturn(topology(warehouseId, rack(rackId, "R1", "ROOM", true, cell(cellId, rackId))));
+        when(freeSlotIndex.freeSlots(warehouseId, StorageConditions.ROOM, false)).thenReturn(List.of());
 
         PlacementRequest req = new PlacementRequest(batchId, warehouseId,
                 BigDecimal.ONE, UUID.randomUUID(), null, null);
 
         assertThatThrownBy(() -> service.autoPlacement(req, null, "WORKER"))
                 .isInstanceOf(AppException.class)
-                .hasMessageContaining("недостаточно места");
+                .hasMessageContaining("нет подходящих ячеек");
     }
 
     @Test
@@ -167,11 +172,11 @@ class PlacementServiceTest {
                 batch(batchId, UUID.randomUUID(), productId, StorageConditions.ROOM)));
         when(productRepository.findById(productId)).thenReturn(Optional.of(
                 ProductReadModel.builder().productId(productId).abcClass("A").build()));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER"))
-                .thenReturn(List.of(rack(rackId, "R1", "ROOM", true)));
-        when(warehouseClient.getCellsByRack(rackId, "WORKER"))
-                .thenReturn(List.of(cell(cellId, rackId)));
-        when(inventoryRepository.findByWarehouseId(warehouseId)).thenReturn(List.of());
+        WarehouseTopologyDto.RackNode rack = rack(rackId, "R1", "ROOM", true, cell(cellId, rackId));
+        when(topologyCache.get(warehouseId)).thenReturn(topology(warehouseId, rack));
+        when(freeSlotIndex.freeSlots(warehouseId, StorageConditions.ROOM, false))
+                .thenReturn(List.of(new FreeSlotIndex.FreeSlot(rack, rack.slots().get(0), 0)));
+        when(freeSlotIndex.rackUsedKg(warehouseId, rackId)).thenReturn(BigDecimal.ZERO);
 
         PlacementRequest req = new PlacementRequest(batchId, warehouseId,
                 new BigDecimal("5"), UUID.randomUUID(), null, "приёмка");
@@ -181,9 +186,83 @@ class PlacementServiceTest {
         assertThat(resp.rackId()).isEqualTo(rackId);
         assertThat(resp.mode()).isEqualTo("AUTO");
         verify(inventoryRepository).save(org.mockito.ArgumentMatchers.any(Inventory.class));
+        verify(freeSlotIndex).onStockChanged(org.mockito.ArgumentMatchers.any(Inventory.class));
         verify(operationRepository).save(org.mockito.ArgumentMatchers.any());
     }
 
+    @Test
+    @DisplayName("autoPlacement: место свободно по индексу, но занято в БД — берётся следующее, индекс сбрасывается")
+    void autoPlacement_GivenIndexStale_ShouldSkipOccupiedCell() {
+        UUID batchId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
+        UUID warehouseId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID takenId = UUID.randomUUID();
+        UUID freeId = UUID.randomUUID();
+        when(batchRepository.findById(batchId)).thenReturn(Optional.of(
+                batch(batchId, null, productId, StorageConditions.ROOM)));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(
+                ProductReadModel.builder().productId(productId).abcClass("A").build()));
+        WarehouseTopologyDto.RackNode rack = rack(rackId, "R1", "ROOM", true,
+                cell(takenId, rackId), cell(freeId, rackId));
+        when(topologyCache.get(warehouseId)).thenReturn(topology(warehouseId, rack));
+        when(freeSlotIndex.freeSlots(warehouseId, StorageConditions.ROOM, false)).thenReturn(List.of(
+                new FreeSlotIndex.FreeSlot(rack, rack.slots().get(0), 0),
+                new FreeSlotIndex.FreeSlot(rack, rack.slots().get(1), 1)));
+        when(freeSlotIndex.rackUsedKg(warehouseId, rackId)).thenReturn(BigDecimal.ZERO);
+        when(inventoryRepository.findByCellId(takenId)).thenReturn(Optional.of(
+                Inventory.builder().cellId(takenId).quantity(BigDecimal.ONE).build()));
+        when(inventoryRepository.findByCellId(freeId)).thenReturn(Optional.empty());
+
+        PlacementResponse resp = service.autoPlacement(new PlacementRequest(batchId, warehouseId,
+                BigDecimal.ONE, UUID.randomUUID(), null, null), null, "WORKER");
+
+        assertThat(resp.cellId()).isEqualTo(freeId);
+        verify(inventoryRepository).lockRack(rackId.toString());
+        verify(freeSlotIndex).evict(warehouseId);
+    }
+
+    @Test
+    @DisplayName("autoSelectCellForReceipt: занятое в БД место и перегруженный стеллаж отклоняются под блокировкой")
+    void autoSelectCellForReceipt_GivenIndexStale_ShouldRecheckOccupancyAndWeight() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
+        UUID heavyRackId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID takenId = UUID.randomUUID();
+        UUID heavyId = UUID.randomUUID();
+        UUID freeId = UUID.randomUUID();
+        WarehouseTopologyDto.RackNode heavyRack = new WarehouseTopologyDto.RackNode(heavyRackId, warehouseId,
+                "SHELF", "R1", "ROOM", new BigDecimal("100"), true, List.of(cell(heavyId, heavyRackId)));
+        WarehouseTopologyDto.RackNode rack = rack(rackId, "R2", "ROOM", true, cell(takenId, rackId), cell(freeId, rackId));
+        when(topologyCache.get(warehouseId)).thenReturn(topology(warehouseId, heavyRack, rack));
+        List<FreeSlotIndex.FreeSlot> candidates = List.of(
+                new FreeSlotIndex.FreeSlot(heavyRack, heavyRack.slots().get(0), 0),
+                new FreeSlotIndex.FreeSlot(rack, rack.slots().get(0), 0),
+                new FreeSlotIndex.FreeSlot(rack, rack.slots().get(1), 1));
+        when(freeSlotIndex.findFirstFit(org.mockito.ArgumentMatchers.eq(warehouseId),
+                org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.eq(false),
+                org.mockito.ArgumentMatchers.isNull(), org.mockito.ArgumentMatchers.any(),
+                org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.any()))
+                .thenAnswer(inv -> {
+                    java.util.function.Predicate<CellInfoDto> fits = inv.getArgument(6);
+                    return candidates.stream().filter(c -> fits.test(c.slot())).findFirst().orElse(null);
+                });
+        when(inventoryRepository.findByCellId(heavyId)).thenReturn(Optional.empty());
+        when(inventoryRepository.sumWeightKgByCellIds(List.of(heavyId))).thenReturn(new BigDecimal("95"));
+        when(inventoryRepository.findByCellId(takenId)).thenReturn(Optional.of(
+                Inventory.builder().cellId(takenId).quantity(BigDecimal.ONE).build()));
+        when(inventoryRepository.findByCellId(freeId)).thenReturn(Optional.empty());
+
+        UUID picked = service.autoSelectCellForReceipt(warehouseId, productId, new BigDecimal("2"), 1,
+                StorageConditions.ROOM, null, null, null, null, null, new BigDecimal("5"), "WORKER");
+
+        assertThat(picked).isEqualTo(freeId);
+        verify(inventoryRepository).lockRack(heavyRackId.toString());
+        verify(inventoryRepository, org.mockito.Mockito.times(2)).lockRack(rackId.toString());
+        verify(freeSlotIndex).evict(warehouseId);
+    }
+
     @Test
     @DisplayName("manualPlacement: без cellId → bad request")
     void manualPlacement_GivenMissingCell_ShouldThrow() {
@@ -192,18 +271,22 @@ class PlacementServiceTest {
 
         assertThatThrownBy(() -> service.manualPlacement(req, null, "WORKER"))
                 .isInstanceOf(AppException.class)
-                .hasMessageContaining("Cell ID");
+                .hasMessageContaining("обязательна");
     }
 
     @Test
     @DisplayName("manualPlacement: ячейка не принадлежит складу → notFound")
     void manualPlacement_GivenCellNotInWarehouse_ShouldThrow() {
         UUID batchId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
         UUID warehouseId = UUID.randomUUID();
         UUID cellId = UUID.randomUUID();
         when(batchRepository.findById(batchId)).thenReturn(Optional.of(
-                batch(batchId, null, UUID.randomUUID(), StorageConditions.ROOM)));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER")).thenReturn(List.of());
+                batch(batchId, null, productId, StorageConditions.ROOM)));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(
+                ProductReadModel.builder().productId(productId).build()));
+        when(topologyCache.get(warehouseId)).thenReturn(topology(warehouseId));
+        when(topologyCache.refresh(warehouseId)).thenReturn(topology(warehouseId));
 
         PlacementRequest req = new PlacementRequest(batchId, warehouseId,
                 BigDecimal.ONE, UUID.randomUUID(), cellId, null);
@@ -217,15 +300,16 @@ class PlacementServiceTest {
     @DisplayName("manualPlacement: условия ячейки не совпадают → conflict")
     void manualPlacement_GivenWrongConditions_ShouldThrow() {
         UUID batchId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
         UUID warehouseId = UUID.randomUUID();
         UUID rackId = UUID.randomUUID();
         UUID cellId = UUID.randomUUID();
         when(batchRepository.findById(batchId)).thenReturn(Optional.of(
-                batch(batchId, null, UUID.randomUUID(), StorageConditions.FRIDGE)));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER"))
-                .thenReturn(List.of(rack(rackId, "R1", "ROOM", true)));
-        when(warehouseClient.getCellsByRack(rackId, "WORKER"))
-                .thenReturn(List.of(cell(cellId, rackId)));
+                batch(batchId, null, productId, StorageConditions.FRIDGE)));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(
+                ProductReadModel.builder().productId(productId).build()));
+        when(topologyCache.get(warehouseId))
+                .thenReturn(topology(warehouseId, rack(rackId, "R1", "ROOM", true, cell(cellId, rackId))));
 
         PlacementRequest req = new PlacementRequest(batchId, warehouseId,
                 BigDecimal.ONE, UUID.randomUUID(), cellId, null);
@@ -239,15 +323,16 @@ class PlacementServiceTest {
     @DisplayName("manualPlacement: ячейка занята → conflict")
     void manualPlacement_GivenOccupiedCell_ShouldThrow() {
         UUID batchId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
         UUID warehouseId = UUID.randomUUID();
         UUID rackId = UUID.randomUUID();
         UUID cellId = UUID.randomUUID();
         when(batchRepository.findById(batchId)).thenReturn(Optional.of(
-                batch(batchId, null, UUID.randomUUID(), StorageConditions.ROOM)));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER"))
-                .thenReturn(List.of(rack(rackId, "R1", "ROOM", true)));
-        when(warehouseClient.getCellsByRack(rackId, "WORKER"))
-                .thenReturn(List.of(cell(cellId, rackId)));
+                batch(batchId, null, productId, StorageConditions.ROOM)));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(
+                ProductReadModel.builder().productId(productId).build()));
+        when(topologyCache.get(warehouseId))
+                .thenReturn(topology(warehouseId, rack(rackId, "R1", "ROOM", true, cell(cellId, rackId))));
         when(inventoryRepository.findByCellId(cellId)).thenReturn(Optional.of(
                 Inventory.builder().cellId(cellId).quantity(BigDecimal.TEN).build()));
 
@@ -263,15 +348,16 @@ class PlacementServiceTest {
     @DisplayName("manualPlacement: happy path → создаёт Inventory + Operation MANUAL")
     void manualPlacement_GivenValidCell_ShouldPersist() {
         UUID batchId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
         UUID warehouseId = UUID.randomUUID();
         UUID rackId = UUID.randomUUID();
         UUID cellId = UUID.randomUUID();
         when(batchRepository.findById(batchId)).thenReturn(Optional.of(
-                batch(batchId, UUID.randomUUID(), UUID.randomUUID(), StorageConditions.ROOM)));
-        when(warehouseClient.getRacksByWarehouse(warehouseId, "WORKER"))
-                .thenReturn(List.of(rack(rackId, "R1", "ROOM", true)));
-        when(warehouseClient.getCellsByRack(rackId, "WORKER"))
-                .thenReturn(List.of(cell(cellId, rackId)));
+                batch(batchId, UUID.randomUUID(), productId, StorageConditions.ROOM)));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(
+                ProductReadModel.builder().productId(productId).build()));
+        when(topologyCache.get(warehouseId))
+                .thenReturn(topology(warehouseId, rack(rackId, "R1", "ROOM", true, cell(cellId, rackId))));
         when(inventoryRepository.findByCellId(cellId)).thenReturn(Optional.empty());
 
         PlacementRequest req = new PlacementRequest(batchId, warehouseId,
@@ -283,4 +369,85 @@ class PlacementServiceTest {
         verify(inventoryRepository).save(org.mockito.ArgumentMatchers.any());
         verify(operationRepository).save(org.mockito.ArgumentMatchers.any());
     }
+
+    @Test
+    @DisplayName("manualPlacement: вес стеллажа проверяется по БД под блокировкой, а не по индексу")
+    void manualPlacement_GivenRackOverloadedInDb_ShouldThrowAndLockRack() {
+        UUID batchId = UUID.randomUUID();
+        UUID productId = UUID.randomUUID();
+        UUID warehouseId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID cellId = UUID.randomUUID();
+        ProductBatch heavy = batch(batchId, null, productId, StorageConditions.ROOM);
+        heavy.setPackageWeightKg(new BigDecimal("10"));
+        when(batchRepository.findById(batchId)).thenReturn(Optional.of(heavy));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(
+                ProductReadModel.builder().productId(productId).build()));
+        WarehouseTopologyDto.RackNode rack = new WarehouseTopologyDto.RackNode(rackId, warehouseId, "SHELF", "R1",
+                "ROOM", new BigDecimal("100"), true, List.of(cell(cellId, rackId)));
+        when(topologyCache.get(warehouseId)).thenReturn(topology(warehouseId, rack));
+        when(inventoryRepository.findByCellId(cellId)).thenReturn(Optional.empty());
+        when(inventoryRepository.sumWeightKgByCellIds(List.of(cellId))).thenReturn(new BigDecimal("95"));
+
+        PlacementRequest req = new PlacementRequest(batchId, warehouseId,
+                BigDecimal.ONE, UUID.randomUUID(), cellId, null);
+
+        assertThatThrownBy(() -> service.manualPlacement(req, null, "WORKER"))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("перегружен");
+        verify(inventoryRepository).lockRack(rackId.toString());
+        verify(inventoryRepository, org.mockito.Mockito.never()).save(org.mockito.ArgumentMatchers.any());
+    }
+
+    @Test
+    @DisplayName("validateReceiptCellFit: недоступность warehouse-service при проверке склада ячейки не даёт 500")
+    void validateReceiptCellFit_GivenWarehouseServiceDown_ShouldNotThrow() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID cellId = UUID.randomUUID();
+        when(topologyCache.get(warehouseId)).thenReturn(topology(warehouseId));
+        when(topologyCache.refresh(warehouseId)).thenReturn(topology(warehouseId));
+        when(warehouseClient.getCellInfo(cellId, "WORKER")).thenReturn(Map.of("rackId", rackId.toString()));
+        when(warehouseClient.getRack(rackId, "WORKER")).thenThrow(new RuntimeException("503 Service Unavailable"));
+
+        assertThatThrownBy(() -> service.validateReceiptCellFit(
+                        warehouseId, cellId, null, null, null, null, null, BigDecimal.ONE, null, "WORKER"))
+                .isInstanceOfSatisfying(AppException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(org.springframework.http.HttpStatus.CONFLICT));
+    }
+
+    @Test
+    @DisplayName("validateReceiptCellFit: топология недоступна — 503 вместо пропуска проверок")
+    void validateReceiptCellFit_GivenTopologyUnavailable_ShouldFailClosed() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID cellId = UUID.randomUUID();
+        when(topologyCache.get(warehouseId)).thenReturn(WarehouseTopologyDto.empty(warehouseId));
+        when(topologyCache.refresh(warehouseId)).thenReturn(WarehouseTopologyDto.empty(warehouseId));
+
+        assertThatThrownBy(() -> service.validateReceiptCellFit(
+                        warehouseId, cellId, null, null, null, null, null, BigDecimal.ONE, null, "WORKER"))
+                .isInstanceOfSatisfying(AppException.class, e -> assertThat(e.getStatus())
+                        .isEqualTo(org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE));
+        org.mockito.Mockito.verifyNoInteractions(warehouseClient);
+    }
+
+    @Test
+    @DisplayName("validateTransferFit: новой ячейки нет в кэше — топология перечитывается и габариты проверяются")
+    void validateTransferFit_GivenSlotMissingFromCachedTopology_ShouldRefetchAndValidate() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID cellId = UUID.randomUUID();
+        WarehouseTopologyDto.RackNode rack = rack(rackId, "R1", "ROOM", true, cell(cellId, rackId));
+        when(topologyCache.get(warehouseId)).thenReturn(topology(warehouseId));
+        when(topologyCache.refresh(warehouseId)).thenReturn(topology(warehouseId, rack));
+        ProductBatch bulky = batch(UUID.randomUUID(), null, UUID.randomUUID(), StorageConditions.ROOM);
+        bulky.setPackageLengthCm(new BigDecimal("50"));
+        bulky.setPackageWidthCm(new BigDecimal("50"));
+        bulky.setPackageHeightCm(new BigDecimal("50"));
+
+        assertThatThrownBy(() -> service.validateTransferFit(warehouseId, cellId, bulky, null, BigDecimal.ONE, "WORKER"))
+                .isInstanceOf(AppException.class)
+                .hasMessageContaining("превышают");
+        verify(inventoryRepository).lockRack(rackId.toString());
+    }
 }
@@ -1,10 +1,16 @@
 package by.bsuir.productservice.service;
 
-import by.bsuir.productservice.model.entity.Inventory;
-import by.bsuir.productservice.model.entity.ProductOperation;
+import by.bsuir.productservice.dto.response.AbcDistributionResponse;
+import by.bsuir.productservice.dto.response.InventoryAnalyticsResponse;
+import by.bsuir.productservice.dto.response.InventoryComparisonResponse;
+import by.bsuir.productservice.dto.response.OperationsComparisonResponse;
+import by.bsuir.productservice.dto.response.OperationsDynamicsResponse;
+import by.bsuir.productservice.exception.AppException;
 import by.bsuir.productservice.model.enums.OperationType;
 import by.bsuir.productservice.repository.InventoryRepository;
+import by.bsuir.productservice.repository.OperationDailyRollupRepository;
 import by.bsuir.productservice.repository.ProductOperationRepository;
+import by.bsuir.productservice.repository.ProductReadModelRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,6 +25,7 @@ import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,174 +38,188 @@ class ProductAnalyticsServiceTest {
     @Mock
     private ProductOperationRepository operationRepository;
 
+    @Mock
+    private OperationDailyRollupRepository rollupRepository;
+
+    @Mock
+    private ProductReadModelRepository productReadModelRepository;
+
     @InjectMocks
     private ProductAnalyticsService productAnalyticsService;
 
-    private List<Inventory> inventoryList;
-    private List<ProductOperation> operationList;
+    private UUID orgId;
+    private UUID warehouseId;
 
     @BeforeEach
     void setUp() {
-        UUID productId1 = UUID.randomUUID();
-        UUID productId2 = UUID.randomUUID();
-        UUID userId = UUID.randomUUID();
+        orgId = UUID.randomUUID();
+        warehouseId = UUID.randomUUID();
+    }
 
-        Inventory inv1 = Inventory.builder()
-                .inventoryId(UUID.randomUUID())
-                .productId(productId1)
-                .quantity(new BigDecimal("100"))
-                .reservedQuantity(new BigDecimal("20"))
-                .build();
-
-        Inventory inv2 = Inventory.builder()
-                .inventoryId(UUID.randomUUID())
-                .productId(productId2)
-                .quantity(new BigDecimal("50"))
-                .reservedQuantity(new BigDecimal("10"))
-                .build();
-
-        inventoryList = Arrays.asList(inv1, inv2);
-
-        ProductOperation op1 = ProductOperation.builder()
-                .operationId(UUID.randomUUID())
-                .operationType(OperationType.RECEIPT)
-                .productId(productId1)
-                .quantity(new BigDecimal("100"))
-                .userId(userId)
-                .operationDate(LocalDateTime.now().minusDays(1))
-                .build();
-
-        ProductOperation op2 = ProductOperation.builder()
-                .operationId(UUID.randomUUID())
-                .operationType(OperationType.SHIPMENT)
-                .productId(productId1)
-                .quantity(new BigDecimal("20"))
-                .userId(userId)
-                .operationDate(LocalDateTime.now())
-                .build();
-
-        operationList = Arrays.asList(op1, op2);
+    private record Totals(BigDecimal getTotalQuantity, BigDecimal getReservedQuantity,
+                          Long getUniqueProducts, Long getTotalRecords)
+            implements InventoryRepository.StockTotals {
     }
 
-    @Test
-    @DisplayName("Should calculate inventory analytics successfully")
-    void shouldCalculateInventoryAnalyticsSuccessfully() {
-        when(inventoryRepository.findAll()).thenReturn(inventoryList);
+    private record ByType(OperationType getOperationType, Long getOperations, BigDecimal getQuantity)
+            implements OperationDailyRollupRepository.TypeTotals {
+    }
 
-        Map<String, Object> analytics = productAnalyticsService.getInventoryAnalytics();
+    private record ByDay(LocalDate getOperationDay, Long getOperations)
+            implements OperationDailyRollupRepository.DailyCount {
+    }
 
-        assertThat(analytics).isNotNull();
-        assertThat(analytics.get("totalQuantity")).isEqualTo(150);
-        assertThat(analytics.get("reservedQuantity")).isEqualTo(30);
-        assertThat(analytics.get("availableQuantity")).isEqualTo(120);
-        assertThat(analytics.get("uniqueProducts")).isEqualTo(2L);
-        assertThat(analytics.get("totalRecords")).isEqualTo(2);
-        verify(inventoryRepository, times(1)).findAll();
+    private record ByUser(UUID getUserId, Long getOperations)
+            implements ProductOperationRepository.UserCount {
     }
 
-    @Test
-    @DisplayName("Should calculate operations dynamics successfully")
-    void shouldCalculateOperationsDynamicsSuccessfully() {
-        LocalDate startDate = LocalDate.now().minusDays(2);
-        LocalDate endDate = LocalDate.now();
+    private record ClassCount(String getAbcClass, Long getProducts)
+            implements ProductReadModelRepository.AbcClassCount {
+    }
 
-        when(operationRepository.findAll()).thenReturn(operationList);
+    private record ClassQuantity(String getAbcClass, BigDecimal getQuantity)
+            implements InventoryRepository.AbcClassQuantity {
+    }
 
-        Map<String, Object> dynamics = productAnalyticsService.getOperationsDynamics(startDate, endDate);
+    private void givenStock(String total, String reserved, long products, long records) {
+        when(inventoryRepository.aggregateStock(orgId, warehouseId)).thenReturn(
+                new Totals(new BigDecimal(total), new BigDecimal(reserved), products, records));
+    }
 
-        assertThat(dynamics).isNotNull();
-        assertThat(dynamics.get("startDate")).isEqualTo(startDate);
-        assertThat(dynamics.get("endDate")).isEqualTo(endDate);
-        assertThat(dynamics.get("totalOperations")).isEqualTo(2);
+    @Test
+    @DisplayName("getInventoryAnalytics: агрегаты из БД по организации и складу")
+    void shouldCalculateInventoryAnalyticsSuccessfully() {
+        givenStock("150", "30", 2, 2);
 
-        @SuppressWarnings("unchecked")
-        Map<String, Long> operationsByType = (Map<String, Long>) dynamics.get("operationsByType");
-        assertThat(operationsByType).containsKey("RECEIPT");
-        assertThat(operationsByType).containsKey("SHIPMENT");
+        InventoryAnalyticsResponse analytics = productAnalyticsService.getInventoryAnalytics(orgId, warehouseId);
 
-        verify(operationRepository, times(1)).findAll();
+        assertThat(analytics.totalQuantity()).isEqualTo(150);
+        assertThat(analytics.reservedQuantity()).isEqualTo(30);
+        assertThat(analytics.availableQuantity()).isEqualTo(120);
+        assertThat(analytics.uniqueProducts()).isEqualTo(2);
+        assertThat(analytics.totalRecords()).isEqualTo(2);
+        verify(inventoryRepository, never()).findAll();
     }
 
     @Test
-    @DisplayName("Should handle empty inventory in analytics")
+    @DisplayName("getInventoryAnalytics: пустой склад → нули")
     void shouldHandleEmptyInventoryInAnalytics() {
-        when(inventoryRepository.findAll()).thenReturn(Collections.emptyList());
+        when(inventoryRepository.aggregateStock(orgId, warehouseId))
+                .thenReturn(new Totals(BigDecimal.ZERO, BigDecimal.ZERO, 0L, 0L));
 
-        Map<String, Object> analytics = productAnalyticsService.getInventoryAnalytics();
+        InventoryAnalyticsResponse analytics = productAnalyticsService.getInventoryAnalytics(orgId, warehouseId);
 
-        assertThat(analytics).isNotNull();
-        assertThat(analytics.get("totalQuantity")).isEqualTo(0);
-        assertThat(analytics.get("reservedQuantity")).isEqualTo(0);
-        assertThat(analytics.get("availableQuantity")).isEqualTo(0);
-        assertThat(analytics.get("uniqueProducts")).isEqualTo(0L);
-        verify(inventoryRepository, times(1)).findAll();
+        assertThat(analytics.totalQuantity()).isZero();
+        assertThat(analytics.availableQuantity()).isZero();
+        assertThat(analytics.uniqueProducts()).isZero();
     }
 
     @Test
-    @DisplayName("Should handle empty operations in dynamics")
+    @DisplayName("getInventoryAnalytics: без организации → 400, в БД не ходим")
+    void getInventoryAnalytics_GivenNoOrganization_ShouldThrow() {
+        assertThatThrownBy(() -> productAnalyticsService.getInventoryAnalytics(null, null))
+                .isInstanceOf(AppException.class);
+        verifyNoInteractions(inventoryRepository);
+    }
+
+    @Test
+    @DisplayName("getOperationsDynamics: типы и дни из свода, пользователи из журнала полуинтервалом")
+    void shouldCalculateOperationsDynamicsSuccessfully() {
+        LocalDate startDate = LocalDate.of(2026, 5, 1);
+        LocalDate endDate = LocalDate.of(2026, 5, 3);
+        LocalDateTime from = LocalDateTime.of(2026, 5, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2026, 5, 4, 0, 0);
+        UUID userId = UUID.randomUUID();
+        when(rollupRepository.aggregateByType(orgId, warehouseId, startDate, endDate)).thenReturn(List.of(
+                new ByType(OperationType.RECEIPT, 3L, new BigDecimal("100")),
+                new ByType(OperationType.SHIPMENT, 1L, new BigDecimal("20"))));
+        when(rollupRepository.countByDay(orgId, warehouseId, startDate, endDate)).thenReturn(List.of(
+                new ByDay(LocalDate.of(2026, 5, 2), 1L),
+                new ByDay(LocalDate.of(2026, 5, 1), 3L)));
+        when(operationRepository.countByUser(orgId, warehouseId, from, to))
+                .thenReturn(List.of(new ByUser(userId, 4L)));
+
+        OperationsDynamicsResponse dynamics =
+                productAnalyticsService.getOperationsDynamics(orgId, warehouseId, startDate, endDate);
+
+        assertThat(dynamics.startDate()).isEqualTo(startDate);
+        assertThat(dynamics.endDate()).isEqualTo(endDate);
+        assertThat(dynamics.totalOperations()).isEqualTo(4);
+        assertThat(dynamics.operationsByType()).containsEntry("RECEIPT", 3L).containsEntry("SHIPMENT", 1L);
+        assertThat(dynamics.dailyOperations().keySet())
+                .containsExactly(LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 2));
+        assertThat(dynamics.operationsByUser()).containsEntry(userId.toString(), 4L);
+        verify(operationRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("getOperationsDynamics: нет операций → нулевой итог")
     void shouldHandleEmptyOperationsInDynamics() {
         LocalDate startDate = LocalDate.now().minusDays(2);
         LocalDate endDate = LocalDate.now();
 
-        when(operationRepository.findAll()).thenReturn(Collections.emptyList());
+        OperationsDynamicsResponse dynamics =
+                productAnalyticsService.getOperationsDynamics(orgId, null, startDate, endDate);
 
-        Map<String, Object> dynamics = productAnalyticsService.getOperationsDynamics(startDate, endDate);
-
-        assertThat(dynamics).isNotNull();
-        assertThat(dynamics.get("totalOperations")).isEqualTo(0);
-        verify(operationRepository, times(1)).findAll();
-    }
-
-    private ProductOperation op(OperationType type, BigDecimal qty, LocalDateTime date) {
-        return ProductOperation.builder()
-                .operationId(UUID.randomUUID())
-                .operationType(type)
-                .quantity(qty)
-                .operationDate(date)
-                .build();
+        assertThat(dynamics.totalOperations()).isZero();
+        assertThat(dynamics.operationsByType()).isEmpty();
     }
 
     @Test
     @DisplayName("getInventoryComparison: считает inflow/outflow/delta + начальное состояние")
     void inventoryComparison_ShouldCalculateDelta() {
-        when(inventoryRepository.findAll()).thenReturn(List.of(
-                Inventory.builder().productId(UUID.randomUUID())
-                        .quantity(new BigDecimal("100")).reservedQuantity(new BigDecimal("20")).build()
-        ));
+        givenStock("100", "20", 1, 1);
         LocalDate start = LocalDate.of(2026, 5, 1);
         LocalDate end = LocalDate.of(2026, 5, 31);
-        LocalDateTime mid = LocalDateTime.of(2026, 5, 15, 12, 0);
-        when(operationRepository.findAll()).thenReturn(List.of(
-                op(OperationType.RECEIPT, new BigDecimal("40"), mid),
-                op(OperationType.WRITE_OFF, new BigDecimal("10"), mid),
-                op(OperationType.RECEIPT, new BigDecimal("5"), LocalDateTime.of(2026, 4, 1, 0, 0))
-        ));
-
-        Map<String, Object> result = productAnalyticsService.getInventoryComparison(start, end);
-
-        assertThat(result.get("inflow")).isEqualTo(40L);
-        assertThat(result.get("outflow")).isEqualTo(10L);
-        assertThat(result.get("delta")).isEqualTo(30L);
-        assertThat(result.get("totalQuantityNow")).isEqualTo(100L);
-        assertThat(result.get("totalQuantityAtStart")).isEqualTo(70L);
-        assertThat(result.get("availableQuantityNow")).isEqualTo(80L);
-        Double trend = (Double) result.get("totalQuantityTrendPercent");
-        assertThat(trend).isCloseTo(42.857, org.assertj.core.data.Offset.offset(0.01));
+        LocalDateTime from = start.atStartOfDay();
+        LocalDateTime to = LocalDate.of(2026, 6, 1).atStartOfDay();
+        when(rollupRepository.aggregateByType(orgId, warehouseId, start, end)).thenReturn(List.of(
+                new ByType(OperationType.RECEIPT, 1L, new BigDecimal("40")),
+                new ByType(OperationType.WRITE_OFF, 1L, new BigDecimal("10")),
+                new ByType(OperationType.TRANSFER, 2L, new BigDecimal("7"))));
+        when(operationRepository.countDistinctProducts(orgId, warehouseId, OperationType.RECEIPT, from, to))
+                .thenReturn(1L);
+
+        InventoryComparisonResponse result =
+                productAnalyticsService.getInventoryComparison(orgId, warehouseId, start, end);
+
+        assertThat(result.inflow()).isEqualTo(40L);
+        assertThat(result.outflow()).isEqualTo(10L);
+        assertThat(result.delta()).isEqualTo(30L);
+        assertThat(result.totalQuantityNow()).isEqualTo(100L);
+        assertThat(result.totalQuantityAtStart()).isEqualTo(70L);
+        assertThat(result.availableQuantityNow()).isEqualTo(80L);
+        assertThat(result.uniqueProductsAtStart()).isZero();
+        assertThat(result.totalQuantityTrendPercent())
+                .isCloseTo(42.857, org.assertj.core.data.Offset.offset(0.01));
+    }
+
+    @Test
+    @DisplayName("getInventoryComparison: отгрузки учитываются в расходе")
+    void inventoryComparison_GivenShipment_ShouldCountAsOutflow() {
+        givenStock("50", "0", 1, 1);
+        when(rollupRepository.aggregateByType(eq(orgId), eq(warehouseId), any(), any())).thenReturn(List.of(
+                new ByType(OperationType.SHIPMENT, 2L, new BigDecimal("25"))));
+
+        InventoryComparisonResponse result = productAnalyticsService.getInventoryComparison(
+                orgId, warehouseId, LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 31));
+
+        assertThat(result.outflow()).isEqualTo(25L);
+        assertThat(result.totalQuantityAtStart()).isEqualTo(75L);
     }
 
     @Test
     @DisplayName("getInventoryComparison: totalAtStart=0 → trendPercent=null (защита от деления)")
     void inventoryComparison_GivenZeroStart_ShouldReturnNullTrend() {
-        when(inventoryRepository.findAll()).thenReturn(Collections.emptyList());
-        LocalDate start = LocalDate.of(2026, 5, 1);
-        LocalDate end = LocalDate.of(2026, 5, 31);
-        when(operationRepository.findAll()).thenReturn(List.of(
-                op(OperationType.RECEIPT, BigDecimal.TEN, LocalDateTime.of(2026, 5, 15, 12, 0))
-        ));
+        givenStock("10", "0", 1, 1);
+        when(rollupRepository.aggregateByType(eq(orgId), eq(warehouseId), any(), any())).thenReturn(List.of(
+                new ByType(OperationType.RECEIPT, 1L, BigDecimal.TEN)));
 
-        Map<String, Object> result = productAnalyticsService.getInventoryComparison(start, end);
+        InventoryComparisonResponse result = productAnalyticsService.getInventoryComparison(
+                orgId, warehouseId, LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 31));
 
-        assertThat(result.get("totalQuantityTrendPercent")).isNull();
+        assertThat(result.totalQuantityAtStart()).isZero();
+        assertThat(result.totalQuantityTrendPercent()).isNull();
     }
 
     @Test
@@ -206,19 +227,18 @@ class ProductAnalyticsServiceTest {
     void operationsComparison_ShouldComputePreviousPeriod() {
         LocalDate start = LocalDate.of(2026, 5, 11);
         LocalDate end = LocalDate.of(2026, 5, 20);
-        when(operationRepository.findAll()).thenReturn(List.of(
-                op(OperationType.RECEIPT, BigDecimal.ONE, LocalDateTime.of(2026, 5, 15, 12, 0)),
-                op(OperationType.RECEIPT, BigDecimal.ONE, LocalDateTime.of(2026, 5, 16, 12, 0)),
-                op(OperationType.SHIPMENT, BigDecimal.ONE, LocalDateTime.of(2026, 5, 5, 12, 0))
-        ));
-
-        Map<String, Object> result = productAnalyticsService.getOperationsComparison(start, end);
-
-        assertThat(result.get("currentTotal")).isEqualTo(2L);
-        assertThat(result.get("previousTotal")).isEqualTo(1L);
-        assertThat(result.get("previousStart")).isEqualTo(LocalDate.of(2026, 5, 1));
-        assertThat(result.get("previousEnd")).isEqualTo(LocalDate.of(2026, 5, 10));
-        assertThat((Double) result.get("deltaPercent")).isEqualTo(100.0);
+        when(rollupRepository.countInPeriod(orgId, null, start, end)).thenReturn(2L);
+        when(rollupRepository.countInPeriod(orgId, null,
+                LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 10))).thenReturn(1L);
+
+        OperationsComparisonResponse result =
+                productAnalyticsService.getOperationsComparison(orgId, null, start, end);
+
+        assertThat(result.currentTotal()).isEqualTo(2L);
+        assertThat(result.previousTotal()).isEqualTo(1L);
+        assertThat(result.previousStart()).isEqualTo(LocalDate.of(2026, 5, 1));
+        assertThat(result.previousEnd()).isEqualTo(LocalDate.of(2026, 5, 10));
+        assertThat(result.deltaPercent()).isEqualTo(100.0);
     }
 
     @Test
@@ -226,32 +246,32 @@ class ProductAnalyticsServiceTest {
     void operationsComparison_GivenZeroPrevious_ShouldReturnNullDelta() {
         LocalDate start = LocalDate.of(2026, 5, 11);
         LocalDate end = LocalDate.of(2026, 5, 20);
-        when(operationRepository.findAll()).thenReturn(List.of(
-                op(OperationType.RECEIPT, BigDecimal.ONE, LocalDateTime.of(2026, 5, 15, 12, 0))
-        ));
+        when(rollupRepository.countInPeriod(orgId, null, start, end)).thenReturn(1L);
+        when(rollupRepository.countInPeriod(orgId, null,
+                LocalDate.of(2026, 5, 1), LocalDate.of(2026, 5, 10))).thenReturn(0L);
 
-        Map<String, Object> result = productAnalyticsService.getOperationsComparison(start, end);
+        OperationsComparisonResponse result =
+                productAnalyticsService.getOperationsComparison(orgId, null, start, end);
 
-        assertThat(result.get("currentTotal")).isEqualTo(1L);
-        assertThat(result.get("previousTotal")).isEqualTo(0L);
-        assertThat(result.get("deltaPercent")).isNull();
+        assertThat(result.currentTotal()).isEqualTo(1L);
+        assertThat(result.previousTotal()).isZero();
+        assertThat(result.deltaPercent()).isNull();
     }
 
     @Test
-    @DisplayName("getOperationsDynamics: операции с null operationDate отфильтровываются")
-    void operationsDynamics_GivenNullDate_ShouldFilterOut() {
-        ProductOperation nullDateOp = ProductOperation.builder()
-                .operationId(UUID.randomUUID())
-                .operationType(OperationType.RECEIPT)
-                .quantity(BigDecimal.TEN)
-                .operationDate(null)
-                .build();
-        when(operationRepository.findAll()).thenReturn(List.of(nullDateOp));
-
-        Map<String, Object> result = productAnalyticsService.getOperationsDynamics(
-                LocalDate.of(2026, 1, 1), LocalDate.of(2026, 12, 31));
-
-        assertThat(result.get("totalOperations")).isEqualTo(0);
+    @DisplayName("getAbcDistribution: все классы присутствуют, неизвестные отбрасываются")
+    void abcDistribution_ShouldFillMissingClasses() {
+        when(productReadModelRepository.countByAbcClass(orgId)).thenReturn(List.of(
+                new ClassCount("A", 2L), new ClassCount("C", 5L), new ClassCount("X", 9L)));
+        when(inventoryRepository.sumQuantityByAbcClass(orgId, warehouseId)).thenReturn(List.of(
+                new ClassQuantity("A", new BigDecimal("30")), new ClassQuantity("C", new BigDecimal("12"))));
+
+        AbcDistributionResponse result = productAnalyticsService.getAbcDistribution(orgId, warehouseId);
+
+        assertThat(result.productCountByClass()).containsExactly(
+                Map.entry("A", 2L), Map.entry("B", 0L), Map.entry("C", 5L));
+        assertThat(result.totalProducts()).isEqualTo(7L);
+        assertThat(result.quantityByClass().get("B")).isEqualByComparingTo("0");
+        assertThat(result.totalQuantity()).isEqualByComparingTo("42");
     }
 }
-
@@ -2,7 +2,7 @@ package by.bsuir.productservice.service;
 
 import by.bsuir.productservice.client.WarehouseClient;
 import by.bsuir.productservice.client.dto.CellInfoDto;
-import by.bsuir.productservice.client.dto.RackInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
 import by.bsuir.productservice.dto.request.ReceiveProductRequest;
 import by.bsuir.productservice.dto.request.TransferProductRequest;
 import by.bsuir.productservice.exception.AppException;
@@ -42,10 +42,12 @@ import static org.mockito.Mockito.when;
 class ProductOperationServiceTest {
 
     @Mock private ProductOperationRepository operationRepository;
+    @Mock private OperationRollupService operationRollupService;
     @Mock private InventoryRepository inventoryRepository;
     @Mock private ProductReadModelRepository productRepository;
     @Mock private WarehouseClient warehouseClient;
     @Mock private InventoryEventService inventoryEventService;
+    @Mock private WarehouseTopologyCache topologyCache;
 
     @InjectMocks private ProductOperationService service;
 
@@ -169,12 +171,12 @@ class ProductOperationServiceTest {
 
         when(productRepository.findById(productId)).thenReturn(Optional.of(
                 ProductReadModel.builder().productId(productId).build()));
-        when(warehouseClient.getRacksByWarehouse(eq(warehouseId), anyString())).thenReturn(List.of(
-                new RackInfoDto(rackId, warehouseId, "CELL", "A-1", null, null, true)));
+        when(topologyCache.get(warehouseId)).thenReturn(
+                new WarehouseTopologyDto(warehouseId, 1L, List.of(new WarehouseTopologyDto.RackNode(
+                        rackId, warehouseId, "CELL", "A-1", null, null, true,
+                        List.of(new CellInfoDto(freeCellId, rackId, null, null, BigDecimal.TEN, BigDecimal.ONE,
+                                BigDecimal.ONE, BigDecimal.ONE, null, null, null))))));
         when(inventoryRepository.findByWarehouseId(warehouseId)).thenReturn(List.of());
-        when(warehouseClient.getCellsByRack(eq(rackId), anyString())).thenReturn(List.of(
-                new CellInfoDto(freeCellId, rackId, null, null, BigDecimal.TEN, BigDecimal.ONE,
-                        BigDecimal.ONE, BigDecimal.ONE, null, null, null)));
         when(inventoryRepository.findByProductIdAndWarehouseIdForUpdate(productId, warehouseId))
                 .thenReturn(Optional.empty());
 
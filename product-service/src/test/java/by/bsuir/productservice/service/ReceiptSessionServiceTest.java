@@ -53,6 +53,8 @@ class ReceiptSessionServiceTest {
     @Mock
     private ProductOperationRepository operationRepository;
     @Mock
+    private OperationRollupService operationRollupService;
+    @Mock
     private ProductReadModelRepository productRepository;
     @Mock
     private ProductBatchRepository batchRepository;
@@ -60,6 +62,10 @@ class ReceiptSessionServiceTest {
     private SupplierRepository supplierRepository;
     @Mock
     private DocumentRegistryService documentRegistryService;
+    @Mock
+    private WarehouseTopologyCache topologyCache;
+    @Mock
+    private FreeSlotIndex freeSlotIndex;
 
     @InjectMocks
     private ReceiptSessionService service;
@@ -85,6 +91,11 @@ class ReceiptSessionServiceTest {
                 null, null, null, null, items);
     }
 
+    private DocumentRegistryService.RegistrationResult registered(String type, String number) {
+        return new DocumentRegistryService.RegistrationResult(type,
+                GeneratedDocument.builder().id(UUID.randomUUID()).documentNumber(number).build(), null);
+    }
+
     private CreateReceiptSessionRequest.ReceiptItem item(UUID batchId, String batchNumber) {
         return new CreateReceiptSessionRequest.ReceiptItem(
                 productId, batchId, UUID.randomUUID(),
@@ -103,10 +114,9 @@ class ReceiptSessionServiceTest {
                 .thenReturn(opId);
         when(productRepository.findById(productId)).thenReturn(Optional.of(
                 ProductReadModel.builder().productId(productId).name("Молоко").sku("MLK").unitOfMeasure("л").build()));
-        when(documentRegistryService.register(any(), eq("receipt-order"), any(), eq(orgId), eq(userId)))
-                .thenReturn(GeneratedDocument.builder().id(UUID.randomUUID()).documentNumber("ПО-2026-1").build());
-        when(documentRegistryService.register(any(), eq("receipt-act"), any(), eq(orgId), eq(userId)))
-                .thenReturn(GeneratedDocument.builder().id(UUID.randomUUID()).documentNumber("АП-2026-1").build());
+        when(documentRegistryService.registerAll(any(), any(), eq(orgId), eq(userId))).thenReturn(List.of(
+                registered("receipt-order", "ПО-2026-1"),
+                registered("receipt-act", "АП-2026-1")));
         when(sessionRepository.save(any(ReceiptSession.class))).thenAnswer(inv -> inv.getArgument(0));
 
         ReceiptSession session = service.createSession(req, orgId);
@@ -175,7 +185,7 @@ class ReceiptSessionServiceTest {
     void createSession_givenDocumentRegistryFails_whenCalled_thenStillReturnsSession() {
         var req = baseRequest(List.of(item(UUID.randomUUID(), null)));
         when(productOperationService.receiveItemInSession(any(), eq(orgId), any())).thenReturn(UUID.randomUUID());
-        when(documentRegistryService.register(any(), any(), any(), any(), any()))
+        when(documentRegistryService.registerAll(any(), any(), any(), any()))
                 .thenThrow(new RuntimeException("MinIO down"));
         when(sessionRepository.save(any(ReceiptSession.class))).thenAnswer(inv -> inv.getArgument(0));
 
@@ -254,8 +264,8 @@ class ReceiptSessionServiceTest {
                 Supplier.builder().supplierId(supplierId).name("Поставщик-X").unp("100").address("Минск").build()));
         when(productRepository.findById(productId)).thenReturn(Optional.of(
                 ProductReadModel.builder().productId(productId).name("Молоко").sku("MLK").build()));
-        when(documentRegistryService.register(any(), eq("receipt-act"), any(), eq(orgId), eq(userId)))
-                .thenReturn(GeneratedDocument.builder().id(UUID.randomUUID()).documentNumber("АП-2026-99").build());
+        when(documentRegistryService.registerAll(any(), any(), eq(orgId), eq(userId)))
+                .thenReturn(List.of(registered("receipt-act", "АП-2026-99")));
         when(sessionRepository.save(any(ReceiptSession.class))).thenAnswer(inv -> inv.getArgument(0));
 
         ReceiptSession result = service.recordDiscrepancy(sessionId, req, orgId);
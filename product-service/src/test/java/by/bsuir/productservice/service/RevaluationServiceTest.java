@@ -34,6 +34,7 @@ class RevaluationServiceTest {
 
     @Mock private ProductReadModelRepository productRepository;
     @Mock private ProductOperationRepository operationRepository;
+    @Mock private OperationRollupService operationRollupService;
     @Mock private InventoryRepository inventoryRepository;
     @Mock private InventoryEventService inventoryEventService;
 
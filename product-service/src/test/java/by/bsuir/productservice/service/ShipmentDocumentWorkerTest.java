@@ -0,0 +1,168 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.model.entity.GeneratedDocument;
+import by.bsuir.productservice.model.entity.ShipmentDocumentOutbox;
+import by.bsuir.productservice.model.enums.OutboxStatus;
+import by.bsuir.productservice.repository.ShipmentDocumentOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ShipmentDocumentWorker — модульные тесты")
+class ShipmentDocumentWorkerTest {
+
+    @Mock private ShipmentDocumentOutboxRepository outboxRepository;
+    @Mock private ShipmentRequestService shipmentRequestService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private ShipmentDocumentWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        worker = new ShipmentDocumentWorker(outboxRepository, shipmentRequestService, Runnable::run,
+                transactionManager, 4, 3, 5);
+    }
+
+    private ShipmentDocumentOutbox task(int attempts) {
+        return ShipmentDocumentOutbox.builder()
+                .id(UUID.randomUUID())
+                .requestId(UUID.randomUUID())
+                .operationId(UUID.randomUUID())
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    private void givenClaimed(ShipmentDocumentOutbox task) {
+        when(outboxRepository.lockDue(any(), anyInt())).thenReturn(List.of(task));
+        when(outboxRepository.saveAll(List.of(task))).thenReturn(List.of(task));
+        when(outboxRepository.findByIdForUpdate(task.getId())).thenReturn(Optional.of(task));
+    }
+
+    @Test
+    @DisplayName("poll: задание забирается с арендой, документы прикрепляются к заявке, статус DONE")
+    void poll_GivenDueTask_ShouldGenerateAndAttach() {
+        ShipmentDocumentOutbox task = task(0);
+        givenClaimed(task);
+        List<UUID> documentIds = List.of(UUID.randomUUID());
+        when(shipmentRequestService.generateShipmentDocuments(
+                eq(task.getRequestId()), eq(task.getOperationId()), isNull(), isNull(), isNull(), isNull(), any()))
+                .thenReturn(new ShipmentRequestService.ShipmentDocuments(documentIds, List.of()));
+
+        worker.poll();
+
+        verify(shipmentRequestService).attachDocuments(task.getRequestId(), documentIds);
+        assertThat(task.getStatus()).isEqualTo(OutboxStatus.DONE);
+        assertThat(task.getAttempts()).isEqualTo(1);
+        assertThat(task.getLockedUntil()).isNull();
+        assertThat(task.getLeaseToken()).isNull();
+    }
+
+    @Test
+    @DisplayName("poll: повтор передаёт уже созданные документы, новые записываются в задание")
+    void poll_GivenPartiallyGeneratedTask_ShouldReuseRecordedDocuments() {
+        ShipmentDocumentOutbox task = task(1);
+        UUID cmrId = UUID.randomUUID();
+        task.setGeneratedDocuments(Map.of("cmr", cmrId));
+        givenClaimed(task);
+        GeneratedDocument invoice = GeneratedDocument.builder().id(UUID.randomUUID()).documentType("invoice").build();
+        when(shipmentRequestService.generateShipmentDocuments(
+                any(), any(), any(), any(), any(), eq(Map.of("cmr", cmrId)), any()))
+                .thenAnswer(inv -> {
+                    Consumer<List<GeneratedDocument>> onSaved = inv.getArgument(6);
+                    onSaved.accept(List.of(invoice));
+                    return new ShipmentRequestService.ShipmentDocuments(List.of(cmrId, invoice.getId()), List.of());
+                });
+
+        worker.poll();
+
+        assertThat(task.getGeneratedDocuments()).containsEntry("cmr", cmrId).containsEntry("invoice", invoice.getId());
+        assertThat(task.getStatus()).isEqualTo(OutboxStatus.DONE);
+    }
+
+    @Test
+    @DisplayName("poll: аренду перехватил другой обработчик → задание и заявка не трогаются")
+    void poll_GivenLeaseTakenOver_ShouldNotFinishTask() {
+        ShipmentDocumentOutbox task = task(0);
+        givenClaimed(task);
+        when(shipmentRequestService.generateShipmentDocuments(any(), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(inv -> {
+                    task.setLeaseToken(UUID.randomUUID());
+                    return new ShipmentRequestService.ShipmentDocuments(List.of(UUID.randomUUID()), List.of());
+                });
+
+        worker.poll();
+
+        assertThat(task.getStatus()).isEqualTo(OutboxStatus.PROCESSING);
+        verify(shipmentRequestService, never()).attachDocuments(any(), any());
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("poll: ошибка генерации → PENDING с отложенной попыткой, заявка не помечается FAILED")
+    void poll_GivenFailure_ShouldScheduleRetry() {
+        ShipmentDocumentOutbox task = task(0);
+        givenClaimed(task);
+        when(shipmentRequestService.generateShipmentDocuments(any(), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("document-service недоступен"));
+
+        worker.poll();
+
+        assertThat(task.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(task.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        assertThat(task.getLastError()).contains("недоступен");
+        verify(shipmentRequestService, never()).markDocumentsFailed(any(), any());
+    }
+
+    @Test
+    @DisplayName("poll: часть документов не создана → повтор без исключения, созданные не прикрепляются")
+    void poll_GivenPartialOutcome_ShouldScheduleRetry() {
+        ShipmentDocumentOutbox task = task(0);
+        givenClaimed(task);
+        when(shipmentRequestService.generateShipmentDocuments(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new ShipmentRequestService.ShipmentDocuments(
+                        List.of(UUID.randomUUID()), List.of("invoice: timeout")));
+
+        worker.poll();
+
+        assertThat(task.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(task.getLastError()).contains("invoice: timeout");
+        verify(shipmentRequestService, never()).attachDocuments(any(), any());
+    }
+
+    @Test
+    @DisplayName("poll: последняя попытка неудачна → FAILED и ошибка документов на заявке")
+    void poll_GivenLastAttemptFailed_ShouldMarkFailed() {
+        ShipmentDocumentOutbox task = task(2);
+        givenClaimed(task);
+        when(shipmentRequestService.generateShipmentDocuments(any(), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("timeout"));
+
+        worker.poll();
+
+        assertThat(task.getStatus()).isEqualTo(OutboxStatus.FAILED);
+        verify(shipmentRequestService).markDocumentsFailed(task.getRequestId(), "timeout");
+    }
+}
@@ -2,12 +2,17 @@ package by.bsuir.productservice.service;
 
 import by.bsuir.productservice.dto.request.CreateShipmentRequestRequest;
 import by.bsuir.productservice.exception.AppException;
+import by.bsuir.productservice.model.entity.Inventory;
+import by.bsuir.productservice.model.entity.ShipmentDocumentOutbox;
 import by.bsuir.productservice.model.entity.ShipmentRequest;
 import by.bsuir.productservice.model.entity.ShipmentRequestItem;
 import by.bsuir.productservice.model.enums.AllocationStrategy;
+import by.bsuir.productservice.model.enums.ShipmentDocumentStatus;
 import by.bsuir.productservice.model.enums.ShipmentRequestStatus;
 import by.bsuir.productservice.repository.InventoryRepository;
 import by.bsuir.productservice.repository.ProductOperationRepository;
+import by.bsuir.productservice.repository.ProductReadModelRepository;
+import by.bsuir.productservice.repository.ShipmentDocumentOutboxRepository;
 import by.bsuir.productservice.repository.ShipmentRequestItemRepository;
 import by.bsuir.productservice.repository.ShipmentRequestRepository;
 import org.junit.jupiter.api.DisplayName;
@@ -29,6 +34,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,8 +45,13 @@ class ShipmentRequestServiceTest {
     @Mock private ShipmentRequestItemRepository itemRepository;
     @Mock private InventoryRepository inventoryRepository;
     @Mock private ProductOperationRepository operationRepository;
+    @Mock private OperationRollupService operationRollupService;
+    @Mock private ProductReadModelRepository productRepository;
     @Mock private FEFOService fefoService;
     @Mock private InventoryEventService inventoryEventService;
+    @Mock private WarehouseTopologyCache topologyCache;
+    @Mock private DocumentRegistryService documentRegistryService;
+    @Mock private ShipmentDocumentOutboxRepository documentOutboxRepository;
 
     @InjectMocks private ShipmentRequestService service;
 
@@ -176,4 +187,49 @@ class ShipmentRequestServiceTest {
                 .hasMessageContaining("Завершённую");
         verify(requestRepository, times(0)).save(any());
     }
+
+    @Test
+    @DisplayName("complete: документы не генерируются в транзакции — пишется задание в outbox")
+    void complete_ShouldQueueDocumentsInsteadOfGenerating() {
+        UUID id = UUID.randomUUID();
+        UUID orgId = UUID.randomUUID();
+        UUID inventoryId = UUID.randomUUID();
+        ShipmentRequest req = existingRequest(id, orgId, ShipmentRequestStatus.PICKING);
+        ShipmentRequestItem item = ShipmentRequestItem.builder()
+                .itemId(UUID.randomUUID()).requestId(id).productId(UUID.randomUUID())
+                .inventoryId(inventoryId).expectedQty(new BigDecimal("5")).pickedQty(new BigDecimal("5"))
+                .build();
+        when(requestRepository.findById(id)).thenReturn(Optional.of(req));
+        when(itemRepository.findByRequestId(id)).thenReturn(List.of(item));
+        when(inventoryRepository.findByIdForUpdate(inventoryId)).thenReturn(Optional.of(Inventory.builder()
+                .inventoryId(inventoryId).quantity(new BigDecimal("10")).reservedQuantity(new BigDecimal("5"))
+                .build()));
+
+        var resp = service.complete(id, UUID.randomUUID(), orgId);
+
+        ArgumentCaptor<ShipmentDocumentOutbox> captor = ArgumentCaptor.forClass(ShipmentDocumentOutbox.class);
+        verify(documentOutboxRepository).save(captor.capture());
+        assertThat(captor.getValue().getRequestId()).isEqualTo(id);
+        assertThat(captor.getValue().getOperationId()).isNotNull();
+        assertThat(req.getStatus()).isEqualTo(ShipmentRequestStatus.COMPLETED);
+        assertThat(resp.documentStatus()).isEqualTo(ShipmentDocumentStatus.PENDING);
+        verifyNoInteractions(documentRegistryService);
+    }
+
+    @Test
+    @DisplayName("attachDocuments: сохраняет id документов на заявке, статус READY")
+    void attachDocuments_ShouldStoreIdsOnRequest() {
+        UUID id = UUID.randomUUID();
+        ShipmentRequest req = existingRequest(id, null, ShipmentRequestStatus.COMPLETED);
+        req.setDocumentError("old");
+        when(requestRepository.findById(id)).thenReturn(Optional.of(req));
+        List<UUID> documentIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+        service.attachDocuments(id, documentIds);
+
+        assertThat(req.getDocumentStatus()).isEqualTo(ShipmentDocumentStatus.READY);
+        assertThat(req.getDocumentIds()).containsExactlyElementsOf(documentIds);
+        assertThat(req.getDocumentError()).isNull();
+        verify(requestRepository).save(req);
+    }
 }
@@ -0,0 +1,179 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.client.WarehouseClient;
+import by.bsuir.productservice.client.dto.SlotHeightAdjustmentDto;
+import by.bsuir.productservice.client.dto.SlotHeightResultDto;
+import by.bsuir.productservice.model.entity.SlotHeightOutbox;
+import by.bsuir.productservice.repository.SlotHeightOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SlotHeightOutboxService — модульные тесты")
+class SlotHeightOutboxServiceTest {
+
+    @Mock private SlotHeightOutboxRepository outboxRepository;
+    @Mock private WarehouseClient warehouseClient;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Captor private ArgumentCaptor<List<SlotHeightAdjustmentDto>> batch;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SlotHeightOutboxService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new SlotHeightOutboxService(outboxRepository, warehouseClient, transactionManager,
+                meterRegistry, 200, 60);
+    }
+
+    private SlotHeightOutbox pending(UUID slotId, String delta) {
+        return SlotHeightOutbox.builder()
+                .slotId(slotId)
+                .pendingDeltaCm(new BigDecimal(delta))
+                .inflightDeltaCm(BigDecimal.ZERO)
+                .attempts(0)
+                .build();
+    }
+
+    @Test
+    @DisplayName("enqueue: дельта прибавляется к строке слота, нулевая — игнорируется")
+    void enqueue_ShouldAccumulateNonZeroDelta() {
+        UUID slotId = UUID.randomUUID();
+
+        service.enqueue(slotId, new BigDecimal("-12.5"));
+        service.enqueue(slotId, BigDecimal.ZERO);
+
+        verify(outboxRepository).accumulate(eq(slotId), eq(new BigDecimal("-12.5")), any());
+        verify(outboxRepository, never()).accumulate(eq(slotId), eq(BigDecimal.ZERO), any());
+    }
+
+    @Test
+    @DisplayName("flush: накопленная дельта уходит пакетом с ключом идемпотентности и закрывается")
+    void flush_GivenPendingDelta_ShouldSendAndComplete() {
+        UUID slotId = UUID.randomUUID();
+        when(outboxRepository.lockDue(any(), eq(200))).thenReturn(List.of(pending(slotId, "-30")));
+        when(outboxRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(warehouseClient.adjustSlotHeights(batch.capture())).thenAnswer(inv -> {
+            SlotHeightAdjustmentDto item = inv.<List<SlotHeightAdjustmentDto>>getArgument(0).get(0);
+            return List.of(new SlotHeightResultDto(item.slotId(), item.idempotencyKey(), "APPLIED",
+                    new BigDecimal("70")));
+        });
+
+        service.flush();
+
+        SlotHeightAdjustmentDto sent = batch.getValue().get(0);
+        assertThat(sent.delta()).isEqualByComparingTo("-30");
+        assertThat(sent.idempotencyKey()).isNotNull();
+        verify(outboxRepository).complete(eq(slotId), eq(sent.idempotencyKey()), any());
+        verify(outboxRepository).deleteDrained(slotId);
+        assertThat(meterRegistry.counter("slot.height.outbox.delivered", "status", "APPLIED").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("flush: сбой доставки — повтор позже с тем же ключом, дельта не теряется")
+    void flush_GivenDeliveryFailure_ShouldRescheduleWithSameKey() {
+        UUID slotId = UUID.randomUUID();
+        UUID key = UUID.randomUUID();
+        SlotHeightOutbox inflight = SlotHeightOutbox.builder()
+                .slotId(slotId)
+                .pendingDeltaCm(new BigDecimal("5"))
+                .inflightDeltaCm(new BigDecimal("-30"))
+                .inflightKey(key)
+                .attempts(1)
+                .build();
+        when(outboxRepository.lockDue(any(), anyInt())).thenReturn(List.of(inflight));
+        when(outboxRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(warehouseClient.adjustSlotHeights(anyList())).thenThrow(new IllegalStateException("timeout"));
+
+        service.flush();
+
+        assertThat(inflight.getAttempts()).isEqualTo(2);
+        assertThat(inflight.getInflightDeltaCm()).isEqualByComparingTo("-30");
+        assertThat(inflight.getPendingDeltaCm()).isEqualByComparingTo("5");
+        verify(outboxRepository).reschedule(eq(slotId), eq(key), any(), eq("timeout"), any());
+        verify(outboxRepository, never()).complete(any(), any(), any());
+        assertThat(meterRegistry.counter("slot.height.outbox.failures").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("flush: слот не найден в warehouse-service — дельта остаётся в outbox и повторяется позже")
+    void flush_GivenSlotMissing_ShouldRescheduleWithSameKey() {
+        UUID slotId = UUID.randomUUID();
+        SlotHeightOutbox row = pending(slotId, "-30");
+        when(outboxRepository.lockDue(any(), anyInt())).thenReturn(List.of(row));
+        when(outboxRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(warehouseClient.adjustSlotHeights(anyList())).thenAnswer(inv -> {
+            SlotHeightAdjustmentDto item = inv.<List<SlotHeightAdjustmentDto>>getArgument(0).get(0);
+            return List.of(new SlotHeightResultDto(item.slotId(), item.idempotencyKey(), "NOT_FOUND", null));
+        });
+
+        service.flush();
+
+        verify(outboxRepository).reschedule(eq(slotId), eq(row.getInflightKey()), any(), anyString(), any());
+        verify(outboxRepository, never()).complete(any(), any(), any());
+        verify(outboxRepository, never()).deleteDrained(any());
+    }
+
+    @Test
+    @DisplayName("flush: слот не найден после исчерпания попыток — дельта отбрасывается")
+    void flush_GivenSlotMissingAfterAttemptCap_ShouldDropDelta() {
+        UUID slotId = UUID.randomUUID();
+        UUID key = UUID.randomUUID();
+        SlotHeightOutbox row = SlotHeightOutbox.builder()
+                .slotId(slotId)
+                .pendingDeltaCm(BigDecimal.ZERO)
+                .inflightDeltaCm(new BigDecimal("-30"))
+                .inflightKey(key)
+                .attempts(9)
+                .build();
+        when(outboxRepository.lockDue(any(), anyInt())).thenReturn(List.of(row));
+        when(outboxRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(warehouseClient.adjustSlotHeights(anyList()))
+                .thenReturn(List.of(new SlotHeightResultDto(slotId, key, "NOT_FOUND", null)));
+
+        service.flush();
+
+        verify(outboxRepository).complete(eq(slotId), eq(key), any());
+        verify(outboxRepository).deleteDrained(slotId);
+        verify(outboxRepository, never()).reschedule(any(), any(), any(), anyString(), any());
+        assertThat(meterRegistry.counter("slot.height.outbox.dropped").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("flush: взаимно погасившиеся дельты не отправляются, строка удаляется")
+    void flush_GivenZeroPendingDelta_ShouldDeleteRowWithoutSending() {
+        SlotHeightOutbox drained = pending(UUID.randomUUID(), "0");
+        when(outboxRepository.lockDue(any(), anyInt())).thenReturn(List.of(drained));
+        when(outboxRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.flush();
+
+        verify(outboxRepository).delete(drained);
+        verifyNoInteractions(warehouseClient);
+        verify(outboxRepository, never()).reschedule(any(), any(), any(), anyString(), any());
+    }
+}
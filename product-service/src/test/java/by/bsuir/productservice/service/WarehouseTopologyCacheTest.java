@@ -0,0 +1,246 @@
+package by.bsuir.productservice.service;
+
+import by.bsuir.productservice.client.WarehouseClient;
+import by.bsuir.productservice.client.dto.CellInfoDto;
+import by.bsuir.productservice.client.dto.WarehouseTopologyDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WarehouseTopologyCache — модульные тесты")
+class WarehouseTopologyCacheTest {
+
+    @Mock private WarehouseClient warehouseClient;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private WarehouseTopologyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        cache = new WarehouseTopologyCache(warehouseClient, meterRegistry, 2, Duration.ofMinutes(10), clock);
+    }
+
+    private WarehouseTopologyDto topology(UUID warehouseId, long version, UUID slotId) {
+        UUID rackId = UUID.randomUUID();
+        CellInfoDto slot = new CellInfoDto(slotId, rackId, "A-1", "CELL", BigDecimal.TEN, BigDecimal.TEN,
+                BigDecimal.TEN, BigDecimal.TEN, null, BigDecimal.TEN, null);
+        return new WarehouseTopologyDto(warehouseId, version, List.of(
+                new WarehouseTopologyDto.RackNode(rackId, warehouseId, "CELL", "A", "ROOM", null, true,
+                        List.of(slot))));
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("warehouse.topology.cache.requests").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("get: повторный запрос обслуживается из кэша без REST-вызова")
+    void get_GivenRepeatedCalls_ShouldFetchOnce() {
+        UUID warehouseId = UUID.randomUUID();
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER"))
+                .thenReturn(topology(warehouseId, 1, UUID.randomUUID()));
+
+        cache.get(warehouseId);
+        cache.get(warehouseId);
+        cache.get(warehouseId);
+
+        verify(warehouseClient, times(1)).getWarehouseTopology(warehouseId, "WORKER");
+        assertThat(requests("hit")).isEqualTo(2.0);
+        assertThat(requests("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("get: ответ без версии (ошибка загрузки) не кэшируется")
+    void get_GivenFailedFetch_ShouldNotCache() {
+        UUID warehouseId = UUID.randomUUID();
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER"))
+                .thenReturn(WarehouseTopologyDto.empty(warehouseId));
+
+        cache.get(warehouseId);
+        cache.get(warehouseId);
+
+        verify(warehouseClient, times(2)).getWarehouseTopology(warehouseId, "WORKER");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("onTopologyChanged: более новая версия сбрасывает запись, такая же — нет")
+    void onTopologyChanged_GivenNewerVersion_ShouldInvalidate() {
+        UUID warehouseId = UUID.randomUUID();
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER"))
+                .thenReturn(topology(warehouseId, 3, UUID.randomUUID()));
+        cache.get(warehouseId);
+
+        cache.onTopologyChanged(warehouseId, 3);
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.onTopologyChanged(warehouseId, 4);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("get: снимок старше объявленной версии не попадает в кэш")
+    void get_GivenSnapshotOlderThanAnnounced_ShouldNotCache() {
+        UUID warehouseId = UUID.randomUUID();
+        cache.onTopologyChanged(warehouseId, 5);
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER"))
+                .thenReturn(topology(warehouseId, 4, UUID.randomUUID()));
+
+        cache.get(warehouseId);
+
+        assertThat(cache.size()).isZero();
+        assertThat(meterRegistry.get("warehouse.topology.cache.stale").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("onSlotHeightChanged: та же версия → патчит остаток высоты слота на месте")
+    void onSlotHeightChanged_GivenSameVersion_ShouldPatchSlot() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID slotId = UUID.randomUUID();
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER"))
+                .thenReturn(topology(warehouseId, 2, slotId));
+        cache.get(warehouseId);
+
+        cache.onSlotHeightChanged(warehouseId, slotId, new BigDecimal("3.5"), 2);
+
+        CellInfoDto slot = cache.findRackOfSlot(warehouseId, slotId).findSlot(slotId);
+        assertThat(slot.remainingHeightCm()).isEqualByComparingTo("3.5");
+        verify(warehouseClient, times(1)).getWarehouseTopology(warehouseId, "WORKER");
+    }
+
+    @Test
+    @DisplayName("get: превышение лимита вытесняет наименее используемый склад")
+    void get_GivenOverCapacity_ShouldEvictLeastRecentlyUsed() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        for (UUID id : List.of(first, second, third)) {
+            when(warehouseClient.getWarehouseTopology(id, "WORKER")).thenReturn(topology(id, 1, UUID.randomUUID()));
+        }
+
+        cache.get(first);
+        cache.get(second);
+        cache.get(first);
+        cache.get(third);
+        cache.get(first);
+        cache.get(second);
+
+        verify(warehouseClient, times(1)).getWarehouseTopology(first, "WORKER");
+        verify(warehouseClient, times(2)).getWarehouseTopology(second, "WORKER");
+        assertThat(meterRegistry.get("warehouse.topology.cache.evictions").tag("reason", "size")
+                .counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("get: запись старше max-age перечитывается")
+    void get_GivenExpiredEntry_ShouldRefetch() {
+        UUID warehouseId = UUID.randomUUID();
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER"))
+                .thenReturn(topology(warehouseId, 1, UUID.randomUUID()));
+        cache.get(warehouseId);
+
+        clock.advance(Duration.ofMinutes(11));
+        cache.get(warehouseId);
+
+        verify(warehouseClient, times(2)).getWarehouseTopology(warehouseId, "WORKER");
+    }
+
+    @Test
+    @DisplayName("get: параллельные промахи по одному складу ждут одну загрузку")
+    void get_GivenConcurrentMisses_ShouldFetchOnce() throws Exception {
+        UUID warehouseId = UUID.randomUUID();
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER")).thenAnswer(inv -> {
+            fetchStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return topology(warehouseId, 1, UUID.randomUUID());
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<WarehouseTopologyDto> first = pool.submit(() -> cache.get(warehouseId));
+            assertThat(fetchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<WarehouseTopologyDto> second = pool.submit(() -> cache.get(warehouseId));
+            while (requests("coalesced") < 1.0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(warehouseClient, times(1)).getWarehouseTopology(warehouseId, "WORKER");
+    }
+
+    @Test
+    @DisplayName("onTopologyChanged: объявленная версия снимается загрузкой снимка и не копится сверх лимита складов")
+    void onTopologyChanged_ShouldKeepAnnouncedVersionsBounded() {
+        UUID warehouseId = UUID.randomUUID();
+        when(warehouseClient.getWarehouseTopology(warehouseId, "WORKER"))
+                .thenReturn(topology(warehouseId, 3, UUID.randomUUID()));
+
+        cache.onTopologyChanged(warehouseId, 3);
+        assertThat(cache.announcedSize()).isEqualTo(1);
+        cache.get(warehouseId);
+        assertThat(cache.announcedSize()).isZero();
+
+        for (int i = 0; i < 5; i++) {
+            cache.onTopologyChanged(UUID.randomUUID(), 1);
+        }
+        assertThat(cache.announcedSize()).isEqualTo(2);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
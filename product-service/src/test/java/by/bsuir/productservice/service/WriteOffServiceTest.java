@@ -36,6 +36,7 @@ class WriteOffServiceTest {
 
     @Mock private InventoryRepository inventoryRepository;
     @Mock private ProductOperationRepository operationRepository;
+    @Mock private OperationRollupService operationRollupService;
     @Mock private InventoryCountRepository countRepository;
     @Mock private InventoryEventService inventoryEventService;
 
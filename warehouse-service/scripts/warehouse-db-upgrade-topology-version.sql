@@ -0,0 +1,9 @@
+-- Версия топологии склада для баз, созданных до появления warehouse_read_model.topology_version.
+-- Выполняется один раз, до запуска новой версии сервиса (ddl-auto=validate не примет старую схему).
+-- Существующие склады начинают с версии 0: кэш топологии в product-service при первом обращении загрузит схему заново.
+
+BEGIN;
+
+ALTER TABLE warehouse_read_model ADD COLUMN IF NOT EXISTS topology_version BIGINT NOT NULL DEFAULT 0;
+
+COMMIT;
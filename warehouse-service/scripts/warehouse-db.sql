@@ -10,6 +10,7 @@ CREATE TABLE warehouse_read_model
     address             VARCHAR(512),
     responsible_user_id UUID,
     is_active           BOOLEAN      NOT NULL DEFAULT TRUE,
+    topology_version    BIGINT       NOT NULL DEFAULT 0,
     created_at          TIMESTAMP    NOT NULL DEFAULT now(),
     updated_at          TIMESTAMP    NOT NULL DEFAULT now(),
     CONSTRAINT uk_warehouse_org_name UNIQUE (org_id, name)
@@ -105,3 +106,32 @@ CREATE TABLE pallet_place
     width_cm  NUMERIC(8, 2) NOT NULL,
     height_cm NUMERIC(8, 2) NOT NULL
 );
+
+CREATE TABLE slot_registry
+(
+    slot_id         UUID PRIMARY KEY,
+    slot_type       VARCHAR(16)   NOT NULL,
+    warehouse_id    UUID          NOT NULL,
+    rack_id         UUID          NOT NULL REFERENCES rack_read_model (rack_id) ON DELETE CASCADE,
+    slot_code       VARCHAR(32)   NOT NULL,
+    organization_id UUID,
+    length_cm       NUMERIC(8, 2) NOT NULL,
+    width_cm        NUMERIC(8, 2) NOT NULL,
+    height_cm       NUMERIC(8, 2) NOT NULL,
+    max_height_cm   NUMERIC(8, 2),
+    CONSTRAINT uk_slot_registry_warehouse_code UNIQUE (warehouse_id, slot_code)
+);
+
+CREATE INDEX idx_slot_registry_rack_id ON slot_registry (rack_id);
+
+CREATE TABLE slot_height_adjustment
+(
+    idempotency_key     UUID PRIMARY KEY,
+    slot_id             UUID           NOT NULL,
+    delta_cm            NUMERIC(12, 2) NOT NULL,
+    status              VARCHAR(16)    NOT NULL,
+    remaining_height_cm NUMERIC(8, 2),
+    applied_at          TIMESTAMP      NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_slot_height_adjustment_applied_at ON slot_height_adjustment (applied_at);
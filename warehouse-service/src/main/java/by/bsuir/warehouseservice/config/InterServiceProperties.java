@@ -0,0 +1,67 @@
+package by.bsuir.warehouseservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Пул соединений, таймауты, bulkhead и circuit breaker для вызовов других сервисов через
+ * {@code loadBalancedRestTemplate}. Значения по умолчанию действуют для всех сервисов, а
+ * {@code inter-service.targets.<service-id>.*} переопределяет таймаут и лимит вызовов для одного из них.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "inter-service")
+@Getter
+@Setter
+public class InterServiceProperties {
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private int maxConnections = 200;
+    private int maxConnectionsPerRoute = 50;
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    private int maxConcurrentCalls = 25;
+    private float failureRateThreshold = 50f;
+    private Duration slowCallThreshold = Duration.ofSeconds(3);
+    private int slidingWindowSize = 20;
+    private int minimumCalls = 10;
+    private Duration openStateWait = Duration.ofSeconds(10);
+
+    private final Map<String, Target> targets = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Target {
+        private Duration readTimeout;
+        private Duration slowCallThreshold;
+        private Integer maxConcurrentCalls;
+    }
+
+    public Duration readTimeout(String target) {
+        Target override = target(target);
+        return override != null && override.getReadTimeout() != null ? override.getReadTimeout() : readTimeout;
+    }
+
+    public Duration slowCallThreshold(String target) {
+        Target override = target(target);
+        return override != null && override.getSlowCallThreshold() != null
+                ? override.getSlowCallThreshold() : slowCallThreshold;
+    }
+
+    public int maxConcurrentCalls(String target) {
+        Target override = target(target);
+        return override != null && override.getMaxConcurrentCalls() != null
+                ? override.getMaxConcurrentCalls() : maxConcurrentCalls;
+    }
+
+    private Target target(String target) {
+        return target == null ? null : targets.get(target.toLowerCase(Locale.ROOT));
+    }
+}
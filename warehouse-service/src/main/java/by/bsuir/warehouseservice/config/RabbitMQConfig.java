@@ -27,6 +27,8 @@ public class RabbitMQConfig {
     public static final String WAREHOUSE_DELETED_KEY = "warehouse.deleted";
     public static final String WAREHOUSE_INFO_REQUEST_KEY = "warehouse.info.request";
     public static final String WAREHOUSE_INFO_RESPONSE_KEY = "warehouse.info.response";
+    public static final String WAREHOUSE_TOPOLOGY_CHANGED_KEY = "warehouse.topology.changed";
+    public static final String WAREHOUSE_SLOT_HEIGHT_CHANGED_KEY = "warehouse.slot.height.changed";
     public static final String ORGANIZATION_ARCHIVED_KEY = "organization.archived";
     public static final String ORGANIZATION_DELETED_KEY = "organization.deleted";
 
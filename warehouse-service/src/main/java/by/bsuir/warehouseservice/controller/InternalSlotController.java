@@ -1,8 +1,11 @@
 package by.bsuir.warehouseservice.controller;
 
+import by.bsuir.warehouseservice.dto.request.SlotHeightBatchRequest;
+import by.bsuir.warehouseservice.dto.response.SlotHeightBatchResponse;
 import by.bsuir.warehouseservice.service.SlotHeightService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -46,4 +49,12 @@ public class InternalSlotController {
                 "delta", delta,
                 "remainingHeightCm", remaining));
     }
+
+    @Operation(summary = "Пакетно изменить остатки высоты слотов",
+            description = "Все изменения применяются одной транзакцией. Повтор с тем же idempotencyKey "
+                    + "не меняет высоту повторно (статус DUPLICATE), неизвестный слот — NOT_FOUND")
+    @PostMapping("/heights")
+    public ResponseEntity<SlotHeightBatchResponse> adjustHeights(@Valid @RequestBody SlotHeightBatchRequest request) {
+        return ResponseEntity.ok(slotHeightService.adjustHeights(request.adjustments()));
+    }
 }
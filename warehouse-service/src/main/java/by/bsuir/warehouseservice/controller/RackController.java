@@ -6,6 +6,7 @@ import by.bsuir.warehouseservice.dto.request.CreatePalletRequest;
 import by.bsuir.warehouseservice.dto.request.CreateRackRequest;
 import by.bsuir.warehouseservice.dto.request.CreateShelfRequest;
 import by.bsuir.warehouseservice.dto.response.RackResponse;
+import by.bsuir.warehouseservice.dto.response.WarehouseTopologyResponse;
 import by.bsuir.warehouseservice.service.RackService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -282,6 +283,21 @@ public class RackController {
         return ResponseEntity.ok(rackService.getAllCellsFlat(warehouseId));
     }
 
+    @Operation(
+            summary = "Топология склада одним запросом",
+            description = "Возвращает все стеллажи склада вместе со слотами (габариты, остаток высоты, тип паллета). "
+                    + "Заменяет цепочку «список стеллажей + ячейки каждого стеллажа». "
+                    + "includeLoad=false пропускает запрос загрузки ячеек в product-service."
+    )
+    @ApiResponse(responseCode = "200", description = "Топология получена")
+    @GetMapping("/warehouse/{warehouseId}/topology")
+    public ResponseEntity<WarehouseTopologyResponse> getWarehouseTopology(
+            @Parameter(description = "ID склада", required = true) @PathVariable UUID warehouseId,
+            @Parameter(description = "Запрашивать загрузку ячеек из product-service")
+            @RequestParam(defaultValue = "true") boolean includeLoad) {
+        return ResponseEntity.ok(rackService.getWarehouseTopology(warehouseId, includeLoad));
+    }
+
     @Operation(
             summary = "Получить все слоты стеллажа",
             description = "Возвращает список всех слотов с указанием типа стеллажа (kind = SHELF/CELL/PALLET) " +
@@ -0,0 +1,28 @@
+package by.bsuir.warehouseservice.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public record SlotHeightBatchRequest(
+        @NotEmpty(message = "Список изменений не может быть пустым")
+        @Size(max = 500, message = "Не более 500 изменений за запрос")
+        List<@Valid Item> adjustments
+) {
+    public record Item(
+            @NotNull(message = "slotId обязателен")
+            UUID slotId,
+
+            @NotNull(message = "delta обязателен")
+            BigDecimal delta,
+
+            @NotNull(message = "idempotencyKey обязателен")
+            UUID idempotencyKey
+    ) {
+    }
+}
@@ -0,0 +1,19 @@
+package by.bsuir.warehouseservice.dto.response;
+
+import by.bsuir.warehouseservice.model.enums.SlotAdjustmentStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public record SlotHeightBatchResponse(
+        List<Result> results
+) {
+    public record Result(
+            UUID slotId,
+            UUID idempotencyKey,
+            SlotAdjustmentStatus status,
+            BigDecimal remainingHeightCm
+    ) {
+    }
+}
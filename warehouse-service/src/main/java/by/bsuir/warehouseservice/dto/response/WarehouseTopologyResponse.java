@@ -0,0 +1,46 @@
+package by.bsuir.warehouseservice.dto.response;
+
+import by.bsuir.warehouseservice.model.enums.RackKind;
+import by.bsuir.warehouseservice.model.enums.StorageConditions;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+public record WarehouseTopologyResponse(
+        UUID warehouseId,
+        long topologyVersion,
+        boolean loadIncluded,
+        List<RackNode> racks
+) {
+
+    public record RackNode(
+            UUID rackId,
+            UUID warehouseId,
+            RackKind kind,
+            String name,
+            StorageConditions storageConditions,
+            BigDecimal maxWeightKg,
+            Boolean isActive,
+            List<SlotNode> slots
+    ) {
+    }
+
+    public record SlotNode(
+            UUID slotId,
+            UUID rackId,
+            String slotCode,
+            String slotType,
+            String palletType,
+            BigDecimal maxWeightKg,
+            BigDecimal lengthCm,
+            BigDecimal widthCm,
+            BigDecimal heightCm,
+            BigDecimal maxHeightCm,
+            BigDecimal remainingHeightCm,
+            Integer itemsCount,
+            BigDecimal totalQuantity,
+            Boolean occupied
+    ) {
+    }
+}
@@ -0,0 +1,43 @@
+package by.bsuir.warehouseservice.model.entity;
+
+import by.bsuir.warehouseservice.model.enums.SlotAdjustmentStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Применённое изменение высоты слота из пакетного API. Ключ идемпотентности приходит от вызывающего
+ * сервиса: повтор пакета с тем же ключом не меняет высоту второй раз, а возвращает записанный результат.
+ */
+@Entity
+@Table(name = "slot_height_adjustment")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotHeightAdjustment {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private UUID idempotencyKey;
+
+    @Column(name = "slot_id", nullable = false)
+    private UUID slotId;
+
+    @Column(name = "delta_cm", nullable = false, precision = 12, scale = 2)
+    private BigDecimal deltaCm;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private SlotAdjustmentStatus status;
+
+    @Column(name = "remaining_height_cm", precision = 8, scale = 2)
+    private BigDecimal remainingHeightCm;
+
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+}
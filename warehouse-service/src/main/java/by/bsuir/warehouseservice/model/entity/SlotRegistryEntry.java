@@ -0,0 +1,63 @@
+package by.bsuir.warehouseservice.model.entity;
+
+import by.bsuir.warehouseservice.model.enums.SlotType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Filter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Единый реестр слотов склада: ячейки, полки и паллетоместа в одной таблице с ключами по slot_id и по
+ * (warehouse_id, slot_code). По нему слот любого типа находится одним индексным запросом, после чего
+ * данные читаются только из таблицы нужного типа. Остаток высоты здесь не хранится — он остаётся в
+ * таблице слота.
+ */
+@Entity
+@Table(name = "slot_registry")
+@Filter(name = "orgFilter", condition = "organization_id = :orgId")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotRegistryEntry {
+
+    @Id
+    @Column(name = "slot_id")
+    private UUID slotId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "slot_type", nullable = false, length = 16)
+    private SlotType slotType;
+
+    @Column(name = "warehouse_id", nullable = false)
+    private UUID warehouseId;
+
+    @Column(name = "rack_id", nullable = false)
+    private UUID rackId;
+
+    @Column(name = "slot_code", nullable = false, length = 32)
+    private String slotCode;
+
+    @Column(name = "organization_id")
+    private UUID organizationId;
+
+    @Column(name = "length_cm", nullable = false, precision = 8, scale = 2)
+    private BigDecimal lengthCm;
+
+    @Column(name = "width_cm", nullable = false, precision = 8, scale = 2)
+    private BigDecimal widthCm;
+
+    @Column(name = "height_cm", nullable = false, precision = 8, scale = 2)
+    private BigDecimal heightCm;
+
+    @Column(name = "max_height_cm", precision = 8, scale = 2)
+    private BigDecimal maxHeightCm;
+
+    /** Полная высота, доступная под товар: для паллетоместа — max_height_cm, если задана. */
+    public BigDecimal heightCapacityCm() {
+        return maxHeightCm != null ? maxHeightCm : heightCm;
+    }
+}
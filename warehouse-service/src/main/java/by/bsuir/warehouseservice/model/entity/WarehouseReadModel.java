@@ -37,6 +37,10 @@ public class WarehouseReadModel {
     @Builder.Default
     private Boolean isActive = true;
 
+    @Column(name = "topology_version", nullable = false)
+    @Builder.Default
+    private Long topologyVersion = 0L;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
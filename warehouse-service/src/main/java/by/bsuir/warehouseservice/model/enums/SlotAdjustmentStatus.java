@@ -0,0 +1,7 @@
+package by.bsuir.warehouseservice.model.enums;
+
+public enum SlotAdjustmentStatus {
+    APPLIED,
+    DUPLICATE,
+    NOT_FOUND
+}
@@ -0,0 +1,7 @@
+package by.bsuir.warehouseservice.model.enums;
+
+public enum SlotType {
+    CELL,
+    SHELF,
+    PALLET_PLACE
+}
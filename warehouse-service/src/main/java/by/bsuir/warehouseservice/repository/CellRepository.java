@@ -17,13 +17,15 @@ public interface CellRepository extends JpaRepository<Cell, UUID> {
 
     List<Cell> findByRackId(UUID rackId);
 
+    List<Cell> findByWarehouseId(UUID warehouseId);
+
     long countByRackId(UUID rackId);
 
     Optional<Cell> findByWarehouseIdAndSlotCode(UUID warehouseId, String slotCode);
 
     void deleteByRackId(UUID rackId);
 
-    @Modifying
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("UPDATE Cell c SET c.remainingHeightCm = c.remainingHeightCm + :delta WHERE c.cellId = :id")
     int adjustRemainingHeight(@Param("id") UUID cellId, @Param("delta") BigDecimal delta);
 }
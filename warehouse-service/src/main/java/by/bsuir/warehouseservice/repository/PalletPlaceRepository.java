@@ -17,13 +17,15 @@ public interface PalletPlaceRepository extends JpaRepository<PalletPlace, UUID>
 
     List<PalletPlace> findByRackId(UUID rackId);
 
+    List<PalletPlace> findByWarehouseId(UUID warehouseId);
+
     long countByRackId(UUID rackId);
 
     Optional<PalletPlace> findByWarehouseIdAndSlotCode(UUID warehouseId, String slotCode);
 
     void deleteByRackId(UUID rackId);
 
-    @Modifying
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("UPDATE PalletPlace p SET p.remainingHeightCm = p.remainingHeightCm + :delta WHERE p.placeId = :id")
     int adjustRemainingHeight(@Param("id") UUID placeId, @Param("delta") BigDecimal delta);
 }
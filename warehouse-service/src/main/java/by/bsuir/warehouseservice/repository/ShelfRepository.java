@@ -17,13 +17,15 @@ public interface ShelfRepository extends JpaRepository<Shelf, UUID> {
 
     List<Shelf> findByRackId(UUID rackId);
 
+    List<Shelf> findByWarehouseId(UUID warehouseId);
+
     long countByRackId(UUID rackId);
 
     Optional<Shelf> findByWarehouseIdAndSlotCode(UUID warehouseId, String slotCode);
 
     void deleteByRackId(UUID rackId);
 
-    @Modifying
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("UPDATE Shelf s SET s.remainingHeightCm = s.remainingHeightCm + :delta WHERE s.shelfId = :id")
     int adjustRemainingHeight(@Param("id") UUID shelfId, @Param("delta") BigDecimal delta);
 }
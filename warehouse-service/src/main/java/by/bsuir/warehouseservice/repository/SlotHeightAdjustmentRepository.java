@@ -0,0 +1,19 @@
+package by.bsuir.warehouseservice.repository;
+
+import by.bsuir.warehouseservice.model.entity.SlotHeightAdjustment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface SlotHeightAdjustmentRepository extends JpaRepository<SlotHeightAdjustment, UUID> {
+
+    @Modifying
+    @Query("DELETE FROM SlotHeightAdjustment a WHERE a.appliedAt < :before")
+    int deleteAppliedBefore(@Param("before") LocalDateTime before);
+}
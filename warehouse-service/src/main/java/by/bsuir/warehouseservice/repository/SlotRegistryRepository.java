@@ -0,0 +1,86 @@
+package by.bsuir.warehouseservice.repository;
+
+import by.bsuir.warehouseservice.model.entity.RackReadModel;
+import by.bsuir.warehouseservice.model.entity.SlotRegistryEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface SlotRegistryRepository extends JpaRepository<SlotRegistryEntry, UUID> {
+
+    boolean existsByWarehouseIdAndSlotCode(UUID warehouseId, String slotCode);
+
+    boolean existsByWarehouseIdAndSlotCodeAndSlotIdNot(UUID warehouseId, String slotCode, UUID slotId);
+
+    /** Слот по коду вместе со стеллажом — одним запросом. */
+    @Query("SELECT s AS slot, r AS rack FROM SlotRegistryEntry s JOIN RackReadModel r ON r.rackId = s.rackId "
+            + "WHERE s.warehouseId = :warehouseId AND s.slotCode = :slotCode")
+    Optional<SlotWithRack> findWithRackByCode(@Param("warehouseId") UUID warehouseId,
+                                              @Param("slotCode") String slotCode);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE SlotRegistryEntry s SET s.slotCode = :slotCode WHERE s.slotId = :id")
+    int updateSlotCode(@Param("id") UUID slotId, @Param("slotCode") String slotCode);
+
+    String BACKFILL_INSERT = "INSERT INTO slot_registry (slot_id, slot_type, warehouse_id, rack_id, slot_code, "
+            + "organization_id, length_cm, width_cm, height_cm, max_height_cm) ";
+
+    @Modifying
+    @Query(value = BACKFILL_INSERT
+            + "SELECT c.cell_id, 'CELL', c.warehouse_id, c.rack_id, c.slot_code, c.organization_id, "
+            + "c.length_cm, c.width_cm, c.height_cm, NULL FROM cell c "
+            + "WHERE NOT EXISTS (SELECT 1 FROM slot_registry s WHERE s.slot_id = c.cell_id) "
+            + "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int backfillCells();
+
+    @Modifying
+    @Query(value = BACKFILL_INSERT
+            + "SELECT sh.shelf_id, 'SHELF', sh.warehouse_id, sh.rack_id, sh.slot_code, sh.organization_id, "
+            + "sh.length_cm, sh.width_cm, sh.height_cm, NULL FROM shelf sh "
+            + "WHERE NOT EXISTS (SELECT 1 FROM slot_registry s WHERE s.slot_id = sh.shelf_id) "
+            + "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int backfillShelves();
+
+    @Modifying
+    @Query(value = BACKFILL_INSERT
+            + "SELECT p.place_id, 'PALLET_PLACE', p.warehouse_id, p.rack_id, p.slot_code, p.organization_id, "
+            + "p.length_cm, p.width_cm, p.height_cm, p.max_height_cm FROM pallet_place p "
+            + "WHERE NOT EXISTS (SELECT 1 FROM slot_registry s WHERE s.slot_id = p.place_id) "
+            + "ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int backfillPalletPlaces();
+
+    /** Слоты, которых нет в реестре: после backfill это строки, пропущенные из-за конфликта кода. */
+    @Query(value = "SELECT c.cell_id AS slotId, 'CELL' AS slotType, c.warehouse_id AS warehouseId, "
+            + "c.slot_code AS slotCode FROM cell c "
+            + "WHERE NOT EXISTS (SELECT 1 FROM slot_registry s WHERE s.slot_id = c.cell_id) "
+            + "UNION ALL "
+            + "SELECT sh.shelf_id, 'SHELF', sh.warehouse_id, sh.slot_code FROM shelf sh "
+            + "WHERE NOT EXISTS (SELECT 1 FROM slot_registry s WHERE s.slot_id = sh.shelf_id) "
+            + "UNION ALL "
+            + "SELECT p.place_id, 'PALLET_PLACE', p.warehouse_id, p.slot_code FROM pallet_place p "
+            + "WHERE NOT EXISTS (SELECT 1 FROM slot_registry s WHERE s.slot_id = p.place_id)",
+            nativeQuery = true)
+    List<UnregisteredSlot> findUnregisteredSlots();
+
+    interface UnregisteredSlot {
+        UUID getSlotId();
+        String getSlotType();
+        UUID getWarehouseId();
+        String getSlotCode();
+    }
+
+    interface SlotWithRack {
+        SlotRegistryEntry getSlot();
+        RackReadModel getRack();
+    }
+}
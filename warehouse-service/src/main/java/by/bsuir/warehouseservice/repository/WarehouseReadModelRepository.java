@@ -4,6 +4,9 @@ import by.bsuir.warehouseservice.model.entity.WarehouseReadModel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,4 +27,11 @@ public interface WarehouseReadModelRepository extends JpaRepository<WarehouseRea
     Page<WarehouseReadModel> findByOrgIdAndIsActiveTrue(UUID orgId, Pageable pageable);
 
     boolean existsByOrgIdAndName(UUID orgId, String name);
+
+    @Query("SELECT w.topologyVersion FROM WarehouseReadModel w WHERE w.warehouseId = :id")
+    Optional<Long> findTopologyVersion(@Param("id") UUID warehouseId);
+
+    @Modifying
+    @Query("UPDATE WarehouseReadModel w SET w.topologyVersion = w.topologyVersion + 1 WHERE w.warehouseId = :id")
+    int incrementTopologyVersion(@Param("id") UUID warehouseId);
 }
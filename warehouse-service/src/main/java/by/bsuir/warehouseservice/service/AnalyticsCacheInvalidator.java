@@ -0,0 +1,49 @@
+package by.bsuir.warehouseservice.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Сбрасывает аналитику склада и сводку его организации при изменении склада или его структуры.
+ * Сброс выполняется после коммита, чтобы параллельный запрос не закэшировал данные до изменения.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnalyticsCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    public void warehouseChanged(UUID warehouseId, UUID orgId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(warehouseId, orgId);
+                }
+            });
+        } else {
+            evict(warehouseId, orgId);
+        }
+    }
+
+    private void evict(UUID warehouseId, UUID orgId) {
+        evict("warehouseAnalytics", warehouseId);
+        evict("orgWarehousesSummary", orgId);
+        log.debug("Analytics cache evicted for warehouse {} (org {})", warehouseId, orgId);
+    }
+
+    private void evict(String cacheName, UUID key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
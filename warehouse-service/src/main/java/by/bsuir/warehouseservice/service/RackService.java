@@ -5,6 +5,7 @@ import by.bsuir.warehouseservice.dto.request.CreatePalletRequest;
 import by.bsuir.warehouseservice.dto.request.CreateRackRequest;
 import by.bsuir.warehouseservice.dto.request.CreateShelfRequest;
 import by.bsuir.warehouseservice.dto.response.RackResponse;
+import by.bsuir.warehouseservice.dto.response.WarehouseTopologyResponse;
 import by.bsuir.warehouseservice.exception.AppException;
 import by.bsuir.warehouseservice.model.entity.Cell;
 import by.bsuir.warehouseservice.model.entity.Pallet;
@@ -12,6 +13,7 @@ import by.bsuir.warehouseservice.model.entity.PalletPlace;
 import by.bsuir.warehouseservice.model.entity.RackEvent;
 import by.bsuir.warehouseservice.model.entity.RackReadModel;
 import by.bsuir.warehouseservice.model.entity.Shelf;
+import by.bsuir.warehouseservice.model.entity.SlotRegistryEntry;
 import by.bsuir.warehouseservice.model.enums.PalletType;
 import by.bsuir.warehouseservice.model.enums.RackKind;
 import by.bsuir.warehouseservice.repository.CellRepository;
@@ -20,6 +22,7 @@ import by.bsuir.warehouseservice.repository.PalletRepository;
 import by.bsuir.warehouseservice.repository.RackEventRepository;
 import by.bsuir.warehouseservice.repository.RackReadModelRepository;
 import by.bsuir.warehouseservice.repository.ShelfRepository;
+import by.bsuir.warehouseservice.repository.SlotRegistryRepository;
 import by.bsuir.warehouseservice.client.ProductClient;
 import by.bsuir.warehouseservice.repository.WarehouseReadModelRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -48,6 +51,8 @@ public class RackService {
     private final ProductClient productClient;
     private final WarehouseReadModelRepository warehouseRepository;
     private final ObjectMapper objectMapper;
+    private final TopologyEventPublisher topologyEventPublisher;
+    private final SlotRegistryService slotRegistryService;
 
     @Transactional
     public RackResponse createRack(CreateRackRequest request) {
@@ -85,6 +90,7 @@ public class RackService {
                 .updatedAt(LocalDateTime.now())
                 .build();
         rackRepository.save(readModel);
+        topologyEventPublisher.structureChanged(request.warehouseId(), rackId, "RACK_CREATED");
 
         log.info("Rack created successfully with ID: {}", rackId);
         return mapToResponse(readModel);
@@ -113,6 +119,7 @@ public class RackService {
                 .build();
 
         shelfRepository.save(shelf);
+        slotRegistryService.register(shelf);
 
         Map<String, Object> eventData = new HashMap<>();
         eventData.put("shelfId", shelf.getShelfId().toString());
@@ -121,6 +128,7 @@ public class RackService {
         eventData.put("widthCm", request.widthCm());
         eventData.put("heightCm", request.heightCm());
         saveRackEvent(request.rackId(), "SHELF_CREATED", eventData);
+        topologyEventPublisher.structureChanged(rack.getWarehouseId(), rack.getRackId(), "SHELF_CREATED");
 
         log.info("Shelf created successfully with ID: {}", shelf.getShelfId());
     }
@@ -148,6 +156,7 @@ public class RackService {
                 .build();
 
         cellRepository.save(cell);
+        slotRegistryService.register(cell);
 
         Map<String, Object> eventData = new HashMap<>();
         eventData.put("cellId", cell.getCellId().toString());
@@ -156,6 +165,7 @@ public class RackService {
         eventData.put("widthCm", request.widthCm());
         eventData.put("heightCm", request.heightCm());
         saveRackEvent(request.rackId(), "CELL_CREATED", eventData);
+        topologyEventPublisher.structureChanged(rack.getWarehouseId(), rack.getRackId(), "CELL_CREATED");
 
         log.info("Cell created successfully with ID: {}", cell.getCellId());
     }
@@ -198,6 +208,7 @@ public class RackService {
                     .maxHeightCm(request.maxHeightCm())
                     .build();
             palletPlaceRepository.save(place);
+            slotRegistryService.register(place);
         }
 
         Map<String, Object> eventData = new HashMap<>();
@@ -206,6 +217,7 @@ public class RackService {
         eventData.put("maxHeightCm", request.maxHeightCm());
         eventData.put("palletType", palletType.name());
         saveRackEvent(request.rackId(), "PALLET_CREATED", eventData);
+        topologyEventPublisher.structureChanged(rack.getWarehouseId(), rack.getRackId(), "PALLET_CREATED");
 
         log.info("Pallet created successfully for rack: {} with {} places of type {}",
                 request.rackId(), request.palletPlaceCount(), palletType);
@@ -241,12 +253,7 @@ public class RackService {
     }
 
     private boolean isSlotCodeTaken(UUID warehouseId, String code, UUID excludeSlotId) {
-        return cellRepository.findByWarehouseIdAndSlotCode(warehouseId, code)
-                        .filter(c -> excludeSlotId == null || !c.getCellId().equals(excludeSlotId)).isPresent()
-                || shelfRepository.findByWarehouseIdAndSlotCode(warehouseId, code)
-                        .filter(s -> excludeSlotId == null || !s.getShelfId().equals(excludeSlotId)).isPresent()
-                || palletPlaceRepository.findByWarehouseIdAndSlotCode(warehouseId, code)
-                        .filter(p -> excludeSlotId == null || !p.getPlaceId().equals(excludeSlotId)).isPresent();
+        return slotRegistryService.isCodeTaken(warehouseId, code, excludeSlotId);
     }
 
     @Transactional(readOnly = true)
@@ -256,25 +263,12 @@ public class RackService {
         }
         String code = slotCode.trim();
 
-        Optional<Cell> cell = cellRepository.findByWarehouseIdAndSlotCode(warehouseId, code);
-        if (cell.isPresent()) {
-            Map<String, Object> row = cellToMap(cell.get());
-            rackRepository.findById(cell.get().getRackId()).ifPresent(r -> annotateRack(row, r));
-            return row;
-        }
-        Optional<Shelf> shelf = shelfRepository.findByWarehouseIdAndSlotCode(warehouseId, code);
-        if (shelf.isPresent()) {
-            Map<String, Object> row = shelfToMap(shelf.get());
-            rackRepository.findById(shelf.get().getRackId()).ifPresent(r -> annotateRack(row, r));
-            return row;
-        }
-        Optional<PalletPlace> place = palletPlaceRepository.findByWarehouseIdAndSlotCode(warehouseId, code);
-        if (place.isPresent()) {
-            Map<String, Object> row = palletPlaceToMap(place.get());
-            rackRepository.findById(place.get().getRackId()).ifPresent(r -> annotateRack(row, r));
-            return row;
-        }
-        throw AppException.notFound("Ячейка с кодом «" + code + "» не найдена на складе");
+        SlotRegistryRepository.SlotWithRack found = slotRegistryService.findByCode(warehouseId, code)
+                .orElseThrow(() -> AppException.notFound("Ячейка с кодом «" + code + "» не найдена на складе"));
+        Map<String, Object> row = loadSlotMap(found.getSlot())
+                .orElseThrow(() -> AppException.notFound("Ячейка с кодом «" + code + "» не найдена на складе"));
+        annotateRack(row, found.getRack());
+        return row;
     }
 
     @Transactional
@@ -287,31 +281,39 @@ public class RackService {
             throw AppException.badRequest("Код ячейки не может быть длиннее 32 символов");
         }
 
-        Optional<Cell> cell = cellRepository.findById(slotId);
-        if (cell.isPresent()) {
-            Cell c = cell.get();
-            ensureSlotCodeFree(c.getWarehouseId(), code, slotId);
-            c.setSlotCode(code);
-            cellRepository.save(c);
-            return cellToMap(c);
-        }
-        Optional<Shelf> shelf = shelfRepository.findById(slotId);
-        if (shelf.isPresent()) {
-            Shelf s = shelf.get();
-            ensureSlotCodeFree(s.getWarehouseId(), code, slotId);
-            s.setSlotCode(code);
-            shelfRepository.save(s);
-            return shelfToMap(s);
-        }
-        Optional<PalletPlace> place = palletPlaceRepository.findById(slotId);
-        if (place.isPresent()) {
-            PalletPlace p = place.get();
-            ensureSlotCodeFree(p.getWarehouseId(), code, slotId);
-            p.setSlotCode(code);
-            palletPlaceRepository.save(p);
-            return palletPlaceToMap(p);
-        }
-        throw AppException.notFound("Ячейка не найдена");
+        SlotRegistryEntry slot = slotRegistryService.find(slotId)
+                .orElseThrow(() -> AppException.notFound("Ячейка не найдена"));
+        ensureSlotCodeFree(slot.getWarehouseId(), code, slotId);
+        Optional<Map<String, Object>> renamed = switch (slot.getSlotType()) {
+            case CELL -> cellRepository.findById(slotId).map(c -> {
+                c.setSlotCode(code);
+                cellRepository.save(c);
+                return cellToMap(c);
+            });
+            case SHELF -> shelfRepository.findById(slotId).map(sh -> {
+                sh.setSlotCode(code);
+                shelfRepository.save(sh);
+                return shelfToMap(sh);
+            });
+            case PALLET_PLACE -> palletPlaceRepository.findById(slotId).map(p -> {
+                p.setSlotCode(code);
+                palletPlaceRepository.save(p);
+                return palletPlaceToMap(p);
+            });
+        };
+        Map<String, Object> row = renamed.orElseThrow(() -> AppException.notFound("Ячейка не найдена"));
+        slotRegistryService.rename(slotId, code);
+        topologyEventPublisher.structureChanged(slot.getWarehouseId(), slot.getRackId(), "SLOT_RENAMED");
+        return row;
+    }
+
+    /** Данные слота из таблицы его типа, определённого по реестру. */
+    private Optional<Map<String, Object>> loadSlotMap(SlotRegistryEntry slot) {
+        return switch (slot.getSlotType()) {
+            case CELL -> cellRepository.findById(slot.getSlotId()).map(this::cellToMap);
+            case SHELF -> shelfRepository.findById(slot.getSlotId()).map(this::shelfToMap);
+            case PALLET_PLACE -> palletPlaceRepository.findById(slot.getSlotId()).map(this::palletPlaceToMap);
+        };
     }
 
     private void ensureSlotCodeFree(UUID warehouseId, String code, UUID excludeSlotId) {
@@ -355,23 +357,14 @@ public class RackService {
 
     @Transactional(readOnly = true)
     public Object getCellInfo(UUID cellId) {
-
-        Optional<Shelf> shelf = shelfRepository.findById(cellId);
-        if (shelf.isPresent()) {
-            return shelf.get();
-        }
-
-        Optional<Cell> cell = cellRepository.findById(cellId);
-        if (cell.isPresent()) {
-            return cell.get();
-        }
-
-        Optional<PalletPlace> palletPlace = palletPlaceRepository.findById(cellId);
-        if (palletPlace.isPresent()) {
-            return palletPlace.get();
-        }
-
-        throw AppException.notFound("Ячейка не найдена");
+        SlotRegistryEntry slot = slotRegistryService.find(cellId)
+                .orElseThrow(() -> AppException.notFound("Ячейка не найдена"));
+        Optional<?> entity = switch (slot.getSlotType()) {
+            case CELL -> cellRepository.findById(cellId);
+            case SHELF -> shelfRepository.findById(cellId);
+            case PALLET_PLACE -> palletPlaceRepository.findById(cellId);
+        };
+        return entity.orElseThrow(() -> AppException.notFound("Ячейка не найдена"));
     }
 
     @Transactional(readOnly = true)
@@ -422,6 +415,88 @@ public class RackService {
         return result;
     }
 
+    @Transactional(readOnly = true)
+    public WarehouseTopologyResponse getWarehouseTopology(UUID warehouseId, boolean includeLoad) {
+        // Версия читается до слотов: при гонке с изменением клиент получит старую версию
+        // и сбросит снимок по событию, а не закэширует старые данные под новой версией.
+        long topologyVersion = warehouseRepository.findTopologyVersion(warehouseId).orElse(0L);
+        List<RackReadModel> racks = rackRepository.findByWarehouseId(warehouseId);
+
+        Map<UUID, List<WarehouseTopologyResponse.SlotNode>> slotsByRack = new HashMap<>();
+        for (Shelf s : shelfRepository.findByWarehouseId(warehouseId)) {
+            slotsByRack.computeIfAbsent(s.getRackId(), k -> new ArrayList<>()).add(shelfToNode(s));
+        }
+        for (Cell c : cellRepository.findByWarehouseId(warehouseId)) {
+            slotsByRack.computeIfAbsent(c.getRackId(), k -> new ArrayList<>()).add(cellToNode(c));
+        }
+        for (PalletPlace p : palletPlaceRepository.findByWarehouseId(warehouseId)) {
+            slotsByRack.computeIfAbsent(p.getRackId(), k -> new ArrayList<>()).add(palletPlaceToNode(p));
+        }
+
+        if (includeLoad) {
+            List<UUID> allSlotIds = slotsByRack.values().stream()
+                    .flatMap(List::stream)
+                    .map(WarehouseTopologyResponse.SlotNode::slotId)
+                    .toList();
+            Map<UUID, ProductClient.CellLoad> loads = productClient.getCellsLoad(allSlotIds);
+            slotsByRack.replaceAll((rackId, slots) -> slots.stream()
+                    .map(slot -> withLoad(slot, loads.get(slot.slotId())))
+                    .collect(Collectors.toList()));
+        }
+
+        List<WarehouseTopologyResponse.RackNode> nodes = racks.stream()
+                .map(rack -> new WarehouseTopologyResponse.RackNode(
+                        rack.getRackId(),
+                        rack.getWarehouseId(),
+                        rack.getKind(),
+                        rack.getName(),
+                        rack.getStorageConditions(),
+                        rack.getMaxWeightKg(),
+                        rack.getIsActive(),
+                        slotsByRack.getOrDefault(rack.getRackId(), List.of())))
+                .collect(Collectors.toList());
+
+        log.debug("Topology for warehouse {}: {} racks, {} slots (load={})",
+                warehouseId, nodes.size(), slotsByRack.values().stream().mapToInt(List::size).sum(), includeLoad);
+        return new WarehouseTopologyResponse(warehouseId, topologyVersion, includeLoad, nodes);
+    }
+
+    private WarehouseTopologyResponse.SlotNode shelfToNode(Shelf s) {
+        return new WarehouseTopologyResponse.SlotNode(
+                s.getShelfId(), s.getRackId(), s.getSlotCode(), "SHELF", null,
+                s.getShelfCapacityKg(), s.getLengthCm(), s.getWidthCm(), s.getHeightCm(), null,
+                s.getRemainingHeightCm() != null ? s.getRemainingHeightCm() : s.getHeightCm(),
+                null, null, null);
+    }
+
+    private WarehouseTopologyResponse.SlotNode cellToNode(Cell c) {
+        return new WarehouseTopologyResponse.SlotNode(
+                c.getCellId(), c.getRackId(), c.getSlotCode(), "CELL", null,
+                c.getMaxWeightKg(), c.getLengthCm(), c.getWidthCm(), c.getHeightCm(), null,
+                c.getRemainingHeightCm() != null ? c.getRemainingHeightCm() : c.getHeightCm(),
+                null, null, null);
+    }
+
+    private WarehouseTopologyResponse.SlotNode palletPlaceToNode(PalletPlace p) {
+        java.math.BigDecimal capacity = p.getMaxHeightCm() != null ? p.getMaxHeightCm() : p.getHeightCm();
+        return new WarehouseTopologyResponse.SlotNode(
+                p.getPlaceId(), p.getRackId(), p.getSlotCode(), "PALLET_PLACE", inferPalletType(p),
+                null, p.getLengthCm(), p.getWidthCm(), p.getHeightCm(), p.getMaxHeightCm(),
+                p.getRemainingHeightCm() != null ? p.getRemainingHeightCm() : capacity,
+                null, null, null);
+    }
+
+    private static WarehouseTopologyResponse.SlotNode withLoad(
+            WarehouseTopologyResponse.SlotNode slot, ProductClient.CellLoad load) {
+        return new WarehouseTopologyResponse.SlotNode(
+                slot.slotId(), slot.rackId(), slot.slotCode(), slot.slotType(), slot.palletType(),
+                slot.maxWeightKg(), slot.lengthCm(), slot.widthCm(), slot.heightCm(), slot.maxHeightCm(),
+                slot.remainingHeightCm(),
+                load == null ? 0 : load.itemsCount(),
+                load == null ? java.math.BigDecimal.ZERO : load.totalQuantity(),
+                load != null && load.occupied());
+    }
+
     private void annotateRack(Map<String, Object> row, RackReadModel rack) {
         row.put("rackName", rack.getName());
         row.put("rackKind", rack.getKind().name());
@@ -583,6 +658,7 @@ public class RackService {
         eventRepository.save(rackEvent);
 
         rackRepository.delete(rack);
+        topologyEventPublisher.structureChanged(rack.getWarehouseId(), rackId, "RACK_DELETED");
 
         log.info("Rack deleted successfully: {}", rackId);
     }
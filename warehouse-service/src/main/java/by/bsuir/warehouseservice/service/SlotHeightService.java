@@ -1,18 +1,26 @@
 package by.bsuir.warehouseservice.service;
 
+import by.bsuir.warehouseservice.dto.request.SlotHeightBatchRequest;
+import by.bsuir.warehouseservice.dto.response.SlotHeightBatchResponse;
 import by.bsuir.warehouseservice.exception.AppException;
-import by.bsuir.warehouseservice.model.entity.Cell;
-import by.bsuir.warehouseservice.model.entity.PalletPlace;
-import by.bsuir.warehouseservice.model.entity.Shelf;
+import by.bsuir.warehouseservice.model.entity.SlotHeightAdjustment;
+import by.bsuir.warehouseservice.model.entity.SlotRegistryEntry;
+import by.bsuir.warehouseservice.model.enums.SlotAdjustmentStatus;
 import by.bsuir.warehouseservice.repository.CellRepository;
 import by.bsuir.warehouseservice.repository.PalletPlaceRepository;
 import by.bsuir.warehouseservice.repository.ShelfRepository;
+import by.bsuir.warehouseservice.repository.SlotHeightAdjustmentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,9 +29,14 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class SlotHeightService {
 
+    private static final int KEY_RETENTION_DAYS = 7;
+
     private final CellRepository cellRepository;
     private final ShelfRepository shelfRepository;
     private final PalletPlaceRepository palletPlaceRepository;
+    private final SlotHeightAdjustmentRepository adjustmentRepository;
+    private final SlotRegistryService slotRegistryService;
+    private final TopologyEventPublisher topologyEventPublisher;
 
     @Transactional
     public BigDecimal adjustHeight(UUID slotId, BigDecimal delta) {
@@ -33,29 +46,94 @@ public class SlotHeightService {
         if (delta == null || delta.signum() == 0) {
             return readRemainingHeight(slotId);
         }
+        return apply(slotId, delta).orElseThrow(() -> AppException.notFound("Слот не найден: " + slotId));
+    }
+
+    /**
+     * Применяет пакет изменений высоты одной транзакцией. Изменение с уже известным ключом идемпотентности
+     * не применяется повторно — возвращается записанный при первом применении остаток (DUPLICATE).
+     * Несуществующий слот не валит пакет: изменение помечается NOT_FOUND, но по ключу не запоминается,
+     * чтобы повтор из outbox применил его, когда слот появится.
+     */
+    @Transactional
+    public SlotHeightBatchResponse adjustHeights(List<SlotHeightBatchRequest.Item> items) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<UUID, SlotHeightAdjustment> known = new HashMap<>();
+        for (SlotHeightAdjustment seen : adjustmentRepository.findAllById(
+                items.stream().map(SlotHeightBatchRequest.Item::idempotencyKey).toList())) {
+            known.put(seen.getIdempotencyKey(), seen);
+        }
 
-        Optional<Cell> cell = cellRepository.findById(slotId);
-        if (cell.isPresent()) {
-            return applyClamped(cell.get().getRemainingHeightCm(), cell.get().getHeightCm(), delta,
-                    (clampedDelta) -> cellRepository.adjustRemainingHeight(slotId, clampedDelta),
-                    slotId, "cell");
+        List<SlotHeightBatchResponse.Result> results = new ArrayList<>(items.size());
+        int applied = 0;
+        for (SlotHeightBatchRequest.Item item : items) {
+            SlotHeightAdjustment previous = known.get(item.idempotencyKey());
+            if (previous != null) {
+                results.add(new SlotHeightBatchResponse.Result(item.slotId(), item.idempotencyKey(),
+                        SlotAdjustmentStatus.DUPLICATE, previous.getRemainingHeightCm()));
+                continue;
+            }
+            Optional<BigDecimal> remaining = apply(item.slotId(), item.delta());
+            if (remaining.isEmpty()) {
+                log.warn("Slot height batch: слот {} не найден, delta={} пропущена", item.slotId(), item.delta());
+                results.add(new SlotHeightBatchResponse.Result(item.slotId(), item.idempotencyKey(),
+                        SlotAdjustmentStatus.NOT_FOUND, null));
+                continue;
+            }
+            applied++;
+            SlotHeightAdjustment record = adjustmentRepository.save(SlotHeightAdjustment.builder()
+                    .idempotencyKey(item.idempotencyKey())
+                    .slotId(item.slotId())
+                    .deltaCm(item.delta())
+                    .status(SlotAdjustmentStatus.APPLIED)
+                    .remainingHeightCm(remaining.get())
+                    .appliedAt(now)
+                    .build());
+            known.put(item.idempotencyKey(), record);
+            results.add(new SlotHeightBatchResponse.Result(item.slotId(), item.idempotencyKey(),
+                    SlotAdjustmentStatus.APPLIED, remaining.get()));
         }
-        Optional<Shelf> shelf = shelfRepository.findById(slotId);
-        if (shelf.isPresent()) {
-            return applyClamped(shelf.get().getRemainingHeightCm(), shelf.get().getHeightCm(), delta,
-                    (clampedDelta) -> shelfRepository.adjustRemainingHeight(slotId, clampedDelta),
-                    slotId, "shelf");
+
+        adjustmentRepository.deleteAppliedBefore(now.minusDays(KEY_RETENTION_DAYS));
+        log.debug("Slot height batch: {} изменений, применено {}", items.size(), applied);
+        return new SlotHeightBatchResponse(results);
+    }
+
+    private Optional<BigDecimal> apply(UUID slotId, BigDecimal delta) {
+        Optional<SlotRegistryEntry> slot = slotRegistryService.find(slotId);
+        if (slot.isEmpty()) {
+            return Optional.empty();
         }
-        Optional<PalletPlace> place = palletPlaceRepository.findById(slotId);
-        if (place.isPresent()) {
-            BigDecimal max = place.get().getMaxHeightCm() != null
-                    ? place.get().getMaxHeightCm()
-                    : place.get().getHeightCm();
-            return applyClamped(place.get().getRemainingHeightCm(), max, delta,
-                    (clampedDelta) -> palletPlaceRepository.adjustRemainingHeight(slotId, clampedDelta),
-                    slotId, "pallet-place");
+        SlotRegistryEntry entry = slot.get();
+        Optional<BigDecimal> current = currentRemainingHeight(entry);
+        if (current.isEmpty()) {
+            log.warn("Slot registry: {} {} есть в реестре, но не найден в таблице слотов", entry.getSlotType(), slotId);
+            return Optional.empty();
         }
-        throw AppException.notFound("Слот не найден: " + slotId);
+        BigDecimal remaining = applyClamped(current.get(), entry.heightCapacityCm(), delta,
+                (clampedDelta) -> switch (entry.getSlotType()) {
+                    case CELL -> cellRepository.adjustRemainingHeight(slotId, clampedDelta);
+                    case SHELF -> shelfRepository.adjustRemainingHeight(slotId, clampedDelta);
+                    case PALLET_PLACE -> palletPlaceRepository.adjustRemainingHeight(slotId, clampedDelta);
+                },
+                slotId, entry.getSlotType().name());
+        topologyEventPublisher.slotHeightChanged(entry.getWarehouseId(), slotId, remaining);
+        return Optional.of(remaining);
+    }
+
+    /** Остаток высоты из таблицы слота нужного типа; пустой остаток означает свободный слот. */
+    private Optional<BigDecimal> currentRemainingHeight(SlotRegistryEntry entry) {
+        UUID slotId = entry.getSlotId();
+        return switch (entry.getSlotType()) {
+            case CELL -> cellRepository.findById(slotId).map(c -> orCapacity(c.getRemainingHeightCm(), entry));
+            case SHELF -> shelfRepository.findById(slotId).map(sh -> orCapacity(sh.getRemainingHeightCm(), entry));
+            case PALLET_PLACE -> palletPlaceRepository.findById(slotId)
+                    .map(p -> orCapacity(p.getRemainingHeightCm(), entry));
+        };
+    }
+
+    private static BigDecimal orCapacity(BigDecimal remaining, SlotRegistryEntry entry) {
+        return remaining != null ? remaining : entry.heightCapacityCm();
     }
 
     private BigDecimal applyClamped(BigDecimal current, BigDecimal capacity, BigDecimal delta,
@@ -81,9 +159,8 @@ public class SlotHeightService {
 
     @Transactional(readOnly = true)
     public BigDecimal readRemainingHeight(UUID slotId) {
-        return cellRepository.findById(slotId).map(Cell::getRemainingHeightCm)
-                .or(() -> shelfRepository.findById(slotId).map(Shelf::getRemainingHeightCm))
-                .or(() -> palletPlaceRepository.findById(slotId).map(PalletPlace::getRemainingHeightCm))
+        return slotRegistryService.find(slotId)
+                .flatMap(this::currentRemainingHeight)
                 .orElseThrow(() -> AppException.notFound("Слот не найден: " + slotId));
     }
 }
@@ -0,0 +1,28 @@
+package by.bsuir.warehouseservice.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Заполняет реестр слотов после миграции: слоты, созданные до его появления, попадают в него при старте.
+ * Выполняется при инициализации контекста — до того, как сервис начнёт принимать запросы; ошибка
+ * заполнения прерывает запуск.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlotRegistryBackfill {
+
+    private final SlotRegistryService slotRegistryService;
+
+    @PostConstruct
+    void backfillBeforeServing() {
+        try {
+            slotRegistryService.backfill();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Slot registry backfill: не удалось заполнить реестр слотов", e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package by.bsuir.warehouseservice.service;
+
+import by.bsuir.warehouseservice.model.entity.Cell;
+import by.bsuir.warehouseservice.model.entity.PalletPlace;
+import by.bsuir.warehouseservice.model.entity.RackReadModel;
+import by.bsuir.warehouseservice.model.entity.Shelf;
+import by.bsuir.warehouseservice.model.entity.SlotRegistryEntry;
+import by.bsuir.warehouseservice.model.enums.SlotType;
+import by.bsuir.warehouseservice.repository.CellRepository;
+import by.bsuir.warehouseservice.repository.PalletPlaceRepository;
+import by.bsuir.warehouseservice.repository.RackReadModelRepository;
+import by.bsuir.warehouseservice.repository.ShelfRepository;
+import by.bsuir.warehouseservice.repository.SlotRegistryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Ведёт {@link SlotRegistryEntry} в той же транзакции, что и сами слоты: создание и переименование
+ * проходят через этот сервис, удаление стеллажа (и склада) снимает записи каскадом по rack_id.
+ * Слот, которого нет в реестре (backfill пропустил его из-за конфликта кода), ищется в таблицах слотов.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SlotRegistryService {
+
+    private final SlotRegistryRepository slotRegistryRepository;
+    private final CellRepository cellRepository;
+    private final ShelfRepository shelfRepository;
+    private final PalletPlaceRepository palletPlaceRepository;
+    private final RackReadModelRepository rackRepository;
+
+    /** Есть слоты вне реестра — проверка занятости кода дополнительно смотрит таблицы слотов. */
+    private volatile boolean unregisteredSlots = true;
+
+    public Optional<SlotRegistryEntry> find(UUID slotId) {
+        Optional<SlotRegistryEntry> registered = slotRegistryRepository.findById(slotId);
+        if (registered.isPresent()) {
+            return registered;
+        }
+        Optional<SlotRegistryEntry> unregistered = cellRepository.findById(slotId).map(this::entryOf)
+                .or(() -> shelfRepository.findById(slotId).map(this::entryOf))
+                .or(() -> palletPlaceRepository.findById(slotId).map(this::entryOf));
+        unregistered.ifPresent(e -> log.warn("Slot registry: {} {} нет в реестре, найден в таблице слотов",
+                e.getSlotType(), slotId));
+        return unregistered;
+    }
+
+    public Optional<SlotRegistryRepository.SlotWithRack> findByCode(UUID warehouseId, String slotCode) {
+        Optional<SlotRegistryRepository.SlotWithRack> registered =
+                slotRegistryRepository.findWithRackByCode(warehouseId, slotCode);
+        if (registered.isPresent()) {
+            return registered;
+        }
+        return cellRepository.findByWarehouseIdAndSlotCode(warehouseId, slotCode).map(this::entryOf)
+                .or(() -> shelfRepository.findByWarehouseIdAndSlotCode(warehouseId, slotCode).map(this::entryOf))
+                .or(() -> palletPlaceRepository.findByWarehouseIdAndSlotCode(warehouseId, slotCode).map(this::entryOf))
+                .flatMap(slot -> rackRepository.findById(slot.getRackId())
+                        .map(rack -> new UnregisteredSlotWithRack(slot, rack)));
+    }
+
+    public boolean isCodeTaken(UUID warehouseId, String slotCode, UUID excludeSlotId) {
+        boolean registered = excludeSlotId == null
+                ? slotRegistryRepository.existsByWarehouseIdAndSlotCode(warehouseId, slotCode)
+                : slotRegistryRepository.existsByWarehouseIdAndSlotCodeAndSlotIdNot(warehouseId, slotCode, excludeSlotId);
+        if (registered || !unregisteredSlots) {
+            return registered;
+        }
+        return takenBy(cellRepository.findByWarehouseIdAndSlotCode(warehouseId, slotCode).map(Cell::getCellId), excludeSlotId)
+                || takenBy(shelfRepository.findByWarehouseIdAndSlotCode(warehouseId, slotCode).map(Shelf::getShelfId), excludeSlotId)
+                || takenBy(palletPlaceRepository.findByWarehouseIdAndSlotCode(warehouseId, slotCode)
+                        .map(PalletPlace::getPlaceId), excludeSlotId);
+    }
+
+    private static boolean takenBy(Optional<UUID> holder, UUID excludeSlotId) {
+        return holder.filter(id -> !Objects.equals(id, excludeSlotId)).isPresent();
+    }
+
+    public void register(Cell cell) {
+        slotRegistryRepository.save(entryOf(cell));
+    }
+
+    public void register(Shelf shelf) {
+        slotRegistryRepository.save(entryOf(shelf));
+    }
+
+    public void register(PalletPlace place) {
+        slotRegistryRepository.save(entryOf(place));
+    }
+
+    public void rename(UUID slotId, String slotCode) {
+        slotRegistryRepository.updateSlotCode(slotId, slotCode);
+    }
+
+    /**
+     * Дописывает в реестр слоты, которых в нём нет; возвращает число добавленных записей.
+     * Слоты, чей код уже занят в реестре, не добавляются — они перечисляются в логе и остаются
+     * доступными через таблицы слотов.
+     */
+    @Transactional
+    public int backfill() {
+        int cells = slotRegistryRepository.backfillCells();
+        int shelves = slotRegistryRepository.backfillShelves();
+        int places = slotRegistryRepository.backfillPalletPlaces();
+        if (cells + shelves + places > 0) {
+            log.info("Slot registry backfill: добавлено ячеек {}, полок {}, паллетомест {}", cells, shelves, places);
+        }
+        List<SlotRegistryRepository.UnregisteredSlot> skipped = slotRegistryRepository.findUnregisteredSlots();
+        for (SlotRegistryRepository.UnregisteredSlot slot : skipped) {
+            log.error("Slot registry backfill: {} {} не добавлен — код «{}» на складе {} уже занят другим слотом",
+                    slot.getSlotType(), slot.getSlotId(), slot.getSlotCode(), slot.getWarehouseId());
+        }
+        unregisteredSlots = !skipped.isEmpty();
+        return cells + shelves + places;
+    }
+
+    private SlotRegistryEntry entryOf(Cell cell) {
+        return SlotRegistryEntry.builder()
+                .slotId(cell.getCellId())
+                .slotType(SlotType.CELL)
+                .warehouseId(cell.getWarehouseId())
+                .rackId(cell.getRackId())
+                .slotCode(cell.getSlotCode())
+                .organizationId(cell.getOrganizationId())
+                .lengthCm(cell.getLengthCm())
+                .widthCm(cell.getWidthCm())
+                .heightCm(cell.getHeightCm())
+                .build();
+    }
+
+    private SlotRegistryEntry entryOf(Shelf shelf) {
+        return SlotRegistryEntry.builder()
+                .slotId(shelf.getShelfId())
+                .slotType(SlotType.SHELF)
+                .warehouseId(shelf.getWarehouseId())
+                .rackId(shelf.getRackId())
+                .slotCode(shelf.getSlotCode())
+                .organizationId(shelf.getOrganizationId())
+                .lengthCm(shelf.getLengthCm())
+                .widthCm(shelf.getWidthCm())
+                .heightCm(shelf.getHeightCm())
+                .build();
+    }
+
+    private SlotRegistryEntry entryOf(PalletPlace place) {
+        return SlotRegistryEntry.builder()
+                .slotId(place.getPlaceId())
+                .slotType(SlotType.PALLET_PLACE)
+                .warehouseId(place.getWarehouseId())
+                .rackId(place.getRackId())
+                .slotCode(place.getSlotCode())
+                .organizationId(place.getOrganizationId())
+                .lengthCm(place.getLengthCm())
+                .widthCm(place.getWidthCm())
+                .heightCm(place.getHeightCm())
+                .maxHeightCm(place.getMaxHeightCm())
+                .build();
+    }
+
+    private record UnregisteredSlotWithRack(SlotRegistryEntry slot, RackReadModel rack)
+            implements SlotRegistryRepository.SlotWithRack {
+
+        @Override
+        public SlotRegistryEntry getSlot() {
+            return slot;
+        }
+
+        @Override
+        public RackReadModel getRack() {
+            return rack;
+        }
+    }
+}
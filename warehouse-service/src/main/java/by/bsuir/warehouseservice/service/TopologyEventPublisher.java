@@ -0,0 +1,85 @@
+package by.bsuir.warehouseservice.service;
+
+import by.bsuir.warehouseservice.config.RabbitMQConfig;
+import by.bsuir.warehouseservice.model.entity.WarehouseReadModel;
+import by.bsuir.warehouseservice.repository.WarehouseReadModelRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Публикует изменения топологии склада (стеллажи, слоты, остаток высоты) в warehouse.exchange.
+ * Потребители (product-service) по этим событиям инвалидируют или патчат свой кэш топологии.
+ * Структурные изменения увеличивают topology_version склада; сообщения уходят только после коммита.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopologyEventPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final WarehouseReadModelRepository warehouseRepository;
+    private final AnalyticsCacheInvalidator analyticsCacheInvalidator;
+
+    public void structureChanged(UUID warehouseId, UUID rackId, String changeType) {
+        if (warehouseId == null) return;
+        warehouseRepository.incrementTopologyVersion(warehouseId);
+        long version = warehouseRepository.findTopologyVersion(warehouseId).orElse(0L);
+
+        Map<String, Object> message = new HashMap<>();
+        message.put("warehouseId", warehouseId.toString());
+        message.put("rackId", rackId != null ? rackId.toString() : null);
+        message.put("topologyVersion", version);
+        message.put("eventType", changeType);
+        message.put("timestamp", LocalDateTime.now().toString());
+        sendAfterCommit(RabbitMQConfig.WAREHOUSE_TOPOLOGY_CHANGED_KEY, warehouseId, message);
+        analyticsCacheInvalidator.warehouseChanged(warehouseId,
+                warehouseRepository.findByWarehouseId(warehouseId).map(WarehouseReadModel::getOrgId).orElse(null));
+    }
+
+    public void slotHeightChanged(UUID warehouseId, UUID slotId, BigDecimal remainingHeightCm) {
+        if (warehouseId == null || slotId == null) return;
+        long version = warehouseRepository.findTopologyVersion(warehouseId).orElse(0L);
+
+        Map<String, Object> message = new HashMap<>();
+        message.put("warehouseId", warehouseId.toString());
+        message.put("slotId", slotId.toString());
+        message.put("remainingHeightCm", remainingHeightCm);
+        message.put("topologyVersion", version);
+        message.put("eventType", "SLOT_HEIGHT_CHANGED");
+        message.put("timestamp", LocalDateTime.now().toString());
+        sendAfterCommit(RabbitMQConfig.WAREHOUSE_SLOT_HEIGHT_CHANGED_KEY, warehouseId, message);
+    }
+
+    private void sendAfterCommit(String routingKey, UUID warehouseId, Map<String, Object> message) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(routingKey, warehouseId, message);
+                }
+            });
+        } else {
+            send(routingKey, warehouseId, message);
+        }
+    }
+
+    private void send(String routingKey, UUID warehouseId, Map<String, Object> message) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.WAREHOUSE_EXCHANGE, routingKey, message);
+            log.debug("Published {} event for warehouse: {}", routingKey, warehouseId);
+        } catch (Exception e) {
+            log.error("Failed to publish {} event for warehouse: {}. Error: {}",
+                    routingKey, warehouseId, e.getMessage());
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class WarehouseService {
     private final WarehouseEventRepository eventRepository;
     private final ObjectMapper objectMapper;
     private final RabbitTemplate rabbitTemplate;
+    private final AnalyticsCacheInvalidator analyticsCacheInvalidator;
 
     @Transactional
     public WarehouseResponse createWarehouse(CreateWarehouseRequest request) {
@@ -355,6 +356,7 @@ public class WarehouseService {
     }
 
     private void publishWarehouseCreated(WarehouseReadModel warehouse) {
+        analyticsCacheInvalidator.warehouseChanged(warehouse.getWarehouseId(), warehouse.getOrgId());
         try {
             Map<String, Object> message = new HashMap<>();
             message.put("warehouseId", warehouse.getWarehouseId().toString());
@@ -377,6 +379,7 @@ public class WarehouseService {
     }
 
     private void publishWarehouseUpdated(WarehouseReadModel warehouse) {
+        analyticsCacheInvalidator.warehouseChanged(warehouse.getWarehouseId(), warehouse.getOrgId());
         try {
             Map<String, Object> message = new HashMap<>();
             message.put("warehouseId", warehouse.getWarehouseId().toString());
@@ -398,6 +401,7 @@ public class WarehouseService {
     }
 
     private void publishWarehouseDeleted(WarehouseReadModel warehouse) {
+        analyticsCacheInvalidator.warehouseChanged(warehouse.getWarehouseId(), warehouse.getOrgId());
         try {
             Map<String, Object> message = new HashMap<>();
             message.put("warehouseId", warehouse.getWarehouseId().toString());
@@ -12,15 +12,18 @@ import by.bsuir.warehouseservice.model.entity.PalletPlace;
 import by.bsuir.warehouseservice.model.entity.RackEvent;
 import by.bsuir.warehouseservice.model.entity.RackReadModel;
 import by.bsuir.warehouseservice.model.entity.Shelf;
+import by.bsuir.warehouseservice.model.entity.SlotRegistryEntry;
 import by.bsuir.warehouseservice.model.entity.WarehouseReadModel;
 import by.bsuir.warehouseservice.model.enums.PalletType;
 import by.bsuir.warehouseservice.model.enums.RackKind;
+import by.bsuir.warehouseservice.model.enums.SlotType;
 import by.bsuir.warehouseservice.repository.CellRepository;
 import by.bsuir.warehouseservice.repository.PalletPlaceRepository;
 import by.bsuir.warehouseservice.repository.PalletRepository;
 import by.bsuir.warehouseservice.repository.RackEventRepository;
 import by.bsuir.warehouseservice.repository.RackReadModelRepository;
 import by.bsuir.warehouseservice.repository.ShelfRepository;
+import by.bsuir.warehouseservice.repository.SlotRegistryRepository;
 import by.bsuir.warehouseservice.repository.WarehouseReadModelRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -56,6 +59,8 @@ class RackServiceTest {
     @Mock private PalletPlaceRepository palletPlaceRepository;
     @Mock private WarehouseReadModelRepository warehouseRepository;
     @Mock private by.bsuir.warehouseservice.client.ProductClient productClient;
+    @Mock private TopologyEventPublisher topologyEventPublisher;
+    @Mock private SlotRegistryService slotRegistryService;
     @Spy  private ObjectMapper objectMapper = new ObjectMapper();
 
     @InjectMocks private RackService rackService;
@@ -158,6 +163,7 @@ class RackServiceTest {
 
         verify(cellRepository).save(any(Cell.class));
         verify(eventRepository).save(any(RackEvent.class));
+        verify(topologyEventPublisher).structureChanged(warehouseId, rackId, "CELL_CREATED");
     }
 
     @Test
@@ -178,6 +184,7 @@ class RackServiceTest {
 
         verify(palletRepository).save(any(Pallet.class));
         verify(palletPlaceRepository, times(5)).save(any(PalletPlace.class));
+        verify(slotRegistryService, times(5)).register(any(PalletPlace.class));
         verify(eventRepository).save(any(RackEvent.class));
     }
 
@@ -210,6 +217,70 @@ class RackServiceTest {
         assertThat(all).hasSize(2);
     }
 
+    @Test
+    @DisplayName("getWarehouseTopology: группирует слоты по стеллажам, без load не ходит в product-service")
+    void getWarehouseTopology_GivenSkipLoad_ShouldGroupSlotsWithoutProductCall() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID shelfRackId = UUID.randomUUID();
+        UUID palletRackId = UUID.randomUUID();
+        when(rackRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(
+                RackReadModel.builder().rackId(shelfRackId).warehouseId(warehouseId)
+                        .kind(RackKind.SHELF).name("A-1").isActive(true).build(),
+                RackReadModel.builder().rackId(palletRackId).warehouseId(warehouseId)
+                        .kind(RackKind.PALLET).name("P-1").isActive(true).build()));
+        when(shelfRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(
+                Shelf.builder().shelfId(UUID.randomUUID()).rackId(shelfRackId)
+                        .heightCm(BigDecimal.TEN).remainingHeightCm(BigDecimal.ONE).build()));
+        when(cellRepository.findByWarehouseId(warehouseId)).thenReturn(List.of());
+        when(palletPlaceRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(
+                PalletPlace.builder().placeId(UUID.randomUUID()).rackId(palletRackId)
+                        .lengthCm(new BigDecimal("1200")).widthCm(new BigDecimal("800"))
+                        .heightCm(new BigDecimal("150")).maxHeightCm(new BigDecimal("180")).build()));
+        when(warehouseRepository.findTopologyVersion(warehouseId)).thenReturn(Optional.of(7L));
+
+        var topology = rackService.getWarehouseTopology(warehouseId, false);
+
+        assertThat(topology.topologyVersion()).isEqualTo(7L);
+        assertThat(topology.loadIncluded()).isFalse();
+        assertThat(topology.racks()).hasSize(2);
+        var shelfSlot = topology.racks().get(0).slots().get(0);
+        assertThat(shelfSlot.slotType()).isEqualTo("SHELF");
+        assertThat(shelfSlot.remainingHeightCm()).isEqualByComparingTo(BigDecimal.ONE);
+        assertThat(shelfSlot.occupied()).isNull();
+        var palletSlot = topology.racks().get(1).slots().get(0);
+        assertThat(palletSlot.palletType()).isEqualTo("EUR");
+        assertThat(palletSlot.remainingHeightCm()).isEqualByComparingTo("180");
+        verify(productClient, never()).getCellsLoad(any());
+    }
+
+    @Test
+    @DisplayName("getWarehouseTopology: с load — один батч-запрос загрузки на весь склад")
+    void getWarehouseTopology_GivenIncludeLoad_ShouldFetchLoadOnce() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID busyCell = UUID.randomUUID();
+        UUID freeCell = UUID.randomUUID();
+        when(rackRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(
+                RackReadModel.builder().rackId(rackId).warehouseId(warehouseId)
+                        .kind(RackKind.CELL).name("C-1").isActive(true).build()));
+        when(shelfRepository.findByWarehouseId(warehouseId)).thenReturn(List.of());
+        when(cellRepository.findByWarehouseId(warehouseId)).thenReturn(List.of(
+                Cell.builder().cellId(busyCell).rackId(rackId).heightCm(BigDecimal.TEN).build(),
+                Cell.builder().cellId(freeCell).rackId(rackId).heightCm(BigDecimal.TEN).build()));
+        when(palletPlaceRepository.findByWarehouseId(warehouseId)).thenReturn(List.of());
+        when(productClient.getCellsLoad(any())).thenReturn(Map.of(
+                busyCell, new by.bsuir.warehouseservice.client.ProductClient.CellLoad(2, BigDecimal.TEN, true)));
+
+        var topology = rackService.getWarehouseTopology(warehouseId, true);
+
+        var slots = topology.racks().get(0).slots();
+        assertThat(slots).hasSize(2);
+        assertThat(slots.get(0).occupied()).isTrue();
+        assertThat(slots.get(0).itemsCount()).isEqualTo(2);
+        assertThat(slots.get(1).occupied()).isFalse();
+        verify(productClient, times(1)).getCellsLoad(any());
+    }
+
     @Test
     @DisplayName("getRack: не найден → 404")
     void getRack_GivenMissing_ShouldThrowNotFound() {
@@ -270,6 +341,71 @@ class RackServiceTest {
         assertThat(ex.getMessage()).contains("Стеллаж не найден");
     }
 
+    @Test
+    @DisplayName("resolveSlotByCode: полка находится по реестру вместе со стеллажом, без перебора таблиц")
+    void resolveSlotByCode_GivenShelfCode_ShouldResolveThroughRegistry() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID shelfId = UUID.randomUUID();
+        SlotRegistryEntry entry = SlotRegistryEntry.builder().slotId(shelfId).slotType(SlotType.SHELF)
+                .warehouseId(warehouseId).rackId(rackId).slotCode("A-1").build();
+        RackReadModel rack = RackReadModel.builder().rackId(rackId).warehouseId(warehouseId)
+                .kind(RackKind.SHELF).name("A").build();
+        when(slotRegistryService.findByCode(warehouseId, "A-1")).thenReturn(Optional.of(
+                new SlotRegistryRepository.SlotWithRack() {
+                    public SlotRegistryEntry getSlot() { return entry; }
+                    public RackReadModel getRack() { return rack; }
+                }));
+        when(shelfRepository.findById(shelfId)).thenReturn(Optional.of(Shelf.builder()
+                .shelfId(shelfId).rackId(rackId).warehouseId(warehouseId).slotCode("A-1")
+                .heightCm(BigDecimal.TEN).build()));
+
+        Map<String, Object> row = rackService.resolveSlotByCode(warehouseId, " A-1 ");
+
+        assertThat(row).containsEntry("shelfId", shelfId).containsEntry("slotType", "SHELF")
+                .containsEntry("rackName", "A");
+        verify(cellRepository, never()).findByWarehouseIdAndSlotCode(any(), any());
+        verify(rackRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("renameSlotCode: код занят другим слотом склада → 409 conflict")
+    void renameSlotCode_GivenTakenCode_ShouldThrowConflict() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID cellId = UUID.randomUUID();
+        when(slotRegistryService.find(cellId)).thenReturn(Optional.of(SlotRegistryEntry.builder()
+                .slotId(cellId).slotType(SlotType.CELL).warehouseId(warehouseId).rackId(UUID.randomUUID())
+                .slotCode("B-1").build()));
+        when(slotRegistryService.isCodeTaken(warehouseId, "B-2", cellId)).thenReturn(true);
+
+        AppException ex = catchApp(() -> rackService.renameSlotCode(cellId, "B-2"));
+
+        assertThat(ex.getMessage()).contains("уже используется");
+        verify(cellRepository, never()).save(any(Cell.class));
+        verify(slotRegistryService, never()).rename(any(), any());
+    }
+
+    @Test
+    @DisplayName("renameSlotCode: меняет код в таблице ячеек и в реестре")
+    void renameSlotCode_GivenFreeCode_ShouldRenameSlotAndRegistry() {
+        UUID warehouseId = UUID.randomUUID();
+        UUID rackId = UUID.randomUUID();
+        UUID cellId = UUID.randomUUID();
+        when(slotRegistryService.find(cellId)).thenReturn(Optional.of(SlotRegistryEntry.builder()
+                .slotId(cellId).slotType(SlotType.CELL).warehouseId(warehouseId).rackId(rackId)
+                .slotCode("B-1").build()));
+        when(cellRepository.findById(cellId)).thenReturn(Optional.of(Cell.builder()
+                .cellId(cellId).rackId(rackId).warehouseId(warehouseId).slotCode("B-1")
+                .heightCm(BigDecimal.TEN).build()));
+
+        Map<String, Object> row = rackService.renameSlotCode(cellId, "B-2");
+
+        assertThat(row).containsEntry("slotCode", "B-2");
+        verify(cellRepository).save(any(Cell.class));
+        verify(slotRegistryService).rename(cellId, "B-2");
+        verify(topologyEventPublisher).structureChanged(warehouseId, rackId, "SLOT_RENAMED");
+    }
+
     @Test
     @DisplayName("deleteRack: существующий → удаляет и пишет RACK_DELETED событие")
     void deleteRack_GivenExisting_ShouldDeleteAndEvent() {
@@ -0,0 +1,161 @@
+package by.bsuir.warehouseservice.service;
+
+import by.bsuir.warehouseservice.dto.request.SlotHeightBatchRequest;
+import by.bsuir.warehouseservice.dto.response.SlotHeightBatchResponse;
+import by.bsuir.warehouseservice.model.entity.Cell;
+import by.bsuir.warehouseservice.model.entity.PalletPlace;
+import by.bsuir.warehouseservice.model.entity.SlotHeightAdjustment;
+import by.bsuir.warehouseservice.model.entity.SlotRegistryEntry;
+import by.bsuir.warehouseservice.model.enums.SlotAdjustmentStatus;
+import by.bsuir.warehouseservice.model.enums.SlotType;
+import by.bsuir.warehouseservice.repository.CellRepository;
+import by.bsuir.warehouseservice.repository.PalletPlaceRepository;
+import by.bsuir.warehouseservice.repository.ShelfRepository;
+import by.bsuir.warehouseservice.repository.SlotHeightAdjustmentRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SlotHeightService — модульные тесты")
+class SlotHeightServiceTest {
+
+    @Mock private CellRepository cellRepository;
+    @Mock private ShelfRepository shelfRepository;
+    @Mock private PalletPlaceRepository palletPlaceRepository;
+    @Mock private SlotHeightAdjustmentRepository adjustmentRepository;
+    @Mock private TopologyEventPublisher topologyEventPublisher;
+    @Mock private SlotRegistryService slotRegistryService;
+
+    @InjectMocks private SlotHeightService service;
+
+    private final UUID warehouseId = UUID.randomUUID();
+
+    private SlotRegistryEntry registered(UUID id, SlotType type, String height) {
+        return SlotRegistryEntry.builder()
+                .slotId(id)
+                .slotType(type)
+                .warehouseId(warehouseId)
+                .heightCm(new BigDecimal(height))
+                .build();
+    }
+
+    private Cell cell(UUID id, String height, String remaining) {
+        return Cell.builder()
+                .cellId(id)
+                .warehouseId(warehouseId)
+                .heightCm(new BigDecimal(height))
+                .remainingHeightCm(new BigDecimal(remaining))
+                .build();
+    }
+
+    @Test
+    @DisplayName("adjustHeights: новое изменение применяется и запоминается по ключу идемпотентности")
+    void adjustHeights_GivenNewKey_ShouldApplyAndRecord() {
+        UUID slotId = UUID.randomUUID();
+        UUID key = UUID.randomUUID();
+        when(adjustmentRepository.findAllById(List.of(key))).thenReturn(List.of());
+        when(slotRegistryService.find(slotId)).thenReturn(Optional.of(registered(slotId, SlotType.CELL, "100")));
+        when(cellRepository.findById(slotId)).thenReturn(Optional.of(cell(slotId, "100", "60")));
+        when(adjustmentRepository.save(any(SlotHeightAdjustment.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        SlotHeightBatchResponse response = service.adjustHeights(List.of(
+                new SlotHeightBatchRequest.Item(slotId, new BigDecimal("-15"), key)));
+
+        assertThat(response.results()).singleElement().satisfies(r -> {
+            assertThat(r.status()).isEqualTo(SlotAdjustmentStatus.APPLIED);
+            assertThat(r.remainingHeightCm()).isEqualByComparingTo("45");
+        });
+        verify(cellRepository).adjustRemainingHeight(slotId, new BigDecimal("-15"));
+        verify(topologyEventPublisher).slotHeightChanged(warehouseId, slotId, new BigDecimal("45"));
+    }
+
+    @Test
+    @DisplayName("adjustHeights: повтор с известным ключом не меняет высоту повторно")
+    void adjustHeights_GivenKnownKey_ShouldReturnDuplicateWithoutApplying() {
+        UUID slotId = UUID.randomUUID();
+        UUID key = UUID.randomUUID();
+        when(adjustmentRepository.findAllById(List.of(key))).thenReturn(List.of(SlotHeightAdjustment.builder()
+                .idempotencyKey(key)
+                .slotId(slotId)
+                .deltaCm(new BigDecimal("-15"))
+                .status(SlotAdjustmentStatus.APPLIED)
+                .remainingHeightCm(new BigDecimal("45"))
+                .build()));
+
+        SlotHeightBatchResponse response = service.adjustHeights(List.of(
+                new SlotHeightBatchRequest.Item(slotId, new BigDecimal("-15"), key)));
+
+        assertThat(response.results()).singleElement().satisfies(r -> {
+            assertThat(r.status()).isEqualTo(SlotAdjustmentStatus.DUPLICATE);
+            assertThat(r.remainingHeightCm()).isEqualByComparingTo("45");
+        });
+        verify(cellRepository, never()).adjustRemainingHeight(any(), any());
+        verify(adjustmentRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("adjustHeights: несуществующий слот не валит пакет — NOT_FOUND без записи ключа, остальные применяются")
+    void adjustHeights_GivenUnknownSlot_ShouldMarkNotFoundAndContinue() {
+        UUID missing = UUID.randomUUID();
+        UUID slotId = UUID.randomUUID();
+        UUID missingKey = UUID.randomUUID();
+        UUID key = UUID.randomUUID();
+        when(adjustmentRepository.findAllById(List.of(missingKey, key))).thenReturn(List.of());
+        when(slotRegistryService.find(missing)).thenReturn(Optional.empty());
+        when(slotRegistryService.find(slotId)).thenReturn(Optional.of(registered(slotId, SlotType.CELL, "100")));
+        when(cellRepository.findById(slotId)).thenReturn(Optional.of(cell(slotId, "100", "90")));
+        when(adjustmentRepository.save(any(SlotHeightAdjustment.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        SlotHeightBatchResponse response = service.adjustHeights(List.of(
+                new SlotHeightBatchRequest.Item(missing, new BigDecimal("5"), missingKey),
+                new SlotHeightBatchRequest.Item(slotId, new BigDecimal("20"), key)));
+
+        assertThat(response.results()).extracting(SlotHeightBatchResponse.Result::status)
+                .containsExactly(SlotAdjustmentStatus.NOT_FOUND, SlotAdjustmentStatus.APPLIED);
+        assertThat(response.results().get(1).remainingHeightCm()).isEqualByComparingTo("100");
+        verify(cellRepository).adjustRemainingHeight(slotId, new BigDecimal("10"));
+        verify(cellRepository, never()).findById(missing);
+        ArgumentCaptor<SlotHeightAdjustment> saved = ArgumentCaptor.forClass(SlotHeightAdjustment.class);
+        verify(adjustmentRepository).save(saved.capture());
+        assertThat(saved.getValue().getIdempotencyKey()).isEqualTo(key);
+    }
+
+    @Test
+    @DisplayName("adjustHeight: паллетоместо находится по реестру без обращения к ячейкам и полкам")
+    void adjustHeight_GivenPalletPlace_ShouldResolveThroughRegistry() {
+        UUID slotId = UUID.randomUUID();
+        SlotRegistryEntry entry = registered(slotId, SlotType.PALLET_PLACE, "150");
+        entry.setMaxHeightCm(new BigDecimal("180"));
+        when(slotRegistryService.find(slotId)).thenReturn(Optional.of(entry));
+        when(palletPlaceRepository.findById(slotId)).thenReturn(Optional.of(PalletPlace.builder()
+                .placeId(slotId)
+                .warehouseId(warehouseId)
+                .heightCm(new BigDecimal("150"))
+                .maxHeightCm(new BigDecimal("180"))
+                .remainingHeightCm(new BigDecimal("170"))
+                .build()));
+
+        BigDecimal remaining = service.adjustHeight(slotId, new BigDecimal("30"));
+
+        assertThat(remaining).isEqualByComparingTo("180");
+        verify(palletPlaceRepository).adjustRemainingHeight(slotId, new BigDecimal("10"));
+        verifyNoInteractions(cellRepository, shelfRepository);
+    }
+}
@@ -0,0 +1,115 @@
+package by.bsuir.warehouseservice.service;
+
+import by.bsuir.warehouseservice.model.entity.Cell;
+import by.bsuir.warehouseservice.model.entity.RackReadModel;
+import by.bsuir.warehouseservice.model.entity.SlotRegistryEntry;
+import by.bsuir.warehouseservice.model.enums.SlotType;
+import by.bsuir.warehouseservice.repository.CellRepository;
+import by.bsuir.warehouseservice.repository.PalletPlaceRepository;
+import by.bsuir.warehouseservice.repository.RackReadModelRepository;
+import by.bsuir.warehouseservice.repository.ShelfRepository;
+import by.bsuir.warehouseservice.repository.SlotRegistryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SlotRegistryService — модульные тесты")
+class SlotRegistryServiceTest {
+
+    @Mock private SlotRegistryRepository slotRegistryRepository;
+    @Mock private CellRepository cellRepository;
+    @Mock private ShelfRepository shelfRepository;
+    @Mock private PalletPlaceRepository palletPlaceRepository;
+    @Mock private RackReadModelRepository rackRepository;
+
+    @InjectMocks private SlotRegistryService service;
+
+    private final UUID warehouseId = UUID.randomUUID();
+    private final UUID rackId = UUID.randomUUID();
+
+    private Cell cell(UUID id, String code) {
+        return Cell.builder()
+                .cellId(id)
+                .warehouseId(warehouseId)
+                .rackId(rackId)
+                .slotCode(code)
+                .lengthCm(BigDecimal.TEN)
+                .widthCm(BigDecimal.TEN)
+                .heightCm(new BigDecimal("100"))
+                .build();
+    }
+
+    @Test
+    @DisplayName("find: слот вне реестра находится в таблице слотов")
+    void find_GivenUnregisteredCell_ShouldFallBackToCellTable() {
+        UUID cellId = UUID.randomUUID();
+        when(slotRegistryRepository.findById(cellId)).thenReturn(Optional.empty());
+        when(cellRepository.findById(cellId)).thenReturn(Optional.of(cell(cellId, "A-1")));
+
+        Optional<SlotRegistryEntry> found = service.find(cellId);
+
+        assertThat(found).isPresent();
+        assertThat(found.get().getSlotType()).isEqualTo(SlotType.CELL);
+        assertThat(found.get().getRackId()).isEqualTo(rackId);
+        verify(shelfRepository, never()).findById(cellId);
+    }
+
+    @Test
+    @DisplayName("findByCode: слот вне реестра возвращается вместе со стеллажом")
+    void findByCode_GivenUnregisteredCell_ShouldFallBackWithRack() {
+        UUID cellId = UUID.randomUUID();
+        RackReadModel rack = RackReadModel.builder().rackId(rackId).warehouseId(warehouseId).build();
+        when(slotRegistryRepository.findWithRackByCode(warehouseId, "A-1")).thenReturn(Optional.empty());
+        when(cellRepository.findByWarehouseIdAndSlotCode(warehouseId, "A-1")).thenReturn(Optional.of(cell(cellId, "A-1")));
+        when(rackRepository.findById(rackId)).thenReturn(Optional.of(rack));
+
+        Optional<SlotRegistryRepository.SlotWithRack> found = service.findByCode(warehouseId, "A-1");
+
+        assertThat(found).isPresent();
+        assertThat(found.get().getSlot().getSlotId()).isEqualTo(cellId);
+        assertThat(found.get().getRack()).isSameAs(rack);
+    }
+
+    @Test
+    @DisplayName("isCodeTaken: после полного backfill таблицы слотов не опрашиваются")
+    void isCodeTaken_GivenCompleteBackfill_ShouldUseRegistryOnly() {
+        when(slotRegistryRepository.findUnregisteredSlots()).thenReturn(List.of());
+        service.backfill();
+        when(slotRegistryRepository.existsByWarehouseIdAndSlotCode(warehouseId, "A-1")).thenReturn(false);
+
+        assertThat(service.isCodeTaken(warehouseId, "A-1", null)).isFalse();
+        verify(cellRepository, never()).findByWarehouseIdAndSlotCode(warehouseId, "A-1");
+    }
+
+    @Test
+    @DisplayName("isCodeTaken: код слота, пропущенного backfill, считается занятым")
+    void isCodeTaken_GivenSkippedSlot_ShouldCheckSlotTables() {
+        UUID cellId = UUID.randomUUID();
+        SlotRegistryRepository.UnregisteredSlot skipped = new SlotRegistryRepository.UnregisteredSlot() {
+            public UUID getSlotId() { return cellId; }
+            public String getSlotType() { return "CELL"; }
+            public UUID getWarehouseId() { return warehouseId; }
+            public String getSlotCode() { return "A-1"; }
+        };
+        when(slotRegistryRepository.findUnregisteredSlots()).thenReturn(List.of(skipped));
+        service.backfill();
+        when(slotRegistryRepository.existsByWarehouseIdAndSlotCode(warehouseId, "A-1")).thenReturn(false);
+        when(cellRepository.findByWarehouseIdAndSlotCode(warehouseId, "A-1")).thenReturn(Optional.of(cell(cellId, "A-1")));
+
+        assertThat(service.isCodeTaken(warehouseId, "A-1", null)).isTrue();
+    }
+}
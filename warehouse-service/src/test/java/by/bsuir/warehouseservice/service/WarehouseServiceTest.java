@@ -44,6 +44,9 @@ class WarehouseServiceTest {
     @Mock
     private RabbitTemplate rabbitTemplate;
 
+    @Mock
+    private AnalyticsCacheInvalidator analyticsCacheInvalidator;
+
     @InjectMocks
     private WarehouseService warehouseService;
 